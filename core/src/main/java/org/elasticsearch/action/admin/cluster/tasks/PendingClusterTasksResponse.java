@@ -19,8 +19,11 @@
 
 package org.elasticsearch.action.admin.cluster.tasks;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.cluster.service.ClusterStateBatchStats;
 import org.elasticsearch.cluster.service.PendingClusterTask;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.ToXContent;
@@ -39,11 +42,15 @@ public class PendingClusterTasksResponse extends ActionResponse implements Itera
 
     private List<PendingClusterTask> pendingTasks;
 
+    @Nullable
+    private ClusterStateBatchStats batchStats;
+
     PendingClusterTasksResponse() {
     }
 
-    PendingClusterTasksResponse(List<PendingClusterTask> pendingTasks) {
+    PendingClusterTasksResponse(List<PendingClusterTask> pendingTasks, ClusterStateBatchStats batchStats) {
         this.pendingTasks = pendingTasks;
+        this.batchStats = batchStats;
     }
 
     public List<PendingClusterTask> pendingTasks() {
@@ -57,6 +64,14 @@ public class PendingClusterTasksResponse extends ActionResponse implements Itera
         return pendingTasks();
     }
 
+    /**
+     * Stats about the batches of tasks the master executed so far, or <tt>null</tt> if the master does not report them.
+     */
+    @Nullable
+    public ClusterStateBatchStats getBatchStats() {
+        return batchStats;
+    }
+
     @Override
     public Iterator<PendingClusterTask> iterator() {
         return pendingTasks.iterator();
@@ -98,6 +113,9 @@ public class PendingClusterTasksResponse extends ActionResponse implements Itera
             builder.endObject();
         }
         builder.endArray();
+        if (batchStats != null) {
+            batchStats.toXContent(builder, params);
+        }
         return builder;
     }
 
@@ -123,6 +141,10 @@ public class PendingClusterTasksResponse extends ActionResponse implements Itera
             task.readFrom(in);
             pendingTasks.add(task);
         }
+        if (in.getVersion().onOrAfter(Version.V_5_0_0_alpha1) && in.readBoolean()) {
+            batchStats = new ClusterStateBatchStats();
+            batchStats.readFrom(in);
+        }
     }
 
     @Override
@@ -132,6 +154,12 @@ public class PendingClusterTasksResponse extends ActionResponse implements Itera
         for (PendingClusterTask task : pendingTasks) {
             task.writeTo(out);
         }
+        if (out.getVersion().onOrAfter(Version.V_5_0_0_alpha1)) {
+            out.writeBoolean(batchStats != null);
+            if (batchStats != null) {
+                batchStats.writeTo(out);
+            }
+        }
     }
 
 }
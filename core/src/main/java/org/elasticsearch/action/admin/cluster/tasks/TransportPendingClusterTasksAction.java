@@ -69,6 +69,6 @@ public class TransportPendingClusterTasksAction extends TransportMasterNodeReadA
         logger.trace("fetching pending tasks from cluster service");
         final List<PendingClusterTask> pendingTasks = clusterService.pendingTasks();
         logger.trace("done fetching pending tasks from cluster service");
-        listener.onResponse(new PendingClusterTasksResponse(pendingTasks));
+        listener.onResponse(new PendingClusterTasksResponse(pendingTasks, clusterService.batchStats()));
     }
 }
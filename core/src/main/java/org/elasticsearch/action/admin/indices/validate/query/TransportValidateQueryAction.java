@@ -172,6 +172,8 @@ public class TransportValidateQueryAction extends TransportBroadcastAction<Valid
         boolean valid;
         String explanation = null;
         String error = null;
+        // refreshes the shard if it skipped refreshes while it was not searched
+        indexShard.awaitSearchActive();
         Engine.Searcher searcher = indexShard.acquireSearcher("validate_query");
 
         DefaultSearchContext searchContext = new DefaultSearchContext(0,
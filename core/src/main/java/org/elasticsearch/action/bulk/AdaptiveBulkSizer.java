@@ -0,0 +1,124 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+
+/**
+ * Holds the current bulk size and number of concurrent requests of a {@link BulkProcessor} that uses
+ * {@link AdaptiveBulkSizing}, and adjusts them whenever a bulk request completes.
+ */
+final class AdaptiveBulkSizer {
+
+    private final AdaptiveBulkSizing sizing;
+    private final boolean adjustConcurrentRequests;
+
+    private volatile long bulkSize;
+    private volatile int concurrentRequests;
+
+    // the highest execution id that was started, and the one that was the highest when we last decreased; bulk requests that
+    // were started before the last decrease shouldn't cause another one
+    private long highestStartedExecutionId = 0;
+    private long lastDecreaseExecutionId = 0;
+
+    AdaptiveBulkSizer(AdaptiveBulkSizing sizing, ByteSizeValue initialBulkSize, int initialConcurrentRequests) {
+        sizing.validate();
+        this.sizing = sizing;
+        long minBulkSize = sizing.getMinBulkSize().bytes();
+        long maxBulkSize = sizing.getMaxBulkSize().bytes();
+        this.bulkSize = initialBulkSize.bytes() <= 0 ? minBulkSize : Math.min(maxBulkSize, Math.max(minBulkSize, initialBulkSize.bytes()));
+        // a bulk processor without concurrent requests executes bulk requests synchronously, which we leave as is
+        this.adjustConcurrentRequests = initialConcurrentRequests > 0;
+        this.concurrentRequests = Math.min(initialConcurrentRequests, sizing.getMaxConcurrentRequests());
+    }
+
+    /**
+     * The size in bytes at which a bulk request should be executed.
+     */
+    long bulkSize() {
+        return bulkSize;
+    }
+
+    /**
+     * The number of bulk requests that may be executed concurrently.
+     */
+    int concurrentRequests() {
+        return concurrentRequests;
+    }
+
+    /**
+     * The largest number of concurrent requests this sizer will ever allow.
+     */
+    int maxConcurrentRequests() {
+        return sizing.getMaxConcurrentRequests();
+    }
+
+    AdaptiveBulkSizing.Listener listener() {
+        return sizing.getListener();
+    }
+
+    synchronized void onBulkStarted(long executionId) {
+        highestStartedExecutionId = Math.max(highestStartedExecutionId, executionId);
+    }
+
+    synchronized AdaptiveBulkSizing.Decision onBulkCompleted(long executionId, long latencyNanos, boolean rejected) {
+        final AdaptiveBulkSizing.Decision.Direction direction;
+        if (rejected || latencyNanos > sizing.getTargetLatency().nanos()) {
+            if (executionId > lastDecreaseExecutionId) {
+                bulkSize = Math.max(sizing.getMinBulkSize().bytes(), (long) (bulkSize * sizing.getDecreaseFactor()));
+                if (adjustConcurrentRequests) {
+                    concurrentRequests = Math.max(1, (int) (concurrentRequests * sizing.getDecreaseFactor()));
+                }
+                lastDecreaseExecutionId = highestStartedExecutionId;
+                direction = AdaptiveBulkSizing.Decision.Direction.DECREASE;
+            } else {
+                direction = AdaptiveBulkSizing.Decision.Direction.UNCHANGED;
+            }
+        } else if (bulkSize < sizing.getMaxBulkSize().bytes()) {
+            bulkSize = Math.min(sizing.getMaxBulkSize().bytes(), bulkSize + sizing.getBulkSizeStep().bytes());
+            direction = AdaptiveBulkSizing.Decision.Direction.INCREASE;
+        } else if (adjustConcurrentRequests && concurrentRequests < sizing.getMaxConcurrentRequests()) {
+            concurrentRequests++;
+            direction = AdaptiveBulkSizing.Decision.Direction.INCREASE;
+        } else {
+            direction = AdaptiveBulkSizing.Decision.Direction.UNCHANGED;
+        }
+        return new AdaptiveBulkSizing.Decision(executionId, direction, TimeValue.timeValueNanos(latencyNanos), rejected,
+            new ByteSizeValue(bulkSize), concurrentRequests);
+    }
+
+    static boolean isRejected(Throwable failure) {
+        return ExceptionsHelper.unwrapCause(failure) instanceof EsRejectedExecutionException;
+    }
+
+    static boolean isRejected(BulkResponse response) {
+        if (response.hasFailures()) {
+            for (BulkItemResponse item : response) {
+                if (item.isFailed() && isRejected(item.getFailure().getCause())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
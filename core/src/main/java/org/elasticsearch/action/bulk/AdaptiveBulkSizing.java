@@ -0,0 +1,241 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.Objects;
+
+/**
+ * Configures a {@link BulkProcessor} to tune the size of its bulk requests and the number of concurrent bulk requests based
+ * on how the cluster copes with them, using additive increase / multiplicative decrease (AIMD) control.
+ * <p>
+ * After every bulk request that completed within the target latency and without any rejections, the bulk size is increased
+ * by a fixed step. Once the maximum bulk size is reached, the number of concurrent requests is increased by one instead. If
+ * a bulk request took longer than the target latency, or the request or any of its items were rejected, both the bulk size
+ * and the number of concurrent requests are multiplied by the decrease factor. Bulk requests that were already in flight
+ * when a decrease happened don't cause another decrease, so a single overload isn't punished multiple times.
+ * <p>
+ * The number of actions per bulk request that is configured on the bulk processor is still respected as an upper bound.
+ */
+public final class AdaptiveBulkSizing {
+
+    /**
+     * A listener that is notified of every decision the adaptive bulk sizing takes, for monitoring purposes.
+     */
+    public interface Listener {
+
+        /**
+         * Called after a bulk request completed and the bulk size and number of concurrent requests have been adjusted.
+         */
+        void onDecision(Decision decision);
+    }
+
+    private ByteSizeValue minBulkSize = new ByteSizeValue(1, ByteSizeUnit.MB);
+    private ByteSizeValue maxBulkSize = new ByteSizeValue(50, ByteSizeUnit.MB);
+    private ByteSizeValue bulkSizeStep = new ByteSizeValue(1, ByteSizeUnit.MB);
+    private int maxConcurrentRequests = 8;
+    private double decreaseFactor = 0.5;
+    private TimeValue targetLatency = TimeValue.timeValueSeconds(2);
+    private Listener listener = decision -> {};
+
+    /**
+     * Sets the smallest size the bulk requests are shrunk to. Defaults to <tt>1mb</tt>.
+     */
+    public AdaptiveBulkSizing setMinBulkSize(ByteSizeValue minBulkSize) {
+        this.minBulkSize = Objects.requireNonNull(minBulkSize, "minBulkSize");
+        return this;
+    }
+
+    /**
+     * Sets the largest size the bulk requests are grown to. Defaults to <tt>50mb</tt>.
+     */
+    public AdaptiveBulkSizing setMaxBulkSize(ByteSizeValue maxBulkSize) {
+        this.maxBulkSize = Objects.requireNonNull(maxBulkSize, "maxBulkSize");
+        return this;
+    }
+
+    /**
+     * Sets how much the bulk size grows after a bulk request completed in time. Defaults to <tt>1mb</tt>.
+     */
+    public AdaptiveBulkSizing setBulkSizeStep(ByteSizeValue bulkSizeStep) {
+        this.bulkSizeStep = Objects.requireNonNull(bulkSizeStep, "bulkSizeStep");
+        return this;
+    }
+
+    /**
+     * Sets the largest number of concurrent requests. Defaults to <tt>8</tt>. Only applies if the bulk processor allows
+     * for concurrent requests at all, the number of concurrent requests configured on the bulk processor is used as
+     * the initial value.
+     */
+    public AdaptiveBulkSizing setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        return this;
+    }
+
+    /**
+     * Sets the factor the bulk size and number of concurrent requests are multiplied with when the cluster is overloaded.
+     * Defaults to <tt>0.5</tt>.
+     */
+    public AdaptiveBulkSizing setDecreaseFactor(double decreaseFactor) {
+        this.decreaseFactor = decreaseFactor;
+        return this;
+    }
+
+    /**
+     * Sets the latency of bulk requests above which the cluster is considered overloaded. Defaults to <tt>2s</tt>.
+     */
+    public AdaptiveBulkSizing setTargetLatency(TimeValue targetLatency) {
+        this.targetLatency = Objects.requireNonNull(targetLatency, "targetLatency");
+        return this;
+    }
+
+    /**
+     * Sets a listener that is notified of every decision.
+     */
+    public AdaptiveBulkSizing setListener(Listener listener) {
+        this.listener = Objects.requireNonNull(listener, "listener");
+        return this;
+    }
+
+    public ByteSizeValue getMinBulkSize() {
+        return minBulkSize;
+    }
+
+    public ByteSizeValue getMaxBulkSize() {
+        return maxBulkSize;
+    }
+
+    public ByteSizeValue getBulkSizeStep() {
+        return bulkSizeStep;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    public TimeValue getTargetLatency() {
+        return targetLatency;
+    }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    void validate() {
+        if (minBulkSize.bytes() <= 0) {
+            throw new IllegalArgumentException("minBulkSize must be positive but was [" + minBulkSize + "]");
+        }
+        if (maxBulkSize.bytes() < minBulkSize.bytes()) {
+            throw new IllegalArgumentException("maxBulkSize [" + maxBulkSize + "] must not be smaller than minBulkSize ["
+                + minBulkSize + "]");
+        }
+        if (bulkSizeStep.bytes() <= 0) {
+            throw new IllegalArgumentException("bulkSizeStep must be positive but was [" + bulkSizeStep + "]");
+        }
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1 but was [" + maxConcurrentRequests + "]");
+        }
+        if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+            throw new IllegalArgumentException("decreaseFactor must be between 0 and 1 but was [" + decreaseFactor + "]");
+        }
+    }
+
+    /**
+     * A decision taken by the adaptive bulk sizing after a bulk request completed.
+     */
+    public static final class Decision {
+
+        /**
+         * The direction the bulk size and concurrent requests were adjusted in.
+         */
+        public enum Direction {
+            INCREASE, DECREASE, UNCHANGED
+        }
+
+        private final long executionId;
+        private final Direction direction;
+        private final TimeValue latency;
+        private final boolean rejected;
+        private final ByteSizeValue bulkSize;
+        private final int concurrentRequests;
+
+        Decision(long executionId, Direction direction, TimeValue latency, boolean rejected, ByteSizeValue bulkSize,
+                 int concurrentRequests) {
+            this.executionId = executionId;
+            this.direction = direction;
+            this.latency = latency;
+            this.rejected = rejected;
+            this.bulkSize = bulkSize;
+            this.concurrentRequests = concurrentRequests;
+        }
+
+        /**
+         * The execution id of the bulk request whose completion led to this decision.
+         */
+        public long getExecutionId() {
+            return executionId;
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        /**
+         * The latency of the bulk request, including any retries.
+         */
+        public TimeValue getLatency() {
+            return latency;
+        }
+
+        /**
+         * Whether the bulk request or any of its items were rejected.
+         */
+        public boolean isRejected() {
+            return rejected;
+        }
+
+        /**
+         * The bulk size used for the next bulk requests.
+         */
+        public ByteSizeValue getBulkSize() {
+            return bulkSize;
+        }
+
+        /**
+         * The number of concurrent requests allowed from now on.
+         */
+        public int getConcurrentRequests() {
+            return concurrentRequests;
+        }
+
+        @Override
+        public String toString() {
+            return "Decision{executionId=" + executionId + ", direction=" + direction + ", latency=" + latency + ", rejected=" + rejected
+                + ", bulkSize=" + bulkSize + ", concurrentRequests=" + concurrentRequests + "}";
+        }
+    }
+}
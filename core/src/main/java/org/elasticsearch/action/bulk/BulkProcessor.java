@@ -70,6 +70,17 @@ public class BulkProcessor implements Closeable {
          * cancelled externally, the thread's interruption status has been restored prior to calling this method.
          */
         void afterBulk(long executionId, BulkRequest request, Throwable failure);
+
+        /**
+         * Callback with the item responses of a single shard, called as soon as that shard completed its part of the bulk
+         * request and before the bulk request itself completes. This allows to act on failed items early. Only called when
+         * the bulk processor uses a node client.
+         *
+         * Note that items that were rejected may still get retried according to the backoff policy, the final outcome of
+         * every item is always passed to {@link #afterBulk(long, BulkRequest, BulkResponse)}.
+         */
+        default void afterShardBulk(long executionId, BulkRequest request, BulkItemResponse[] responses) {
+        }
     }
 
     /**
@@ -86,6 +97,7 @@ public class BulkProcessor implements Closeable {
         private ByteSizeValue bulkSize = new ByteSizeValue(5, ByteSizeUnit.MB);
         private TimeValue flushInterval = null;
         private BackoffPolicy backoffPolicy = BackoffPolicy.exponentialBackoff();
+        private AdaptiveBulkSizing adaptiveBulkSizing = null;
 
         /**
          * Creates a builder of bulk processor with the client to use and the listener that will be used
@@ -159,11 +171,25 @@ public class BulkProcessor implements Closeable {
             return this;
         }
 
+        /**
+         * Enables adaptive sizing of bulk requests. The bulk size and the number of concurrent requests are then tuned
+         * based on the latency and rejections of the bulk requests, starting from the configured values. The number of
+         * actions per bulk request configured through {@link #setBulkActions(int)} still applies as an upper bound.
+         * Defaults to not set.
+         *
+         * @see AdaptiveBulkSizing
+         */
+        public Builder setAdaptiveBulkSizing(AdaptiveBulkSizing adaptiveBulkSizing) {
+            this.adaptiveBulkSizing = adaptiveBulkSizing;
+            return this;
+        }
+
         /**
          * Builds a new bulk processor.
          */
         public BulkProcessor build() {
-            return new BulkProcessor(client, backoffPolicy, listener, name, concurrentRequests, bulkActions, bulkSize, flushInterval);
+            return new BulkProcessor(client, backoffPolicy, listener, name, concurrentRequests, bulkActions, bulkSize, flushInterval,
+                adaptiveBulkSizing);
         }
     }
 
@@ -176,6 +202,8 @@ public class BulkProcessor implements Closeable {
 
     private final int bulkActions;
     private final long bulkSize;
+    @Nullable
+    private final AdaptiveBulkSizer sizer;
 
 
     private final ScheduledThreadPoolExecutor scheduler;
@@ -188,12 +216,14 @@ public class BulkProcessor implements Closeable {
 
     private volatile boolean closed = false;
 
-    BulkProcessor(Client client, BackoffPolicy backoffPolicy, Listener listener, @Nullable String name, int concurrentRequests, int bulkActions, ByteSizeValue bulkSize, @Nullable TimeValue flushInterval) {
+    BulkProcessor(Client client, BackoffPolicy backoffPolicy, Listener listener, @Nullable String name, int concurrentRequests, int bulkActions, ByteSizeValue bulkSize, @Nullable TimeValue flushInterval,
+                  @Nullable AdaptiveBulkSizing adaptiveBulkSizing) {
         this.bulkActions = bulkActions;
         this.bulkSize = bulkSize.bytes();
+        this.sizer = adaptiveBulkSizing == null ? null : new AdaptiveBulkSizer(adaptiveBulkSizing, bulkSize, concurrentRequests);
 
         this.bulkRequest = new BulkRequest();
-        this.bulkRequestHandler = (concurrentRequests == 0) ? BulkRequestHandler.syncHandler(client, backoffPolicy, listener) : BulkRequestHandler.asyncHandler(client, backoffPolicy, listener, concurrentRequests);
+        this.bulkRequestHandler = (concurrentRequests == 0) ? BulkRequestHandler.syncHandler(client, backoffPolicy, listener, sizer) : BulkRequestHandler.asyncHandler(client, backoffPolicy, listener, concurrentRequests, sizer);
 
         if (flushInterval != null) {
             this.scheduler = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(1, EsExecutors.daemonThreadFactory(client.settings(), (name != null ? "[" + name + "]" : "") + "bulk_processor"));
@@ -319,6 +349,9 @@ public class BulkProcessor implements Closeable {
         if (bulkActions != -1 && bulkRequest.numberOfActions() >= bulkActions) {
             return true;
         }
+        if (sizer != null) {
+            return bulkRequest.estimatedSizeInBytes() >= sizer.bulkSize();
+        }
         if (bulkSize != -1 && bulkRequest.estimatedSizeInBytes() >= bulkSize) {
             return true;
         }
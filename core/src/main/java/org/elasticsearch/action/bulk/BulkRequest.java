@@ -39,10 +39,12 @@ import org.elasticsearch.common.xcontent.XContent;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.VersionType;
+import org.jboss.netty.buffer.ChannelBuffer;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.elasticsearch.action.ValidateActions.addValidationError;
 
@@ -63,6 +65,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
     protected TimeValue timeout = BulkShardRequest.DEFAULT_TIMEOUT;
     private WriteConsistencyLevel consistencyLevel = WriteConsistencyLevel.DEFAULT;
     private boolean refresh = false;
+    private Consumer<BulkItemResponse[]> shardResponseConsumer;
 
     private long sizeInBytes = 0;
 
@@ -262,8 +265,11 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
         int from = 0;
         int length = data.length();
         byte marker = xContent.streamSeparator();
+        // items are parsed from slices of the data rather than copies, scanning for the markers is the only pass over all the
+        // bytes, so it is done on the underlying array or buffer instead of going through BytesReference#get for every byte
+        ChannelBuffer buffer = data.hasArray() ? null : data.toChannelBuffer();
         while (true) {
-            int nextMarker = findNextMarker(marker, from, data, length);
+            int nextMarker = findNextMarker(marker, from, data, buffer, length);
             if (nextMarker == -1) {
                 break;
             }
@@ -364,7 +370,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
                 if ("delete".equals(action)) {
                     add(new DeleteRequest(index, type, id).routing(routing).parent(parent).version(version).versionType(versionType), payload);
                 } else {
-                    nextMarker = findNextMarker(marker, from, data, length);
+                    nextMarker = findNextMarker(marker, from, data, buffer, length);
                     if (nextMarker == -1) {
                         break;
                     }
@@ -447,6 +453,27 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
         return this.refresh;
     }
 
+    /**
+     * Sets a consumer that gets called with the item responses of every shard level bulk request as soon as that shard
+     * completed, rather than only once the whole bulk request has completed. Items that fail before they are sent to a
+     * shard, e.g. because their index doesn't exist, are handed to the consumer before any shard level request is sent.
+     * The item ids of the responses refer to the position of the items in this request. The response of the bulk request
+     * itself still contains all item responses.
+     *
+     * The consumer is not serialized with the request, it is only called when the request is executed on the node that it
+     * was created on, for example when it is executed through a node client. It is never called for requests sent through
+     * a transport client or for requests that are forwarded to an ingest node because they use ingest pipelines.
+     */
+    public BulkRequest shardResponseConsumer(@Nullable Consumer<BulkItemResponse[]> shardResponseConsumer) {
+        this.shardResponseConsumer = shardResponseConsumer;
+        return this;
+    }
+
+    @Nullable
+    public Consumer<BulkItemResponse[]> shardResponseConsumer() {
+        return this.shardResponseConsumer;
+    }
+
     /**
      * A timeout to wait if the index operation can't be performed immediately. Defaults to <tt>1m</tt>.
      */
@@ -466,9 +493,16 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
         return timeout;
     }
 
-    private int findNextMarker(byte marker, int from, BytesReference data, int length) {
+    private int findNextMarker(byte marker, int from, BytesReference data, @Nullable ChannelBuffer buffer, int length) {
+        if (buffer != null) {
+            int readerIndex = buffer.readerIndex();
+            int index = buffer.indexOf(readerIndex + from, readerIndex + length, marker);
+            return index == -1 ? -1 : index - readerIndex;
+        }
+        final byte[] array = data.array();
+        final int offset = data.arrayOffset();
         for (int i = from; i < length; i++) {
-            if (data.get(i) == marker) {
+            if (array[offset + i] == marker) {
                 return i;
             }
         }
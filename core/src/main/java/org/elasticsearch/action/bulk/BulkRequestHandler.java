@@ -20,6 +20,7 @@ package org.elasticsearch.action.bulk;
 
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
@@ -33,9 +34,12 @@ import java.util.concurrent.TimeUnit;
 abstract class BulkRequestHandler {
     protected final ESLogger logger;
     protected final Client client;
+    @Nullable
+    protected final AdaptiveBulkSizer sizer;
 
-    protected BulkRequestHandler(Client client) {
+    protected BulkRequestHandler(Client client, @Nullable AdaptiveBulkSizer sizer) {
         this.client = client;
+        this.sizer = sizer;
         this.logger = Loggers.getLogger(getClass(), client.settings());
     }
 
@@ -44,21 +48,44 @@ abstract class BulkRequestHandler {
 
     public abstract boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException;
 
+    /**
+     * Feeds the outcome of a bulk request to the adaptive bulk sizer, if there is one.
+     */
+    protected void onBulkCompleted(long executionId, long startTimeNanos, @Nullable BulkResponse response, @Nullable Throwable failure) {
+        if (sizer == null) {
+            return;
+        }
+        boolean rejected = response != null ? AdaptiveBulkSizer.isRejected(response) : AdaptiveBulkSizer.isRejected(failure);
+        AdaptiveBulkSizing.Decision decision = sizer.onBulkCompleted(executionId, System.nanoTime() - startTimeNanos, rejected);
+        updateConcurrentRequests(decision.getConcurrentRequests());
+        try {
+            sizer.listener().onDecision(decision);
+        } catch (Throwable t) {
+            logger.warn("Failed to notify adaptive bulk sizing listener of decision {}.", t, decision);
+        }
+    }
+
+    protected void updateConcurrentRequests(int concurrentRequests) {
+    }
+
 
-    public static BulkRequestHandler syncHandler(Client client, BackoffPolicy backoffPolicy, BulkProcessor.Listener listener) {
-        return new SyncBulkRequestHandler(client, backoffPolicy, listener);
+    public static BulkRequestHandler syncHandler(Client client, BackoffPolicy backoffPolicy, BulkProcessor.Listener listener,
+                                                 @Nullable AdaptiveBulkSizer sizer) {
+        return new SyncBulkRequestHandler(client, backoffPolicy, listener, sizer);
     }
 
-    public static BulkRequestHandler asyncHandler(Client client, BackoffPolicy backoffPolicy, BulkProcessor.Listener listener, int concurrentRequests) {
-        return new AsyncBulkRequestHandler(client, backoffPolicy, listener, concurrentRequests);
+    public static BulkRequestHandler asyncHandler(Client client, BackoffPolicy backoffPolicy, BulkProcessor.Listener listener, int concurrentRequests,
+                                                  @Nullable AdaptiveBulkSizer sizer) {
+        return new AsyncBulkRequestHandler(client, backoffPolicy, listener, concurrentRequests, sizer);
     }
 
     private static class SyncBulkRequestHandler extends BulkRequestHandler {
         private final BulkProcessor.Listener listener;
         private final BackoffPolicy backoffPolicy;
 
-        public SyncBulkRequestHandler(Client client, BackoffPolicy backoffPolicy, BulkProcessor.Listener listener) {
-            super(client);
+        public SyncBulkRequestHandler(Client client, BackoffPolicy backoffPolicy, BulkProcessor.Listener listener,
+                                      @Nullable AdaptiveBulkSizer sizer) {
+            super(client, sizer);
             this.backoffPolicy = backoffPolicy;
             this.listener = listener;
         }
@@ -68,10 +95,24 @@ abstract class BulkRequestHandler {
             boolean afterCalled = false;
             try {
                 listener.beforeBulk(executionId, bulkRequest);
-                BulkResponse bulkResponse = Retry
-                        .on(EsRejectedExecutionException.class)
-                        .policy(backoffPolicy)
-                        .withSyncBackoff(client, bulkRequest);
+                bulkRequest.shardResponseConsumer(responses -> listener.afterShardBulk(executionId, bulkRequest, responses));
+                if (sizer != null) {
+                    sizer.onBulkStarted(executionId);
+                }
+                long startTimeNanos = System.nanoTime();
+                BulkResponse bulkResponse;
+                try {
+                    bulkResponse = Retry
+                            .on(EsRejectedExecutionException.class)
+                            .policy(backoffPolicy)
+                            .withSyncBackoff(client, bulkRequest);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Throwable t) {
+                    onBulkCompleted(executionId, startTimeNanos, null, t);
+                    throw t;
+                }
+                onBulkCompleted(executionId, startTimeNanos, bulkResponse, null);
                 afterCalled = true;
                 listener.afterBulk(executionId, bulkRequest, bulkResponse);
             } catch (InterruptedException e) {
@@ -100,14 +141,26 @@ abstract class BulkRequestHandler {
         private final BulkProcessor.Listener listener;
         private final Semaphore semaphore;
         private final int concurrentRequests;
+        // when adaptive bulk sizing lowers the number of concurrent requests, permits are held back rather than released
+        private int targetConcurrentRequests;
+        private int reservedPermits;
+        private boolean closing = false;
 
-        private AsyncBulkRequestHandler(Client client, BackoffPolicy backoffPolicy, BulkProcessor.Listener listener, int concurrentRequests) {
-            super(client);
+        private AsyncBulkRequestHandler(Client client, BackoffPolicy backoffPolicy, BulkProcessor.Listener listener, int concurrentRequests,
+                                        @Nullable AdaptiveBulkSizer sizer) {
+            super(client, sizer);
             this.backoffPolicy = backoffPolicy;
             assert concurrentRequests > 0;
             this.listener = listener;
-            this.concurrentRequests = concurrentRequests;
-            this.semaphore = new Semaphore(concurrentRequests);
+            if (sizer == null) {
+                this.concurrentRequests = concurrentRequests;
+                this.targetConcurrentRequests = concurrentRequests;
+            } else {
+                this.concurrentRequests = sizer.maxConcurrentRequests();
+                this.targetConcurrentRequests = sizer.concurrentRequests();
+            }
+            this.reservedPermits = this.concurrentRequests - this.targetConcurrentRequests;
+            this.semaphore = new Semaphore(this.targetConcurrentRequests);
         }
 
         @Override
@@ -116,26 +169,33 @@ abstract class BulkRequestHandler {
             boolean acquired = false;
             try {
                 listener.beforeBulk(executionId, bulkRequest);
+                bulkRequest.shardResponseConsumer(responses -> listener.afterShardBulk(executionId, bulkRequest, responses));
                 semaphore.acquire();
                 acquired = true;
+                if (sizer != null) {
+                    sizer.onBulkStarted(executionId);
+                }
+                final long startTimeNanos = System.nanoTime();
                 Retry.on(EsRejectedExecutionException.class)
                         .policy(backoffPolicy)
                         .withAsyncBackoff(client, bulkRequest, new ActionListener<BulkResponse>() {
                             @Override
                             public void onResponse(BulkResponse response) {
                                 try {
+                                    onBulkCompleted(executionId, startTimeNanos, response, null);
                                     listener.afterBulk(executionId, bulkRequest, response);
                                 } finally {
-                                    semaphore.release();
+                                    releasePermit();
                                 }
                             }
 
                             @Override
                             public void onFailure(Throwable e) {
                                 try {
+                                    onBulkCompleted(executionId, startTimeNanos, null, e);
                                     listener.afterBulk(executionId, bulkRequest, e);
                                 } finally {
-                                    semaphore.release();
+                                    releasePermit();
                                 }
                             }
                         });
@@ -149,13 +209,44 @@ abstract class BulkRequestHandler {
                 listener.afterBulk(executionId, bulkRequest, t);
             } finally {
                 if (!bulkRequestSetupSuccessful && acquired) {  // if we fail on client.bulk() release the semaphore
-                    semaphore.release();
+                    releasePermit();
+                }
+            }
+        }
+
+        private synchronized void releasePermit() {
+            if (closing == false && reservedPermits < concurrentRequests - targetConcurrentRequests) {
+                reservedPermits++;
+            } else {
+                semaphore.release();
+            }
+        }
+
+        @Override
+        protected synchronized void updateConcurrentRequests(int concurrentRequests) {
+            this.targetConcurrentRequests = concurrentRequests;
+            if (closing) {
+                return;
+            }
+            int targetReservedPermits = this.concurrentRequests - concurrentRequests;
+            if (reservedPermits > targetReservedPermits) {
+                semaphore.release(reservedPermits - targetReservedPermits);
+                reservedPermits = targetReservedPermits;
+            } else {
+                // permits that are in use are held back once they are released
+                while (reservedPermits < targetReservedPermits && semaphore.tryAcquire()) {
+                    reservedPermits++;
                 }
             }
         }
 
         @Override
         public boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+            synchronized (this) {
+                closing = true;
+                semaphore.release(reservedPermits);
+                reservedPermits = 0;
+            }
             if (semaphore.tryAcquire(this.concurrentRequests, timeout, unit)) {
                 semaphore.release(this.concurrentRequests);
                 return true;
@@ -147,6 +147,8 @@ public class Retry {
 
         private BulkRequest createBulkRequestForRetry(BulkResponse bulkItemResponses) {
             BulkRequest requestToReissue = new BulkRequest();
+            // the item ids handed to the consumer refer to the positions of the items in the reissued request
+            requestToReissue.shardResponseConsumer(currentBulkRequest.shardResponseConsumer());
             int index = 0;
             for (BulkItemResponse bulkItemResponse : bulkItemResponses.getItems()) {
                 if (bulkItemResponse.isFailed()) {
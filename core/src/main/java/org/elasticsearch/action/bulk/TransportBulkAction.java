@@ -65,6 +65,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.LongSupplier;
 
 /**
@@ -332,6 +333,21 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
             return;
         }
 
+        final Consumer<BulkItemResponse[]> shardResponseConsumer = bulkRequest.shardResponseConsumer();
+        if (shardResponseConsumer != null) {
+            // items that already failed won't be sent to any shard, so they can be handed out right away
+            List<BulkItemResponse> failedItems = new ArrayList<>();
+            for (int i = 0; i < responses.length(); i++) {
+                BulkItemResponse response = responses.get(i);
+                if (response != null) {
+                    failedItems.add(response);
+                }
+            }
+            if (failedItems.isEmpty() == false) {
+                notifyShardResponseConsumer(shardResponseConsumer, failedItems.toArray(new BulkItemResponse[failedItems.size()]));
+            }
+        }
+
         final AtomicInteger counter = new AtomicInteger(requestsByShard.size());
         for (Map.Entry<ShardId, List<BulkItemRequest>> entry : requestsByShard.entrySet()) {
             final ShardId shardId = entry.getKey();
@@ -349,6 +365,9 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
                         }
                         responses.set(bulkItemResponse.getItemId(), bulkItemResponse);
                     }
+                    if (shardResponseConsumer != null) {
+                        notifyShardResponseConsumer(shardResponseConsumer, bulkShardResponse.getResponses());
+                    }
                     if (counter.decrementAndGet() == 0) {
                         finishHim();
                     }
@@ -373,6 +392,13 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
                                     new BulkItemResponse.Failure(indexName, updateRequest.type(), updateRequest.id(), e)));
                         }
                     }
+                    if (shardResponseConsumer != null) {
+                        BulkItemResponse[] shardResponses = new BulkItemResponse[requests.size()];
+                        for (int i = 0; i < shardResponses.length; i++) {
+                            shardResponses[i] = responses.get(requests.get(i).id());
+                        }
+                        notifyShardResponseConsumer(shardResponseConsumer, shardResponses);
+                    }
                     if (counter.decrementAndGet() == 0) {
                         finishHim();
                     }
@@ -385,6 +411,14 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
         }
     }
 
+    private void notifyShardResponseConsumer(Consumer<BulkItemResponse[]> shardResponseConsumer, BulkItemResponse[] shardResponses) {
+        try {
+            shardResponseConsumer.accept(shardResponses);
+        } catch (Throwable t) {
+            logger.warn("failed to notify shard response consumer of bulk request", t);
+        }
+    }
+
     private boolean addFailureIfIndexIsUnavailable(DocumentRequest request, BulkRequest bulkRequest, AtomicArray<BulkItemResponse> responses, int idx,
                                               final ConcreteIndices concreteIndices,
                                               final MetaData metaData) {
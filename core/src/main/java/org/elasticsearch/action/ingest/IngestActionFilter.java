@@ -22,6 +22,7 @@ package org.elasticsearch.action.ingest;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.DocWriteResponse;
 import org.elasticsearch.action.bulk.BulkAction;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
@@ -44,6 +45,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public final class IngestActionFilter extends AbstractComponent implements ActionFilter {
 
@@ -104,9 +106,9 @@ public final class IngestActionFilter extends AbstractComponent implements Actio
     void processBulkIndexRequest(Task task, BulkRequest original, String action, ActionFilterChain chain, ActionListener<BulkResponse> listener) {
         long ingestStartTimeInNanos = System.nanoTime();
         BulkRequestModifier bulkRequestModifier = new BulkRequestModifier(original);
-        executionService.executeBulkRequest(() -> bulkRequestModifier, (indexRequest, throwable) -> {
+        executionService.executeBulkRequest(original.requests(), (indexRequest, throwable) -> {
             logger.debug("failed to execute pipeline [{}] for document [{}/{}/{}]", throwable, indexRequest.getPipeline(), indexRequest.index(), indexRequest.type(), indexRequest.id());
-            bulkRequestModifier.markCurrentItemAsFailed(throwable);
+            bulkRequestModifier.markItemAsFailed(indexRequest, throwable);
         }, (throwable) -> {
             if (throwable != null) {
                 logger.error("failed to execute pipeline for a bulk request", throwable);
@@ -114,6 +116,7 @@ public final class IngestActionFilter extends AbstractComponent implements Actio
             } else {
                 long ingestTookInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ingestStartTimeInNanos);
                 BulkRequest bulkRequest = bulkRequestModifier.getBulkRequest();
+                bulkRequestModifier.notifyShardResponseConsumerOfFailedItems();
                 ActionListener<BulkResponse> actionListener = bulkRequestModifier.wrapActionListenerIfNeeded(ingestTookInMillis, listener);
                 if (bulkRequest.requests().isEmpty()) {
                     // at this stage, the transport bulk action can't deal with a bulk request with no requests,
@@ -175,10 +178,39 @@ public final class IngestActionFilter extends AbstractComponent implements Actio
                         originalSlots[slot++] = i;
                     }
                 }
+                Consumer<BulkItemResponse[]> shardResponseConsumer = bulkRequest.shardResponseConsumer();
+                if (shardResponseConsumer != null) {
+                    modifiedBulkRequest.shardResponseConsumer(shardResponses -> shardResponseConsumer.accept(toOriginalSlots(shardResponses)));
+                }
                 return modifiedBulkRequest;
             }
         }
 
+        /**
+         * Hands the items that failed in their pipeline to the shard response consumer of the original bulk request, if it
+         * has one, as these items won't be sent to any shard.
+         */
+        void notifyShardResponseConsumerOfFailedItems() {
+            Consumer<BulkItemResponse[]> shardResponseConsumer = bulkRequest.shardResponseConsumer();
+            if (shardResponseConsumer != null && itemResponses.isEmpty() == false) {
+                shardResponseConsumer.accept(itemResponses.toArray(new BulkItemResponse[itemResponses.size()]));
+            }
+        }
+
+        private BulkItemResponse[] toOriginalSlots(BulkItemResponse[] shardResponses) {
+            BulkItemResponse[] responses = new BulkItemResponse[shardResponses.length];
+            for (int i = 0; i < shardResponses.length; i++) {
+                BulkItemResponse response = shardResponses[i];
+                int originalSlot = originalSlots[response.getItemId()];
+                if (response.isFailed()) {
+                    responses[i] = new BulkItemResponse(originalSlot, response.getOpType(), response.getFailure());
+                } else {
+                    responses[i] = new BulkItemResponse(originalSlot, response.getOpType(), response.<DocWriteResponse>getResponse());
+                }
+            }
+            return responses;
+        }
+
         ActionListener<BulkResponse> wrapActionListenerIfNeeded(long ingestTookInMillis, ActionListener<BulkResponse> actionListener) {
             if (itemResponses.isEmpty()) {
                 return new ActionListener<BulkResponse>() {
@@ -197,6 +229,20 @@ public final class IngestActionFilter extends AbstractComponent implements Actio
             }
         }
 
+        /**
+         * Marks the given index request as failed. Failures are reported in the order of the requests in the bulk, so
+         * the slot of the failed request is found by moving forward from the current slot.
+         */
+        void markItemAsFailed(IndexRequest failedRequest, Throwable e) {
+            while (hasNext()) {
+                if (next() == failedRequest) {
+                    markCurrentItemAsFailed(e);
+                    return;
+                }
+            }
+            throw new IllegalStateException("failed request [" + failedRequest + "] is not part of the bulk or was reported out of order");
+        }
+
         void markCurrentItemAsFailed(Throwable e) {
             IndexRequest indexRequest = (IndexRequest) bulkRequest.requests().get(currentSlot);
             // We hit a error during preprocessing a request, so we:
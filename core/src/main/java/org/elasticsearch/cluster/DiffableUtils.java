@@ -622,6 +622,29 @@ public final class DiffableUtils {
         }
     }
 
+    /**
+     * Implementation of ValueSerializer that serializes strings
+     *
+     * @param <K> type of map key
+     */
+    public static class StringValueSerializer<K> extends NonDiffableValueSerializer<K, String> {
+        private static final StringValueSerializer INSTANCE = new StringValueSerializer();
+
+        public static <K> StringValueSerializer<K> getInstance() {
+            return INSTANCE;
+        }
+
+        @Override
+        public void write(String value, StreamOutput out) throws IOException {
+            out.writeString(value);
+        }
+
+        @Override
+        public String read(StreamInput in, K key) throws IOException {
+            return in.readString();
+        }
+    }
+
     /**
      * Implementation of ValueSerializer that serializes immutable sets
      *
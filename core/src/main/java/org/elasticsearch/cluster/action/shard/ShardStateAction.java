@@ -39,13 +39,17 @@ import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Priority;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.discovery.Discovery;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.node.NodeClosedException;
@@ -63,6 +67,7 @@ import org.elasticsearch.transport.TransportService;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -75,9 +80,26 @@ public class ShardStateAction extends AbstractComponent {
     public static final String SHARD_STARTED_ACTION_NAME = "internal:cluster/shard/started";
     public static final String SHARD_FAILED_ACTION_NAME = "internal:cluster/shard/failure";
 
+    /**
+     * How long the master collects shard started and shard failed requests before it submits them as a
+     * single batch. Defaults to <tt>0</tt>, which submits every request as soon as it is received. Only these
+     * two kinds of tasks are delayed, all other cluster state update tasks are still submitted right away.
+     */
+    public static final Setting<TimeValue> SHARD_STATE_BATCH_DELAY_SETTING =
+        Setting.positiveTimeSetting("cluster.routing.shard_state.batch_delay", TimeValue.timeValueMillis(0), Property.NodeScope);
+
     private final TransportService transportService;
     private final ClusterService clusterService;
     private final ThreadPool threadPool;
+    private final TimeValue batchDelay;
+    private final ShardStateClusterStateTaskExecutor shardStateExecutor;
+    private final List<Tuple<ShardStateTask, ClusterStateTaskListener>> delayedTasks = new ArrayList<>();
+    private final ClusterStateTaskListener shardStartedListener = new ClusterStateTaskListener() {
+        @Override
+        public void onFailure(String source, Throwable t) {
+            logger.error("unexpected failure during [{}]", t, source);
+        }
+    };
 
     @Inject
     public ShardStateAction(Settings settings, ClusterService clusterService, TransportService transportService,
@@ -86,9 +108,54 @@ public class ShardStateAction extends AbstractComponent {
         this.transportService = transportService;
         this.clusterService = clusterService;
         this.threadPool = threadPool;
+        this.batchDelay = SHARD_STATE_BATCH_DELAY_SETTING.get(settings);
+        this.shardStateExecutor = new ShardStateClusterStateTaskExecutor(allocationService,
+            new ShardFailedClusterStateTaskExecutor(allocationService, routingService, logger));
+
+        transportService.registerRequestHandler(SHARD_STARTED_ACTION_NAME, ShardRoutingEntry::new, ThreadPool.Names.SAME, new ShardStartedTransportHandler());
+        transportService.registerRequestHandler(SHARD_FAILED_ACTION_NAME, ShardRoutingEntry::new, ThreadPool.Names.SAME, new ShardFailedTransportHandler());
+    }
 
-        transportService.registerRequestHandler(SHARD_STARTED_ACTION_NAME, ShardRoutingEntry::new, ThreadPool.Names.SAME, new ShardStartedTransportHandler(clusterService, new ShardStartedClusterStateTaskExecutor(allocationService, logger), logger));
-        transportService.registerRequestHandler(SHARD_FAILED_ACTION_NAME, ShardRoutingEntry::new, ThreadPool.Names.SAME, new ShardFailedTransportHandler(clusterService, new ShardFailedClusterStateTaskExecutor(allocationService, routingService, logger), logger));
+    /**
+     * Submits a shard started or shard failed task to the cluster service, either directly or as part of
+     * the next delayed batch. Both kinds of tasks share one executor so that they end up in the same batch.
+     */
+    private void submitShardStateTask(String source, ShardStateTask task, ClusterStateTaskListener listener) {
+        if (batchDelay.millis() == 0) {
+            clusterService.submitStateUpdateTask(source, task, ClusterStateTaskConfig.build(task.priority()), shardStateExecutor, listener);
+            return;
+        }
+        final boolean scheduleSubmit;
+        synchronized (delayedTasks) {
+            scheduleSubmit = delayedTasks.isEmpty();
+            delayedTasks.add(new Tuple<>(task, listener));
+        }
+        if (scheduleSubmit) {
+            try {
+                threadPool.schedule(batchDelay, ThreadPool.Names.SAME, this::submitDelayedShardStateTasks);
+            } catch (EsRejectedExecutionException e) {
+                // the node is shutting down; the cluster service drops the tasks if it is already stopped
+                submitDelayedShardStateTasks();
+            }
+        }
+    }
+
+    private void submitDelayedShardStateTasks() {
+        final Map<ShardStateTask, ClusterStateTaskListener> tasks = new LinkedHashMap<>();
+        int started = 0;
+        synchronized (delayedTasks) {
+            for (Tuple<ShardStateTask, ClusterStateTaskListener> delayedTask : delayedTasks) {
+                tasks.put(delayedTask.v1(), delayedTask.v2());
+                if (delayedTask.v1().started) {
+                    started++;
+                }
+            }
+            delayedTasks.clear();
+        }
+        // the tasks are executed as a single batch anyway, so they are all submitted with the highest priority among them
+        final Priority priority = started > 0 ? Priority.URGENT : Priority.HIGH;
+        final String source = "shard-state-batch ([" + started + "] started, [" + (tasks.size() - started) + "] failed)";
+        clusterService.submitStateUpdateTasks(source, tasks, ClusterStateTaskConfig.build(priority), shardStateExecutor);
     }
 
     private void sendShardAction(final String actionName, final ClusterStateObserver observer, final ShardRoutingEntry shardRoutingEntry, final Listener listener) {
@@ -169,25 +236,14 @@ public class ShardStateAction extends AbstractComponent {
         }, MasterNodeChangePredicate.INSTANCE);
     }
 
-    private static class ShardFailedTransportHandler implements TransportRequestHandler<ShardRoutingEntry> {
-        private final ClusterService clusterService;
-        private final ShardFailedClusterStateTaskExecutor shardFailedClusterStateTaskExecutor;
-        private final ESLogger logger;
-
-        public ShardFailedTransportHandler(ClusterService clusterService, ShardFailedClusterStateTaskExecutor shardFailedClusterStateTaskExecutor, ESLogger logger) {
-            this.clusterService = clusterService;
-            this.shardFailedClusterStateTaskExecutor = shardFailedClusterStateTaskExecutor;
-            this.logger = logger;
-        }
+    private class ShardFailedTransportHandler implements TransportRequestHandler<ShardRoutingEntry> {
 
         @Override
         public void messageReceived(ShardRoutingEntry request, TransportChannel channel) throws Exception {
             logger.warn("{} received shard failed for {}", request.failure, request.shardRouting.shardId(), request);
-            clusterService.submitStateUpdateTask(
+            submitShardStateTask(
                 "shard-failed (" + request.shardRouting + "), message [" + request.message + "]",
-                request,
-                ClusterStateTaskConfig.build(Priority.HIGH),
-                shardFailedClusterStateTaskExecutor,
+                new ShardStateTask(request, false),
                 new ClusterStateTaskListener() {
                     @Override
                     public void onFailure(String source, Throwable t) {
@@ -333,64 +389,121 @@ public class ShardStateAction extends AbstractComponent {
         sendShardAction(SHARD_STARTED_ACTION_NAME, observer, shardRoutingEntry, listener);
     }
 
-    private static class ShardStartedTransportHandler implements TransportRequestHandler<ShardRoutingEntry> {
-        private final ClusterService clusterService;
-        private final ShardStartedClusterStateTaskExecutor shardStartedClusterStateTaskExecutor;
-        private final ESLogger logger;
-
-        public ShardStartedTransportHandler(ClusterService clusterService, ShardStartedClusterStateTaskExecutor shardStartedClusterStateTaskExecutor, ESLogger logger) {
-            this.clusterService = clusterService;
-            this.shardStartedClusterStateTaskExecutor = shardStartedClusterStateTaskExecutor;
-            this.logger = logger;
-        }
+    private class ShardStartedTransportHandler implements TransportRequestHandler<ShardRoutingEntry> {
 
         @Override
         public void messageReceived(ShardRoutingEntry request, TransportChannel channel) throws Exception {
             logger.debug("{} received shard started for [{}]", request.shardRouting.shardId(), request);
-            clusterService.submitStateUpdateTask(
+            submitShardStateTask(
                 "shard-started (" + request.shardRouting + "), reason [" + request.message + "]",
-                request,
-                ClusterStateTaskConfig.build(Priority.URGENT),
-                shardStartedClusterStateTaskExecutor,
-                shardStartedClusterStateTaskExecutor);
+                new ShardStateTask(request, true),
+                shardStartedListener);
             channel.sendResponse(TransportResponse.Empty.INSTANCE);
         }
     }
 
-    private static class ShardStartedClusterStateTaskExecutor implements ClusterStateTaskExecutor<ShardRoutingEntry>, ClusterStateTaskListener {
+    /**
+     * A shard started or shard failed request that waits to be applied to the cluster state.
+     */
+    static class ShardStateTask {
+        final ShardRoutingEntry entry;
+        final boolean started;
+
+        ShardStateTask(ShardRoutingEntry entry, boolean started) {
+            this.entry = entry;
+            this.started = started;
+        }
+
+        Priority priority() {
+            return started ? Priority.URGENT : Priority.HIGH;
+        }
+
+        @Override
+        public String toString() {
+            return (started ? "shard started " : "shard failed ") + entry;
+        }
+    }
+
+    /**
+     * Applies the shard started and shard failed tasks of a batch with a single reroute, instead of
+     * one reroute per kind of task. Failed shards are validated against the state in which the
+     * started shards of the same batch were already applied.
+     */
+    static class ShardStateClusterStateTaskExecutor implements ClusterStateTaskExecutor<ShardStateTask> {
         private final AllocationService allocationService;
-        private final ESLogger logger;
+        private final ShardFailedClusterStateTaskExecutor shardFailedClusterStateTaskExecutor;
+        // only accessed from the cluster state update thread
+        private boolean failedShardsInLastBatch;
 
-        public ShardStartedClusterStateTaskExecutor(AllocationService allocationService, ESLogger logger) {
+        ShardStateClusterStateTaskExecutor(AllocationService allocationService,
+                                           ShardFailedClusterStateTaskExecutor shardFailedClusterStateTaskExecutor) {
             this.allocationService = allocationService;
-            this.logger = logger;
+            this.shardFailedClusterStateTaskExecutor = shardFailedClusterStateTaskExecutor;
         }
 
         @Override
-        public BatchResult<ShardRoutingEntry> execute(ClusterState currentState, List<ShardRoutingEntry> tasks) throws Exception {
-            BatchResult.Builder<ShardRoutingEntry> builder = BatchResult.builder();
-            List<ShardRouting> shardRoutingsToBeApplied = new ArrayList<>(tasks.size());
-            for (ShardRoutingEntry task : tasks) {
-                shardRoutingsToBeApplied.add(task.shardRouting);
+        public BatchResult<ShardStateTask> execute(ClusterState currentState, List<ShardStateTask> tasks) throws Exception {
+            BatchResult.Builder<ShardStateTask> builder = BatchResult.builder();
+            List<ShardStateTask> startedTasks = new ArrayList<>();
+            List<ShardStateTask> failedTasks = new ArrayList<>();
+            for (ShardStateTask task : tasks) {
+                (task.started ? startedTasks : failedTasks).add(task);
             }
+
             ClusterState maybeUpdatedState = currentState;
-            try {
-                RoutingAllocation.Result result =
-                    allocationService.applyStartedShards(currentState, shardRoutingsToBeApplied, true);
-                if (result.changed()) {
-                    maybeUpdatedState = ClusterState.builder(currentState).routingResult(result).build();
+            boolean rerouteNeeded = false;
+            if (startedTasks.isEmpty() == false) {
+                List<ShardRouting> shardRoutingsToBeApplied = new ArrayList<>(startedTasks.size());
+                for (ShardStateTask task : startedTasks) {
+                    shardRoutingsToBeApplied.add(task.entry.shardRouting);
+                }
+                try {
+                    // the reroute is done once for the whole batch below
+                    RoutingAllocation.Result result =
+                        allocationService.applyStartedShards(currentState, shardRoutingsToBeApplied, false);
+                    if (result.changed()) {
+                        maybeUpdatedState = ClusterState.builder(currentState).routingResult(result).build();
+                        rerouteNeeded = true;
+                    }
+                    builder.successes(startedTasks);
+                } catch (Throwable t) {
+                    builder.failures(startedTasks, t);
                 }
-                builder.successes(tasks);
-            } catch (Throwable t) {
-                builder.failures(tasks, t);
             }
 
+            failedShardsInLastBatch = failedTasks.isEmpty() == false;
+            if (failedTasks.isEmpty() == false) {
+                List<ShardRoutingEntry> entries = failedTasks.stream().map(task -> task.entry).collect(Collectors.toList());
+                BatchResult<ShardRoutingEntry> result = shardFailedClusterStateTaskExecutor.execute(maybeUpdatedState, entries);
+                for (ShardStateTask task : failedTasks) {
+                    TaskResult taskResult = result.executionResults.get(task.entry);
+                    if (taskResult.isSuccess()) {
+                        builder.success(task);
+                    } else {
+                        builder.failure(task, taskResult.getFailure());
+                    }
+                }
+                if (result.resultingState != maybeUpdatedState) {
+                    // failing shards reroutes as well
+                    maybeUpdatedState = result.resultingState;
+                    rerouteNeeded = false;
+                }
+            }
+
+            if (rerouteNeeded) {
+                RoutingAllocation.Result result = allocationService.reroute(maybeUpdatedState, "shards started");
+                if (result.changed()) {
+                    maybeUpdatedState = ClusterState.builder(maybeUpdatedState).routingResult(result).build();
+                }
+            }
             return builder.build(maybeUpdatedState);
         }
 
         @Override
-        public void onFailure(String source, Throwable t) {
-            logger.error("unexpected failure during [{}]", t, source);
+        public void clusterStatePublished(ClusterState newClusterState) {
+            if (failedShardsInLastBatch) {
+                shardFailedClusterStateTaskExecutor.clusterStatePublished(newClusterState);
+            }
         }
     }
 
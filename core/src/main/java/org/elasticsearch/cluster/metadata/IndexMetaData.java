@@ -514,7 +514,11 @@ public class IndexMetaData implements Diffable<IndexMetaData>, FromXContentBuild
         private final long version;
         private final long[] primaryTerms;
         private final State state;
+        // the complete settings, only sent to nodes before 5.0.0 which expect them
+        @Nullable
         private final Settings settings;
+        @Nullable
+        private final Diff<Map<String, String>> settingsDiff;
         private final Diff<ImmutableOpenMap<String, MappingMetaData>> mappings;
         private final Diff<ImmutableOpenMap<String, AliasMetaData>> aliases;
         private final Diff<ImmutableOpenMap<String, Custom>> customs;
@@ -525,6 +529,8 @@ public class IndexMetaData implements Diffable<IndexMetaData>, FromXContentBuild
             version = after.version;
             state = after.state;
             settings = after.settings;
+            settingsDiff = DiffableUtils.diff(before.settings.getAsMap(), after.settings.getAsMap(), DiffableUtils.getStringKeySerializer(),
+                DiffableUtils.StringValueSerializer.getInstance());
             primaryTerms = after.primaryTerms;
             mappings = DiffableUtils.diff(before.mappings, after.mappings, DiffableUtils.getStringKeySerializer());
             aliases = DiffableUtils.diff(before.aliases, after.aliases, DiffableUtils.getStringKeySerializer());
@@ -537,7 +543,14 @@ public class IndexMetaData implements Diffable<IndexMetaData>, FromXContentBuild
             index = in.readString();
             version = in.readLong();
             state = State.fromId(in.readByte());
-            settings = Settings.readSettingsFromStream(in);
+            if (in.getVersion().onOrAfter(Version.V_5_0_0_alpha1)) {
+                settings = null;
+                settingsDiff = DiffableUtils.readJdkMapDiff(in, DiffableUtils.getStringKeySerializer(),
+                    DiffableUtils.StringValueSerializer.getInstance());
+            } else {
+                settings = Settings.readSettingsFromStream(in);
+                settingsDiff = null;
+            }
             primaryTerms = in.readVLongArray();
             mappings = DiffableUtils.readImmutableOpenMapDiff(in, DiffableUtils.getStringKeySerializer(), MappingMetaData.PROTO);
             aliases = DiffableUtils.readImmutableOpenMapDiff(in, DiffableUtils.getStringKeySerializer(), AliasMetaData.PROTO);
@@ -562,7 +575,12 @@ public class IndexMetaData implements Diffable<IndexMetaData>, FromXContentBuild
             out.writeString(index);
             out.writeLong(version);
             out.writeByte(state.id);
-            Settings.writeSettingsToStream(settings, out);
+            if (out.getVersion().onOrAfter(Version.V_5_0_0_alpha1)) {
+                settingsDiff.writeTo(out);
+            } else {
+                assert settings != null : "complete settings are only known to the diff that was created by comparing index metadata";
+                Settings.writeSettingsToStream(settings, out);
+            }
             out.writeVLongArray(primaryTerms);
             mappings.writeTo(out);
             aliases.writeTo(out);
@@ -575,7 +593,11 @@ public class IndexMetaData implements Diffable<IndexMetaData>, FromXContentBuild
             Builder builder = builder(index);
             builder.version(version);
             builder.state(state);
-            builder.settings(settings);
+            if (settings != null) {
+                builder.settings(settings);
+            } else {
+                builder.settings(Settings.builder().put(settingsDiff.apply(part.settings.getAsMap())));
+            }
             builder.primaryTerms(primaryTerms);
             builder.mappings.putAll(mappings.apply(part.mappings));
             builder.aliases.putAll(aliases.apply(part.aliases));
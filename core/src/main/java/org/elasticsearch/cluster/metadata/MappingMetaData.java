@@ -22,9 +22,14 @@ package org.elasticsearch.cluster.metadata;
 import org.elasticsearch.Version;
 import org.elasticsearch.action.TimestampParsingException;
 import org.elasticsearch.cluster.AbstractDiffable;
+import org.elasticsearch.cluster.Diff;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.joda.FormatDateTimeFormatter;
@@ -377,4 +382,125 @@ public class MappingMetaData extends AbstractDiffable<MappingMetaData> {
         return new MappingMetaData(type, source, routing, timestamp, hasParentField);
     }
 
+    @Override
+    public Diff<MappingMetaData> diff(MappingMetaData previousState) {
+        return new MappingMetaDataDiff(previousState, this);
+    }
+
+    @Override
+    public Diff<MappingMetaData> readDiffFrom(StreamInput in) throws IOException {
+        if (in.getVersion().before(Version.V_5_0_0_alpha1)) {
+            return super.readDiffFrom(in);
+        }
+        return new MappingMetaDataDiff(in);
+    }
+
+    /**
+     * Sends only the part of the mapping source that changed, compressed, together with the length of the prefix and the suffix
+     * that are kept from the previous source. Mapping updates usually add or change a few fields of a large mapping, so the delta
+     * is a small fraction of the whole source.
+     */
+    private static class MappingMetaDataDiff implements Diff<MappingMetaData> {
+
+        // the mapping this diff leads to, only known on the node that created the diff
+        @Nullable
+        private final MappingMetaData after;
+        private final String type;
+        private final int prefixLength;
+        private final int suffixLength;
+        private final BytesReference compressedDelta;
+        // the hash code of the resulting source, which is its checksum, to detect diffs that are applied to the wrong source
+        private final int sourceChecksum;
+        private final boolean routingRequired;
+        private final Timestamp timestamp;
+        private final boolean hasParentField;
+
+        MappingMetaDataDiff(MappingMetaData before, MappingMetaData after) {
+            this.after = after;
+            this.type = after.type();
+            final byte[] previous = before.source().uncompressed();
+            final byte[] current = after.source().uncompressed();
+            final int maxLength = Math.min(previous.length, current.length);
+            int prefix = 0;
+            while (prefix < maxLength && previous[prefix] == current[prefix]) {
+                prefix++;
+            }
+            int suffix = 0;
+            while (suffix < maxLength - prefix && previous[previous.length - 1 - suffix] == current[current.length - 1 - suffix]) {
+                suffix++;
+            }
+            this.prefixLength = prefix;
+            this.suffixLength = suffix;
+            try {
+                BytesStreamOutput out = new BytesStreamOutput();
+                try (StreamOutput compressed = CompressorFactory.defaultCompressor().streamOutput(out)) {
+                    compressed.writeBytes(current, prefix, current.length - prefix - suffix);
+                }
+                this.compressedDelta = out.bytes();
+            } catch (IOException e) {
+                throw new IllegalStateException("failed to compress mapping delta for type [" + type + "]", e);
+            }
+            this.sourceChecksum = after.source().hashCode();
+            this.routingRequired = after.routing().required();
+            this.timestamp = after.timestamp();
+            this.hasParentField = after.hasParentField();
+        }
+
+        MappingMetaDataDiff(StreamInput in) throws IOException {
+            this.after = null;
+            this.type = in.readString();
+            this.prefixLength = in.readVInt();
+            this.suffixLength = in.readVInt();
+            this.compressedDelta = in.readBytesReference();
+            this.sourceChecksum = in.readInt();
+            this.routingRequired = in.readBoolean();
+            this.timestamp = new Timestamp(in.readBoolean(), in.readString(), in.readOptionalString(), in.readOptionalBoolean());
+            this.hasParentField = in.readBoolean();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            if (out.getVersion().before(Version.V_5_0_0_alpha1)) {
+                assert after != null : "complete mapping is only known to the diff that was created by comparing mappings";
+                // the format of a complete diff, that older nodes expect
+                out.writeBoolean(true);
+                after.writeTo(out);
+                return;
+            }
+            out.writeString(type);
+            out.writeVInt(prefixLength);
+            out.writeVInt(suffixLength);
+            out.writeBytesReference(compressedDelta);
+            out.writeInt(sourceChecksum);
+            out.writeBoolean(routingRequired);
+            out.writeBoolean(timestamp.enabled());
+            out.writeString(timestamp.format());
+            out.writeOptionalString(timestamp.defaultTimestamp());
+            out.writeOptionalBoolean(timestamp.ignoreMissing());
+            out.writeBoolean(hasParentField);
+        }
+
+        @Override
+        public MappingMetaData apply(MappingMetaData part) {
+            final byte[] previous = part.source().uncompressed();
+            if (prefixLength + suffixLength > previous.length) {
+                throw new IllegalStateException("diff of mapping [" + type + "] doesn't apply to the previous mapping");
+            }
+            try {
+                final BytesReference delta = CompressorFactory.uncompress(compressedDelta);
+                final byte[] current = new byte[prefixLength + delta.length() + suffixLength];
+                System.arraycopy(previous, 0, current, 0, prefixLength);
+                System.arraycopy(delta.toBytes(), 0, current, prefixLength, delta.length());
+                System.arraycopy(previous, previous.length - suffixLength, current, prefixLength + delta.length(), suffixLength);
+                final CompressedXContent source = new CompressedXContent(new BytesArray(current));
+                if (source.hashCode() != sourceChecksum) {
+                    throw new IllegalStateException("diff of mapping [" + type + "] doesn't apply to the previous mapping");
+                }
+                return new MappingMetaData(type, source, new Routing(routingRequired), timestamp, hasParentField);
+            } catch (IOException e) {
+                throw new IllegalStateException("failed to apply diff of mapping [" + type + "]", e);
+            }
+        }
+    }
+
 }
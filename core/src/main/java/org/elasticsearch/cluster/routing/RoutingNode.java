@@ -39,6 +39,8 @@ public class RoutingNode implements Iterable<ShardRouting> {
 
     private final List<ShardRouting> shards;
 
+    private int modificationCount;
+
     public RoutingNode(String nodeId, DiscoveryNode node) {
         this(nodeId, node, new ArrayList<ShardRouting>());
     }
@@ -79,6 +81,18 @@ public class RoutingNode implements Iterable<ShardRouting> {
         return shards.size();
     }
 
+    /**
+     * Returns a counter that is incremented whenever a shard is added to or removed from this node or
+     * one of its shards changes its state. Two calls returning the same value observed the same shards.
+     */
+    public int modificationCount() {
+        return modificationCount;
+    }
+
+    void incrementModificationCount() {
+        modificationCount++;
+    }
+
     /**
      * Add a new shard to this node
      * @param shard Shard to crate on this Node
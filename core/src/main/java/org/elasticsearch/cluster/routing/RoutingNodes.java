@@ -429,6 +429,7 @@ public class RoutingNodes implements Iterable<RoutingNode> {
         assert shard.unassigned() : shard;
         shard.initialize(nodeId, existingAllocationId, expectedSize);
         node(nodeId).add(shard);
+        nodeModified(nodeId);
         inactiveShardCount++;
         if (shard.primary()) {
             inactivePrimaryCount++;
@@ -446,8 +447,10 @@ public class RoutingNodes implements Iterable<RoutingNode> {
         ensureMutable();
         relocatingShards++;
         shard.relocate(nodeId, expectedShardSize);
+        nodeModified(shard.currentNodeId());
         ShardRouting target = shard.buildTargetRelocatingShard();
         node(target.currentNodeId()).add(target);
+        nodeModified(target.currentNodeId());
         assignedShardsAdd(target);
         addRecovery(target);
         return target;
@@ -468,6 +471,7 @@ public class RoutingNodes implements Iterable<RoutingNode> {
         }
         removeRecovery(shard);
         shard.moveToStarted();
+        nodeModified(shard.currentNodeId());
     }
 
 
@@ -478,7 +482,9 @@ public class RoutingNodes implements Iterable<RoutingNode> {
     public void cancelRelocation(ShardRouting shard) {
         ensureMutable();
         relocatingShards--;
+        nodeModified(shard.relocatingNodeId());
         shard.cancelRelocation();
+        nodeModified(shard.currentNodeId());
     }
 
     /**
@@ -489,6 +495,7 @@ public class RoutingNodes implements Iterable<RoutingNode> {
     public void swapPrimaryFlag(ShardRouting... shards) {
         ensureMutable();
         for (ShardRouting shard : shards) {
+            nodeModified(shard.currentNodeId());
             if (shard.primary()) {
                 shard.moveFromPrimary();
                 if (shard.unassigned()) {
@@ -503,6 +510,18 @@ public class RoutingNodes implements Iterable<RoutingNode> {
         }
     }
 
+    /**
+     * Marks the shards of the given node as changed, see {@link RoutingNode#modificationCount()}.
+     */
+    private void nodeModified(@Nullable String nodeId) {
+        if (nodeId != null) {
+            RoutingNode routingNode = nodesToShards.get(nodeId);
+            if (routingNode != null) {
+                routingNode.incrementModificationCount();
+            }
+        }
+    }
+
     private static final List<ShardRouting> EMPTY = Collections.emptyList();
 
     private List<ShardRouting> assignedShards(ShardId shardId) {
@@ -516,6 +535,8 @@ public class RoutingNodes implements Iterable<RoutingNode> {
      */
     private void remove(ShardRouting shard) {
         ensureMutable();
+        nodeModified(shard.currentNodeId());
+        nodeModified(shard.relocatingNodeId());
         if (!shard.active() && shard.relocatingNodeId() == null) {
             inactiveShardCount--;
             assert inactiveShardCount >= 0;
@@ -592,6 +613,7 @@ public class RoutingNodes implements Iterable<RoutingNode> {
             cancelRelocation(candidate);
         }
         candidate.reinitializeShard();
+        nodeModified(candidate.currentNodeId());
         inactivePrimaryCount++;
         inactiveShardCount++;
 
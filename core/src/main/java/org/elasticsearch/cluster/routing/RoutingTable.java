@@ -415,44 +415,94 @@ public class RoutingTable implements Iterable<IndexRoutingTable>, Diffable<Routi
             // this is being called without pre initializing the routing table, so we must copy over the version as well
             this.version = routingNodes.routingTable().version();
 
-            Map<String, IndexRoutingTable.Builder> indexRoutingTableBuilders = new HashMap<>();
+            // collect the copies of every shard first, indexed by shard id, so that each shard routing table is built once
+            Map<String, List<ShardRouting>[]> shardsPerIndex = new HashMap<>();
             for (RoutingNode routingNode : routingNodes) {
                 for (ShardRouting shardRoutingEntry : routingNode) {
                     // every relocating shard has a double entry, ignore the target one.
                     if (shardRoutingEntry.initializing() && shardRoutingEntry.relocatingNodeId() != null)
                         continue;
-
-                    Index index = shardRoutingEntry.index();
-                    IndexRoutingTable.Builder indexBuilder = indexRoutingTableBuilders.get(index.getName());
-                    if (indexBuilder == null) {
-                        indexBuilder = new IndexRoutingTable.Builder(index);
-                        indexRoutingTableBuilders.put(index.getName(), indexBuilder);
-                    }
-
-                    IndexShardRoutingTable refData = routingNodes.routingTable().index(shardRoutingEntry.index().getName()).shard(shardRoutingEntry.id());
-                    indexBuilder.addShard(refData, shardRoutingEntry);
+                    addShard(shardsPerIndex, routingNodes.routingTable(), shardRoutingEntry);
                 }
             }
 
             Iterable<ShardRouting> shardRoutingEntries = Iterables.concat(routingNodes.unassigned(), routingNodes.unassigned().ignored());
 
             for (ShardRouting shardRoutingEntry : shardRoutingEntries) {
-                Index index = shardRoutingEntry.index();
-                IndexRoutingTable.Builder indexBuilder = indexRoutingTableBuilders.get(index.getName());
-                if (indexBuilder == null) {
-                    indexBuilder = new IndexRoutingTable.Builder(index);
-                    indexRoutingTableBuilders.put(index.getName(), indexBuilder);
-                }
-                IndexShardRoutingTable refData = routingNodes.routingTable().index(shardRoutingEntry.index().getName()).shard(shardRoutingEntry.id());
-                indexBuilder.addShard(refData, shardRoutingEntry);
+                addShard(shardsPerIndex, routingNodes.routingTable(), shardRoutingEntry);
             }
 
-            for (IndexRoutingTable.Builder indexBuilder : indexRoutingTableBuilders.values()) {
-                add(indexBuilder);
+            for (Map.Entry<String, List<ShardRouting>[]> entry : shardsPerIndex.entrySet()) {
+                IndexRoutingTable previous = routingNodes.routingTable().index(entry.getKey());
+                IndexRoutingTable.Builder indexBuilder = new IndexRoutingTable.Builder(previous.getIndex());
+                boolean changed = false;
+                List<ShardRouting>[] shards = entry.getValue();
+                for (int shardId = 0; shardId < shards.length; shardId++) {
+                    if (shards[shardId] == null) {
+                        changed = true;
+                        continue;
+                    }
+                    IndexShardRoutingTable refData = previous.shard(shardId);
+                    if (sameShards(refData, shards[shardId])) {
+                        // copy on write: unchanged shards keep their routing table and the shard routings it holds
+                        indexBuilder.addIndexShard(refData);
+                    } else {
+                        IndexShardRoutingTable.Builder shardBuilder = new IndexShardRoutingTable.Builder(refData.shardId());
+                        for (ShardRouting shardRouting : shards[shardId]) {
+                            shardBuilder.addShard(new ShardRouting(shardRouting));
+                        }
+                        indexBuilder.addIndexShard(shardBuilder.build());
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    add(indexBuilder);
+                } else {
+                    // the previous index routing table was validated when it was built
+                    indicesRouting.put(entry.getKey(), previous);
+                }
             }
             return this;
         }
 
+        @SuppressWarnings("unchecked")
+        private static void addShard(Map<String, List<ShardRouting>[]> shardsPerIndex, RoutingTable routingTable, ShardRouting shard) {
+            List<ShardRouting>[] shards = shardsPerIndex.get(shard.getIndexName());
+            if (shards == null) {
+                shards = new List[routingTable.index(shard.getIndexName()).shards().size()];
+                shardsPerIndex.put(shard.getIndexName(), shards);
+            }
+            if (shards[shard.id()] == null) {
+                shards[shard.id()] = new ArrayList<>();
+            }
+            shards[shard.id()].add(shard);
+        }
+
+        /**
+         * Returns <code>true</code> iff the given shard routings are exactly the ones held by the given shard routing table.
+         */
+        private static boolean sameShards(IndexShardRoutingTable indexShard, List<ShardRouting> shards) {
+            if (indexShard.size() != shards.size()) {
+                return false;
+            }
+            // copies of a shard may be equal to each other, so every existing routing can only be matched once
+            boolean[] matched = new boolean[shards.size()];
+            for (ShardRouting shard : shards) {
+                boolean found = false;
+                for (int i = 0; i < matched.length; i++) {
+                    ShardRouting existing = indexShard.shards().get(i);
+                    if (matched[i] == false && existing.equals(shard) && existing.getExpectedShardSize() == shard.getExpectedShardSize()) {
+                        matched[i] = found = true;
+                        break;
+                    }
+                }
+                if (found == false) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         public Builder updateNumberOfReplicas(int numberOfReplicas, String... indices) {
             if (indicesRouting == null) {
                 throw new IllegalStateException("once build is called the builder cannot be reused");
@@ -24,8 +24,10 @@ import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.RoutingNodes;
 import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDecider;
 import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
 import org.elasticsearch.cluster.routing.allocation.decider.Decision;
+import org.elasticsearch.cluster.routing.allocation.decider.DecisionCache;
 import org.elasticsearch.index.shard.ShardId;
 
 import java.util.HashMap;
@@ -130,6 +132,8 @@ public class RoutingAllocation {
 
     private boolean debugDecision = false;
 
+    private final DecisionCache decisionCache = new DecisionCache();
+
     private boolean hasPendingAsyncFetch = false;
 
     private final long currentNanoTime;
@@ -208,6 +212,10 @@ public class RoutingAllocation {
     }
 
     public void ignoreDisable(boolean ignoreDisable) {
+        if (this.ignoreDisable != ignoreDisable) {
+            // cached decisions of the enable allocation decider depend on this flag
+            decisionCache.clear();
+        }
         this.ignoreDisable = ignoreDisable;
     }
 
@@ -223,6 +231,13 @@ public class RoutingAllocation {
         return this.debugDecision;
     }
 
+    /**
+     * Returns the cache of allocation decisions made during this allocation, see {@link AllocationDecider#canCacheDecisions()}
+     */
+    public DecisionCache decisionCache() {
+        return decisionCache;
+    }
+
     public void addIgnoreShardForNode(ShardId shardId, String nodeId) {
         if (ignoredShardToNodes == null) {
             ignoredShardToNodes = new HashMap<>();
@@ -348,7 +348,26 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             final AllocationDeciders deciders = allocation.deciders();
             final ModelNode[] modelNodes = sorter.modelNodes;
             final float[] weights = sorter.weights;
-            for (String index : buildWeightOrderedIndices(sorter)) {
+            final String[] indices = allocation.routingTable().indicesRouting().keys().toArray(String.class);
+            final float[] deltas = new float[indices.length];
+            sortByWeightDelta(sorter, indices, deltas);
+            /* every relocation moves one shard between two nodes, which changes the weight of both nodes by theta0 for all
+             * other indices, so the delta of an index grows by at most 2 * theta0 per relocation of previous indices */
+            final float maxDeltaGrowthPerRelocation = 2 * weight.theta0;
+            int relocations = 0;
+            for (int idx = 0; idx < indices.length; idx++) {
+                final String index = indices[idx];
+                /* the weight delta over all nodes is an upper bound for the delta between any two of them, so if it
+                 * is below the threshold nothing will be relocated for this index and we can skip consulting the
+                 * deciders for every node. The delta from the initial ordering is reused unless relocations of
+                 * previous indices might have pushed it over the threshold, only then it is computed again. */
+                if (lessThan(deltas[idx] + relocations * maxDeltaGrowthPerRelocation, threshold)
+                    || (relocations > 0 && lessThan(weightDelta(modelNodes, index), threshold))) {
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("Skipping balanced index [{}]", index);
+                    }
+                    continue;
+                }
                 IndexMetaData indexMetaData = metaData.index(index);
 
                 // find nodes that have a shard of this index or where shards of this index are allowed to stay
@@ -418,6 +437,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                             lowIdx = 0;
                             highIdx = relevantNodes - 1;
                             changed = true;
+                            relocations++;
                             continue;
                         }
                     }
@@ -442,6 +462,21 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             return changed;
         }
 
+        /**
+         * Returns the delta between the maximum and the minimum weight of the given nodes with respect to the given index,
+         * without sorting the nodes.
+         */
+        private float weightDelta(ModelNode[] modelNodes, String index) {
+            float minWeight = Float.POSITIVE_INFINITY;
+            float maxWeight = Float.NEGATIVE_INFINITY;
+            for (ModelNode node : modelNodes) {
+                final float nodeWeight = weight.weight(this, node, index);
+                minWeight = Math.min(minWeight, nodeWeight);
+                maxWeight = Math.max(maxWeight, nodeWeight);
+            }
+            return maxWeight - minWeight;
+        }
+
         /**
          * This builds a initial index ordering where the indices are returned
          * in most unbalanced first. We need this in order to prevent over
@@ -457,7 +492,15 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
          */
         private String[] buildWeightOrderedIndices(NodeSorter sorter) {
             final String[] indices = allocation.routingTable().indicesRouting().keys().toArray(String.class);
-            final float[] deltas = new float[indices.length];
+            sortByWeightDelta(sorter, indices, new float[indices.length]);
+            return indices;
+        }
+
+        /**
+         * Sorts the given indices by their weight delta over all nodes, most unbalanced first, and stores the delta of each
+         * index at its position in the given array.
+         */
+        private void sortByWeightDelta(NodeSorter sorter, String[] indices, float[] deltas) {
             for (int i = 0; i < deltas.length; i++) {
                 sorter.reset(indices[i]);
                 deltas[i] = sorter.delta();
@@ -491,8 +534,6 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                     return Float.compare(deltas[j], pivotWeight);
                 }
             }.sort(0, deltas.length);
-
-            return indices;
         }
 
         /**
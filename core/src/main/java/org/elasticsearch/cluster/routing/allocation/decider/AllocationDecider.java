@@ -66,6 +66,16 @@ public abstract class AllocationDecider extends AbstractComponent {
         return Decision.ALWAYS;
     }
 
+    /**
+     * Returns <code>true</code> iff the decisions of {@link #canAllocate(ShardRouting, RoutingNode, RoutingAllocation)} and
+     * {@link #canRemain(ShardRouting, RoutingNode, RoutingAllocation)} only depend on the shard, the shards assigned to the
+     * given node and state that doesn't change while a {@link RoutingAllocation} is in progress. Such decisions are cached
+     * by {@link AllocationDeciders} until the shards of the node change. The default is <code>false</code>.
+     */
+    public boolean canCacheDecisions() {
+        return false;
+    }
+
     /**
      * Returns a {@link Decision} whether the given shard routing can be allocated at all at this state of the
      * {@link RoutingAllocation}. The default is {@link Decision#ALWAYS}.
@@ -26,6 +26,8 @@ import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -36,9 +38,24 @@ public class AllocationDeciders extends AllocationDecider {
 
     private final AllocationDecider[] allocations;
 
+    private final AllocationDecider[] cacheableAllocations;
+
+    private final AllocationDecider[] uncacheableAllocations;
+
     public AllocationDeciders(Settings settings, AllocationDecider[] allocations) {
         super(settings);
         this.allocations = allocations;
+        List<AllocationDecider> cacheable = new ArrayList<>();
+        List<AllocationDecider> uncacheable = new ArrayList<>();
+        for (AllocationDecider allocationDecider : allocations) {
+            if (allocationDecider.canCacheDecisions()) {
+                cacheable.add(allocationDecider);
+            } else {
+                uncacheable.add(allocationDecider);
+            }
+        }
+        this.cacheableAllocations = cacheable.toArray(new AllocationDecider[cacheable.size()]);
+        this.uncacheableAllocations = uncacheable.toArray(new AllocationDecider[uncacheable.size()]);
     }
 
     @Inject
@@ -46,6 +63,11 @@ public class AllocationDeciders extends AllocationDecider {
         this(settings, allocations.toArray(new AllocationDecider[allocations.size()]));
     }
 
+    @Override
+    public boolean canCacheDecisions() {
+        return uncacheableAllocations.length == 0;
+    }
+
     @Override
     public Decision canRebalance(ShardRouting shardRouting, RoutingAllocation allocation) {
         Decision.Multi ret = new Decision.Multi();
@@ -70,6 +92,23 @@ public class AllocationDeciders extends AllocationDecider {
         if (allocation.shouldIgnoreShardForNode(shardRouting.shardId(), node.nodeId())) {
             return Decision.NO;
         }
+        if (allocation.debugDecision() || cacheableAllocations.length == 0) {
+            return canAllocate(allocations, shardRouting, node, allocation);
+        }
+        final DecisionCache decisionCache = allocation.decisionCache();
+        Decision cached = decisionCache.get(shardRouting, node, false);
+        if (cached == null) {
+            cached = canAllocate(cacheableAllocations, shardRouting, node, allocation);
+            decisionCache.put(shardRouting, node, false, cached);
+        }
+        if (cached == Decision.NO) {
+            return cached;
+        }
+        return merge(cached, canAllocate(uncacheableAllocations, shardRouting, node, allocation));
+    }
+
+    private Decision canAllocate(AllocationDecider[] allocations, ShardRouting shardRouting, RoutingNode node,
+                                 RoutingAllocation allocation) {
         Decision.Multi ret = new Decision.Multi();
         for (AllocationDecider allocationDecider : allocations) {
             Decision decision = allocationDecider.canAllocate(shardRouting, node, allocation);
@@ -101,6 +140,23 @@ public class AllocationDeciders extends AllocationDecider {
             }
             return Decision.NO;
         }
+        if (allocation.debugDecision() || cacheableAllocations.length == 0) {
+            return canRemain(allocations, shardRouting, node, allocation);
+        }
+        final DecisionCache decisionCache = allocation.decisionCache();
+        Decision cached = decisionCache.get(shardRouting, node, true);
+        if (cached == null) {
+            cached = canRemain(cacheableAllocations, shardRouting, node, allocation);
+            decisionCache.put(shardRouting, node, true, cached);
+        }
+        if (cached == Decision.NO) {
+            return cached;
+        }
+        return merge(cached, canRemain(uncacheableAllocations, shardRouting, node, allocation));
+    }
+
+    private Decision canRemain(AllocationDecider[] allocations, ShardRouting shardRouting, RoutingNode node,
+                               RoutingAllocation allocation) {
         Decision.Multi ret = new Decision.Multi();
         for (AllocationDecider allocationDecider : allocations) {
             Decision decision = allocationDecider.canRemain(shardRouting, node, allocation);
@@ -121,6 +177,31 @@ public class AllocationDeciders extends AllocationDecider {
         return ret;
     }
 
+    /**
+     * Combines a (possibly cached) decision of the cacheable deciders with the decision of the remaining deciders without
+     * modifying the cached instance.
+     */
+    private static Decision merge(Decision cached, Decision decision) {
+        if (decision == Decision.NO) {
+            return decision;
+        }
+        List<Decision> cachedDecisions = cached.getDecisions();
+        List<Decision> decisions = decision.getDecisions();
+        if (decisions.isEmpty()) {
+            return cached;
+        } else if (cachedDecisions.isEmpty()) {
+            return decision;
+        }
+        Decision.Multi ret = new Decision.Multi();
+        for (Decision d : cachedDecisions) {
+            ret.add(d);
+        }
+        for (Decision d : decisions) {
+            ret.add(d);
+        }
+        return ret;
+    }
+
     @Override
     public Decision canAllocate(IndexMetaData indexMetaData, RoutingNode node, RoutingAllocation allocation) {
         Decision.Multi ret = new Decision.Multi();
@@ -0,0 +1,149 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.allocation.decider;
+
+import org.elasticsearch.cluster.routing.RoutingNode;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.ShardRoutingState;
+import org.elasticsearch.cluster.routing.UnassignedInfo;
+import org.elasticsearch.index.shard.ShardId;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Caches the decisions of the {@link AllocationDecider}s that declare them cacheable (see
+ * {@link AllocationDecider#canCacheDecisions()}) for the lifetime of a single
+ * {@link org.elasticsearch.cluster.routing.allocation.RoutingAllocation}. A cached decision is keyed by the
+ * shard, the node it was made for and whether it was a "can allocate" or "can remain" question. It is only returned
+ * as long as the shards of the node haven't changed since it was made, see {@link RoutingNode#modificationCount()}.
+ */
+public final class DecisionCache {
+
+    private final Map<Key, Entry> decisions = new HashMap<>();
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * Returns the cached decision for the given shard and node or <code>null</code> if there is none or the shards
+     * of the node changed since the decision was made.
+     */
+    Decision get(ShardRouting shardRouting, RoutingNode node, boolean remain) {
+        Entry entry = decisions.get(new Key(shardRouting, node.nodeId(), remain));
+        if (entry != null && entry.node == node && entry.modificationCount == node.modificationCount()) {
+            hits++;
+            return entry.decision;
+        }
+        misses++;
+        return null;
+    }
+
+    void put(ShardRouting shardRouting, RoutingNode node, boolean remain, Decision decision) {
+        decisions.put(new Key(shardRouting, node.nodeId(), remain), new Entry(node, node.modificationCount(), decision));
+    }
+
+    /**
+     * Drops all cached decisions. Must be called whenever state that cacheable deciders rely on changes during an allocation.
+     */
+    public void clear() {
+        decisions.clear();
+    }
+
+    /**
+     * Returns the number of lookups that returned a cached decision.
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that had to fall back to asking the deciders.
+     */
+    public long misses() {
+        return misses;
+    }
+
+    private static final class Entry {
+        private final RoutingNode node;
+        private final int modificationCount;
+        private final Decision decision;
+
+        private Entry(RoutingNode node, int modificationCount, Decision decision) {
+            this.node = node;
+            this.modificationCount = modificationCount;
+            this.decision = decision;
+        }
+    }
+
+    private static final class Key {
+        private final ShardId shardId;
+        private final boolean primary;
+        private final ShardRoutingState state;
+        private final String currentNodeId;
+        private final String relocatingNodeId;
+        private final UnassignedInfo.Reason unassignedReason;
+        private final String nodeId;
+        private final boolean remain;
+
+        private Key(ShardRouting shardRouting, String nodeId, boolean remain) {
+            this.shardId = shardRouting.shardId();
+            this.primary = shardRouting.primary();
+            this.state = shardRouting.state();
+            this.currentNodeId = shardRouting.currentNodeId();
+            this.relocatingNodeId = shardRouting.relocatingNodeId();
+            this.unassignedReason = shardRouting.unassignedInfo() == null ? null : shardRouting.unassignedInfo().getReason();
+            this.nodeId = nodeId;
+            this.remain = remain;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return primary == key.primary &&
+                remain == key.remain &&
+                state == key.state &&
+                unassignedReason == key.unassignedReason &&
+                shardId.equals(key.shardId) &&
+                nodeId.equals(key.nodeId) &&
+                Objects.equals(currentNodeId, key.currentNodeId) &&
+                Objects.equals(relocatingNodeId, key.relocatingNodeId);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = shardId.hashCode();
+            result = 31 * result + nodeId.hashCode();
+            result = 31 * result + (primary ? 1 : 0);
+            result = 31 * result + state.hashCode();
+            result = 31 * result + Objects.hashCode(currentNodeId);
+            result = 31 * result + (remain ? 1 : 0);
+            return result;
+        }
+    }
+}
@@ -324,6 +324,12 @@ public class DiskThresholdDecider extends AllocationDecider {
         return shardSize == null ? 0 : shardSize;
     }
 
+    @Override
+    public boolean canCacheDecisions() {
+        // disk usages are taken from the cluster info, which is fixed for an allocation, and the shards of the node
+        return true;
+    }
+
     @Override
     public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
         ClusterInfo clusterInfo = allocation.clusterInfo();
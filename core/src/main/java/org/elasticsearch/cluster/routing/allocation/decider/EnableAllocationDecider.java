@@ -96,6 +96,12 @@ public class EnableAllocationDecider extends AllocationDecider {
         this.enableAllocation = enableAllocation;
     }
 
+    @Override
+    public boolean canCacheDecisions() {
+        // the routing allocation drops cached decisions when the ignore disable flag changes
+        return true;
+    }
+
     @Override
     public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
         if (allocation.ignoreDisable()) {
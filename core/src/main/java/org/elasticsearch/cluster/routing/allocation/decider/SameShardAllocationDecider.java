@@ -56,6 +56,12 @@ public class SameShardAllocationDecider extends AllocationDecider {
         this.sameHost = settings.getAsBoolean(SAME_HOST_SETTING, false);
     }
 
+    @Override
+    public boolean canCacheDecisions() {
+        // checking the other nodes on the same host depends on the shards of those nodes
+        return sameHost == false;
+    }
+
     @Override
     public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
         Iterable<ShardRouting> assignedShards = allocation.routingNodes().assignedShards(shardRouting);
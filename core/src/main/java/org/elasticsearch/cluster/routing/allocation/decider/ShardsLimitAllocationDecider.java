@@ -84,6 +84,12 @@ public class ShardsLimitAllocationDecider extends AllocationDecider {
         this.clusterShardLimit = clusterShardLimit;
     }
 
+    @Override
+    public boolean canCacheDecisions() {
+        // only the shards assigned to the node are counted
+        return true;
+    }
+
     @Override
     public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
         IndexMetaData indexMd = allocation.routingNodes().metaData().getIndexSafe(shardRouting.index());
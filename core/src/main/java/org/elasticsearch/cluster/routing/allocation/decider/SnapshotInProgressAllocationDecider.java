@@ -85,6 +85,12 @@ public class SnapshotInProgressAllocationDecider extends AllocationDecider {
         return canMove(shardRouting, allocation);
     }
 
+    @Override
+    public boolean canCacheDecisions() {
+        // running snapshots don't change during an allocation
+        return true;
+    }
+
     /**
      * Returns a {@link Decision} whether the given shard routing can be
      * allocated on the given node. The default is {@link Decision#ALWAYS}.
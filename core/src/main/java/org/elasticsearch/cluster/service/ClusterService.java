@@ -47,6 +47,7 @@ import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -66,6 +67,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -113,6 +115,12 @@ public class ClusterService extends AbstractLifecycleComponent<ClusterService> {
     private final Collection<ClusterStateListener> clusterStateListeners = new CopyOnWriteArrayList<>();
     private final Collection<ClusterStateListener> lastClusterStateListeners = new CopyOnWriteArrayList<>();
     private final Map<ClusterStateTaskExecutor, List<UpdateTask>> updateTasksPerExecutor = new HashMap<>();
+    private final MeanMetric batchSizes = new MeanMetric();
+    private final MeanMetric batchComputeTimes = new MeanMetric();
+    // only updated from the cluster state update thread
+    private volatile long maxBatchSize;
+    private volatile long lastBatchSize;
+    private volatile long maxBatchComputeTimeInMillis;
     // TODO this is rather frequently changing I guess a Synced Set would be better here and a dedicated remove API
     private final Collection<ClusterStateListener> postAppliedListeners = new CopyOnWriteArrayList<>();
     private final Iterable<ClusterStateListener> preAppliedListeners = Iterables.concat(priorityClusterStateListeners,
@@ -366,32 +374,54 @@ public class ClusterService extends AbstractLifecycleComponent<ClusterService> {
                                           final ClusterStateTaskExecutor<T> executor,
                                           final ClusterStateTaskListener listener
     ) {
-        innerSubmitStateUpdateTask(source, task, config, executor, safe(listener, logger));
+        innerSubmitStateUpdateTasks(source, Collections.singletonMap(task, listener), config, executor);
     }
 
-    private <T> void innerSubmitStateUpdateTask(final String source, final T task,
-                                                final ClusterStateTaskConfig config,
-                                                final ClusterStateTaskExecutor executor,
-                                                final SafeClusterStateTaskListener listener) {
-        if (!lifecycle.started()) {
+    /**
+     * Submits a batch of cluster state update tasks; all of them are registered with the executor
+     * before any of them can start to execute, so they are guaranteed to be part of the same batch
+     * unless a batch for this executor is already running.
+     *
+     * @param source   the source of the cluster state update tasks
+     * @param tasks    a map of the states needed for the update tasks to their listeners
+     * @param config   the cluster state update task configuration
+     * @param executor the cluster state update task executor
+     * @param <T>      the type of the cluster state update task state
+     */
+    public <T> void submitStateUpdateTasks(final String source, final Map<T, ClusterStateTaskListener> tasks,
+                                           final ClusterStateTaskConfig config,
+                                           final ClusterStateTaskExecutor<T> executor) {
+        innerSubmitStateUpdateTasks(source, tasks, config, executor);
+    }
+
+    private <T> void innerSubmitStateUpdateTasks(final String source, final Map<T, ClusterStateTaskListener> tasks,
+                                                 final ClusterStateTaskConfig config,
+                                                 final ClusterStateTaskExecutor<T> executor) {
+        if (!lifecycle.started() || tasks.isEmpty()) {
             return;
         }
         try {
-            final UpdateTask<T> updateTask = new UpdateTask<>(source, task, config, executor, listener);
+            final List<UpdateTask<T>> updateTasks = new ArrayList<>(tasks.size());
+            for (Map.Entry<T, ClusterStateTaskListener> entry : tasks.entrySet()) {
+                updateTasks.add(new UpdateTask<>(source, entry.getKey(), config, executor, safe(entry.getValue(), logger)));
+            }
 
             synchronized (updateTasksPerExecutor) {
-                updateTasksPerExecutor.computeIfAbsent(executor, k -> new ArrayList<>()).add(updateTask);
+                updateTasksPerExecutor.computeIfAbsent(executor, k -> new ArrayList<>()).addAll(updateTasks);
             }
 
-            if (config.timeout() != null) {
-                updateTasksExecutor.execute(updateTask, threadPool.scheduler(), config.timeout(), () -> threadPool.generic().execute(() -> {
-                    if (updateTask.processed.getAndSet(true) == false) {
-                        logger.debug("cluster state update task [{}] timed out after [{}]", source, config.timeout());
-                        listener.onFailure(source, new ProcessClusterEventTimeoutException(config.timeout(), source));
-                    }
-                }));
-            } else {
-                updateTasksExecutor.execute(updateTask);
+            for (UpdateTask<T> updateTask : updateTasks) {
+                if (config.timeout() != null) {
+                    updateTasksExecutor.execute(updateTask, threadPool.scheduler(), config.timeout(),
+                        () -> threadPool.generic().execute(() -> {
+                            if (updateTask.processed.getAndSet(true) == false) {
+                                logger.debug("cluster state update task [{}] timed out after [{}]", source, config.timeout());
+                                updateTask.listener.onFailure(source, new ProcessClusterEventTimeoutException(config.timeout(), source));
+                            }
+                        }));
+                } else {
+                    updateTasksExecutor.execute(updateTask);
+                }
             }
         } catch (EsRejectedExecutionException e) {
             // ignore cases where we are shutting down..., there is really nothing interesting
@@ -431,6 +461,14 @@ public class ClusterService extends AbstractLifecycleComponent<ClusterService> {
         return pendingClusterTasks;
     }
 
+    /**
+     * Returns stats about the batches of update tasks that were executed on this node.
+     */
+    public ClusterStateBatchStats batchStats() {
+        return new ClusterStateBatchStats(batchSizes.count(), batchSizes.sum(), maxBatchSize, lastBatchSize,
+            TimeUnit.NANOSECONDS.toMillis(batchComputeTimes.sum()), maxBatchComputeTimeInMillis);
+    }
+
     /**
      * Returns the number of currently pending tasks.
      */
@@ -516,6 +554,7 @@ public class ClusterService extends AbstractLifecycleComponent<ClusterService> {
                     .failures(toExecute.stream().map(updateTask -> updateTask.task)::iterator, e)
                     .build(previousClusterState);
         }
+        onBatchExecuted(toExecute.size(), currentTimeInNanos() - startTimeNS);
 
         assert batchResult.executionResults != null;
         assert batchResult.executionResults.size() == toExecute.size()
@@ -808,6 +847,14 @@ public class ClusterService extends AbstractLifecycleComponent<ClusterService> {
         }
     }
 
+    private void onBatchExecuted(int batchSize, long computeTimeInNanos) {
+        batchSizes.inc(batchSize);
+        batchComputeTimes.inc(Math.max(0, computeTimeInNanos));
+        lastBatchSize = batchSize;
+        maxBatchSize = Math.max(maxBatchSize, batchSize);
+        maxBatchComputeTimeInMillis = Math.max(maxBatchComputeTimeInMillis, TimeValue.nsecToMSec(computeTimeInNanos));
+    }
+
     private void warnAboutSlowTaskIfNeeded(TimeValue executionTime, String source) {
         if (executionTime.getMillis() > slowTaskLoggingThreshold.getMillis()) {
             logger.warn("cluster state update task [{}] took [{}] above the warn threshold of {}", source, executionTime,
@@ -0,0 +1,150 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.cluster.service;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Class encapsulating stats about the batches of cluster state update tasks executed by the master
+ */
+public class ClusterStateBatchStats implements Streamable, ToXContent {
+
+    private long batches;
+    private long tasks;
+    private long maxBatchSize;
+    private long lastBatchSize;
+    private long computeTimeInMillis;
+    private long maxComputeTimeInMillis;
+
+    public ClusterStateBatchStats() {
+
+    }
+
+    public ClusterStateBatchStats(long batches, long tasks, long maxBatchSize, long lastBatchSize, long computeTimeInMillis,
+                                  long maxComputeTimeInMillis) {
+        this.batches = batches;
+        this.tasks = tasks;
+        this.maxBatchSize = maxBatchSize;
+        this.lastBatchSize = lastBatchSize;
+        this.computeTimeInMillis = computeTimeInMillis;
+        this.maxComputeTimeInMillis = maxComputeTimeInMillis;
+    }
+
+    /**
+     * The number of batches that were executed.
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * The total number of tasks that were executed as part of a batch.
+     */
+    public long getTasks() {
+        return tasks;
+    }
+
+    /**
+     * The number of tasks in the largest batch.
+     */
+    public long getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * The number of tasks in the most recently executed batch.
+     */
+    public long getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    /**
+     * The total time spent computing new cluster states from batches, excluding publishing and applying them.
+     */
+    public TimeValue getComputeTime() {
+        return new TimeValue(computeTimeInMillis);
+    }
+
+    /**
+     * The longest time it took to compute a new cluster state from a single batch.
+     */
+    public TimeValue getMaxComputeTime() {
+        return new TimeValue(maxComputeTimeInMillis);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.BATCHES);
+        builder.field(Fields.TOTAL, batches);
+        builder.field(Fields.TASKS, tasks);
+        builder.field(Fields.MAX_SIZE, maxBatchSize);
+        builder.field(Fields.LAST_SIZE, lastBatchSize);
+        builder.timeValueField(Fields.COMPUTE_TIME_IN_MILLIS, Fields.COMPUTE_TIME, computeTimeInMillis);
+        builder.timeValueField(Fields.MAX_COMPUTE_TIME_IN_MILLIS, Fields.MAX_COMPUTE_TIME, maxComputeTimeInMillis);
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        batches = in.readVLong();
+        tasks = in.readVLong();
+        maxBatchSize = in.readVLong();
+        lastBatchSize = in.readVLong();
+        computeTimeInMillis = in.readVLong();
+        maxComputeTimeInMillis = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(batches);
+        out.writeVLong(tasks);
+        out.writeVLong(maxBatchSize);
+        out.writeVLong(lastBatchSize);
+        out.writeVLong(computeTimeInMillis);
+        out.writeVLong(maxComputeTimeInMillis);
+    }
+
+    static final class Fields {
+        static final XContentBuilderString BATCHES = new XContentBuilderString("batches");
+        static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        static final XContentBuilderString TASKS = new XContentBuilderString("tasks");
+        static final XContentBuilderString MAX_SIZE = new XContentBuilderString("max_size");
+        static final XContentBuilderString LAST_SIZE = new XContentBuilderString("last_size");
+        static final XContentBuilderString COMPUTE_TIME = new XContentBuilderString("compute_time");
+        static final XContentBuilderString COMPUTE_TIME_IN_MILLIS = new XContentBuilderString("compute_time_in_millis");
+        static final XContentBuilderString MAX_COMPUTE_TIME = new XContentBuilderString("max_compute_time");
+        static final XContentBuilderString MAX_COMPUTE_TIME_IN_MILLIS = new XContentBuilderString("max_compute_time_in_millis");
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterStateBatchStats(batches=" + batches + ", tasks=" + tasks + ", maxBatchSize=" + maxBatchSize
+            + ", lastBatchSize=" + lastBatchSize + ", computeTimeInMillis=" + computeTimeInMillis
+            + ", maxComputeTimeInMillis=" + maxComputeTimeInMillis + ")";
+    }
+}
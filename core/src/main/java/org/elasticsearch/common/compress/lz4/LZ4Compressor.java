@@ -0,0 +1,287 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress.lz4;
+
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.InputStreamDataInput;
+import org.apache.lucene.store.OutputStreamDataOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressedIndexInput;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.jboss.netty.buffer.ChannelBuffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * {@link Compressor} implementation based on the LZ4 compression algorithm, which trades compression ratio for a lot less CPU
+ * than {@link org.elasticsearch.common.compress.deflate.DeflateCompressor}. Data is compressed in independent blocks of at most
+ * {@value #BLOCK_SIZE} bytes, each written as its uncompressed length followed by the compressed block. A block of length
+ * <code>0</code> marks the end of the stream.
+ */
+public class LZ4Compressor implements Compressor {
+
+    // An arbitrary header that we use to identify compressed streams
+    // It needs to be different from other compressors and to not be specific
+    // enough so that no stream starting with these bytes could be detected as
+    // a XContent
+    private static final byte[] HEADER = new byte[] { 'L', 'Z', '4', '\0' };
+    static final int BLOCK_SIZE = 64 * 1024;
+    // small messages should not pay for a full block
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    // compressors keep a hash table that is expensive to allocate for every stream, they are not thread-safe though
+    private static final ThreadLocal<org.apache.lucene.codecs.compressing.Compressor> COMPRESSORS =
+        ThreadLocal.withInitial(CompressionMode.FAST::newCompressor);
+
+    @Override
+    public boolean isCompressed(BytesReference bytes) {
+        if (bytes.length() < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; ++i) {
+            if (bytes.get(i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCompressed(ChannelBuffer buffer) {
+        if (buffer.readableBytes() < HEADER.length) {
+            return false;
+        }
+        final int offset = buffer.readerIndex();
+        for (int i = 0; i < HEADER.length; ++i) {
+            if (buffer.getByte(offset + i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public StreamInput streamInput(StreamInput in) throws IOException {
+        final byte[] headerBytes = new byte[HEADER.length];
+        int len = 0;
+        while (len < headerBytes.length) {
+            final int read = in.read(headerBytes, len, headerBytes.length - len);
+            if (read == -1) {
+                break;
+            }
+            len += read;
+        }
+        if (len != HEADER.length || Arrays.equals(headerBytes, HEADER) == false) {
+            throw new IllegalArgumentException("Input stream is not compressed with LZ4!");
+        }
+        return new LZ4StreamInput(in);
+    }
+
+    @Override
+    public StreamOutput streamOutput(StreamOutput out) throws IOException {
+        out.writeBytes(HEADER);
+        return new LZ4StreamOutput(out);
+    }
+
+    @Override
+    public boolean isCompressed(IndexInput in) throws IOException {
+        return false;
+    }
+
+    @Override
+    public CompressedIndexInput indexInput(IndexInput in) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    private static final class LZ4StreamOutput extends StreamOutput {
+
+        private final StreamOutput out;
+        private final OutputStreamDataOutput dataOut;
+        private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+        private int count = 0;
+        private boolean closed = false;
+
+        LZ4StreamOutput(StreamOutput out) {
+            this.out = out;
+            this.dataOut = new OutputStreamDataOutput(out);
+        }
+
+        @Override
+        public void writeByte(byte b) throws IOException {
+            ensureCapacity(1);
+            buffer[count++] = b;
+        }
+
+        @Override
+        public void writeBytes(byte[] b, int offset, int length) throws IOException {
+            while (length > 0) {
+                ensureCapacity(Math.min(length, BLOCK_SIZE));
+                final int toCopy = Math.min(length, buffer.length - count);
+                System.arraycopy(b, offset, buffer, count, toCopy);
+                count += toCopy;
+                offset += toCopy;
+                length -= toCopy;
+            }
+        }
+
+        /** makes room for at least <code>bytes</code> more bytes, writing out the current block if it is full */
+        private void ensureCapacity(int bytes) throws IOException {
+            if (count + bytes <= buffer.length) {
+                return;
+            }
+            if (buffer.length < BLOCK_SIZE) {
+                buffer = Arrays.copyOf(buffer, Math.min(BLOCK_SIZE, ArrayUtil.oversize(count + bytes, 1)));
+            }
+            if (count == buffer.length) {
+                writeBlock();
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            if (count > 0) {
+                out.writeVInt(count);
+                COMPRESSORS.get().compress(buffer, 0, count, dataOut);
+                count = 0;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writeBlock();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed == false) {
+                closed = true;
+                writeBlock();
+                out.writeVInt(0);
+                out.close();
+            }
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class LZ4StreamInput extends StreamInput {
+
+        private final StreamInput in;
+        private final InputStreamDataInput dataIn;
+        private final Decompressor decompressor = CompressionMode.FAST.newDecompressor();
+        private final BytesRef block = new BytesRef();
+        private int position = 0;
+        private boolean eof = false;
+
+        LZ4StreamInput(StreamInput in) {
+            this.in = in;
+            this.dataIn = new InputStreamDataInput(in);
+        }
+
+        /** returns <code>false</code> if the end of the stream was reached, otherwise there are bytes left in the current block */
+        private boolean fillBlock() throws IOException {
+            if (position < block.length) {
+                return true;
+            }
+            if (eof) {
+                return false;
+            }
+            final int length = in.readVInt();
+            if (length == 0) {
+                eof = true;
+                return false;
+            }
+            if (length < 0 || length > BLOCK_SIZE) {
+                throw new IOException("invalid LZ4 block length [" + length + "]");
+            }
+            decompressor.decompress(dataIn, length, 0, length, block);
+            position = 0;
+            return true;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            if (fillBlock() == false) {
+                throw new EOFException();
+            }
+            return block.bytes[block.offset + position++];
+        }
+
+        @Override
+        public void readBytes(byte[] b, int offset, int len) throws IOException {
+            while (len > 0) {
+                final int read = read(b, offset, len);
+                if (read == -1) {
+                    throw new EOFException();
+                }
+                offset += read;
+                len -= read;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (fillBlock() == false) {
+                return -1;
+            }
+            return block.bytes[block.offset + position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (fillBlock() == false) {
+                return -1;
+            }
+            final int toCopy = Math.min(len, block.length - position);
+            System.arraycopy(block.bytes, block.offset + position, b, off, toCopy);
+            position += toCopy;
+            return toCopy;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return block.length - position;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -63,6 +63,16 @@ public abstract class Rounding implements Streamable {
      */
     public abstract long nextRoundingValue(long value);
 
+    /**
+     * Returns a rounding that produces the same keys as this rounding but that may be faster for values that fall in
+     * <code>[minValue, maxValue]</code>, for instance by precomputing the rounded values of that range. Values outside
+     * of the range are still rounded correctly. The returned rounding is meant for rounding values locally and can't
+     * be serialized. The default implementation returns this rounding.
+     */
+    public Rounding prepare(long minValue, long maxValue) {
+        return this;
+    }
+
     @Override
     public abstract boolean equals(Object obj);
 
@@ -262,6 +272,12 @@ public abstract class Rounding implements Streamable {
             return rounding.nextRoundingValue(value - offset) + offset;
         }
 
+        @Override
+        public Rounding prepare(long minValue, long maxValue) {
+            Rounding prepared = rounding.prepare(minValue - offset, maxValue - offset);
+            return prepared == rounding ? this : new OffsetRounding(prepared, offset);
+        }
+
         @Override
         public void readFrom(StreamInput in) throws IOException {
             rounding = Rounding.Streams.read(in);
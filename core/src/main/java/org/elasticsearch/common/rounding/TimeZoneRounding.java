@@ -19,6 +19,7 @@
 
 package org.elasticsearch.common.rounding;
 
+import org.apache.lucene.util.ArrayUtil;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -28,6 +29,7 @@ import org.joda.time.DateTimeZone;
 import org.joda.time.DurationField;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -102,6 +104,121 @@ public abstract class TimeZoneRounding extends Rounding {
         }
     }
 
+    /**
+     * The maximum number of rounded values that {@link #prepare(long, long)} precomputes.
+     */
+    static final int MAX_PRECOMPUTED_VALUES = 10000;
+
+    /**
+     * Time zone aware rounding requires a time zone conversion per value. When the range of values is known, as it is
+     * for the values of a shard, the rounded values of that range are computed once so that rounding a value only
+     * requires a binary search.
+     */
+    @Override
+    public Rounding prepare(long minValue, long maxValue) {
+        if (minValue > maxValue) {
+            return this;
+        }
+        long[] values = new long[16];
+        int count = 0;
+        long value = roundKey(minValue);
+        while (value <= maxValue) {
+            if (count == MAX_PRECOMPUTED_VALUES) {
+                // too many buckets for the lookup table to pay off
+                return this;
+            }
+            values = ArrayUtil.grow(values, count + 1);
+            values[count++] = value;
+            long next = nextRoundingValue(value);
+            // nextRoundingValue may skip a rounded value when local time is ambiguous, e.g. the second occurrence of
+            // an hour when daylight saving time ends, so walk back until the previous millisecond rounds to value
+            long previous;
+            while (next > value && (previous = roundKey(next - 1)) != value) {
+                next = previous;
+            }
+            if (next <= value || roundKey(next) != next) {
+                // rounding is not monotonic over this range, do not precompute anything
+                return this;
+            }
+            value = next;
+        }
+        return new PreparedRounding(this, Arrays.copyOf(values, count), value);
+    }
+
+    /**
+     * A {@link Rounding} that rounds values like the {@link TimeZoneRounding} it was prepared from by looking them up
+     * in a table of precomputed rounded values, and delegates values that are outside of the table. It is only used to
+     * round values while collecting and is never serialized.
+     */
+    static final class PreparedRounding extends Rounding {
+
+        private final TimeZoneRounding delegate;
+        private final long[] values;
+        private final long upperBound;
+
+        PreparedRounding(TimeZoneRounding delegate, long[] values, long upperBound) {
+            assert values.length > 0;
+            this.delegate = delegate;
+            this.values = values;
+            this.upperBound = upperBound;
+        }
+
+        @Override
+        public byte id() {
+            return delegate.id();
+        }
+
+        @Override
+        public long roundKey(long utcMillis) {
+            if (utcMillis < values[0] || utcMillis >= upperBound) {
+                return delegate.roundKey(utcMillis);
+            }
+            int index = Arrays.binarySearch(values, utcMillis);
+            if (index < 0) {
+                // insertion point minus one is the greatest rounded value that is lower than the value
+                index = -2 - index;
+            }
+            return values[index];
+        }
+
+        @Override
+        public long valueForKey(long key) {
+            return delegate.valueForKey(key);
+        }
+
+        @Override
+        public long nextRoundingValue(long value) {
+            return delegate.nextRoundingValue(value);
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            throw new UnsupportedOperationException("prepared roundings are never serialized");
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            throw new UnsupportedOperationException("prepared roundings are never serialized");
+        }
+
+        @Override
+        public int hashCode() {
+            return delegate.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            PreparedRounding other = (PreparedRounding) obj;
+            return Objects.equals(delegate, other.delegate);
+        }
+    }
+
     static class TimeUnitRounding extends TimeZoneRounding {
 
         static final byte ID = 1;
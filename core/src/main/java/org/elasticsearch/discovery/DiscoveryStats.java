@@ -19,6 +19,7 @@
 
 package org.elasticsearch.discovery;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -27,6 +28,7 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.discovery.zen.publish.PendingClusterStateStats;
+import org.elasticsearch.discovery.zen.publish.PublishClusterStateStats;
 
 import java.io.IOException;
 
@@ -35,8 +37,16 @@ public class DiscoveryStats implements Streamable, ToXContent {
     @Nullable
     private PendingClusterStateStats queueStats;
 
+    @Nullable
+    private PublishClusterStateStats publishStats;
+
     public DiscoveryStats(PendingClusterStateStats queueStats) {
+        this(queueStats, null);
+    }
+
+    public DiscoveryStats(PendingClusterStateStats queueStats, PublishClusterStateStats publishStats) {
         this.queueStats = queueStats;
+        this.publishStats = publishStats;
     }
 
     @Override
@@ -46,6 +56,9 @@ public class DiscoveryStats implements Streamable, ToXContent {
         if (queueStats != null ){
             queueStats.toXContent(builder, params);
         }
+        if (publishStats != null) {
+            publishStats.toXContent(builder, params);
+        }
         builder.endObject();
         return builder;
     }
@@ -56,6 +69,10 @@ public class DiscoveryStats implements Streamable, ToXContent {
             queueStats = new PendingClusterStateStats();
             queueStats.readFrom(in);
         }
+        if (in.getVersion().onOrAfter(Version.V_5_0_0_alpha1) && in.readBoolean()) {
+            publishStats = new PublishClusterStateStats();
+            publishStats.readFrom(in);
+        }
     }
 
     @Override
@@ -66,6 +83,14 @@ public class DiscoveryStats implements Streamable, ToXContent {
         }else{
             out.writeBoolean(false);
         }
+        if (out.getVersion().onOrAfter(Version.V_5_0_0_alpha1)) {
+            if (publishStats != null) {
+                out.writeBoolean(true);
+                publishStats.writeTo(out);
+            } else {
+                out.writeBoolean(false);
+            }
+        }
     }
 
     static final class Fields {
@@ -75,4 +100,8 @@ public class DiscoveryStats implements Streamable, ToXContent {
     public PendingClusterStateStats getQueueStats() {
         return queueStats;
     }
+
+    public PublishClusterStateStats getPublishStats() {
+        return publishStats;
+    }
 }
@@ -330,7 +330,7 @@ public class ZenDiscovery extends AbstractLifecycleComponent<Discovery> implemen
     @Override
     public DiscoveryStats stats() {
         PendingClusterStateStats queueStats = publishClusterState.pendingStatesQueue().stats();
-        return new DiscoveryStats(queueStats);
+        return new DiscoveryStats(queueStats, publishClusterState.stats());
     }
 
     @Override
@@ -35,6 +35,7 @@ import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.discovery.AckClusterStatePublishResponseHandler;
@@ -87,6 +88,12 @@ public class PublishClusterStateAction extends AbstractComponent {
     private final ClusterName clusterName;
     private final PendingClusterStatesQueue pendingStatesQueue;
 
+    private final CounterMetric published = new CounterMetric();
+    private final CounterMetric publishTimeInNanos = new CounterMetric();
+    private final CounterMetric fullStatesSent = new CounterMetric();
+    private final CounterMetric diffsSent = new CounterMetric();
+    private final CounterMetric serializedDiffsSize = new CounterMetric();
+
     public PublishClusterStateAction(Settings settings, TransportService transportService, DiscoveryNodesProvider nodesProvider,
                                      NewPendingClusterStateListener listener, DiscoverySettings discoverySettings, ClusterName clusterName) {
         super(settings);
@@ -109,6 +116,11 @@ public class PublishClusterStateAction extends AbstractComponent {
         return pendingStatesQueue;
     }
 
+    public PublishClusterStateStats stats() {
+        return new PublishClusterStateStats(published.count(), TimeUnit.NANOSECONDS.toMillis(publishTimeInNanos.count()),
+            fullStatesSent.count(), diffsSent.count(), serializedDiffsSize.count());
+    }
+
     /**
      * publishes a cluster change event to other nodes. if at least minMasterNodes acknowledge the change it is committed and will
      * be processed by the master and the other nodes.
@@ -117,6 +129,16 @@ public class PublishClusterStateAction extends AbstractComponent {
      * Any other exception signals the something wrong happened but the change is committed.
      */
     public void publish(final ClusterChangedEvent clusterChangedEvent, final int minMasterNodes, final Discovery.AckListener ackListener) throws Discovery.FailedToCommitClusterStateException {
+        final long startTimeInNanos = System.nanoTime();
+        try {
+            doPublish(clusterChangedEvent, minMasterNodes, ackListener);
+        } finally {
+            published.inc();
+            publishTimeInNanos.inc(System.nanoTime() - startTimeInNanos);
+        }
+    }
+
+    private void doPublish(final ClusterChangedEvent clusterChangedEvent, final int minMasterNodes, final Discovery.AckListener ackListener) {
         final DiscoveryNodes nodes;
         final SendingController sendingController;
         final Set<DiscoveryNode> nodesToPublishTo;
@@ -221,7 +243,9 @@ public class PublishClusterStateAction extends AbstractComponent {
                         diff = clusterState.diff(previousState);
                     }
                     if (serializedDiffs.containsKey(node.getVersion()) == false) {
-                        serializedDiffs.put(node.getVersion(), serializeDiffClusterState(diff, node.getVersion()));
+                        BytesReference serializedDiff = serializeDiffClusterState(diff, node.getVersion());
+                        serializedDiffsSize.inc(serializedDiff.length());
+                        serializedDiffs.put(node.getVersion(), serializedDiff);
                     }
                 }
             } catch (IOException e) {
@@ -243,6 +267,7 @@ public class PublishClusterStateAction extends AbstractComponent {
                 return;
             }
         }
+        fullStatesSent.inc();
         sendClusterStateToNode(clusterState, bytes, node, publishTimeout, sendingController, false, serializedStates);
     }
 
@@ -251,6 +276,7 @@ public class PublishClusterStateAction extends AbstractComponent {
                                       DiscoveryNode node, TimeValue publishTimeout, SendingController sendingController) {
         BytesReference bytes = serializedDiffs.get(node.getVersion());
         assert bytes != null : "failed to find serialized diff for node " + node + " of version [" + node.getVersion() + "]";
+        diffsSent.inc();
         sendClusterStateToNode(clusterState, bytes, node, publishTimeout, sendingController, true, serializedStates);
     }
 
@@ -0,0 +1,138 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.discovery.zen.publish;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Class encapsulating stats about the cluster states published by the master
+ */
+public class PublishClusterStateStats implements Streamable, ToXContent {
+
+    private long published;
+    private long publishTimeInMillis;
+    private long fullStatesSent;
+    private long diffsSent;
+    private long serializedDiffsSize;
+
+    public PublishClusterStateStats() {
+
+    }
+
+    public PublishClusterStateStats(long published, long publishTimeInMillis, long fullStatesSent, long diffsSent,
+                                    long serializedDiffsSize) {
+        this.published = published;
+        this.publishTimeInMillis = publishTimeInMillis;
+        this.fullStatesSent = fullStatesSent;
+        this.diffsSent = diffsSent;
+        this.serializedDiffsSize = serializedDiffsSize;
+    }
+
+    /**
+     * The number of cluster states this node published as master.
+     */
+    public long getPublished() {
+        return published;
+    }
+
+    /**
+     * The total time it took to publish the cluster states, until all nodes processed them or the publish timeout elapsed.
+     */
+    public TimeValue getPublishTime() {
+        return new TimeValue(publishTimeInMillis);
+    }
+
+    /**
+     * The number of times a complete cluster state was sent to a node.
+     */
+    public long getFullStatesSent() {
+        return fullStatesSent;
+    }
+
+    /**
+     * The number of times a cluster state diff was sent to a node.
+     */
+    public long getDiffsSent() {
+        return diffsSent;
+    }
+
+    /**
+     * The total size of the serialized diffs, counted once per node version they were serialized for.
+     */
+    public ByteSizeValue getSerializedDiffsSize() {
+        return new ByteSizeValue(serializedDiffsSize);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.PUBLISHED_CLUSTER_STATES);
+        builder.field(Fields.TOTAL, published);
+        builder.timeValueField(Fields.TIME_IN_MILLIS, Fields.TIME, publishTimeInMillis);
+        builder.field(Fields.FULL_STATES_SENT, fullStatesSent);
+        builder.field(Fields.DIFFS_SENT, diffsSent);
+        builder.byteSizeField(Fields.SERIALIZED_DIFFS_SIZE_IN_BYTES, Fields.SERIALIZED_DIFFS_SIZE, serializedDiffsSize);
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        published = in.readVLong();
+        publishTimeInMillis = in.readVLong();
+        fullStatesSent = in.readVLong();
+        diffsSent = in.readVLong();
+        serializedDiffsSize = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(published);
+        out.writeVLong(publishTimeInMillis);
+        out.writeVLong(fullStatesSent);
+        out.writeVLong(diffsSent);
+        out.writeVLong(serializedDiffsSize);
+    }
+
+    static final class Fields {
+        static final XContentBuilderString PUBLISHED_CLUSTER_STATES = new XContentBuilderString("published_cluster_states");
+        static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        static final XContentBuilderString TIME = new XContentBuilderString("time");
+        static final XContentBuilderString TIME_IN_MILLIS = new XContentBuilderString("time_in_millis");
+        static final XContentBuilderString FULL_STATES_SENT = new XContentBuilderString("full_states_sent");
+        static final XContentBuilderString DIFFS_SENT = new XContentBuilderString("diffs_sent");
+        static final XContentBuilderString SERIALIZED_DIFFS_SIZE = new XContentBuilderString("serialized_diffs_size");
+        static final XContentBuilderString SERIALIZED_DIFFS_SIZE_IN_BYTES = new XContentBuilderString("serialized_diffs_size_in_bytes");
+    }
+
+    @Override
+    public String toString() {
+        return "PublishClusterStateStats(published=" + published + ", publishTimeInMillis=" + publishTimeInMillis
+            + ", fullStatesSent=" + fullStatesSent + ", diffsSent=" + diffsSent + ", serializedDiffsSize=" + serializedDiffsSize + ")";
+    }
+}
@@ -68,6 +68,7 @@ import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.AliasFilterParsingException;
 import org.elasticsearch.indices.InvalidAliasNameException;
+import org.elasticsearch.indices.IndicesRefreshScheduler;
 import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
 import org.elasticsearch.indices.mapper.MapperRegistry;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -116,6 +117,8 @@ public final class IndexService extends AbstractIndexComponent implements IndexC
     private final List<IndexingOperationListener> indexingOperationListeners;
     private final List<SearchOperationListener> searchOperationListeners;
     private volatile AsyncRefreshTask refreshTask;
+    // refreshes are scheduled by the node level IndicesRefreshScheduler
+    private final boolean coalescedRefresh;
     private volatile AsyncTranslogFSync fsyncTask;
     private final ThreadPool threadPool;
     private final BigArrays bigArrays;
@@ -161,6 +164,7 @@ public final class IndexService extends AbstractIndexComponent implements IndexC
         this.searcherWrapper = wrapperFactory.newWrapper(this);
         this.indexingOperationListeners = Collections.unmodifiableList(indexingOperationListeners);
         this.searchOperationListeners = Collections.unmodifiableList(searchOperationListeners);
+        this.coalescedRefresh = IndicesRefreshScheduler.INDICES_REFRESH_COALESCE_SETTING.get(indexSettings.getNodeSettings());
         // kick off async ops for the first shard in this index
         this.refreshTask = new AsyncRefreshTask(this);
         rescheduleFsyncTask(indexSettings.getTranslogDurability());
@@ -707,9 +711,7 @@ public final class IndexService extends AbstractIndexComponent implements IndexC
                     case STARTED:
                     case RELOCATED:
                         try {
-                            if (shard.isRefreshNeeded()) {
-                                shard.refresh("schedule");
-                            }
+                            shard.scheduledRefresh();
                         } catch (EngineClosedException | AlreadyClosedException ex) {
                             // fine - continue;
                         }
@@ -843,6 +845,11 @@ public final class IndexService extends AbstractIndexComponent implements IndexC
             super(indexService, indexService.getIndexSettings().getRefreshInterval());
         }
 
+        @Override
+        boolean mustReschedule() {
+            return super.mustReschedule() && indexService.coalescedRefresh == false;
+        }
+
         @Override
         protected void runInternal() {
             indexService.maybeRefreshEngine();
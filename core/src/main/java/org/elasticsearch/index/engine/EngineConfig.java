@@ -24,7 +24,9 @@ import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.similarities.Similarity;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
@@ -90,6 +92,8 @@ public final class EngineConfig {
 
     private TranslogConfig translogConfig;
     private final OpenMode openMode;
+    @Nullable
+    private final ReferenceManager.RefreshListener refreshListener;
 
     /**
      * Creates a new {@link org.elasticsearch.index.engine.EngineConfig}
@@ -99,7 +103,8 @@ public final class EngineConfig {
                         MergePolicy mergePolicy,Analyzer analyzer,
                         Similarity similarity, CodecService codecService, Engine.EventListener eventListener,
                         TranslogRecoveryPerformer translogRecoveryPerformer, QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
-                        TranslogConfig translogConfig, TimeValue flushMergesAfter) {
+                        TranslogConfig translogConfig, TimeValue flushMergesAfter,
+                        @Nullable ReferenceManager.RefreshListener refreshListener) {
         if (openMode == null) {
             throw new IllegalArgumentException("openMode must not be null");
         }
@@ -125,6 +130,7 @@ public final class EngineConfig {
         this.translogConfig = translogConfig;
         this.flushMergesAfter = flushMergesAfter;
         this.openMode = openMode;
+        this.refreshListener = refreshListener;
     }
 
     /**
@@ -219,6 +225,15 @@ public final class EngineConfig {
         return eventListener;
     }
 
+    /**
+     * Returns a listener that should be called on every refresh of the engine's searcher, whatever triggered it, or
+     * <code>null</code> if there is none
+     */
+    @Nullable
+    public ReferenceManager.RefreshListener getRefreshListener() {
+        return refreshListener;
+    }
+
     /**
      * Returns the index settings for this index.
      */
@@ -80,6 +80,9 @@ public class ShadowEngine extends Engine {
                 if (Lucene.waitForIndex(store.directory(), nonexistentRetryTime)) {
                     reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(store.directory()), shardId);
                     this.searcherManager = new SearcherManager(reader, searcherFactory);
+                    if (engineConfig.getRefreshListener() != null) {
+                        searcherManager.addListener(engineConfig.getRefreshListener());
+                    }
                     this.lastCommittedSegmentInfos = readLastCommittedSegmentInfos(searcherManager, store);
                     success = true;
                 } else {
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.refresh;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -35,13 +36,20 @@ public class RefreshStats implements Streamable, ToXContent {
 
     private long totalTimeInMillis;
 
+    private long maxLagInMillis;
+
     public RefreshStats() {
 
     }
 
     public RefreshStats(long total, long totalTimeInMillis) {
+        this(total, totalTimeInMillis, 0);
+    }
+
+    public RefreshStats(long total, long totalTimeInMillis, long maxLagInMillis) {
         this.total = total;
         this.totalTimeInMillis = totalTimeInMillis;
+        this.maxLagInMillis = maxLagInMillis;
     }
 
     public void add(long total, long totalTimeInMillis) {
@@ -59,6 +67,7 @@ public class RefreshStats implements Streamable, ToXContent {
         }
         this.total += refreshStats.total;
         this.totalTimeInMillis += refreshStats.totalTimeInMillis;
+        this.maxLagInMillis = Math.max(this.maxLagInMillis, refreshStats.maxLagInMillis);
     }
 
     /**
@@ -82,6 +91,21 @@ public class RefreshStats implements Streamable, ToXContent {
         return new TimeValue(totalTimeInMillis);
     }
 
+    /**
+     * The longest time changes have not been visible to searches (in milliseconds). For a single shard this is the time
+     * since its oldest change that was not refreshed yet, <code>0</code> if all its changes are visible.
+     */
+    public long getMaxLagInMillis() {
+        return this.maxLagInMillis;
+    }
+
+    /**
+     * The longest time changes have not been visible to searches.
+     */
+    public TimeValue getMaxLag() {
+        return new TimeValue(maxLagInMillis);
+    }
+
     public static RefreshStats readRefreshStats(StreamInput in) throws IOException {
         RefreshStats refreshStats = new RefreshStats();
         refreshStats.readFrom(in);
@@ -93,6 +117,7 @@ public class RefreshStats implements Streamable, ToXContent {
         builder.startObject(Fields.REFRESH);
         builder.field(Fields.TOTAL, total);
         builder.timeValueField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, totalTimeInMillis);
+        builder.timeValueField(Fields.MAX_LAG_IN_MILLIS, Fields.MAX_LAG, maxLagInMillis);
         builder.endObject();
         return builder;
     }
@@ -102,17 +127,25 @@ public class RefreshStats implements Streamable, ToXContent {
         static final XContentBuilderString TOTAL = new XContentBuilderString("total");
         static final XContentBuilderString TOTAL_TIME = new XContentBuilderString("total_time");
         static final XContentBuilderString TOTAL_TIME_IN_MILLIS = new XContentBuilderString("total_time_in_millis");
+        static final XContentBuilderString MAX_LAG = new XContentBuilderString("max_lag");
+        static final XContentBuilderString MAX_LAG_IN_MILLIS = new XContentBuilderString("max_lag_in_millis");
     }
 
     @Override
     public void readFrom(StreamInput in) throws IOException {
         total = in.readVLong();
         totalTimeInMillis = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_5_0_0_alpha1)) {
+            maxLagInMillis = in.readVLong();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(total);
         out.writeVLong(totalTimeInMillis);
+        if (out.getVersion().onOrAfter(Version.V_5_0_0_alpha1)) {
+            out.writeVLong(maxLagInMillis);
+        }
     }
 }
\ No newline at end of file
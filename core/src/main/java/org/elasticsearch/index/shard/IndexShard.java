@@ -25,6 +25,7 @@ import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
 import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.util.IOUtils;
@@ -166,9 +167,19 @@ public class IndexShard extends AbstractIndexShardComponent {
 
     private final RecoveryStats recoveryStats = new RecoveryStats();
     private final MeanMetric refreshMetric = new MeanMetric();
+    /** start time of the last refresh that went through {@link #refresh(String)} */
+    private volatile long lastRefreshNanos = System.nanoTime();
+    /** time of the first write since the last refresh, or <code>0</code> if there was none */
+    private final AtomicLong unrefreshedChangesSinceNanos = new AtomicLong();
+    private volatile long lastSearchAccessInMillis;
+    /** number of scheduled refreshes that were skipped because the shard was search idle */
+    private final AtomicLong skippedScheduledRefreshes = new AtomicLong();
+    /** number of skipped scheduled refreshes that a search has already caught up on */
+    private final AtomicLong searchedSkippedRefreshes = new AtomicLong();
     private final MeanMetric flushMetric = new MeanMetric();
 
     private final ShardEventListener shardEventListener = new ShardEventListener();
+    private final ShardRefreshListener shardRefreshListener = new ShardRefreshListener();
 
     private final ShardPath path;
 
@@ -207,6 +218,7 @@ public class IndexShard extends AbstractIndexShardComponent {
         this.store = store;
         this.indexEventListener = indexEventListener;
         this.threadPool = threadPool;
+        this.lastSearchAccessInMillis = threadPool.estimatedTimeInMillis();
         this.mapperService = mapperService;
         this.indexCache = indexCache;
         this.internalIndexingStats = new InternalIndexingStats();
@@ -496,6 +508,7 @@ public class IndexShard extends AbstractIndexShardComponent {
             }
             created = engine.index(index);
             index.endTime(System.nanoTime());
+            markUnrefreshedChanges(index.endTime());
         } catch (Throwable ex) {
             indexingOperationListeners.postIndex(index, ex);
             throw ex;
@@ -537,6 +550,7 @@ public class IndexShard extends AbstractIndexShardComponent {
             }
             engine.delete(delete);
             delete.endTime(System.nanoTime());
+            markUnrefreshedChanges(delete.endTime());
         } catch (Throwable ex) {
             indexingOperationListeners.postDelete(delete, ex);
             throw ex;
@@ -575,6 +589,97 @@ public class IndexShard extends AbstractIndexShardComponent {
         }
     }
 
+    private void markUnrefreshedChanges(long time) {
+        if (unrefreshedChangesSinceNanos.get() == 0) {
+            unrefreshedChangesSinceNanos.compareAndSet(0, time);
+        }
+    }
+
+    private void onRefreshed(long startTime) {
+        lastRefreshNanos = startTime;
+        // changes that came in after the refresh started might not be visible yet
+        final long unrefreshedSince = unrefreshedChangesSinceNanos.get();
+        if (unrefreshedSince != 0 && unrefreshedSince - startTime <= 0) {
+            unrefreshedChangesSinceNanos.compareAndSet(unrefreshedSince, 0);
+        }
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} from which on changes to this shard might not be visible to searches: the time of the
+     * first write since the last refresh, or the start of the last refresh if that write is not known. Only meaningful if
+     * {@link #isRefreshNeeded()} returns <code>true</code>.
+     */
+    public long getUnrefreshedChangesSinceNanos() {
+        final long unrefreshedSince = unrefreshedChangesSinceNanos.get();
+        return unrefreshedSince == 0 ? lastRefreshNanos : unrefreshedSince;
+    }
+
+    /**
+     * Returns for how long changes to this shard have not been visible to searches in nanoseconds, or <code>0</code> if all
+     * changes are visible.
+     */
+    public long getRefreshLagInNanos() {
+        try {
+            if (isRefreshNeeded() == false) {
+                return 0;
+            }
+        } catch (EngineClosedException | AlreadyClosedException ex) {
+            return 0;
+        }
+        return Math.max(0, System.nanoTime() - getUnrefreshedChangesSinceNanos());
+    }
+
+    /**
+     * Executes a scheduled refresh of this shard, unless no changes need to be made visible or the shard is search idle.
+     *
+     * @return <code>true</code> if the shard was refreshed
+     */
+    public boolean scheduledRefresh() {
+        if (isRefreshNeeded() && skipScheduledRefreshIfSearchIdle() == false) {
+            refresh("schedule");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns <code>true</code> if this shard is search idle and a scheduled refresh should be skipped. The skipped refresh is
+     * executed by the next search, see {@link #awaitSearchActive()}.
+     */
+    public boolean skipScheduledRefreshIfSearchIdle() {
+        if (isSearchIdle() == false) {
+            return false;
+        }
+        // record the skip before checking idleness again, a concurrent search then either sees the skip and refreshes or
+        // marks the shard as searched early enough for us to refresh instead
+        skippedScheduledRefreshes.incrementAndGet();
+        return isSearchIdle();
+    }
+
+    /**
+     * Returns <code>true</code> if this shard has not been searched for longer than <code>index.search.idle.after</code>.
+     */
+    public boolean isSearchIdle() {
+        final long searchIdleAfter = indexSettings.getSearchIdleAfter().millis();
+        return searchIdleAfter >= 0 && threadPool.estimatedTimeInMillis() - lastSearchAccessInMillis >= searchIdleAfter;
+    }
+
+    /**
+     * Marks this shard as searched. If scheduled refreshes were skipped while it was search idle, it is refreshed before this
+     * method returns so that the search sees all changes.
+     */
+    public void awaitSearchActive() {
+        lastSearchAccessInMillis = threadPool.estimatedTimeInMillis();
+        final long skipped = skippedScheduledRefreshes.get();
+        if (skipped > searchedSkippedRefreshes.get()) {
+            // concurrent searches all refresh until one of them is done, refreshes block until a running one completes
+            if (isRefreshNeeded()) {
+                refresh("search_idle");
+            }
+            searchedSkippedRefreshes.accumulateAndGet(skipped, Math::max);
+        }
+    }
+
     /**
      * Returns how many bytes we are currently moving from heap to disk
      */
@@ -583,7 +688,8 @@ public class IndexShard extends AbstractIndexShardComponent {
     }
 
     public RefreshStats refreshStats() {
-        return new RefreshStats(refreshMetric.count(), TimeUnit.NANOSECONDS.toMillis(refreshMetric.sum()));
+        return new RefreshStats(refreshMetric.count(), TimeUnit.NANOSECONDS.toMillis(refreshMetric.sum()),
+            TimeUnit.NANOSECONDS.toMillis(getRefreshLagInNanos()));
     }
 
     public FlushStats flushStats() {
@@ -1329,6 +1435,25 @@ public class IndexShard extends AbstractIndexShardComponent {
         }
     }
 
+    /**
+     * Tracks refreshes of the engine's searcher, including the ones the engine triggers itself on flush, force merge or
+     * when the version map takes too much memory, which all make the changes that came in before them visible.
+     */
+    private class ShardRefreshListener implements ReferenceManager.RefreshListener {
+        // only accessed by the thread that holds the searcher manager's refresh lock
+        private long refreshStartNanos;
+
+        @Override
+        public void beforeRefresh() {
+            refreshStartNanos = System.nanoTime();
+        }
+
+        @Override
+        public void afterRefresh(boolean didRefresh) {
+            onRefreshed(refreshStartNanos);
+        }
+    }
+
     private Engine createNewEngine(EngineConfig config) {
         synchronized (mutex) {
             if (state == IndexShardState.CLOSED) {
@@ -1396,7 +1521,8 @@ public class IndexShard extends AbstractIndexShardComponent {
         return new EngineConfig(openMode, shardId,
             threadPool, indexSettings, warmer, store, deletionPolicy, indexSettings.getMergePolicy(),
             mapperService.indexAnalyzer(), similarityService.similarity(mapperService), codecService, shardEventListener, translogRecoveryPerformer, indexCache.query(), cachingPolicy, translogConfig,
-            indexSettings.getSettings().getAsTime(IndexingMemoryController.SHARD_INACTIVE_TIME_SETTING, IndexingMemoryController.SHARD_DEFAULT_INACTIVE_TIME));
+            indexSettings.getSettings().getAsTime(IndexingMemoryController.SHARD_INACTIVE_TIME_SETTING, IndexingMemoryController.SHARD_DEFAULT_INACTIVE_TIME),
+            shardRefreshListener);
     }
 
     public Releasable acquirePrimaryOperationLock() {
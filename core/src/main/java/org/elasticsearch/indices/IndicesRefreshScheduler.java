@@ -0,0 +1,180 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices;
+
+import org.apache.lucene.store.AlreadyClosedException;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.FutureUtils;
+import org.elasticsearch.index.engine.EngineClosedException;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Schedules the periodic refreshes of all shards on this node from a single task instead of one task per index. On every
+ * check, only shards that have changes that are not visible to searches yet and whose oldest such change is older than
+ * their <code>index.refresh_interval</code> are refreshed. Shards without writes are skipped entirely. The number of
+ * concurrent refreshes is bounded, the shards waiting the longest are refreshed first and the others wait for a later
+ * check, which spreads the refresh I/O of many shards over time. Search idle shards are not refreshed until they are
+ * searched again, see {@link IndexShard#isSearchIdle()}.
+ */
+public class IndicesRefreshScheduler extends AbstractComponent implements Closeable {
+
+    /** If enabled, periodic refreshes are scheduled by this node level scheduler instead of a task per index (default: false). */
+    public static final Setting<Boolean> INDICES_REFRESH_COALESCE_SETTING =
+        Setting.boolSetting("indices.refresh.coalesce", false, Property.NodeScope);
+
+    /** How frequently we check which shards need a refresh (default: 100ms). */
+    public static final Setting<TimeValue> INDICES_REFRESH_COALESCE_INTERVAL_SETTING =
+        Setting.positiveTimeSetting("indices.refresh.coalesce.interval", TimeValue.timeValueMillis(100), Property.NodeScope);
+
+    /** How many shards may be refreshed concurrently (default: half the number of processors, at most 10). */
+    public static final Setting<Integer> INDICES_REFRESH_COALESCE_MAX_CONCURRENT_SETTING =
+        new Setting<>("indices.refresh.coalesce.max_concurrent",
+            s -> Integer.toString(Math.min((EsExecutors.boundedNumberOfProcessors(s) + 1) / 2, 10)),
+            s -> Setting.parseInt(s, 1, "indices.refresh.coalesce.max_concurrent"), Property.NodeScope);
+
+    private static final EnumSet<IndexShardState> CAN_REFRESH_STATES = EnumSet.of(
+            IndexShardState.POST_RECOVERY, IndexShardState.STARTED, IndexShardState.RELOCATED);
+
+    private final ThreadPool threadPool;
+
+    private final Iterable<IndexShard> indexShards;
+
+    private final TimeValue interval;
+
+    private final int maxConcurrentRefreshes;
+
+    /** Contains shards with a refresh in flight, those are not considered until the refresh completed */
+    private final Set<IndexShard> refreshing = ConcurrentCollections.newConcurrentSet();
+
+    private final ScheduledFuture<?> scheduler;
+
+    IndicesRefreshScheduler(Settings settings, ThreadPool threadPool, Iterable<IndexShard> indexShards) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.indexShards = indexShards;
+        this.interval = INDICES_REFRESH_COALESCE_INTERVAL_SETTING.get(settings);
+        this.maxConcurrentRefreshes = INDICES_REFRESH_COALESCE_MAX_CONCURRENT_SETTING.get(settings);
+        if (INDICES_REFRESH_COALESCE_SETTING.get(settings)) {
+            logger.debug("coalescing refreshes every [{}] with at most [{}] concurrent refreshes", interval, maxConcurrentRefreshes);
+            // it's fine to run it on the scheduler thread, the refreshes themselves are forked
+            this.scheduler = threadPool.scheduleWithFixedDelay(this::refreshDueShards, interval);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        FutureUtils.cancel(scheduler);
+    }
+
+    /**
+     * Refreshes the shards whose refresh is due, most overdue first, without exceeding the number of concurrent refreshes.
+     */
+    void refreshDueShards() {
+        final long now = System.nanoTime();
+        List<DueShard> dueShards = new ArrayList<>();
+        for (IndexShard shard : indexShards) {
+            final long refreshInterval = shard.indexSettings().getRefreshInterval().nanos();
+            if (refreshInterval <= 0 || CAN_REFRESH_STATES.contains(shard.state()) == false || refreshing.contains(shard)) {
+                continue;
+            }
+            try {
+                // read before checking for changes, so that a concurrent refresh can only make it look younger
+                final long unrefreshedSince = shard.getUnrefreshedChangesSinceNanos();
+                if (now - unrefreshedSince >= refreshInterval && shard.isRefreshNeeded()
+                        && shard.skipScheduledRefreshIfSearchIdle() == false) {
+                    dueShards.add(new DueShard(shard, unrefreshedSince));
+                }
+            } catch (EngineClosedException | AlreadyClosedException ex) {
+                // fine - continue;
+            }
+        }
+        if (dueShards.isEmpty()) {
+            return;
+        }
+        dueShards.sort(Comparator.comparingLong(dueShard -> dueShard.unrefreshedSince));
+        for (DueShard dueShard : dueShards) {
+            if (refreshing.size() >= maxConcurrentRefreshes) {
+                logger.trace("[{}] shards are due for a refresh, deferring [{}] to the next check", dueShards.size(),
+                    dueShard.shard.shardId());
+                break;
+            }
+            if (refreshing.add(dueShard.shard)) {
+                refreshAsync(dueShard.shard);
+            }
+        }
+    }
+
+    /** refresh this shard in the background and release its slot once done */
+    protected void refreshAsync(IndexShard shard) {
+        threadPool.executor(ThreadPool.Names.REFRESH).execute(new AbstractRunnable() {
+            @Override
+            public void doRun() {
+                shard.refresh("schedule");
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (t instanceof EngineClosedException || t instanceof AlreadyClosedException) {
+                    // fine - the shard was closed in the meantime
+                    return;
+                }
+                logger.warn("failed to refresh shard [{}]", t, shard.shardId());
+            }
+
+            @Override
+            public void onAfter() {
+                refreshing.remove(shard);
+            }
+        });
+    }
+
+    private static final class DueShard {
+        final IndexShard shard;
+        final long unrefreshedSince;
+
+        DueShard(IndexShard shard, long unrefreshedSince) {
+            this.shard = shard;
+            this.unrefreshedSince = unrefreshedSince;
+        }
+    }
+
+    /** number of shards with a refresh in flight */
+    int refreshingShards() {
+        return refreshing.size();
+    }
+}
@@ -27,6 +27,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.transport.TrailingBytesTransportRequest;
 import org.elasticsearch.transport.TransportRequest;
 
 import java.io.IOException;
@@ -34,7 +35,7 @@ import java.io.IOException;
 /**
  *
  */
-public final class RecoveryFileChunkRequest extends TransportRequest {
+public final class RecoveryFileChunkRequest extends TransportRequest implements TrailingBytesTransportRequest {
     private boolean lastChunk;
     private long recoveryId;
     private ShardId shardId;
@@ -106,7 +107,10 @@ public final class RecoveryFileChunkRequest extends TransportRequest {
         position = in.readVLong();
         long length = in.readVLong();
         String checksum = in.readOptionalString();
-        content = in.readBytesReference();
+        final boolean contentLast = in.getVersion().onOrAfter(org.elasticsearch.Version.V_5_0_0_alpha1);
+        if (contentLast == false) {
+            content = in.readBytesReference();
+        }
         Version writtenBy = null;
         String versionString = in.readOptionalString();
         writtenBy = Lucene.parseVersionLenient(versionString, null);
@@ -114,18 +118,54 @@ public final class RecoveryFileChunkRequest extends TransportRequest {
         lastChunk = in.readBoolean();
         totalTranslogOps = in.readVInt();
         sourceThrottleTimeInNanos = in.readLong();
+        if (contentLast) {
+            content = in.readBytesReference();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
+        if (out.getVersion().onOrAfter(org.elasticsearch.Version.V_5_0_0_alpha1)) {
+            writeThin(out);
+            content.writeTo(out);
+        } else {
+            super.writeTo(out);
+            writeHeader(out);
+            out.writeBytesReference(content);
+            writeFooter(out);
+        }
+    }
+
+    /**
+     * Writes everything but the content, which is written last as of 5.0.0, so that the transport can send it without copying.
+     */
+    @Override
+    public boolean writeThin(StreamOutput out) throws IOException {
+        if (out.getVersion().before(org.elasticsearch.Version.V_5_0_0_alpha1)) {
+            return false;
+        }
         super.writeTo(out);
+        writeHeader(out);
+        writeFooter(out);
+        out.writeVInt(content.length());
+        return true;
+    }
+
+    @Override
+    public BytesReference trailingBytes() {
+        return content;
+    }
+
+    private void writeHeader(StreamOutput out) throws IOException {
         out.writeLong(recoveryId);
         shardId.writeTo(out);
         out.writeString(metaData.name());
         out.writeVLong(position);
         out.writeVLong(metaData.length());
         out.writeOptionalString(metaData.checksum());
-        out.writeBytesReference(content);
+    }
+
+    private void writeFooter(StreamOutput out) throws IOException {
         out.writeOptionalString(metaData.writtenBy() == null ? null : metaData.writtenBy().toString());
         out.writeBoolean(lastChunk);
         out.writeVInt(totalTranslogOps);
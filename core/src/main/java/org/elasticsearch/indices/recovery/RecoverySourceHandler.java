@@ -515,12 +515,15 @@ public class RecoverySourceHandler {
         store.incRef();
         try {
             ArrayUtil.timSort(files, (a, b) -> Long.compare(a.length(), b.length())); // send smallest first
+            // reading whole chunks at once lets them bypass the buffer of the chunking output stream, so that each chunk is only
+            // copied once, from the file into this buffer. It can be reused since chunks are sent one at a time.
+            final byte[] buffer = new byte[chunkSizeInBytes];
             for (int i = 0; i < files.length; i++) {
                 final StoreFileMetaData md = files[i];
                 try (final IndexInput indexInput = store.directory().openInput(md.name(), IOContext.READONCE)) {
                     // it's fine that we are only having the indexInput in the try/with block. The copy methods handles
                     // exceptions during close correctly and doesn't hide the original exception.
-                    Streams.copy(new InputStreamIndexInput(indexInput, md.length()), outputStreamFactory.apply(md));
+                    Streams.copy(new InputStreamIndexInput(indexInput, md.length()), outputStreamFactory.apply(md), buffer);
                 } catch (Throwable t) {
                     final IOException corruptIndexException;
                     if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(t)) != null) {
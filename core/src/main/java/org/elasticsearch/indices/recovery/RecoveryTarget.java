@@ -42,6 +42,7 @@ import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
@@ -378,10 +379,20 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
         } else {
             indexOutput = getOpenIndexOutput(name);
         }
-        if (content.hasArray() == false) {
-            content = content.toBytesArray();
+        if (content.hasArray()) {
+            indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
+        } else {
+            // chunks received over the network often span several buffers, write them one by one instead of merging them first
+            for (ByteBuffer buffer : content.toChannelBuffer().toByteBuffers()) {
+                if (buffer.hasArray()) {
+                    indexOutput.writeBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                } else {
+                    final byte[] bytes = new byte[buffer.remaining()];
+                    buffer.get(bytes);
+                    indexOutput.writeBytes(bytes, 0, bytes.length);
+                }
+            }
         }
-        indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
         indexState.addRecoveredBytesToFile(name, content.length());
         if (indexOutput.getFilePointer() >= fileMetaData.length() || lastChunk) {
             try {
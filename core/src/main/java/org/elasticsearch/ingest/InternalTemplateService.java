@@ -19,6 +19,7 @@
 
 package org.elasticsearch.ingest;
 
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.ingest.core.TemplateService;
 import org.elasticsearch.script.CompiledScript;
@@ -27,7 +28,9 @@ import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptContext;
 import org.elasticsearch.script.ScriptService;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public class InternalTemplateService implements TemplateService {
@@ -49,7 +52,7 @@ public class InternalTemplateService implements TemplateService {
                 ScriptContext.Standard.INGEST,
                 Collections.emptyMap()
             );
-            return new Template() {
+            Template mustacheTemplate = new Template() {
                 @Override
                 public String execute(Map<String, Object> model) {
                     ExecutableScript executableScript = scriptService.executable(compiledScript, model);
@@ -65,11 +68,119 @@ public class InternalTemplateService implements TemplateService {
                     return template;
                 }
             };
+            Template fieldReferenceTemplate = FieldReferenceTemplate.parse(template, mustacheTemplate);
+            return fieldReferenceTemplate != null ? fieldReferenceTemplate : mustacheTemplate;
         } else {
             return new StringTemplate(template);
         }
     }
 
+    /**
+     * A template that only consists of text and plain variable references such as <code>{{field}}</code> or
+     * <code>{{_source.object.field}}</code>. Such templates are rendered by looking up the referenced values in the model
+     * directly, rather than through the script engine. Values that mustache would render in a way that isn't plain
+     * string conversion, like lists, maps or values reached through anything other than maps, are left to the compiled
+     * mustache template.
+     */
+    static final class FieldReferenceTemplate implements Template {
+
+        private final String template;
+        // the text in between the references, one more than there are references
+        private final String[] texts;
+        private final String[][] references;
+        private final Template mustacheTemplate;
+
+        private FieldReferenceTemplate(String template, String[] texts, String[][] references, Template mustacheTemplate) {
+            this.template = template;
+            this.texts = texts;
+            this.references = references;
+            this.mustacheTemplate = mustacheTemplate;
+        }
+
+        /**
+         * Returns a {@link FieldReferenceTemplate} for the given template, or <code>null</code> if the template uses any
+         * mustache feature other than plain variable references.
+         */
+        static FieldReferenceTemplate parse(String template, Template mustacheTemplate) {
+            List<String> texts = new ArrayList<>();
+            List<String[]> references = new ArrayList<>();
+            int from = 0;
+            int start;
+            while ((start = template.indexOf("{{", from)) != -1) {
+                int end = template.indexOf("}}", start + 2);
+                if (end == -1) {
+                    return null;
+                }
+                String[] reference = parseReference(template.substring(start + 2, end).trim());
+                if (reference == null) {
+                    return null;
+                }
+                texts.add(template.substring(from, start));
+                references.add(reference);
+                from = end + 2;
+            }
+            String text = template.substring(from);
+            if (text.contains("}}")) {
+                return null;
+            }
+            texts.add(text);
+            return new FieldReferenceTemplate(template, texts.toArray(new String[texts.size()]),
+                references.toArray(new String[references.size()][]), mustacheTemplate);
+        }
+
+        private static String[] parseReference(String name) {
+            if (name.isEmpty() || "#^/!>=&{<$".indexOf(name.charAt(0)) != -1) {
+                // sections, comments, partials, delimiter changes and unescaped variables
+                return null;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (Character.isWhitespace(c) || c == '{' || c == '}') {
+                    return null;
+                }
+            }
+            String[] path = name.split("\\.", -1);
+            for (String element : path) {
+                if (element.isEmpty()) {
+                    return null;
+                }
+            }
+            return path;
+        }
+
+        @Override
+        public String execute(Map<String, Object> model) {
+            StringBuilder result = new StringBuilder(texts[0]);
+            for (int i = 0; i < references.length; i++) {
+                Object value = model;
+                for (String element : references[i]) {
+                    if (value instanceof Map == false) {
+                        return mustacheTemplate.execute(model);
+                    }
+                    value = ((Map<?, ?>) value).get(element);
+                    if (value == null) {
+                        break;
+                    }
+                }
+                if (value != null) {
+                    if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+                        // mustache escapes values for json by default
+                        result.append(JsonStringEncoder.getInstance().quoteAsString(value.toString()));
+                    } else {
+                        return mustacheTemplate.execute(model);
+                    }
+                }
+                result.append(texts[i + 1]);
+            }
+            return result.toString();
+        }
+
+        @Override
+        public String getKey() {
+            return template;
+        }
+    }
+
     class StringTemplate implements Template {
 
         private final String value;
@@ -87,5 +198,10 @@ public class InternalTemplateService implements TemplateService {
         public String getKey() {
             return value;
         }
+
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
     }
 }
@@ -29,12 +29,15 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.ingest.core.IngestDocument;
 import org.elasticsearch.ingest.core.Pipeline;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
@@ -43,6 +46,11 @@ import java.util.function.Consumer;
 
 public class PipelineExecutionService implements ClusterStateListener {
 
+    /**
+     * Bulks are not split into chunks smaller than this, so that small bulks don't pay for handing work over to other threads.
+     */
+    static final int MIN_REQUESTS_PER_CHUNK = 16;
+
     private final PipelineStore store;
     private final ThreadPool threadPool;
 
@@ -71,6 +79,12 @@ public class PipelineExecutionService implements ClusterStateListener {
         });
     }
 
+    /**
+     * Runs the index requests of a bulk that have a pipeline set through their pipelines. The requests are split into chunks
+     * that are executed concurrently on the {@link ThreadPool.Names#INGEST} thread pool. Once all chunks are done the item
+     * failure handler is invoked for every failed index request, in the order in which the requests appear in the bulk, and
+     * then the completion handler is invoked.
+     */
     public void executeBulkRequest(Iterable<ActionRequest<?>> actionRequests,
                                    BiConsumer<IndexRequest, Throwable> itemFailureHandler,
                                    Consumer<Throwable> completionHandler) {
@@ -83,25 +97,82 @@ public class PipelineExecutionService implements ClusterStateListener {
 
             @Override
             protected void doRun() throws Exception {
+                List<IndexRequest> indexRequests = new ArrayList<>();
                 for (ActionRequest actionRequest : actionRequests) {
                     if ((actionRequest instanceof IndexRequest)) {
                         IndexRequest indexRequest = (IndexRequest) actionRequest;
                         if (Strings.hasText(indexRequest.getPipeline())) {
-                            try {
-                                innerExecute(indexRequest, getPipeline(indexRequest.getPipeline()));
-                                //this shouldn't be needed here but we do it for consistency with index api which requires it to prevent double execution
-                                indexRequest.setPipeline(null);
-                            } catch (Throwable e) {
-                                itemFailureHandler.accept(indexRequest, e);
-                            }
+                            indexRequests.add(indexRequest);
                         }
                     }
                 }
-                completionHandler.accept(null);
+                if (indexRequests.isEmpty()) {
+                    completionHandler.accept(null);
+                    return;
+                }
+
+                final Throwable[] failures = new Throwable[indexRequests.size()];
+                final int numChunks = numberOfChunks(indexRequests.size());
+                final int chunkSize = (indexRequests.size() + numChunks - 1) / numChunks;
+                final CountDown countDown = new CountDown(numChunks);
+                for (int from = 0; from < indexRequests.size(); from += chunkSize) {
+                    final int chunkFrom = from;
+                    final int chunkTo = Math.min(from + chunkSize, indexRequests.size());
+                    threadPool.executor(ThreadPool.Names.INGEST).execute(new AbstractRunnable() {
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            // the chunk was rejected or failed outside of a pipeline, fail all its items that didn't fail already
+                            for (int i = chunkFrom; i < chunkTo; i++) {
+                                if (failures[i] == null) {
+                                    failures[i] = t;
+                                }
+                            }
+                        }
+
+                        @Override
+                        protected void doRun() throws Exception {
+                            for (int i = chunkFrom; i < chunkTo; i++) {
+                                IndexRequest indexRequest = indexRequests.get(i);
+                                try {
+                                    innerExecute(indexRequest, getPipeline(indexRequest.getPipeline()));
+                                    //this shouldn't be needed here but we do it for consistency with index api which requires it to prevent double execution
+                                    indexRequest.setPipeline(null);
+                                } catch (Throwable e) {
+                                    failures[i] = e;
+                                }
+                            }
+                        }
+
+                        @Override
+                        public void onAfter() {
+                            if (countDown.countDown()) {
+                                // the count down makes the writes to the failures array of all chunks visible to this thread
+                                for (int i = 0; i < failures.length; i++) {
+                                    if (failures[i] != null) {
+                                        itemFailureHandler.accept(indexRequests.get(i), failures[i]);
+                                    }
+                                }
+                                completionHandler.accept(null);
+                            }
+                        }
+                    });
+                }
             }
         });
     }
 
+    /**
+     * Returns the number of chunks to split the given number of index requests into: one per ingest thread, unless that
+     * would leave chunks with fewer than {@link #MIN_REQUESTS_PER_CHUNK} requests.
+     */
+    private int numberOfChunks(int numRequests) {
+        ThreadPool.Info info = threadPool.info(ThreadPool.Names.INGEST);
+        int parallelism = info == null ? 1 : Math.max(1, info.getMax());
+        int maxChunks = (numRequests + MIN_REQUESTS_PER_CHUNK - 1) / MIN_REQUESTS_PER_CHUNK;
+        return Math.min(parallelism, maxChunks);
+    }
+
     public IngestStats stats() {
         Map<String, StatsHolder> statsHolderPerPipeline = this.statsHolderPerPipeline;
 
@@ -177,9 +248,9 @@ public class PipelineExecutionService implements ClusterStateListener {
             pipelineStats.ifPresent(StatsHolder::ingestFailed);
             throw e;
         } finally {
-            long ingestTimeInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeInNanos);
-            totalStats.postIngest(ingestTimeInMillis);
-            pipelineStats.ifPresent(statsHolder -> statsHolder.postIngest(ingestTimeInMillis));
+            long ingestTimeInNanos = System.nanoTime() - startTimeInNanos;
+            totalStats.postIngest(ingestTimeInNanos);
+            pipelineStats.ifPresent(statsHolder -> statsHolder.postIngest(ingestTimeInNanos));
         }
     }
 
@@ -193,6 +264,7 @@ public class PipelineExecutionService implements ClusterStateListener {
 
     static class StatsHolder {
 
+        // the time is accumulated in nanos, documents commonly take less than a millisecond to go through a pipeline
         private final MeanMetric ingestMetric = new MeanMetric();
         private final CounterMetric ingestCurrent = new CounterMetric();
         private final CounterMetric ingestFailed = new CounterMetric();
@@ -201,9 +273,9 @@ public class PipelineExecutionService implements ClusterStateListener {
             ingestCurrent.inc();
         }
 
-        void postIngest(long ingestTimeInMillis) {
+        void postIngest(long ingestTimeInNanos) {
             ingestCurrent.dec();
-            ingestMetric.inc(ingestTimeInMillis);
+            ingestMetric.inc(ingestTimeInNanos);
         }
 
         void ingestFailed() {
@@ -211,7 +283,8 @@ public class PipelineExecutionService implements ClusterStateListener {
         }
 
         IngestStats.Stats createStats() {
-            return new IngestStats.Stats(ingestMetric.count(), ingestMetric.sum(), ingestCurrent.count(), ingestFailed.count());
+            return new IngestStats.Stats(ingestMetric.count(), TimeUnit.NANOSECONDS.toMillis(ingestMetric.sum()), ingestCurrent.count(),
+                ingestFailed.count());
         }
 
     }
@@ -72,6 +72,36 @@ public final class ConfigurationUtils {
         return readString(processorType, processorTag, propertyName, value);
     }
 
+    /**
+     * Returns and removes the specified field path property from the specified configuration map, compiled into a
+     * {@link IngestDocument.FieldPath}.
+     *
+     * If the property value isn't of type string or isn't a valid field path an {@link ElasticsearchParseException} is thrown.
+     * If the property is missing and no default value has been specified an {@link ElasticsearchParseException} is thrown
+     */
+    public static IngestDocument.FieldPath readFieldPathProperty(String processorType, String processorTag,
+                                                                 Map<String, Object> configuration, String propertyName,
+                                                                 String defaultValue) {
+        String path = readStringProperty(processorType, processorTag, configuration, propertyName, defaultValue);
+        try {
+            return new IngestDocument.FieldPath(path);
+        } catch (IllegalArgumentException e) {
+            throw newConfigurationException(processorType, processorTag, propertyName, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns and removes the specified field path property from the specified configuration map, compiled into a
+     * {@link IngestDocument.FieldPath}.
+     *
+     * If the property value isn't of type string or isn't a valid field path an {@link ElasticsearchParseException} is thrown.
+     * If the property is missing an {@link ElasticsearchParseException} is thrown
+     */
+    public static IngestDocument.FieldPath readFieldPathProperty(String processorType, String processorTag,
+                                                                 Map<String, Object> configuration, String propertyName) {
+        return readFieldPathProperty(processorType, processorTag, configuration, propertyName, null);
+    }
+
     private static String readString(String processorType, String processorTag, String propertyName, Object value) {
         if (value == null) {
             return null;
@@ -31,13 +31,16 @@ import org.elasticsearch.index.mapper.internal.TypeFieldMapper;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.TimeZone;
 
 /**
@@ -103,12 +106,22 @@ public final class IngestDocument {
      * or if the field that is found at the provided path is not of the expected type.
      */
     public <T> T getFieldValue(String path, Class<T> clazz) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
-        for (String pathElement : fieldPath.pathElements) {
-            context = resolve(pathElement, path, context);
+        return getFieldValue(new FieldPath(path), clazz);
+    }
+
+    /**
+     * Returns the value contained in the document for the provided compiled path
+     * @param clazz The expected class of the field value
+     * @return the value for the provided path if existing, null otherwise
+     * @throws IllegalArgumentException if the field doesn't exist or if the field that is found at the provided path is not of
+     * the expected type.
+     */
+    public <T> T getFieldValue(FieldPath fieldPath, Class<T> clazz) {
+        Object context = initialContext(fieldPath);
+        for (int i = 0; i < fieldPath.pathElements.length; i++) {
+            context = resolve(fieldPath, i, context);
         }
-        return cast(path, context, clazz);
+        return cast(fieldPath.path, context, clazz);
     }
 
     /**
@@ -118,8 +131,15 @@ public final class IngestDocument {
      * @throws IllegalArgumentException if the path is null, empty or invalid.
      */
     public boolean hasField(String path) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        return hasField(new FieldPath(path));
+    }
+
+    /**
+     * Checks whether the document contains a value for the provided compiled path
+     * @return true if the document contains a value for the field, false otherwise
+     */
+    public boolean hasField(FieldPath fieldPath) {
+        Object context = initialContext(fieldPath);
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
             String pathElement = fieldPath.pathElements[i];
             if (context == null) {
@@ -132,36 +152,27 @@ public final class IngestDocument {
             } else if (context instanceof List) {
                 @SuppressWarnings("unchecked")
                 List<Object> list = (List<Object>) context;
-                try {
-                    int index = Integer.parseInt(pathElement);
-                    if (index < 0 || index >= list.size()) {
-                        return false;
-                    }
-                    context = list.get(index);
-                } catch (NumberFormatException e) {
+                int index = fieldPath.listIndices[i];
+                if (index == FieldPath.NOT_AN_INDEX || index < 0 || index >= list.size()) {
                     return false;
                 }
-
+                context = list.get(index);
             } else {
                 return false;
             }
         }
 
-        String leafKey = fieldPath.pathElements[fieldPath.pathElements.length - 1];
+        int leaf = fieldPath.pathElements.length - 1;
         if (context instanceof Map) {
             @SuppressWarnings("unchecked")
             Map<String, Object> map = (Map<String, Object>) context;
-            return map.containsKey(leafKey);
+            return map.containsKey(fieldPath.pathElements[leaf]);
         }
         if (context instanceof List) {
             @SuppressWarnings("unchecked")
             List<Object> list = (List<Object>) context;
-            try {
-                int index = Integer.parseInt(leafKey);
-                return index >= 0 && index < list.size();
-            } catch (NumberFormatException e) {
-                return false;
-            }
+            int index = fieldPath.listIndices[leaf];
+            return index != FieldPath.NOT_AN_INDEX && index >= 0 && index < list.size();
         }
         return false;
     }
@@ -181,13 +192,22 @@ public final class IngestDocument {
      * @throws IllegalArgumentException if the path is null, empty, invalid or if the field doesn't exist.
      */
     public void removeField(String path) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        removeField(new FieldPath(path));
+    }
+
+    /**
+     * Removes the field identified by the provided compiled path.
+     * @param fieldPath the compiled path of the field to be removed
+     * @throws IllegalArgumentException if the field doesn't exist.
+     */
+    public void removeField(FieldPath fieldPath) {
+        Object context = initialContext(fieldPath);
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
-            context = resolve(fieldPath.pathElements[i], path, context);
+            context = resolve(fieldPath, i, context);
         }
 
-        String leafKey = fieldPath.pathElements[fieldPath.pathElements.length - 1];
+        int leaf = fieldPath.pathElements.length - 1;
+        String leafKey = fieldPath.pathElements[leaf];
         if (context instanceof Map) {
             @SuppressWarnings("unchecked")
             Map<String, Object> map = (Map<String, Object>) context;
@@ -195,57 +215,59 @@ public final class IngestDocument {
                 map.remove(leafKey);
                 return;
             }
-            throw new IllegalArgumentException("field [" + leafKey + "] not present as part of path [" + path + "]");
+            throw new IllegalArgumentException("field [" + leafKey + "] not present as part of path [" + fieldPath.path + "]");
         }
         if (context instanceof List) {
             @SuppressWarnings("unchecked")
             List<Object> list = (List<Object>) context;
-            int index;
-            try {
-                index = Integer.parseInt(leafKey);
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("[" + leafKey + "] is not an integer, cannot be used as an index as part of path [" + path + "]", e);
-            }
-            if (index < 0 || index >= list.size()) {
-                throw new IllegalArgumentException("[" + index + "] is out of bounds for array with length [" + list.size() + "] as part of path [" + path + "]");
-            }
-            list.remove(index);
+            list.remove(listIndex(fieldPath, leaf, list));
             return;
         }
 
         if (context == null) {
-            throw new IllegalArgumentException("cannot remove [" + leafKey + "] from null as part of path [" + path + "]");
+            throw new IllegalArgumentException("cannot remove [" + leafKey + "] from null as part of path [" + fieldPath.path + "]");
         }
-        throw new IllegalArgumentException("cannot remove [" + leafKey + "] from object of type [" + context.getClass().getName() + "] as part of path [" + path + "]");
+        throw new IllegalArgumentException("cannot remove [" + leafKey + "] from object of type [" + context.getClass().getName() + "] as part of path [" + fieldPath.path + "]");
+    }
+
+    private Object initialContext(FieldPath fieldPath) {
+        return fieldPath.ingestMetadata ? ingestMetadata : sourceAndMetadata;
     }
 
-    private static Object resolve(String pathElement, String fullPath, Object context) {
+    private static Object resolve(FieldPath fieldPath, int pathElementIndex, Object context) {
+        String pathElement = fieldPath.pathElements[pathElementIndex];
         if (context == null) {
-            throw new IllegalArgumentException("cannot resolve [" + pathElement + "] from null as part of path [" + fullPath + "]");
+            throw new IllegalArgumentException("cannot resolve [" + pathElement + "] from null as part of path [" + fieldPath.path + "]");
         }
         if (context instanceof Map) {
             @SuppressWarnings("unchecked")
             Map<String, Object> map = (Map<String, Object>) context;
-            if (map.containsKey(pathElement)) {
-                return map.get(pathElement);
+            Object value = map.get(pathElement);
+            if (value != null || map.containsKey(pathElement)) {
+                return value;
             }
-            throw new IllegalArgumentException("field [" + pathElement + "] not present as part of path [" + fullPath + "]");
+            throw new IllegalArgumentException("field [" + pathElement + "] not present as part of path [" + fieldPath.path + "]");
         }
         if (context instanceof List) {
             @SuppressWarnings("unchecked")
             List<Object> list = (List<Object>) context;
-            int index;
-            try {
-                index = Integer.parseInt(pathElement);
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("[" + pathElement + "] is not an integer, cannot be used as an index as part of path [" + fullPath + "]", e);
-            }
-            if (index < 0 || index >= list.size()) {
-                throw new IllegalArgumentException("[" + index + "] is out of bounds for array with length [" + list.size() + "] as part of path [" + fullPath + "]");
-            }
-            return list.get(index);
+            return list.get(listIndex(fieldPath, pathElementIndex, list));
+        }
+        throw new IllegalArgumentException("cannot resolve [" + pathElement + "] from object of type [" + context.getClass().getName() + "] as part of path [" + fieldPath.path + "]");
+    }
+
+    /**
+     * Returns the list index that the given path element stands for, failing if it isn't an integer or is out of bounds.
+     */
+    private static int listIndex(FieldPath fieldPath, int pathElementIndex, List<?> list) {
+        int index = fieldPath.listIndices[pathElementIndex];
+        if (index == FieldPath.NOT_AN_INDEX) {
+            throw new IllegalArgumentException("[" + fieldPath.pathElements[pathElementIndex] + "] is not an integer, cannot be used as an index as part of path [" + fieldPath.path + "]");
+        }
+        if (index < 0 || index >= list.size()) {
+            throw new IllegalArgumentException("[" + index + "] is out of bounds for array with length [" + list.size() + "] as part of path [" + fieldPath.path + "]");
         }
-        throw new IllegalArgumentException("cannot resolve [" + pathElement + "] from object of type [" + context.getClass().getName() + "] as part of path [" + fullPath + "]");
+        return index;
     }
 
     /**
@@ -261,7 +283,15 @@ public final class IngestDocument {
      * @throws IllegalArgumentException if the path is null, empty or invalid.
      */
     public void appendFieldValue(String path, Object value) {
-        setFieldValue(path, value, true);
+        setFieldValue(new FieldPath(path), value, true);
+    }
+
+    /**
+     * Appends the provided value to the provided compiled path in the document, see {@link #appendFieldValue(String, Object)}.
+     * @param value The value or values to append to the existing ones
+     */
+    public void appendFieldValue(FieldPath fieldPath, Object value) {
+        setFieldValue(fieldPath, value, true);
     }
 
     /**
@@ -292,7 +322,16 @@ public final class IngestDocument {
      * item identified by the provided path.
      */
     public void setFieldValue(String path, Object value) {
-        setFieldValue(path, value, false);
+        setFieldValue(new FieldPath(path), value, false);
+    }
+
+    /**
+     * Sets the provided value to the provided compiled path in the document, see {@link #setFieldValue(String, Object)}.
+     * @param value The value to put in for the path key
+     * @throws IllegalArgumentException if the value cannot be set to the item identified by the provided path.
+     */
+    public void setFieldValue(FieldPath fieldPath, Object value) {
+        setFieldValue(fieldPath, value, false);
     }
 
     /**
@@ -306,12 +345,21 @@ public final class IngestDocument {
      */
     public void setFieldValue(TemplateService.Template fieldPathTemplate, ValueSource valueSource) {
         Map<String, Object> model = createTemplateModel();
-        setFieldValue(fieldPathTemplate.execute(model), valueSource.copyAndResolve(model), false);
+        setFieldValue(new FieldPath(fieldPathTemplate.execute(model)), valueSource.copyAndResolve(model), false);
     }
 
-    private void setFieldValue(String path, Object value, boolean append) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+    /**
+     * Sets the value produced by the provided value source to the provided compiled path in the document.
+     * @param valueSource The value source that will produce the value to put in for the path key
+     * @throws IllegalArgumentException if the value cannot be set to the item identified by the provided path.
+     */
+    public void setFieldValue(FieldPath fieldPath, ValueSource valueSource) {
+        setFieldValue(fieldPath, valueSource.copyAndResolve(createTemplateModel()), false);
+    }
+
+    private void setFieldValue(FieldPath fieldPath, Object value, boolean append) {
+        String path = fieldPath.path;
+        Object context = initialContext(fieldPath);
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
             String pathElement = fieldPath.pathElements[i];
             if (context == null) {
@@ -320,8 +368,9 @@ public final class IngestDocument {
             if (context instanceof Map) {
                 @SuppressWarnings("unchecked")
                 Map<String, Object> map = (Map<String, Object>) context;
-                if (map.containsKey(pathElement)) {
-                    context = map.get(pathElement);
+                Object next = map.get(pathElement);
+                if (next != null || map.containsKey(pathElement)) {
+                    context = next;
                 } else {
                     HashMap<Object, Object> newMap = new HashMap<>();
                     map.put(pathElement, newMap);
@@ -330,22 +379,14 @@ public final class IngestDocument {
             } else if (context instanceof List) {
                 @SuppressWarnings("unchecked")
                 List<Object> list = (List<Object>) context;
-                int index;
-                try {
-                    index = Integer.parseInt(pathElement);
-                } catch (NumberFormatException e) {
-                    throw new IllegalArgumentException("[" + pathElement + "] is not an integer, cannot be used as an index as part of path [" + path + "]", e);
-                }
-                if (index < 0 || index >= list.size()) {
-                    throw new IllegalArgumentException("[" + index + "] is out of bounds for array with length [" + list.size() + "] as part of path [" + path + "]");
-                }
-                context = list.get(index);
+                context = list.get(listIndex(fieldPath, i, list));
             } else {
                 throw new IllegalArgumentException("cannot resolve [" + pathElement + "] from object of type [" + context.getClass().getName() + "] as part of path [" + path + "]");
             }
         }
 
-        String leafKey = fieldPath.pathElements[fieldPath.pathElements.length - 1];
+        int leaf = fieldPath.pathElements.length - 1;
+        String leafKey = fieldPath.pathElements[leaf];
         if (context == null) {
             throw new IllegalArgumentException("cannot set [" + leafKey + "] with null parent as part of path [" + path + "]");
         }
@@ -370,15 +411,7 @@ public final class IngestDocument {
         } else if (context instanceof List) {
             @SuppressWarnings("unchecked")
             List<Object> list = (List<Object>) context;
-            int index;
-            try {
-                index = Integer.parseInt(leafKey);
-            } catch (NumberFormatException e) {
-                throw new IllegalArgumentException("[" + leafKey + "] is not an integer, cannot be used as an index as part of path [" + path + "]", e);
-            }
-            if (index < 0 || index >= list.size()) {
-                throw new IllegalArgumentException("[" + index + "] is out of bounds for array with length [" + list.size() + "] as part of path [" + path + "]");
-            }
+            int index = listIndex(fieldPath, leaf, list);
             if (append) {
                 Object object = list.get(index);
                 List<Object> newList = appendValues(object, value);
@@ -433,12 +466,52 @@ public final class IngestDocument {
     }
 
     private Map<String, Object> createTemplateModel() {
-        Map<String, Object> model = new HashMap<>(sourceAndMetadata);
-        model.put(SourceFieldMapper.NAME, sourceAndMetadata);
-        // If there is a field in the source with the name '_ingest' it gets overwritten here,
-        // if access to that field is required then it get accessed via '_source._ingest'
-        model.put(INGEST_KEY, ingestMetadata);
-        return model;
+        return new TemplateModel(sourceAndMetadata, ingestMetadata);
+    }
+
+    /**
+     * Read-only view over the document that templates get rendered against. Lookups go straight to the document, so
+     * rendering a template doesn't require copying the top level of the source for every document.
+     */
+    private static final class TemplateModel extends AbstractMap<String, Object> {
+
+        private final Map<String, Object> sourceAndMetadata;
+        private final Map<String, String> ingestMetadata;
+        private Set<Entry<String, Object>> entrySet;
+
+        TemplateModel(Map<String, Object> sourceAndMetadata, Map<String, String> ingestMetadata) {
+            this.sourceAndMetadata = sourceAndMetadata;
+            this.ingestMetadata = ingestMetadata;
+        }
+
+        @Override
+        public Object get(Object key) {
+            // If there is a field in the source with the name '_ingest' it gets shadowed here,
+            // if access to that field is required then it get accessed via '_source._ingest'
+            if (INGEST_KEY.equals(key)) {
+                return ingestMetadata;
+            }
+            if (SourceFieldMapper.NAME.equals(key)) {
+                return sourceAndMetadata;
+            }
+            return sourceAndMetadata.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return INGEST_KEY.equals(key) || SourceFieldMapper.NAME.equals(key) || sourceAndMetadata.containsKey(key);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            if (entrySet == null) {
+                Map<String, Object> model = new HashMap<>(sourceAndMetadata);
+                model.put(SourceFieldMapper.NAME, sourceAndMetadata);
+                model.put(INGEST_KEY, ingestMetadata);
+                entrySet = Collections.unmodifiableMap(model).entrySet();
+            }
+            return entrySet;
+        }
     }
 
     /**
@@ -544,30 +617,85 @@ public final class IngestDocument {
         }
     }
 
-    private class FieldPath {
-        private final String[] pathElements;
-        private final Object initialContext;
+    /**
+     * A field path in dot-notation that has been parsed once, so that it can be used to access many documents without
+     * parsing it again. Processors should compile the paths they access when they are created.
+     *
+     * The methods of {@link IngestDocument} that accept a {@link FieldPath} behave like their counterparts that accept the
+     * path as a string.
+     */
+    public static final class FieldPath {
+
+        static final int NOT_AN_INDEX = Integer.MIN_VALUE;
 
-        private FieldPath(String path) {
+        private final String path;
+        private final boolean ingestMetadata;
+        private final String[] pathElements;
+        // the path elements parsed as list indices, or NOT_AN_INDEX if they are not integers
+        private final int[] listIndices;
+
+        /**
+         * @param path The path within the document in dot-notation
+         * @throws IllegalArgumentException if the path is null, empty or invalid.
+         */
+        public FieldPath(String path) {
             if (Strings.isEmpty(path)) {
                 throw new IllegalArgumentException("path cannot be null nor empty");
             }
             String newPath;
             if (path.startsWith(INGEST_KEY + ".")) {
-                initialContext = ingestMetadata;
+                ingestMetadata = true;
                 newPath = path.substring(8, path.length());
             } else {
-                initialContext = sourceAndMetadata;
+                ingestMetadata = false;
                 if (path.startsWith(SourceFieldMapper.NAME + ".")) {
                     newPath = path.substring(8, path.length());
                 } else {
                     newPath = path;
                 }
             }
+            this.path = path;
             this.pathElements = Strings.splitStringToArray(newPath, '.');
             if (pathElements.length == 0) {
                 throw new IllegalArgumentException("path [" + path + "] is not valid");
             }
+            this.listIndices = new int[pathElements.length];
+            for (int i = 0; i < pathElements.length; i++) {
+                listIndices[i] = parseListIndex(pathElements[i]);
+            }
+        }
+
+        private static int parseListIndex(String pathElement) {
+            // most path elements are field names, check the characters first so that they don't pay for an exception
+            if (pathElement.isEmpty()) {
+                return NOT_AN_INDEX;
+            }
+            int start = pathElement.charAt(0) == '-' || pathElement.charAt(0) == '+' ? 1 : 0;
+            if (start == pathElement.length()) {
+                return NOT_AN_INDEX;
+            }
+            for (int i = start; i < pathElement.length(); i++) {
+                if (Character.isDigit(pathElement.charAt(i)) == false) {
+                    return NOT_AN_INDEX;
+                }
+            }
+            try {
+                return Integer.parseInt(pathElement);
+            } catch (NumberFormatException e) {
+                return NOT_AN_INDEX;
+            }
+        }
+
+        /**
+         * @return The path in dot-notation this field path was compiled from
+         */
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public String toString() {
+            return path;
         }
     }
 }
@@ -34,5 +34,13 @@ public interface TemplateService {
         String execute(Map<String, Object> model);
 
         String getKey();
+
+        /**
+         * Returns whether this template renders to the same value regardless of the model, in which case callers may
+         * render it once up front.
+         */
+        default boolean isConstant() {
+            return false;
+        }
     }
 }
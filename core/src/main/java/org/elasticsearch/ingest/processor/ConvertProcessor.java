@@ -22,6 +22,7 @@ package org.elasticsearch.ingest.processor;
 import org.elasticsearch.ingest.core.AbstractProcessor;
 import org.elasticsearch.ingest.core.AbstractProcessorFactory;
 import org.elasticsearch.ingest.core.IngestDocument;
+import org.elasticsearch.ingest.core.IngestDocument.FieldPath;
 import org.elasticsearch.ingest.core.ConfigurationUtils;
 
 import java.util.ArrayList;
@@ -110,11 +111,15 @@ public final class ConvertProcessor extends AbstractProcessor {
 
     public static final String TYPE = "convert";
 
-    private final String field;
-    private final String targetField;
+    private final FieldPath field;
+    private final FieldPath targetField;
     private final Type convertType;
 
     ConvertProcessor(String tag, String field, String targetField, Type convertType) {
+        this(tag, new FieldPath(field), new FieldPath(targetField), convertType);
+    }
+
+    ConvertProcessor(String tag, FieldPath field, FieldPath targetField, Type convertType) {
         super(tag);
         this.field = field;
         this.targetField = targetField;
@@ -122,11 +127,11 @@ public final class ConvertProcessor extends AbstractProcessor {
     }
 
     String getField() {
-        return field;
+        return field.getPath();
     }
 
     String getTargetField() {
-        return targetField;
+        return targetField.getPath();
     }
 
     Type getConvertType() {
@@ -162,9 +167,9 @@ public final class ConvertProcessor extends AbstractProcessor {
     public static final class Factory extends AbstractProcessorFactory<ConvertProcessor> {
         @Override
         public ConvertProcessor doCreate(String processorTag, Map<String, Object> config) throws Exception {
-            String field = ConfigurationUtils.readStringProperty(TYPE, processorTag, config, "field");
+            FieldPath field = ConfigurationUtils.readFieldPathProperty(TYPE, processorTag, config, "field");
             String typeProperty = ConfigurationUtils.readStringProperty(TYPE, processorTag, config, "type");
-            String targetField = ConfigurationUtils.readStringProperty(TYPE, processorTag, config, "target_field", field);
+            FieldPath targetField = ConfigurationUtils.readFieldPathProperty(TYPE, processorTag, config, "target_field", field.getPath());
             Type convertType = Type.fromString(processorTag, "type", typeProperty);
             return new ConvertProcessor(processorTag, field, targetField, convertType);
         }
@@ -22,6 +22,7 @@ package org.elasticsearch.ingest.processor;
 import org.elasticsearch.ingest.core.AbstractProcessor;
 import org.elasticsearch.ingest.core.AbstractProcessorFactory;
 import org.elasticsearch.ingest.core.IngestDocument;
+import org.elasticsearch.ingest.core.IngestDocument.FieldPath;
 import org.elasticsearch.ingest.core.ConfigurationUtils;
 
 import java.util.Map;
@@ -33,39 +34,43 @@ public final class RenameProcessor extends AbstractProcessor {
 
     public static final String TYPE = "rename";
 
-    private final String oldFieldName;
-    private final String newFieldName;
+    private final FieldPath oldField;
+    private final FieldPath newField;
 
-    RenameProcessor(String tag, String oldFieldName, String newFieldName) {
+    RenameProcessor(String tag, String oldField, String newField) {
+        this(tag, new FieldPath(oldField), new FieldPath(newField));
+    }
+
+    RenameProcessor(String tag, FieldPath oldField, FieldPath newField) {
         super(tag);
-        this.oldFieldName = oldFieldName;
-        this.newFieldName = newFieldName;
+        this.oldField = oldField;
+        this.newField = newField;
     }
 
     String getOldFieldName() {
-        return oldFieldName;
+        return oldField.getPath();
     }
 
     String getNewFieldName() {
-        return newFieldName;
+        return newField.getPath();
     }
 
     @Override
     public void execute(IngestDocument document) {
-        if (document.hasField(oldFieldName) == false) {
-            throw new IllegalArgumentException("field [" + oldFieldName + "] doesn't exist");
+        if (document.hasField(oldField) == false) {
+            throw new IllegalArgumentException("field [" + oldField + "] doesn't exist");
         }
-        if (document.hasField(newFieldName)) {
-            throw new IllegalArgumentException("field [" + newFieldName + "] already exists");
+        if (document.hasField(newField)) {
+            throw new IllegalArgumentException("field [" + newField + "] already exists");
         }
 
-        Object oldValue = document.getFieldValue(oldFieldName, Object.class);
-        document.setFieldValue(newFieldName, oldValue);
+        Object oldValue = document.getFieldValue(oldField, Object.class);
+        document.setFieldValue(newField, oldValue);
         try {
-            document.removeField(oldFieldName);
+            document.removeField(oldField);
         } catch (Exception e) {
             //remove the new field if the removal of the old one failed
-            document.removeField(newFieldName);
+            document.removeField(newField);
             throw e;
         }
     }
@@ -78,8 +83,8 @@ public final class RenameProcessor extends AbstractProcessor {
     public static final class Factory extends AbstractProcessorFactory<RenameProcessor> {
         @Override
         public RenameProcessor doCreate(String processorTag, Map<String, Object> config) throws Exception {
-            String field = ConfigurationUtils.readStringProperty(TYPE, processorTag, config, "field");
-            String newField = ConfigurationUtils.readStringProperty(TYPE, processorTag, config, "to");
+            FieldPath field = ConfigurationUtils.readFieldPathProperty(TYPE, processorTag, config, "field");
+            FieldPath newField = ConfigurationUtils.readFieldPathProperty(TYPE, processorTag, config, "to");
             return new RenameProcessor(processorTag, field, newField);
         }
     }
@@ -22,6 +22,7 @@ package org.elasticsearch.ingest.processor;
 import org.elasticsearch.ingest.core.AbstractProcessor;
 import org.elasticsearch.ingest.core.AbstractProcessorFactory;
 import org.elasticsearch.ingest.core.IngestDocument;
+import org.elasticsearch.ingest.core.IngestDocument.FieldPath;
 import org.elasticsearch.ingest.core.TemplateService;
 import org.elasticsearch.ingest.core.ValueSource;
 import org.elasticsearch.ingest.core.ConfigurationUtils;
@@ -37,11 +38,14 @@ public final class SetProcessor extends AbstractProcessor {
     public static final String TYPE = "set";
 
     private final TemplateService.Template field;
+    // the compiled field path if the field isn't templated
+    private final FieldPath fieldPath;
     private final ValueSource value;
 
     SetProcessor(String tag, TemplateService.Template field, ValueSource value) {
         super(tag);
         this.field = field;
+        this.fieldPath = field.isConstant() ? new FieldPath(field.getKey()) : null;
         this.value = value;
     }
 
@@ -55,7 +59,11 @@ public final class SetProcessor extends AbstractProcessor {
 
     @Override
     public void execute(IngestDocument document) {
-        document.setFieldValue(field, value);
+        if (fieldPath != null) {
+            document.setFieldValue(fieldPath, value);
+        } else {
+            document.setFieldValue(field, value);
+        }
     }
 
     @Override
@@ -102,6 +102,8 @@ import org.elasticsearch.search.aggregations.bucket.children.ChildrenParser;
 import org.elasticsearch.search.aggregations.bucket.children.InternalChildren;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterParser;
 import org.elasticsearch.search.aggregations.bucket.filter.InternalFilter;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeParser;
+import org.elasticsearch.search.aggregations.bucket.composite.InternalComposite;
 import org.elasticsearch.search.aggregations.bucket.filters.FiltersParser;
 import org.elasticsearch.search.aggregations.bucket.filters.InternalFilters;
 import org.elasticsearch.search.aggregations.bucket.geogrid.GeoHashGridParser;
@@ -438,6 +440,7 @@ public class SearchModule extends AbstractModule {
         registerAggregatorParser(new DateHistogramParser());
         registerAggregatorParser(new GeoDistanceParser());
         registerAggregatorParser(new GeoHashGridParser());
+        registerAggregatorParser(new CompositeParser());
         registerAggregatorParser(new NestedParser());
         registerAggregatorParser(new ReverseNestedParser());
         registerAggregatorParser(new TopHitsParser());
@@ -603,6 +606,7 @@ public class SearchModule extends AbstractModule {
         SignificantLongTerms.registerStreams();
         UnmappedSignificantTerms.registerStreams();
         InternalGeoHashGrid.registerStreams();
+        InternalComposite.registerStreams();
         DoubleTerms.registerStreams();
         UnmappedTerms.registerStreams();
         InternalRange.registerStream();
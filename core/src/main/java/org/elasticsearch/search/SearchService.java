@@ -545,6 +545,10 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         IndexShard indexShard = indexService.getShard(request.shardId().getId());
         SearchShardTarget shardTarget = new SearchShardTarget(clusterService.localNode().getId(), indexShard.shardId());
 
+        if (searcher == null) {
+            // refreshes the shard if it skipped refreshes while it was not searched
+            indexShard.awaitSearchActive();
+        }
         Engine.Searcher engineSearcher = searcher == null ? indexShard.acquireSearcher("search") : searcher;
 
         DefaultSearchContext context = new DefaultSearchContext(idGenerator.incrementAndGet(), request, shardTarget, engineSearcher,
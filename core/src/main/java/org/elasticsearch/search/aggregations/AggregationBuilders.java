@@ -25,6 +25,9 @@ import org.elasticsearch.search.aggregations.bucket.children.Children;
 import org.elasticsearch.search.aggregations.bucket.children.ChildrenAggregatorBuilder;
 import org.elasticsearch.search.aggregations.bucket.filter.Filter;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregatorBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
 import org.elasticsearch.search.aggregations.bucket.filters.Filters;
 import org.elasticsearch.search.aggregations.bucket.filters.FiltersAggregator.KeyedFilter;
 import org.elasticsearch.search.aggregations.bucket.filters.FiltersAggregatorBuilder;
@@ -82,6 +85,8 @@ import org.elasticsearch.search.aggregations.metrics.tophits.TopHitsAggregatorBu
 import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCount;
 import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCountAggregatorBuilder;
 
+import java.util.List;
+
 /**
  * Utility class to create aggregations.
  */
@@ -230,6 +235,13 @@ public class AggregationBuilders {
         return new GeoGridAggregatorBuilder(name);
     }
 
+    /**
+     * Create a new {@link CompositeAggregation} aggregation with the given name and sources.
+     */
+    public static CompositeAggregationBuilder composite(String name, List<CompositeValuesSourceBuilder<?>> sources) {
+        return new CompositeAggregationBuilder(name, sources);
+    }
+
     /**
      * Create a new {@link SignificantTerms} aggregation with the given name.
      */
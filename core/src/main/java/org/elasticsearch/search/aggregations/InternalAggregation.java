@@ -18,12 +18,14 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
@@ -37,6 +39,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
 
 /**
  * An internal implementation of {@link Aggregation}. Serves as a base class for all aggregation implementations.
@@ -92,12 +97,33 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
 
     public static class ReduceContext {
 
+        // more batches than threads so that threads that are done early can steal work from the others
+        private static final int BATCHES_PER_THREAD = 4;
+
         private final BigArrays bigArrays;
         private ScriptService scriptService;
+        private final ForkJoinPool reducePool;
+        private final ThreadContext threadContext;
 
         public ReduceContext(BigArrays bigArrays, ScriptService scriptService) {
+            this(bigArrays, scriptService, null, null);
+        }
+
+        /**
+         * @param reducePool
+         *            the pool used to reduce independent aggregations and buckets in parallel, or <code>null</code> to
+         *            reduce everything on the calling thread
+         * @param threadContext
+         *            the thread context of the caller, which is restored on the threads of the reduce pool while they
+         *            reduce on behalf of the caller. Required if <code>reducePool</code> is set.
+         */
+        public ReduceContext(BigArrays bigArrays, ScriptService scriptService, @Nullable ForkJoinPool reducePool,
+                             @Nullable ThreadContext threadContext) {
+            assert reducePool == null || threadContext != null : "reducing in parallel requires the thread context";
             this.bigArrays = bigArrays;
             this.scriptService = scriptService;
+            this.reducePool = reducePool;
+            this.threadContext = threadContext;
         }
 
         public BigArrays bigArrays() {
@@ -107,6 +133,45 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
         public ScriptService scriptService() {
             return scriptService;
         }
+
+        /**
+         * Applies the given reduce function to each of the inputs and returns the results in the same order. The inputs
+         * must be independent from each other. If this context has a reduce pool and there are at least twice
+         * <code>minBatchSize</code> inputs, they are split in batches of at least <code>minBatchSize</code> inputs that
+         * are reduced in parallel.
+         */
+        public <T, R> List<R> reduceAll(List<T> inputs, int minBatchSize, Function<T, R> reduce) {
+            final int numBatches = reducePool == null ? 1
+                    : Math.min(inputs.size() / minBatchSize, reducePool.getParallelism() * BATCHES_PER_THREAD);
+            final List<R> results = new ArrayList<>(inputs.size());
+            if (numBatches <= 1) {
+                for (T input : inputs) {
+                    results.add(reduce.apply(input));
+                }
+                return results;
+            }
+            @SuppressWarnings("unchecked")
+            final R[] reduced = (R[]) new Object[inputs.size()];
+            final List<ForkJoinTask<?>> tasks = new ArrayList<>(numBatches);
+            for (int batch = 0; batch < numBatches; ++batch) {
+                final int from = (int) ((long) inputs.size() * batch / numBatches);
+                final int to = (int) ((long) inputs.size() * (batch + 1) / numBatches);
+                // headers and transient context of the caller must be visible to the reduce functions
+                tasks.add(ForkJoinTask.adapt(threadContext.preserveContext(() -> {
+                    for (int i = from; i < to; ++i) {
+                        reduced[i] = reduce.apply(inputs.get(i));
+                    }
+                })));
+            }
+            if (ForkJoinTask.getPool() == reducePool) {
+                // nested reduce, eg. the sub-aggregations of buckets that are themselves reduced in parallel
+                ForkJoinTask.invokeAll(tasks);
+            } else {
+                reducePool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            }
+            Collections.addAll(results, reduced);
+            return results;
+        }
     }
 
 
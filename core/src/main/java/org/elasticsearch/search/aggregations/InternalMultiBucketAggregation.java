@@ -28,6 +28,12 @@ import java.util.Map;
 public abstract class InternalMultiBucketAggregation<A extends InternalMultiBucketAggregation, B extends InternalMultiBucketAggregation.InternalBucket>
         extends InternalAggregation implements MultiBucketsAggregation {
 
+    /**
+     * The minimum number of buckets to reduce on a single thread when buckets are reduced in parallel, so that the cost of
+     * handing work to another thread is small compared to the cost of the reduction.
+     */
+    protected static final int MIN_BUCKETS_PER_REDUCE_BATCH = 256;
+
     public InternalMultiBucketAggregation() {
     }
 
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.aggregations.bucket;
 
+import com.carrotsearch.hppc.LongLongHashMap;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.util.packed.PackedInts;
 import org.apache.lucene.util.packed.PackedLongValues;
@@ -60,6 +61,8 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
     PackedLongValues.Builder docDeltas;
     PackedLongValues.Builder buckets;
     long maxBucket = -1;
+    long numRecorded = 0;
+    LongLongHashMap clearedBuckets;
     boolean finished = false;
     LongHash selectedBuckets;
 
@@ -104,12 +107,24 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
             public void collect(int doc, long bucket) throws IOException {
                 docDeltas.add(doc - lastDoc);
                 buckets.add(bucket);
+                numRecorded++;
                 lastDoc = doc;
                 maxBucket = Math.max(maxBucket, bucket);
             }
         };
     }
 
+    /**
+     * Forgets the documents that have been recorded for the given bucket so far. Documents recorded for this bucket
+     * afterwards are replayed as usual, which allows the owning aggregator to reuse the ordinal of a pruned bucket.
+     */
+    public void clearBucket(long bucket) {
+        if (clearedBuckets == null) {
+            clearedBuckets = new LongLongHashMap();
+        }
+        clearedBuckets.put(bucket, numRecorded);
+    }
+
     @Override
     public void preCollection() throws IOException {
     }
@@ -143,6 +158,7 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
             throw new IllegalStateException("Cannot defer if scores are needed");
         }
 
+        long record = 0;
         for (Entry entry : entries) {
             final LeafBucketCollector leafCollector = collector.getLeafCollector(entry.context);
             leafCollector.setScorer(Lucene.illegalScorer("A limitation of the " + SubAggCollectionMode.BREADTH_FIRST
@@ -153,6 +169,11 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
             for (long i = 0, end = entry.docDeltas.size(); i < end; ++i) {
                 doc += docDeltaIterator.next();
                 final long bucket = buckets.next();
+                final long recordIndex = record++;
+                if (clearedBuckets != null && recordIndex < clearedBuckets.getOrDefault(bucket, 0)) {
+                    // recorded before the bucket was cleared
+                    continue;
+                }
                 final long rebasedBucket = hash.find(bucket);
                 if (rebasedBucket != -1) {
                     leafCollector.collect(doc, rebasedBucket);
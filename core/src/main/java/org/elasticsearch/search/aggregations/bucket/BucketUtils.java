@@ -18,6 +18,20 @@
  */
 package org.elasticsearch.search.aggregations.bucket;
 
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+
 /**
  * Helper functions for common Bucketing functions
  */
@@ -45,5 +59,44 @@ public class BucketUtils {
         // shard (at low cost) to improve the chances of the final result being accurate.
         return (int) Math.min(Integer.MAX_VALUE, Math.max(10, shardSampleSize));
     }
-    
+
+    /**
+     * Returns whether a bucketing aggregation may compute the doc counts of its buckets by counting the documents matching each
+     * bucket filter independently, instead of checking every collected document against every filter. This requires that the
+     * aggregation is top-level, has no sub-aggregations and that the query matches all documents, so that the collected
+     * documents are exactly the live documents of each segment.
+     */
+    public static boolean canCountFilterByFilter(SearchContext context, Aggregator parent, AggregatorFactories subFactories) {
+        return parent == null
+                && subFactories.countAggregators() == 0
+                && context.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER
+                && context.minimumScore() == null
+                && Queries.isConstantMatchAllQuery(context.query());
+    }
+
+    /**
+     * Counts the live documents of a segment that match the given filter.
+     *
+     * @param matched
+     *            if not <code>null</code>, the matching documents are also set in this bit set
+     * @return the number of live documents that match the filter
+     */
+    public static int countFilterMatches(LeafReaderContext ctx, Weight filter, @Nullable FixedBitSet matched) throws IOException {
+        final Scorer scorer = filter.scorer(ctx);
+        if (scorer == null) {
+            return 0;
+        }
+        final Bits liveDocs = ctx.reader().getLiveDocs();
+        final DocIdSetIterator iterator = scorer.iterator();
+        int count = 0;
+        for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+            if (liveDocs == null || liveDocs.get(doc)) {
+                count++;
+                if (matched != null) {
+                    matched.set(doc);
+                }
+            }
+        }
+        return count;
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A multi bucket aggregation that creates a bucket per combination of the values of its sources. Buckets are
+ * sorted by key and returned one page at a time: the key of the last bucket of a page can be used as the
+ * <tt>after</tt> key of the request for the next page.
+ */
+public interface CompositeAggregation extends MultiBucketsAggregation {
+
+    /**
+     * A bucket associated with a specific combination of source values.
+     */
+    interface Bucket extends MultiBucketsAggregation.Bucket {
+
+        /**
+         * The value of each source for this bucket, keyed by source name.
+         */
+        @Override
+        Map<String, Object> getKey();
+    }
+
+    @Override
+    List<? extends Bucket> getBuckets();
+
+    /**
+     * Returns the key to use as the <tt>after</tt> key of the next request, or {@code null} if this page is empty.
+     */
+    Map<String, Object> afterKey();
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.AggregatorBuilder;
+import org.elasticsearch.search.aggregations.AggregatorFactories.Builder;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Builds a {@link CompositeAggregation}: pages through all combinations of the values of its sources,
+ * <code>size</code> buckets at a time, in ascending key order.
+ */
+public class CompositeAggregationBuilder extends AggregatorBuilder<CompositeAggregationBuilder> {
+
+    static final CompositeAggregationBuilder PROTOTYPE = new CompositeAggregationBuilder("",
+            Collections.<CompositeValuesSourceBuilder<?>> singletonList(new TermsValuesSourceBuilder("")));
+
+    public static final ParseField SOURCES_FIELD = new ParseField("sources");
+    public static final ParseField SIZE_FIELD = new ParseField("size");
+    public static final ParseField AFTER_FIELD = new ParseField("after");
+
+    public static final int DEFAULT_SIZE = 10;
+
+    private final List<CompositeValuesSourceBuilder<?>> sources;
+    private int size = DEFAULT_SIZE;
+    private Map<String, Object> after;
+
+    /**
+     * @param name
+     *            the name of this aggregation
+     * @param sources
+     *            the sources of the composite keys, in sort order
+     */
+    public CompositeAggregationBuilder(String name, List<CompositeValuesSourceBuilder<?>> sources) {
+        super(name, InternalComposite.TYPE);
+        if (sources == null || sources.isEmpty()) {
+            throw new IllegalArgumentException("[" + SOURCES_FIELD.getPreferredName() + "] must not be empty: [" + name + "]");
+        }
+        Set<String> names = new HashSet<>();
+        for (CompositeValuesSourceBuilder<?> source : sources) {
+            if (names.add(source.name()) == false) {
+                throw new IllegalArgumentException("Composite source names must be unique, found duplicates: [" + source.name()
+                        + "] in [" + name + "]");
+            }
+        }
+        this.sources = sources;
+    }
+
+    public List<CompositeValuesSourceBuilder<?>> sources() {
+        return sources;
+    }
+
+    /**
+     * Sets the number of buckets to return per page.
+     */
+    public CompositeAggregationBuilder size(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("[" + SIZE_FIELD.getPreferredName() + "] must be greater than 0. Found [" + size
+                    + "] in [" + name + "]");
+        }
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * Gets the number of buckets to return per page.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sets the key after which buckets should be returned, typically the
+     * {@link CompositeAggregation#afterKey()} of the previous page.
+     */
+    public CompositeAggregationBuilder aggregateAfter(Map<String, Object> after) {
+        if (after == null) {
+            throw new IllegalArgumentException("[" + AFTER_FIELD.getPreferredName() + "] must not be null: [" + name + "]");
+        }
+        this.after = after;
+        return this;
+    }
+
+    /**
+     * Gets the key after which buckets should be returned.
+     */
+    public Map<String, Object> aggregateAfter() {
+        return after;
+    }
+
+    @Override
+    protected AggregatorFactory<?> doBuild(AggregationContext context, AggregatorFactory<?> parent, Builder subFactoriesBuilder)
+            throws IOException {
+        return new CompositeAggregatorFactory(name, type, sources, size, after, context, parent, subFactoriesBuilder, metaData);
+    }
+
+    @Override
+    protected XContentBuilder internalXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.startArray(SOURCES_FIELD.getPreferredName());
+        for (CompositeValuesSourceBuilder<?> source : sources) {
+            builder.startObject();
+            source.toXContent(builder, params);
+            builder.endObject();
+        }
+        builder.endArray();
+        builder.field(SIZE_FIELD.getPreferredName(), size);
+        if (after != null) {
+            builder.field(AFTER_FIELD.getPreferredName(), after);
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    protected CompositeAggregationBuilder doReadFrom(String name, StreamInput in) throws IOException {
+        int numSources = in.readVInt();
+        List<CompositeValuesSourceBuilder<?>> sources = new ArrayList<>(numSources);
+        for (int i = 0; i < numSources; i++) {
+            sources.add(CompositeValuesSourceBuilder.readSource(in));
+        }
+        CompositeAggregationBuilder factory = new CompositeAggregationBuilder(name, sources);
+        factory.size = in.readVInt();
+        if (in.readBoolean()) {
+            factory.after = in.readMap();
+        }
+        return factory;
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeVInt(sources.size());
+        for (CompositeValuesSourceBuilder<?> source : sources) {
+            source.writeTo(out);
+        }
+        out.writeVInt(size);
+        out.writeBoolean(after != null);
+        if (after != null) {
+            out.writeMap(after);
+        }
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(sources, size, after);
+    }
+
+    @Override
+    protected boolean doEquals(Object obj) {
+        CompositeAggregationBuilder other = (CompositeAggregationBuilder) obj;
+        return Objects.equals(sources, other.sources)
+                && size == other.size
+                && Objects.equals(after, other.after);
+    }
+}
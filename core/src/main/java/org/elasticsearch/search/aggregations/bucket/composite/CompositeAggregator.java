@@ -0,0 +1,212 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.BestBucketsDeferringCollector;
+import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.DeferringBucketCollector;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the <code>size</code> smallest composite keys that sort after the requested <code>after</code> key.
+ * Keys are kept in a bounded sorted map and the ordinal of an evicted key is reused by the key that replaces it, so
+ * the number of buckets only depends on the page size, not on the number of distinct combinations. Sub-aggregations
+ * are deferred and only replayed for the keys of the final page. Sub-aggregations that need scores can't be deferred
+ * and can't forget the documents of an evicted key, so in that case every competitive key gets a fresh ordinal.
+ */
+public class CompositeAggregator extends BucketsAggregator {
+
+    private final int size;
+    private final String[] sourceNames;
+    private final CompositeValuesSource[] sources;
+    private final CompositeKey after;
+
+    private final TreeMap<CompositeKey, Long> keys = new TreeMap<>();
+    private final CompositeKey spare;
+    private final boolean reuseOrds;
+    private BestBucketsDeferringCollector deferringCollector;
+    private long nextOrd = 0;
+
+    public CompositeAggregator(String name, AggregatorFactories factories, int size, String[] sourceNames,
+            CompositeValuesSource[] sources, CompositeKey after, AggregationContext context, Aggregator parent,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        super(name, factories, context, parent, pipelineAggregators, metaData);
+        this.size = size;
+        this.sourceNames = sourceNames;
+        this.sources = sources;
+        this.after = after;
+        this.spare = new CompositeKey(new Comparable<?>[sources.length]);
+        boolean allDeferred = true;
+        for (Aggregator subAggregator : subAggregators) {
+            allDeferred &= shouldDefer(subAggregator);
+        }
+        this.reuseOrds = allDeferred;
+    }
+
+    @Override
+    public boolean needsScores() {
+        for (CompositeValuesSource source : sources) {
+            if (source != null && source.needsScores()) {
+                return true;
+            }
+        }
+        return super.needsScores();
+    }
+
+    @Override
+    protected boolean shouldDefer(Aggregator aggregator) {
+        // buckets may be evicted from the page during collection, there is no need to compute their sub-aggregations
+        return aggregator.needsScores() == false;
+    }
+
+    @Override
+    public DeferringBucketCollector getDeferringCollector() {
+        deferringCollector = new BestBucketsDeferringCollector();
+        return deferringCollector;
+    }
+
+    @Override
+    protected LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+        final CompositeValuesSource.Values[] values = new CompositeValuesSource.Values[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] == null) {
+                // one of the sources is unmapped so no document can produce a key
+                return LeafBucketCollector.NO_OP_COLLECTOR;
+            }
+            values[i] = sources[i].values(ctx);
+        }
+        return new LeafBucketCollectorBase(sub, null) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0;
+                for (CompositeValuesSource.Values sourceValues : values) {
+                    sourceValues.setDocument(doc);
+                    if (sourceValues.count() == 0) {
+                        return;
+                    }
+                }
+                collectCombinations(sub, doc, values, 0);
+            }
+        };
+    }
+
+    private void collectCombinations(LeafBucketCollector sub, int doc, CompositeValuesSource.Values[] values, int pos)
+            throws IOException {
+        if (pos == values.length) {
+            long bucketOrd = addIfCompetitive(spare);
+            if (bucketOrd >= 0) {
+                collectBucket(sub, doc, bucketOrd);
+            }
+            return;
+        }
+        final CompositeValuesSource.Values sourceValues = values[pos];
+        final int count = sourceValues.count();
+        for (int i = 0; i < count; i++) {
+            spare.set(pos, sourceValues.valueAt(i));
+            collectCombinations(sub, doc, values, pos + 1);
+        }
+    }
+
+    /**
+     * Returns the bucket ordinal of the provided key or -1 if the key does not belong to the current page.
+     */
+    private long addIfCompetitive(CompositeKey candidate) {
+        if (after != null && candidate.compareTo(after) <= 0) {
+            return -1;
+        }
+        Long ord = keys.get(candidate);
+        if (ord != null) {
+            return ord;
+        }
+        long newOrd = -1;
+        if (keys.size() >= size) {
+            CompositeKey last = keys.lastKey();
+            if (candidate.compareTo(last) > 0) {
+                return -1;
+            }
+            // the evicted key can never come back: the page only accepts keys smaller than its current last key
+            long evictedOrd = keys.remove(last);
+            if (reuseOrds) {
+                clearBucket(evictedOrd);
+                newOrd = evictedOrd;
+            }
+        }
+        Comparable<?>[] copy = new Comparable<?>[candidate.size()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = sources[i].copy(candidate.get(i));
+        }
+        if (newOrd == -1) {
+            newOrd = nextOrd++;
+        }
+        keys.put(new CompositeKey(copy), newOrd);
+        return newOrd;
+    }
+
+    /**
+     * Resets the doc count and the deferred documents of an evicted bucket so that its ordinal can be reused.
+     */
+    private void clearBucket(long bucketOrd) {
+        if (bucketOrd < getDocCounts().size()) {
+            getDocCounts().set(bucketOrd, 0);
+        }
+        if (deferringCollector != null) {
+            deferringCollector.clearBucket(bucketOrd);
+        }
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+        assert owningBucketOrdinal == 0;
+        long[] survivingBucketOrds = new long[keys.size()];
+        int i = 0;
+        for (Long ord : keys.values()) {
+            survivingBucketOrds[i++] = ord;
+        }
+        runDeferredCollections(survivingBucketOrds);
+
+        List<InternalComposite.InternalBucket> buckets = new ArrayList<>(keys.size());
+        for (Map.Entry<CompositeKey, Long> entry : keys.entrySet()) {
+            long bucketOrd = entry.getValue();
+            buckets.add(new InternalComposite.InternalBucket(sourceNames, entry.getKey(), bucketDocCount(bucketOrd),
+                    bucketAggregations(bucketOrd)));
+        }
+        return new InternalComposite(name, size, sourceNames, buckets, pipelineAggregators(), metaData());
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalComposite(name, size, sourceNames, Collections.<InternalComposite.InternalBucket> emptyList(),
+                pipelineAggregators(), metaData());
+    }
+}
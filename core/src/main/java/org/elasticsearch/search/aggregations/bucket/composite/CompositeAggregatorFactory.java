@@ -0,0 +1,88 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.search.aggregations.AggregationExecutionException;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.InternalAggregation.Type;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+public class CompositeAggregatorFactory extends AggregatorFactory<CompositeAggregatorFactory> {
+
+    private final int size;
+    private final String[] sourceNames;
+    private final CompositeValuesSource[] sources;
+    private final CompositeKey after;
+
+    public CompositeAggregatorFactory(String name, Type type, List<CompositeValuesSourceBuilder<?>> sourceBuilders, int size,
+            Map<String, Object> after, AggregationContext context, AggregatorFactory<?> parent,
+            AggregatorFactories.Builder subFactoriesBuilder, Map<String, Object> metaData) throws IOException {
+        super(name, type, context, parent, subFactoriesBuilder, metaData);
+        this.size = size;
+        this.sourceNames = new String[sourceBuilders.size()];
+        this.sources = new CompositeValuesSource[sourceBuilders.size()];
+        boolean unmapped = false;
+        for (int i = 0; i < sources.length; i++) {
+            sourceNames[i] = sourceBuilders.get(i).name();
+            sources[i] = sourceBuilders.get(i).build(context);
+            unmapped |= sources[i] == null;
+        }
+        if (after == null || unmapped) {
+            this.after = null;
+        } else {
+            Comparable<?>[] values = new Comparable<?>[sources.length];
+            for (int i = 0; i < sources.length; i++) {
+                Object value = after.get(sourceNames[i]);
+                if (value == null) {
+                    throw new IllegalArgumentException("Missing value for source [" + sourceNames[i] + "] in the [after] key of ["
+                            + name + "]");
+                }
+                values[i] = sources[i].parseAfter(value);
+            }
+            this.after = new CompositeKey(values);
+        }
+    }
+
+    @Override
+    public void doValidate() {
+        if (parent != null) {
+            throw new IllegalArgumentException("[" + type.name() + "] aggregation [" + name
+                    + "] cannot be used with a parent aggregation");
+        }
+    }
+
+    @Override
+    protected Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
+        if (collectsFromSingleBucket == false) {
+            throw new AggregationExecutionException("[" + type.name() + "] aggregation [" + name
+                    + "] must be a top level aggregation");
+        }
+        return new CompositeAggregator(name, factories, size, sourceNames, sources, after, context, parent, pipelineAggregators,
+                metaData);
+    }
+}
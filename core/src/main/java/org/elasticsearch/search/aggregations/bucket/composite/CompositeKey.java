@@ -0,0 +1,200 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The key of a composite bucket: one value per source, compared source by source in the order
+ * the sources were defined.
+ */
+final class CompositeKey implements Comparable<CompositeKey>, Writeable<CompositeKey> {
+
+    private final Comparable<?>[] values;
+
+    CompositeKey(Comparable<?>... values) {
+        this.values = values;
+    }
+
+    CompositeKey(StreamInput in) throws IOException {
+        values = new Comparable<?>[in.readVInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (Comparable<?>) in.readGenericValue();
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(values.length);
+        for (Comparable<?> value : values) {
+            out.writeGenericValue(value);
+        }
+    }
+
+    int size() {
+        return values.length;
+    }
+
+    Comparable<?> get(int pos) {
+        return values[pos];
+    }
+
+    void set(int pos, Comparable<?> value) {
+        values[pos] = value;
+    }
+
+    /**
+     * Returns the value at the given position in a form that can be rendered by xcontent.
+     */
+    Object format(int pos) {
+        Comparable<?> value = values[pos];
+        if (value instanceof BytesRef) {
+            return ((BytesRef) value).utf8ToString();
+        }
+        return value;
+    }
+
+    @Override
+    public int compareTo(CompositeKey other) {
+        assert values.length == other.values.length;
+        for (int i = 0; i < values.length; i++) {
+            int cmp = compareValues(values[i], other.values[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compareValues(Comparable a, Comparable b) {
+        if (a instanceof Number && b instanceof Number) {
+            // the same field may be mapped as an integral type on some indices and as a floating point type on others
+            return compareNumbers((Number) a, (Number) b);
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * Compares two numbers exactly, whether they are integral or floating point. <code>-0.0</code> and
+     * <code>0.0</code> are equal, <code>NaN</code> sorts after all other values.
+     */
+    static int compareNumbers(Number a, Number b) {
+        final boolean aIsFloatingPoint = isFloatingPoint(a);
+        final boolean bIsFloatingPoint = isFloatingPoint(b);
+        if (aIsFloatingPoint && bIsFloatingPoint) {
+            double x = a.doubleValue();
+            double y = b.doubleValue();
+            return x == y ? 0 : Double.compare(x, y);
+        } else if (aIsFloatingPoint) {
+            return -compareLongToDouble(b.longValue(), a.doubleValue());
+        } else if (bIsFloatingPoint) {
+            return compareLongToDouble(a.longValue(), b.doubleValue());
+        }
+        return Long.compare(a.longValue(), b.longValue());
+    }
+
+    private static boolean isFloatingPoint(Number number) {
+        return number instanceof Double || number instanceof Float;
+    }
+
+    /**
+     * Compares a long with a double without rounding the long to the closest double.
+     */
+    private static int compareLongToDouble(long l, double d) {
+        if (Double.isNaN(d) || d >= 0x1p63) {
+            return -1;
+        } else if (d < -0x1p63) {
+            return 1;
+        }
+        double floor = Math.floor(d);
+        int cmp = Long.compare(l, (long) floor);
+        if (cmp != 0) {
+            return cmp;
+        }
+        return floor == d ? 0 : -1;
+    }
+
+    /**
+     * A hash code that is consistent with {@link #compareNumbers(Number, Number)}: numbers that compare equal have the
+     * same hash code, regardless of their type.
+     */
+    private static int hashValue(Object value) {
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if (isFloatingPoint(number)) {
+                double d = number.doubleValue();
+                if (d == Math.floor(d) && d >= -0x1p63 && d < 0x1p63) {
+                    return Long.hashCode((long) d);
+                }
+                return Double.hashCode(d);
+            }
+            return Long.hashCode(number.longValue());
+        }
+        return Objects.hashCode(value);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        CompositeKey other = (CompositeKey) obj;
+        if (values.length != other.values.length) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            Comparable<?> a = values[i];
+            Comparable<?> b = other.values[i];
+            if (a instanceof Number && b instanceof Number) {
+                if (compareNumbers((Number) a, (Number) b) != 0) {
+                    return false;
+                }
+            } else if (Objects.equals(a, b) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (Comparable<?> value : values) {
+            result = 31 * result + hashValue(value);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
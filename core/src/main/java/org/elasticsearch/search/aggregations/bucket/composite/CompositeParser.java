@@ -0,0 +1,106 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.query.QueryParseContext;
+import org.elasticsearch.search.aggregations.Aggregator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the composite aggregation request
+ */
+public class CompositeParser implements Aggregator.Parser {
+
+    @Override
+    public String type() {
+        return InternalComposite.TYPE.name();
+    }
+
+    @Override
+    public CompositeAggregationBuilder parse(String aggregationName, XContentParser parser, QueryParseContext context)
+            throws IOException {
+        List<CompositeValuesSourceBuilder<?>> sources = null;
+        Integer size = null;
+        Map<String, Object> after = null;
+
+        XContentParser.Token token;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token == XContentParser.Token.VALUE_NUMBER || token == XContentParser.Token.VALUE_STRING) {
+                if (context.parseFieldMatcher().match(currentFieldName, CompositeAggregationBuilder.SIZE_FIELD)) {
+                    size = parser.intValue();
+                } else {
+                    throw new ParsingException(parser.getTokenLocation(),
+                            "Unknown key for a " + token + " in [" + aggregationName + "]: [" + currentFieldName + "].");
+                }
+            } else if (token == XContentParser.Token.START_OBJECT) {
+                if (context.parseFieldMatcher().match(currentFieldName, CompositeAggregationBuilder.AFTER_FIELD)) {
+                    after = parser.map();
+                } else {
+                    throw new ParsingException(parser.getTokenLocation(),
+                            "Unknown key for a " + token + " in [" + aggregationName + "]: [" + currentFieldName + "].");
+                }
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                if (context.parseFieldMatcher().match(currentFieldName, CompositeAggregationBuilder.SOURCES_FIELD)) {
+                    sources = new ArrayList<>();
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                        if (token != XContentParser.Token.START_OBJECT) {
+                            throw new ParsingException(parser.getTokenLocation(),
+                                    "Expected an object for each of the [sources] of [" + aggregationName + "] but got [" + token + "]");
+                        }
+                        sources.add(CompositeValuesSourceBuilder.parse(aggregationName, parser, context.parseFieldMatcher()));
+                    }
+                } else {
+                    throw new ParsingException(parser.getTokenLocation(),
+                            "Unknown key for a " + token + " in [" + aggregationName + "]: [" + currentFieldName + "].");
+                }
+            } else {
+                throw new ParsingException(parser.getTokenLocation(),
+                        "Unknown key for a " + token + " in [" + aggregationName + "]: [" + currentFieldName + "].");
+            }
+        }
+
+        if (sources == null) {
+            throw new ParsingException(parser.getTokenLocation(),
+                    "Missing required field [sources] for composite aggregation [" + aggregationName + "]");
+        }
+        CompositeAggregationBuilder factory = new CompositeAggregationBuilder(aggregationName, sources);
+        if (size != null) {
+            factory.size(size);
+        }
+        if (after != null) {
+            factory.aggregateAfter(after);
+        }
+        return factory;
+    }
+
+    @Override
+    public CompositeAggregationBuilder getFactoryPrototypes() {
+        return CompositeAggregationBuilder.PROTOTYPE;
+    }
+}
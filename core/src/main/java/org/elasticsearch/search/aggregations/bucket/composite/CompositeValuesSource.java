@@ -0,0 +1,292 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+import java.io.IOException;
+
+/**
+ * Shard level counterpart of a {@link CompositeValuesSourceBuilder}: exposes, for every document, the sorted values
+ * that this source contributes to the composite keys.
+ */
+abstract class CompositeValuesSource {
+
+    /**
+     * Per-segment view of the values of a source. Values are returned in ascending order.
+     */
+    interface Values {
+
+        void setDocument(int doc);
+
+        int count();
+
+        /**
+         * Returns the value at the given index. The returned object may be reused by the next call,
+         * use {@link CompositeValuesSource#copy(Comparable)} to retain it.
+         */
+        Comparable<?> valueAt(int index);
+    }
+
+    abstract Values values(LeafReaderContext context) throws IOException;
+
+    /**
+     * Converts a value of the <tt>after</tt> key, as parsed from the request, to the type returned by this source.
+     */
+    abstract Comparable<?> parseAfter(Object value);
+
+    /**
+     * Returns a copy of the provided value that is safe to retain after the next call to {@link Values#valueAt(int)}.
+     */
+    Comparable<?> copy(Comparable<?> value) {
+        return value;
+    }
+
+    boolean needsScores() {
+        return false;
+    }
+
+    /**
+     * Terms of a field that exposes binary values, e.g. keyword fields.
+     */
+    static class BytesTerms extends CompositeValuesSource {
+
+        private final ValuesSource.Bytes valuesSource;
+
+        BytesTerms(ValuesSource.Bytes valuesSource) {
+            this.valuesSource = valuesSource;
+        }
+
+        @Override
+        Values values(LeafReaderContext context) throws IOException {
+            final SortedBinaryDocValues values = valuesSource.bytesValues(context);
+            return new Values() {
+                @Override
+                public void setDocument(int doc) {
+                    values.setDocument(doc);
+                }
+
+                @Override
+                public int count() {
+                    return values.count();
+                }
+
+                @Override
+                public Comparable<?> valueAt(int index) {
+                    return values.valueAt(index);
+                }
+            };
+        }
+
+        @Override
+        Comparable<?> parseAfter(Object value) {
+            if (value instanceof BytesRef) {
+                return (BytesRef) value;
+            }
+            return new BytesRef(value.toString());
+        }
+
+        @Override
+        Comparable<?> copy(Comparable<?> value) {
+            return BytesRef.deepCopyOf((BytesRef) value);
+        }
+
+        @Override
+        boolean needsScores() {
+            return valuesSource.needsScores();
+        }
+    }
+
+    /**
+     * Terms of a numeric field. Integral fields produce {@link Long} values and floating point fields {@link Double} values.
+     */
+    static class NumericTerms extends CompositeValuesSource {
+
+        private final ValuesSource.Numeric valuesSource;
+
+        NumericTerms(ValuesSource.Numeric valuesSource) {
+            this.valuesSource = valuesSource;
+        }
+
+        @Override
+        Values values(LeafReaderContext context) throws IOException {
+            if (valuesSource.isFloatingPoint()) {
+                final SortedNumericDoubleValues values = valuesSource.doubleValues(context);
+                return new DistinctDoubleValues() {
+                    @Override
+                    public void setDocument(int doc) {
+                        values.setDocument(doc);
+                        final int count = values.count();
+                        reset(count);
+                        for (int i = 0; i < count; i++) {
+                            add(values.valueAt(i));
+                        }
+                    }
+                };
+            }
+            final SortedNumericDocValues values = valuesSource.longValues(context);
+            return new DistinctLongValues() {
+                @Override
+                public void setDocument(int doc) {
+                    values.setDocument(doc);
+                    final int count = values.count();
+                    reset(count);
+                    for (int i = 0; i < count; i++) {
+                        add(values.valueAt(i));
+                    }
+                }
+            };
+        }
+
+        @Override
+        Comparable<?> parseAfter(Object value) {
+            if (valuesSource.isFloatingPoint()) {
+                return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+            }
+            return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+        }
+
+        @Override
+        boolean needsScores() {
+            return valuesSource.needsScores();
+        }
+    }
+
+    /**
+     * Numeric values rounded down to a multiple of a fixed interval, reported as {@link Long} values.
+     */
+    static class Histogram extends CompositeValuesSource {
+
+        private final ValuesSource.Numeric valuesSource;
+        private final long interval;
+
+        Histogram(ValuesSource.Numeric valuesSource, long interval) {
+            this.valuesSource = valuesSource;
+            this.interval = interval;
+        }
+
+        @Override
+        Values values(LeafReaderContext context) throws IOException {
+            if (valuesSource.isFloatingPoint()) {
+                final SortedNumericDoubleValues values = valuesSource.doubleValues(context);
+                return new DistinctLongValues() {
+                    @Override
+                    public void setDocument(int doc) {
+                        values.setDocument(doc);
+                        final int count = values.count();
+                        reset(count);
+                        for (int i = 0; i < count; i++) {
+                            add((long) Math.floor(values.valueAt(i) / interval) * interval);
+                        }
+                    }
+                };
+            }
+            final SortedNumericDocValues values = valuesSource.longValues(context);
+            return new DistinctLongValues() {
+                @Override
+                public void setDocument(int doc) {
+                    values.setDocument(doc);
+                    final int count = values.count();
+                    reset(count);
+                    for (int i = 0; i < count; i++) {
+                        add(Math.floorDiv(values.valueAt(i), interval) * interval);
+                    }
+                }
+            };
+        }
+
+        @Override
+        Comparable<?> parseAfter(Object value) {
+            return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+        }
+
+        @Override
+        boolean needsScores() {
+            return valuesSource.needsScores();
+        }
+    }
+
+    /**
+     * Buffers the distinct values of the current document. Values must be added in ascending order, which
+     * is preserved by rounding, so that duplicates are adjacent.
+     */
+    private abstract static class DistinctLongValues implements Values {
+
+        private long[] values = new long[1];
+        private int count;
+
+        protected final void reset(int maxCount) {
+            values = ArrayUtil.grow(values, maxCount);
+            count = 0;
+        }
+
+        protected final void add(long value) {
+            if (count == 0 || values[count - 1] != value) {
+                values[count++] = value;
+            }
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+
+        @Override
+        public Comparable<?> valueAt(int index) {
+            return values[index];
+        }
+    }
+
+    /**
+     * Same as {@link DistinctLongValues} for floating point values.
+     */
+    private abstract static class DistinctDoubleValues implements Values {
+
+        private double[] values = new double[1];
+        private int count;
+
+        protected final void reset(int maxCount) {
+            values = ArrayUtil.grow(values, maxCount);
+            count = 0;
+        }
+
+        protected final void add(double value) {
+            if (count == 0 || Double.compare(values[count - 1], value) != 0) {
+                values[count++] = value;
+            }
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+
+        @Override
+        public Comparable<?> valueAt(int index) {
+            return values[index];
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.ParseFieldMatcher;
+import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexGeoPointFieldData;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.FieldContext;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.ValuesSourceType;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Defines one dimension of the composite key built by the {@link CompositeAggregationBuilder}.
+ * Each source has a name, under which its value is reported in the bucket keys, and a field
+ * that provides the values.
+ */
+public abstract class CompositeValuesSourceBuilder<B extends CompositeValuesSourceBuilder<B>> implements Writeable<B>, ToXContent {
+
+    public static final ParseField FIELD_FIELD = new ParseField("field");
+
+    protected final String name;
+    protected String field;
+
+    protected CompositeValuesSourceBuilder(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("[name] must not be null");
+        }
+        this.name = name;
+    }
+
+    /**
+     * The name of this source, used as the key of its value in the composite buckets.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Sets the field to read the values of this source from.
+     */
+    @SuppressWarnings("unchecked")
+    public B field(String field) {
+        if (field == null) {
+            throw new IllegalArgumentException("[field] must not be null: [" + name + "]");
+        }
+        this.field = field;
+        return (B) this;
+    }
+
+    /**
+     * Gets the field to read the values of this source from.
+     */
+    public String field() {
+        return field;
+    }
+
+    /**
+     * The type of this source as it appears in the request, e.g. <tt>terms</tt>.
+     */
+    public abstract String type();
+
+    /**
+     * Resolves this source against the current shard.
+     *
+     * @return the shard level values source, or {@code null} if the field is not mapped on this shard
+     */
+    public CompositeValuesSource build(AggregationContext context) throws IOException {
+        if (field == null) {
+            throw new IllegalArgumentException("[field] must be set for composite source [" + name + "]");
+        }
+        MappedFieldType fieldType = context.searchContext().smartNameFieldType(field);
+        if (fieldType == null) {
+            return null;
+        }
+        IndexFieldData<?> indexFieldData = context.searchContext().fieldData().getForField(fieldType);
+        final ValuesSourceConfig<ValuesSource> config;
+        if (indexFieldData instanceof IndexNumericFieldData) {
+            config = new ValuesSourceConfig<>(ValuesSourceType.NUMERIC);
+        } else if (indexFieldData instanceof IndexGeoPointFieldData) {
+            throw new IllegalArgumentException("Field [" + field + "] of type [" + fieldType.typeName()
+                    + "] is not supported by composite source [" + name + "]");
+        } else {
+            config = new ValuesSourceConfig<>(ValuesSourceType.BYTES);
+        }
+        config.fieldContext(new FieldContext(field, indexFieldData, fieldType));
+        return innerBuild(context.valuesSource(config, context.searchContext()));
+    }
+
+    protected abstract CompositeValuesSource innerBuild(ValuesSource valuesSource) throws IOException;
+
+    @Override
+    public final void writeTo(StreamOutput out) throws IOException {
+        out.writeString(type());
+        out.writeString(name);
+        out.writeOptionalString(field);
+        innerWriteTo(out);
+    }
+
+    protected abstract void innerWriteTo(StreamOutput out) throws IOException;
+
+    /**
+     * Reads a source previously written with {@link #writeTo(StreamOutput)}, whatever its concrete type.
+     */
+    public static CompositeValuesSourceBuilder<?> readSource(StreamInput in) throws IOException {
+        String type = in.readString();
+        String name = in.readString();
+        final CompositeValuesSourceBuilder<?> source;
+        switch (type) {
+        case TermsValuesSourceBuilder.TYPE:
+            source = new TermsValuesSourceBuilder(name);
+            break;
+        case HistogramValuesSourceBuilder.TYPE:
+            source = new HistogramValuesSourceBuilder(name);
+            break;
+        default:
+            throw new IllegalStateException("unknown composite source type [" + type + "]");
+        }
+        source.field = in.readOptionalString();
+        source.innerReadFrom(in);
+        return source;
+    }
+
+    protected abstract void innerReadFrom(StreamInput in) throws IOException;
+
+    @Override
+    public final XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(name);
+        builder.startObject(type());
+        if (field != null) {
+            builder.field(FIELD_FIELD.getPreferredName(), field);
+        }
+        doXContentBody(builder, params);
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+
+    protected abstract XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException;
+
+    /**
+     * Parses a single source of the form <code>{ "name": { "type": { ... } } }</code>. The parser is expected to be
+     * positioned on the start object of the source and is left on its end object.
+     */
+    public static CompositeValuesSourceBuilder<?> parse(String aggregationName, XContentParser parser,
+            ParseFieldMatcher parseFieldMatcher) throws IOException {
+        XContentParser.Token token = parser.nextToken();
+        if (token != XContentParser.Token.FIELD_NAME) {
+            throw new ParsingException(parser.getTokenLocation(), "Expected the name of a composite source in [" + aggregationName
+                    + "] but got [" + token + "]");
+        }
+        String name = parser.currentName();
+        token = parser.nextToken();
+        if (token != XContentParser.Token.START_OBJECT) {
+            throw new ParsingException(parser.getTokenLocation(), "Expected an object for composite source [" + name + "] in ["
+                    + aggregationName + "]");
+        }
+        token = parser.nextToken();
+        if (token != XContentParser.Token.FIELD_NAME) {
+            throw new ParsingException(parser.getTokenLocation(), "Expected the type of composite source [" + name + "] in ["
+                    + aggregationName + "]");
+        }
+        String type = parser.currentName();
+        final CompositeValuesSourceBuilder<?> source;
+        switch (type) {
+        case TermsValuesSourceBuilder.TYPE:
+            source = new TermsValuesSourceBuilder(name);
+            break;
+        case HistogramValuesSourceBuilder.TYPE:
+            source = new HistogramValuesSourceBuilder(name);
+            break;
+        default:
+            throw new ParsingException(parser.getTokenLocation(), "Unknown composite source type [" + type + "] in ["
+                    + aggregationName + "]");
+        }
+        token = parser.nextToken();
+        if (token != XContentParser.Token.START_OBJECT) {
+            throw new ParsingException(parser.getTokenLocation(), "Expected an object for composite source [" + name + "] in ["
+                    + aggregationName + "]");
+        }
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token.isValue() && parseFieldMatcher.match(currentFieldName, FIELD_FIELD)) {
+                source.field(parser.text());
+            } else if (token.isValue() == false || source.token(currentFieldName, parser, parseFieldMatcher) == false) {
+                throw new ParsingException(parser.getTokenLocation(), "Unknown key for a " + token + " in composite source [" + name
+                        + "] of [" + aggregationName + "]: [" + currentFieldName + "].");
+            }
+        }
+        // we are on the end of the type object, consume the end of the named object and of the source object
+        for (int i = 0; i < 2; i++) {
+            token = parser.nextToken();
+            if (token != XContentParser.Token.END_OBJECT) {
+                throw new ParsingException(parser.getTokenLocation(), "Composite source [" + name + "] in [" + aggregationName
+                        + "] must define exactly one name and one type");
+            }
+        }
+        return source;
+    }
+
+    /**
+     * Parses a source specific value option.
+     *
+     * @return true if the option was consumed by this source
+     */
+    protected abstract boolean token(String currentFieldName, XContentParser parser, ParseFieldMatcher parseFieldMatcher)
+            throws IOException;
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type(), name, field, innerHashCode());
+    }
+
+    protected abstract int innerHashCode();
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        CompositeValuesSourceBuilder<?> other = (CompositeValuesSourceBuilder<?>) obj;
+        return Objects.equals(name, other.name)
+                && Objects.equals(field, other.field)
+                && innerEquals(other);
+    }
+
+    protected abstract boolean innerEquals(CompositeValuesSourceBuilder<?> other);
+}
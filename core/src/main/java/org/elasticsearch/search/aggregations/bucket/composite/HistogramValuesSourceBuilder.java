@@ -0,0 +1,112 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.ParseFieldMatcher;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+import java.io.IOException;
+
+/**
+ * A {@link CompositeValuesSourceBuilder} that rounds the numeric values of a field down to a multiple of
+ * a fixed interval. On date fields the interval is expressed in milliseconds.
+ */
+public class HistogramValuesSourceBuilder extends CompositeValuesSourceBuilder<HistogramValuesSourceBuilder> {
+
+    static final String TYPE = "histogram";
+    public static final ParseField INTERVAL_FIELD = new ParseField("interval");
+
+    private long interval = 1;
+
+    public HistogramValuesSourceBuilder(String name) {
+        super(name);
+    }
+
+    /**
+     * Sets the interval of the histogram.
+     */
+    public HistogramValuesSourceBuilder interval(long interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("[interval] must be 1 or greater for composite source [" + name + "]");
+        }
+        this.interval = interval;
+        return this;
+    }
+
+    /**
+     * Gets the interval of the histogram.
+     */
+    public long interval() {
+        return interval;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    protected CompositeValuesSource innerBuild(ValuesSource valuesSource) throws IOException {
+        if (valuesSource instanceof ValuesSource.Numeric == false) {
+            throw new IllegalArgumentException("Field [" + field + "] of composite source [" + name + "] must be numeric");
+        }
+        return new CompositeValuesSource.Histogram((ValuesSource.Numeric) valuesSource, interval);
+    }
+
+    @Override
+    protected void innerWriteTo(StreamOutput out) throws IOException {
+        out.writeVLong(interval);
+    }
+
+    @Override
+    protected void innerReadFrom(StreamInput in) throws IOException {
+        interval = in.readVLong();
+    }
+
+    @Override
+    protected XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
+        builder.field(INTERVAL_FIELD.getPreferredName(), interval);
+        return builder;
+    }
+
+    @Override
+    protected boolean token(String currentFieldName, XContentParser parser, ParseFieldMatcher parseFieldMatcher) throws IOException {
+        if (parseFieldMatcher.match(currentFieldName, INTERVAL_FIELD)) {
+            interval(parser.longValue());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected int innerHashCode() {
+        return Long.hashCode(interval);
+    }
+
+    @Override
+    protected boolean innerEquals(CompositeValuesSourceBuilder<?> other) {
+        return interval == ((HistogramValuesSourceBuilder) other).interval;
+    }
+}
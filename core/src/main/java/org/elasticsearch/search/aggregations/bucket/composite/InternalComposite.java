@@ -0,0 +1,261 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.search.aggregations.AggregationStreams;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The result of a composite aggregation: a page of buckets sorted by their composite key.
+ */
+public class InternalComposite extends InternalMultiBucketAggregation<InternalComposite, InternalComposite.InternalBucket>
+        implements CompositeAggregation {
+
+    public final static Type TYPE = new Type("composite");
+
+    static final XContentBuilderString AFTER_KEY = new XContentBuilderString("after_key");
+
+    private final static AggregationStreams.Stream STREAM = new AggregationStreams.Stream() {
+        @Override
+        public InternalComposite readResult(StreamInput in) throws IOException {
+            InternalComposite composite = new InternalComposite();
+            composite.readFrom(in);
+            return composite;
+        }
+    };
+
+    public static void registerStreams() {
+        AggregationStreams.registerStream(STREAM, TYPE.stream());
+    }
+
+    public static class InternalBucket extends InternalMultiBucketAggregation.InternalBucket implements CompositeAggregation.Bucket {
+
+        private String[] sourceNames;
+        private CompositeKey key;
+        private long docCount;
+        private InternalAggregations aggregations;
+
+        private InternalBucket(String[] sourceNames) {
+            // for serialization
+            this.sourceNames = sourceNames;
+        }
+
+        InternalBucket(String[] sourceNames, CompositeKey key, long docCount, InternalAggregations aggregations) {
+            this.sourceNames = sourceNames;
+            this.key = key;
+            this.docCount = docCount;
+            this.aggregations = aggregations;
+        }
+
+        CompositeKey rawKey() {
+            return key;
+        }
+
+        @Override
+        public Map<String, Object> getKey() {
+            return keyAsMap(sourceNames, key);
+        }
+
+        @Override
+        public String getKeyAsString() {
+            return getKey().toString();
+        }
+
+        @Override
+        public long getDocCount() {
+            return docCount;
+        }
+
+        @Override
+        public Aggregations getAggregations() {
+            return aggregations;
+        }
+
+        InternalBucket reduce(List<InternalBucket> buckets, ReduceContext context) {
+            long docCount = 0;
+            List<InternalAggregations> aggregationsList = new ArrayList<>(buckets.size());
+            for (InternalBucket bucket : buckets) {
+                docCount += bucket.docCount;
+                aggregationsList.add(bucket.aggregations);
+            }
+            InternalAggregations aggs = InternalAggregations.reduce(aggregationsList, context);
+            return new InternalBucket(sourceNames, key, docCount, aggs);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field(CommonFields.KEY, getKey());
+            builder.field(CommonFields.DOC_COUNT, docCount);
+            aggregations.toXContentInternal(builder, params);
+            builder.endObject();
+            return builder;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            key = new CompositeKey(in);
+            docCount = in.readVLong();
+            aggregations = InternalAggregations.readAggregations(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            key.writeTo(out);
+            out.writeVLong(docCount);
+            aggregations.writeTo(out);
+        }
+    }
+
+    private int size;
+    private String[] sourceNames;
+    private List<InternalBucket> buckets;
+
+    InternalComposite() {} // for serialization
+
+    public InternalComposite(String name, int size, String[] sourceNames, List<InternalBucket> buckets,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
+        super(name, pipelineAggregators, metaData);
+        this.size = size;
+        this.sourceNames = sourceNames;
+        this.buckets = buckets;
+    }
+
+    @Override
+    public Type type() {
+        return TYPE;
+    }
+
+    @Override
+    public InternalComposite create(List<InternalBucket> buckets) {
+        return new InternalComposite(name, size, sourceNames, buckets, pipelineAggregators(), getMetaData());
+    }
+
+    @Override
+    public InternalBucket createBucket(InternalAggregations aggregations, InternalBucket prototype) {
+        return new InternalBucket(prototype.sourceNames, prototype.key, prototype.docCount, aggregations);
+    }
+
+    @Override
+    public List<InternalBucket> getBuckets() {
+        return buckets;
+    }
+
+    @Override
+    public Map<String, Object> afterKey() {
+        if (buckets.isEmpty()) {
+            return null;
+        }
+        return buckets.get(buckets.size() - 1).getKey();
+    }
+
+    @Override
+    public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
+        // every shard returns its smallest keys after the requested one, so the smallest keys of the union of
+        // the shard responses are exact
+        TreeMap<CompositeKey, List<InternalBucket>> bucketsByKey = new TreeMap<>();
+        for (InternalAggregation aggregation : aggregations) {
+            InternalComposite composite = (InternalComposite) aggregation;
+            for (InternalBucket bucket : composite.buckets) {
+                List<InternalBucket> sameKeyList = bucketsByKey.get(bucket.key);
+                if (sameKeyList == null) {
+                    if (bucketsByKey.size() >= size && bucket.key.compareTo(bucketsByKey.lastKey()) > 0) {
+                        continue;
+                    }
+                    sameKeyList = new ArrayList<>(aggregations.size());
+                    bucketsByKey.put(bucket.key, sameKeyList);
+                    if (bucketsByKey.size() > size) {
+                        // keep at most size keys, the largest one can't be part of the page anymore
+                        bucketsByKey.pollLastEntry();
+                    }
+                }
+                sameKeyList.add(bucket);
+            }
+        }
+        List<InternalBucket> reducedBuckets = new ArrayList<>(Math.min(size, bucketsByKey.size()));
+        for (List<InternalBucket> sameKeyList : bucketsByKey.values()) {
+            reducedBuckets.add(sameKeyList.get(0).reduce(sameKeyList, reduceContext));
+        }
+        return new InternalComposite(name, size, sourceNames, reducedBuckets, pipelineAggregators(), getMetaData());
+    }
+
+    @Override
+    protected void doReadFrom(StreamInput in) throws IOException {
+        size = in.readVInt();
+        sourceNames = in.readStringArray();
+        int numBuckets = in.readVInt();
+        List<InternalBucket> buckets = new ArrayList<>(numBuckets);
+        for (int i = 0; i < numBuckets; i++) {
+            InternalBucket bucket = new InternalBucket(sourceNames);
+            bucket.readFrom(in);
+            buckets.add(bucket);
+        }
+        this.buckets = buckets;
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeVInt(size);
+        out.writeStringArray(sourceNames);
+        out.writeVInt(buckets.size());
+        for (InternalBucket bucket : buckets) {
+            bucket.writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
+        Map<String, Object> afterKey = afterKey();
+        if (afterKey != null) {
+            builder.field(AFTER_KEY, afterKey);
+        }
+        builder.startArray(CommonFields.BUCKETS);
+        for (InternalBucket bucket : buckets) {
+            bucket.toXContent(builder, params);
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    static Map<String, Object> keyAsMap(String[] sourceNames, CompositeKey key) {
+        assert sourceNames.length == key.size();
+        Map<String, Object> map = new LinkedHashMap<>(sourceNames.length);
+        for (int i = 0; i < sourceNames.length; i++) {
+            map.put(sourceNames[i], key.format(i));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+}
@@ -22,6 +22,7 @@ package org.elasticsearch.search.aggregations.bucket.filters;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -37,6 +38,7 @@ import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.BucketUtils;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
@@ -125,12 +127,14 @@ public class FiltersAggregator extends BucketsAggregator {
     private final boolean showOtherBucket;
     private final String otherBucketKey;
     private final int totalNumKeys;
+    private final boolean countFilterByFilter;
 
     public FiltersAggregator(String name, AggregatorFactories factories, String[] keys, Weight[] filters, boolean keyed, String otherBucketKey,
             AggregationContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
+        this.countFilterByFilter = BucketUtils.canCountFilterByFilter(aggregationContext.searchContext(), parent, factories);
         this.keyed = keyed;
         this.keys = keys;
         this.filters = filters;
@@ -146,6 +150,18 @@ public class FiltersAggregator extends BucketsAggregator {
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
+        if (countFilterByFilter) {
+            // all live docs are collected and nothing needs to be collected into the buckets,
+            // so the doc counts can be computed by counting the matches of each filter on its own
+            final FixedBitSet matched = showOtherBucket ? new FixedBitSet(ctx.reader().maxDoc()) : null;
+            for (int i = 0; i < filters.length; ++i) {
+                incrementBucketDocCount(bucketOrd(0, i), BucketUtils.countFilterMatches(ctx, filters[i], matched));
+            }
+            if (showOtherBucket) {
+                incrementBucketDocCount(bucketOrd(0, filters.length), ctx.reader().numDocs() - matched.cardinality());
+            }
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
         // no need to provide deleted docs to the filter
         final Bits[] bits = new Bits[filters.length];
         for (int i = 0; i < filters.length; ++i) {
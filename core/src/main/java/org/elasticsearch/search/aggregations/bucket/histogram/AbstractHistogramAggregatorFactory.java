@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
+import org.elasticsearch.action.fieldstats.FieldStats;
 import org.elasticsearch.common.ParsingException;
 import org.elasticsearch.common.rounding.Rounding;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -27,6 +28,7 @@ import org.elasticsearch.search.aggregations.AggregatorFactory;
 import org.elasticsearch.search.aggregations.InternalAggregation.Type;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.FieldContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSource.Numeric;
 
@@ -47,6 +49,7 @@ public abstract class AbstractHistogramAggregatorFactory<AF extends AbstractHist
     protected final long minDocCount;
     protected final ExtendedBounds extendedBounds;
     private final InternalHistogram.Factory<?> histogramFactory;
+    private Rounding collectRounding;
 
     public AbstractHistogramAggregatorFactory(String name, Type type, ValuesSourceConfig<Numeric> config, long interval, long offset,
             InternalOrder order, boolean keyed, long minDocCount, ExtendedBounds extendedBounds,
@@ -86,6 +89,31 @@ public abstract class AbstractHistogramAggregatorFactory<AF extends AbstractHist
         return rounding;
     }
 
+    /**
+     * Gives the rounding a chance to optimize for the range of values of the field on this shard. This reads the stats
+     * of the field and may precompute a table of rounded values, so it is done once per factory and shared by all the
+     * aggregators it creates.
+     */
+    private Rounding collectRounding(Rounding rounding) throws IOException {
+        if (collectRounding == null) {
+            collectRounding = prepareRounding(rounding);
+        }
+        return collectRounding;
+    }
+
+    private Rounding prepareRounding(Rounding rounding) throws IOException {
+        FieldContext fieldContext = config.fieldContext();
+        if (fieldContext == null || config.script() != null) {
+            // scripts may produce values outside of the range of the field
+            return rounding;
+        }
+        FieldStats<?> stats = fieldContext.fieldType().stats(context.searchContext().searcher().getIndexReader());
+        if (stats == null || stats.getMinValue() instanceof Long == false) {
+            return rounding;
+        }
+        return rounding.prepare((Long) stats.getMinValue(), (Long) stats.getMaxValue());
+    }
+
     @Override
     protected Aggregator doCreateInternal(ValuesSource.Numeric valuesSource, Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
@@ -104,8 +132,8 @@ public abstract class AbstractHistogramAggregatorFactory<AF extends AbstractHist
             extendedBounds.processAndValidate(name, context.searchContext(), config.parser());
             roundedBounds = extendedBounds.round(rounding);
         }
-        return new HistogramAggregator(name, factories, rounding, order, keyed, minDocCount, roundedBounds, valuesSource,
-                config.formatter(), histogramFactory, context, parent, pipelineAggregators, metaData);
+        return new HistogramAggregator(name, factories, rounding, collectRounding(rounding), order, keyed, minDocCount, roundedBounds,
+                valuesSource, config.formatter(), histogramFactory, context, parent, pipelineAggregators, metaData);
     }
 
 }
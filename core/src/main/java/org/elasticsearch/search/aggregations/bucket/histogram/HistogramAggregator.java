@@ -52,6 +52,7 @@ public class HistogramAggregator extends BucketsAggregator {
     private final ValuesSource.Numeric valuesSource;
     private final ValueFormatter formatter;
     private final Rounding rounding;
+    private final Rounding collectRounding;
     private final InternalOrder order;
     private final boolean keyed;
 
@@ -65,9 +66,23 @@ public class HistogramAggregator extends BucketsAggregator {
             long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
             ValueFormatter formatter, InternalHistogram.Factory<?> histogramFactory, AggregationContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        this(name, factories, rounding, rounding, order, keyed, minDocCount, extendedBounds, valuesSource, formatter, histogramFactory,
+                aggregationContext, parent, pipelineAggregators, metaData);
+    }
+
+    /**
+     * @param collectRounding the rounding used to compute the keys of the collected values, typically the result of
+     *                        {@link Rounding#prepare(long, long)} on <code>rounding</code>. It is never serialized.
+     */
+    public HistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, Rounding collectRounding,
+            InternalOrder order, boolean keyed, long minDocCount, @Nullable ExtendedBounds extendedBounds,
+            @Nullable ValuesSource.Numeric valuesSource, ValueFormatter formatter, InternalHistogram.Factory<?> histogramFactory,
+            AggregationContext aggregationContext, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
         this.rounding = rounding;
+        this.collectRounding = collectRounding;
         this.order = order;
         this.keyed = keyed;
         this.minDocCount = minDocCount;
@@ -101,7 +116,7 @@ public class HistogramAggregator extends BucketsAggregator {
                 long previousKey = Long.MIN_VALUE;
                 for (int i = 0; i < valuesCount; ++i) {
                     long value = values.valueAt(i);
-                    long key = rounding.roundKey(value);
+                    long key = collectRounding.roundKey(value);
                     assert key >= previousKey;
                     if (key == previousKey) {
                         continue;
@@ -362,9 +362,9 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
             }
         }
 
-        List<B> reducedBuckets = new ArrayList<>();
+        // lists of buckets coming from different shards that have the same key, in key order
+        List<List<B>> sameKeyBuckets = new ArrayList<>();
         if (pq.size() > 0) {
-            // list of buckets coming from different shards that have the same key
             List<B> currentBuckets = new ArrayList<>();
             long key = pq.top().current.key;
 
@@ -372,12 +372,9 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
                 final IteratorAndCurrent<B> top = pq.top();
 
                 if (top.current.key != key) {
-                    // the key changes, reduce what we already buffered and reset the buffer for current buckets
-                    final B reduced = currentBuckets.get(0).reduce(currentBuckets, reduceContext);
-                    if (reduced.getDocCount() >= minDocCount) {
-                        reducedBuckets.add(reduced);
-                    }
-                    currentBuckets.clear();
+                    // the key changes, buffer what we have for the current key and start a new list
+                    sameKeyBuckets.add(currentBuckets);
+                    currentBuckets = new ArrayList<>();
                     key = top.current.key;
                 }
 
@@ -394,10 +391,16 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
             } while (pq.size() > 0);
 
             if (currentBuckets.isEmpty() == false) {
-                final B reduced = currentBuckets.get(0).reduce(currentBuckets, reduceContext);
-                if (reduced.getDocCount() >= minDocCount) {
-                    reducedBuckets.add(reduced);
-                }
+                sameKeyBuckets.add(currentBuckets);
+            }
+        }
+
+        // buckets with different keys are independent so they may be reduced in parallel
+        List<B> reducedBuckets = new ArrayList<>(sameKeyBuckets.size());
+        for (B reduced : reduceContext.reduceAll(sameKeyBuckets, MIN_BUCKETS_PER_REDUCE_BATCH,
+                sameKey -> sameKey.get(0).reduce(sameKey, reduceContext))) {
+            if (reduced.getDocCount() >= minDocCount) {
+                reducedBuckets.add(reduced);
             }
         }
 
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.aggregations.bucket.range;
 
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
@@ -61,8 +62,13 @@ public class AbstractRangeAggregatorFactory<AF extends AbstractRangeAggregatorFa
     @Override
     protected Aggregator doCreateInternal(ValuesSource.Numeric valuesSource, Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
-        return new RangeAggregator(name, factories, valuesSource, config.format(), rangeFactory, ranges, keyed, context, parent,
-                pipelineAggregators, metaData);
+        // the range filters can only be used if the values come straight from the field
+        MappedFieldType fieldType = null;
+        if (config.fieldContext() != null && config.script() == null && config.missing() == null) {
+            fieldType = config.fieldContext().fieldType();
+        }
+        return new RangeAggregator(name, factories, valuesSource, config.format(), rangeFactory, ranges, keyed, fieldType, context,
+                parent, pipelineAggregators, metaData);
     }
 
 
@@ -18,8 +18,14 @@
  */
 package org.elasticsearch.search.aggregations.bucket.range;
 
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LegacyNumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.InPlaceMergeSorter;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.ParseFieldMatcher;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -29,6 +35,11 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.core.DateFieldMapper;
+import org.elasticsearch.index.mapper.core.DoubleFieldMapper;
+import org.elasticsearch.index.mapper.core.LongFieldMapper;
+import org.elasticsearch.index.mapper.ip.IpFieldMapper;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
@@ -36,6 +47,7 @@ import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.NonCollectingAggregator;
+import org.elasticsearch.search.aggregations.bucket.BucketUtils;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
@@ -59,6 +71,8 @@ public class RangeAggregator extends BucketsAggregator {
     public static final ParseField RANGES_FIELD = new ParseField("ranges");
     public static final ParseField KEYED_FIELD = new ParseField("keyed");
 
+    private static final double MAX_EXACT_LONG = 1L << 53;
+
     public static class Range implements Writeable<Range>, ToXContent {
 
         public static final Range PROTOTYPE = new Range(null, null, null, null, null);
@@ -212,9 +226,19 @@ public class RangeAggregator extends BucketsAggregator {
 
     final double[] maxTo;
 
+    /** The filters of the ranges if the doc counts can be computed filter by filter, <code>null</code> otherwise. */
+    final Weight[] filters;
+
+    /**
+     * @param fieldType
+     *            the type of the field the values are read from, used to count the documents of each range with a range query
+     *            when the aggregation is at the top level and has no sub-aggregations, or <code>null</code> if the values do not
+     *            come straight from an indexed field
+     */
     public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, ValueFormat format,
-            InternalRange.Factory rangeFactory, List<? extends Range> ranges, boolean keyed, AggregationContext aggregationContext,
-            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+            InternalRange.Factory rangeFactory, List<? extends Range> ranges, boolean keyed, @Nullable MappedFieldType fieldType,
+            AggregationContext aggregationContext, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
         assert valuesSource != null;
@@ -236,6 +260,62 @@ public class RangeAggregator extends BucketsAggregator {
             maxTo[i] = Math.max(this.ranges[i].to,maxTo[i-1]);
         }
 
+        if (fieldType != null && BucketUtils.canCountFilterByFilter(context.searchContext(), parent, factories)) {
+            this.filters = buildFilters(fieldType, this.ranges, context.searchContext().searcher());
+        } else {
+            this.filters = null;
+        }
+    }
+
+    private static Weight[] buildFilters(MappedFieldType fieldType, Range[] ranges, IndexSearcher searcher) throws IOException {
+        final Weight[] filters = new Weight[ranges.length];
+        for (int i = 0; i < ranges.length; ++i) {
+            Query filter = rangeFilter(fieldType, ranges[i]);
+            if (filter == null) {
+                return null;
+            }
+            filters[i] = searcher.createNormalizedWeight(filter, false);
+        }
+        return filters;
+    }
+
+    /**
+     * Builds a query that matches the documents that have at least one value in the given range, or returns <code>null</code>
+     * if the range can't be expressed exactly as a query on this field.
+     */
+    static Query rangeFilter(MappedFieldType fieldType, Range range) {
+        if (fieldType.indexOptions() == IndexOptions.NONE || Double.isNaN(range.from) || Double.isNaN(range.to)
+                || range.from == Double.POSITIVE_INFINITY || range.to == Double.NEGATIVE_INFINITY) {
+            return null;
+        }
+        final boolean unboundedFrom = range.from == Double.NEGATIVE_INFINITY;
+        final boolean unboundedTo = range.to == Double.POSITIVE_INFINITY;
+        final int precisionStep = fieldType.numericPrecisionStep();
+        if (fieldType instanceof DoubleFieldMapper.DoubleFieldType) {
+            // -0 sorts before +0 in the index while they compare equal as doubles
+            final double from = range.from == 0d ? -0d : range.from;
+            final double to = range.to == 0d ? -0d : range.to;
+            return LegacyNumericRangeQuery.newDoubleRange(fieldType.name(), precisionStep,
+                    unboundedFrom ? null : from, unboundedTo ? null : to, true, false);
+        } else if (fieldType instanceof IpFieldMapper.IpFieldType) {
+            // addresses are indexed as longs in [0, 2^32), so bounds outside of it are the same as no bound
+            return longRangeFilter(fieldType.name(), precisionStep,
+                    unboundedFrom || range.from <= 0 ? null : range.from, unboundedTo || range.to > IpFieldMapper.MAX_IP ? null : range.to);
+        } else if (fieldType instanceof LongFieldMapper.LongFieldType || fieldType instanceof DateFieldMapper.DateFieldType) {
+            // values are compared as doubles when collected, which is only exact up to 2^53
+            if ((unboundedFrom == false && Math.abs(range.from) > MAX_EXACT_LONG)
+                    || (unboundedTo == false && Math.abs(range.to) > MAX_EXACT_LONG)) {
+                return null;
+            }
+            return longRangeFilter(fieldType.name(), precisionStep, unboundedFrom ? null : range.from, unboundedTo ? null : range.to);
+        }
+        return null;
+    }
+
+    private static Query longRangeFilter(String field, int precisionStep, @Nullable Double from, @Nullable Double to) {
+        // value >= from <=> value >= ceil(from) and value < to <=> value < ceil(to) for integral values
+        return LegacyNumericRangeQuery.newLongRange(field, precisionStep,
+                from == null ? null : (long) Math.ceil(from), to == null ? null : (long) Math.ceil(to), true, false);
     }
 
     @Override
@@ -246,6 +326,14 @@ public class RangeAggregator extends BucketsAggregator {
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
+        if (filters != null) {
+            // all live docs are collected and nothing needs to be collected into the buckets,
+            // so the doc counts can be computed by running one range query per bucket
+            for (int i = 0; i < filters.length; ++i) {
+                incrementBucketDocCount(subBucketOrdinal(0, i), BucketUtils.countFilterMatches(ctx, filters[i], null));
+            }
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
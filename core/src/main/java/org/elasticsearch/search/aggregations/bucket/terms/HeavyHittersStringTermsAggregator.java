@@ -0,0 +1,153 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.terms.support.BucketPriorityQueue;
+import org.elasticsearch.search.aggregations.bucket.terms.support.IncludeExclude;
+import org.elasticsearch.search.aggregations.bucket.terms.support.SpaceSavingSketch;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An aggregator of string values that only keeps track of a bounded number of terms per shard using a
+ * {@link SpaceSavingSketch}, and is thus approximate on high-cardinality fields. The doc count of each returned bucket is a
+ * lower bound of the number of documents of the term on the shard, and its doc count error the maximum under-estimation.
+ */
+public class HeavyHittersStringTermsAggregator extends AbstractStringTermsAggregator {
+
+    private final ValuesSource valuesSource;
+    private final IncludeExclude.StringFilter includeExclude;
+    private final SpaceSavingSketch sketch;
+
+    public HeavyHittersStringTermsAggregator(String name, AggregatorFactories factories, ValuesSource valuesSource, Terms.Order order,
+            BucketCountThresholds bucketCountThresholds, IncludeExclude.StringFilter includeExclude, int capacity,
+            AggregationContext aggregationContext, Aggregator parent, boolean showTermDocCountError,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        super(name, factories, aggregationContext, parent, order, bucketCountThresholds, SubAggCollectionMode.DEPTH_FIRST,
+                showTermDocCountError, pipelineAggregators, metaData);
+        assert InternalOrder.isCountDesc(order);
+        assert factories.countAggregators() == 0;
+        this.valuesSource = valuesSource;
+        this.includeExclude = includeExclude;
+        this.sketch = new SpaceSavingSketch(Math.max(capacity, bucketCountThresholds.getShardSize()), aggregationContext.bigArrays());
+    }
+
+    @Override
+    public boolean needsScores() {
+        return (valuesSource != null && valuesSource.needsScores()) || super.needsScores();
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
+            final LeafBucketCollector sub) throws IOException {
+        final SortedBinaryDocValues values = valuesSource.bytesValues(ctx);
+        return new LeafBucketCollectorBase(sub, values) {
+            final BytesRefBuilder previous = new BytesRefBuilder();
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0;
+                values.setDocument(doc);
+                final int valuesCount = values.count();
+
+                // SortedBinaryDocValues don't guarantee uniqueness so we need to take care of dups
+                previous.clear();
+                for (int i = 0; i < valuesCount; ++i) {
+                    final BytesRef bytes = values.valueAt(i);
+                    if (includeExclude != null && !includeExclude.accept(bytes)) {
+                        continue;
+                    }
+                    if (previous.get().equals(bytes)) {
+                        continue;
+                    }
+                    sketch.add(bytes);
+                    previous.copyBytes(bytes);
+                }
+            }
+        };
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+        assert owningBucketOrdinal == 0;
+
+        final int size = Math.min(sketch.size(), bucketCountThresholds.getShardSize());
+
+        BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(this));
+        StringTerms.Bucket spare = null;
+        for (int i = 0; i < sketch.size(); i++) {
+            if (spare == null) {
+                spare = new StringTerms.Bucket(new BytesRef(), 0, null, showTermDocCountError, 0);
+            }
+            sketch.term(i, spare.termBytes);
+            spare.docCount = sketch.count(i) - sketch.error(i);
+            spare.docCountError = sketch.error(i);
+            spare.bucketOrd = i;
+            if (bucketCountThresholds.getShardMinDocCount() <= spare.docCount) {
+                spare = (StringTerms.Bucket) ordered.insertWithOverflow(spare);
+            }
+        }
+
+        final boolean[] returned = new boolean[sketch.size()];
+        final InternalTerms.Bucket[] list = new InternalTerms.Bucket[ordered.size()];
+        long otherDocCount = sketch.totalCount();
+        for (int i = ordered.size() - 1; i >= 0; --i) {
+            final StringTerms.Bucket bucket = (StringTerms.Bucket) ordered.pop();
+            returned[(int) bucket.bucketOrd] = true;
+            bucket.termBytes = BytesRef.deepCopyOf(bucket.termBytes);
+            bucket.aggregations = bucketEmptyAggregations();
+            list[i] = bucket;
+            otherDocCount -= bucket.docCount;
+        }
+
+        // any term that is not returned may have occurred as many times as the highest count of the
+        // counters that have been pruned, or as the lowest count if it is not monitored at all
+        long docCountError = sketch.minCount();
+        for (int i = 0; i < sketch.size(); i++) {
+            if (returned[i] == false) {
+                docCountError = Math.max(docCountError, sketch.count(i));
+            }
+        }
+
+        return new StringTerms(name, order, bucketCountThresholds.getRequiredSize(), bucketCountThresholds.getShardSize(),
+                bucketCountThresholds.getMinDocCount(), Arrays.asList(list), showTermDocCountError, docCountError, otherDocCount,
+                pipelineAggregators(), metaData());
+    }
+
+    @Override
+    public void doClose() {
+        Releasables.close(sketch);
+    }
+}
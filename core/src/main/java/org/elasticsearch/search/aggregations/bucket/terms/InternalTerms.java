@@ -166,6 +166,7 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
 
         Map<Object, List<InternalTerms.Bucket>> buckets = new HashMap<>();
         long sumDocCountError = 0;
+        long reportedDocCountError = 0;
         long otherDocCount = 0;
         InternalTerms<A, B> referenceTerms = null;
         for (InternalAggregation aggregation : aggregations) {
@@ -187,7 +188,7 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
                                                         "in two different indices");
             }
             otherDocCount += terms.getSumOfOtherDocCounts();
-            final long thisAggDocCountError;
+            long thisAggDocCountError;
             if (terms.buckets.size() < this.shardSize || InternalOrder.isTermOrder(order)) {
                 thisAggDocCountError = 0;
             } else if (InternalOrder.isCountDesc(this.order)) {
@@ -195,6 +196,11 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
             } else {
                 thisAggDocCountError = -1;
             }
+            if (thisAggDocCountError != -1) {
+                // shards that only keep track of the most frequent terms report their own error
+                reportedDocCountError += terms.docCountError;
+                thisAggDocCountError = Math.max(thisAggDocCountError, terms.docCountError);
+            }
             if (sumDocCountError != -1) {
                 if (thisAggDocCountError == -1) {
                     sumDocCountError = -1;
@@ -204,7 +210,10 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
             }
             terms.docCountError = thisAggDocCountError;
             for (Bucket bucket : terms.buckets) {
-                bucket.docCountError = thisAggDocCountError;
+                // the shard may have reported an error for the doc count of the term itself, which
+                // needs to be accounted for since the term is not missing from this shard
+                final long termDocCountError = bucket.docCountError > 0 ? bucket.docCountError : 0;
+                bucket.docCountError = thisAggDocCountError == -1 ? -1 : thisAggDocCountError - termDocCountError;
                 List<Bucket> bucketList = buckets.get(bucket.getKey());
                 if (bucketList == null) {
                     bucketList = new ArrayList<>();
@@ -216,8 +225,9 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
 
         final int size = Math.min(requiredSize, buckets.size());
         BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(null));
-        for (List<Bucket> sameTermBuckets : buckets.values()) {
-            final Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
+        final List<Bucket> reducedBuckets = reduceContext.reduceAll(new ArrayList<>(buckets.values()), MIN_BUCKETS_PER_REDUCE_BATCH,
+                sameTermBuckets -> sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext));
+        for (Bucket b : reducedBuckets) {
             if (b.docCountError != -1) {
                 if (sumDocCountError == -1) {
                     b.docCountError = -1;
@@ -240,7 +250,7 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
         if (sumDocCountError == -1) {
             docCountError = -1;
         } else {
-            docCountError = aggregations.size() == 1 ? 0 : sumDocCountError;
+            docCountError = aggregations.size() == 1 ? reportedDocCountError : sumDocCountError;
         }
         return create(name, Arrays.asList(list), docCountError, otherDocCount, this);
     }
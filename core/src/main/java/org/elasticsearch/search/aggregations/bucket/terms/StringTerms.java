@@ -115,10 +115,14 @@ public class StringTerms extends InternalTerms<StringTerms, StringTerms.Bucket>
 
         @Override
         public void readFrom(StreamInput in) throws IOException {
+            readFrom(in, showDocCountError);
+        }
+
+        void readFrom(StreamInput in, boolean readDocCountError) throws IOException {
             termBytes = in.readBytesRef();
             docCount = in.readVLong();
             docCountError = -1;
-            if (showDocCountError) {
+            if (readDocCountError) {
                 docCountError = in.readLong();
             }
             aggregations = InternalAggregations.readAggregations(in);
@@ -126,9 +130,13 @@ public class StringTerms extends InternalTerms<StringTerms, StringTerms.Bucket>
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
+            writeTo(out, showDocCountError);
+        }
+
+        void writeTo(StreamOutput out, boolean writeDocCountError) throws IOException {
             out.writeBytesRef(termBytes);
             out.writeVLong(getDocCount());
-            if (showDocCountError) {
+            if (writeDocCountError) {
                 out.writeLong(docCountError);
             }
             aggregations.writeTo(out);
@@ -188,13 +196,14 @@ public class StringTerms extends InternalTerms<StringTerms, StringTerms.Bucket>
         this.requiredSize = readSize(in);
         this.shardSize = readSize(in);
         this.showTermDocCountError = in.readBoolean();
+        final boolean termDocCountErrors = in.readBoolean();
         this.minDocCount = in.readVLong();
         this.otherDocCount = in.readVLong();
         int size = in.readVInt();
         List<InternalTerms.Bucket> buckets = new ArrayList<>(size);
         for (int i = 0; i < size; i++) {
             Bucket bucket = new Bucket(showTermDocCountError);
-            bucket.readFrom(in);
+            bucket.readFrom(in, termDocCountErrors);
             buckets.add(bucket);
         }
         this.buckets = buckets;
@@ -208,12 +217,24 @@ public class StringTerms extends InternalTerms<StringTerms, StringTerms.Bucket>
         writeSize(requiredSize, out);
         writeSize(shardSize, out);
         out.writeBoolean(showTermDocCountError);
+        // the errors of the terms are also needed to reduce the results of shards that report them, even if they are not shown
+        final boolean termDocCountErrors = showTermDocCountError || hasTermDocCountErrors();
+        out.writeBoolean(termDocCountErrors);
         out.writeVLong(minDocCount);
         out.writeVLong(otherDocCount);
         out.writeVInt(buckets.size());
         for (InternalTerms.Bucket bucket : buckets) {
-            bucket.writeTo(out);
+            ((Bucket) bucket).writeTo(out, termDocCountErrors);
+        }
+    }
+
+    private boolean hasTermDocCountErrors() {
+        for (InternalTerms.Bucket bucket : buckets) {
+            if (bucket.docCountError > 0) {
+                return true;
+            }
         }
+        return false;
     }
 
     @Override
@@ -56,6 +56,7 @@ public class TermsAggregatorBuilder extends ValuesSourceAggregatorBuilder<Values
             -1);
     public static final ParseField SHOW_TERM_DOC_COUNT_ERROR = new ParseField("show_term_doc_count_error");
     public static final ParseField ORDER_FIELD = new ParseField("order");
+    public static final ParseField HEAVY_HITTERS_CAPACITY_FIELD = new ParseField("heavy_hitters_capacity");
 
     static final TermsAggregatorBuilder PROTOTYPE = new TermsAggregatorBuilder("", null);
 
@@ -66,6 +67,7 @@ public class TermsAggregatorBuilder extends ValuesSourceAggregatorBuilder<Values
     private TermsAggregator.BucketCountThresholds bucketCountThresholds = new TermsAggregator.BucketCountThresholds(
             DEFAULT_BUCKET_COUNT_THRESHOLDS);
     private boolean showTermDocCountError = false;
+    private int heavyHittersCapacity = 0;
 
     public TermsAggregatorBuilder(String name, ValueType valueType) {
         super(name, StringTerms.TYPE, ValuesSourceType.ANY, valueType);
@@ -228,12 +230,33 @@ public class TermsAggregatorBuilder extends ValuesSourceAggregatorBuilder<Values
         return this;
     }
 
+    /**
+     * Expert: sets the number of terms that each shard keeps track of in order to find the most frequent terms. When set,
+     * shards use a bounded amount of memory on high-cardinality fields at the cost of approximate doc counts, whose error
+     * bounds are reported with each bucket. A value of 0 (the default) counts every term exactly.
+     */
+    public TermsAggregatorBuilder heavyHittersCapacity(int heavyHittersCapacity) {
+        if (heavyHittersCapacity < 0) {
+            throw new IllegalArgumentException("[heavyHittersCapacity] must be greater than or equal to 0. Found ["
+                    + heavyHittersCapacity + "] in [" + name + "]");
+        }
+        this.heavyHittersCapacity = heavyHittersCapacity;
+        return this;
+    }
+
+    /**
+     * Expert: gets the number of terms that each shard keeps track of, 0 if terms are counted exactly.
+     */
+    public int heavyHittersCapacity() {
+        return heavyHittersCapacity;
+    }
+
     @Override
     protected ValuesSourceAggregatorFactory<ValuesSource, ?> innerBuild(AggregationContext context, ValuesSourceConfig<ValuesSource> config,
             AggregatorFactory<?> parent, Builder subFactoriesBuilder) throws IOException {
         return new TermsAggregatorFactory(name, type, config, order, includeExclude, executionHint, collectMode,
  bucketCountThresholds,
-                showTermDocCountError, context, parent, subFactoriesBuilder, metaData);
+                showTermDocCountError, heavyHittersCapacity, context, parent, subFactoriesBuilder, metaData);
     }
 
     @Override
@@ -249,6 +272,9 @@ public class TermsAggregatorBuilder extends ValuesSourceAggregatorBuilder<Values
         if (includeExclude != null) {
             includeExclude.toXContent(builder, params);
         }
+        if (heavyHittersCapacity > 0) {
+            builder.field(HEAVY_HITTERS_CAPACITY_FIELD.getPreferredName(), heavyHittersCapacity);
+        }
         return builder;
     }
 
@@ -264,6 +290,7 @@ public class TermsAggregatorBuilder extends ValuesSourceAggregatorBuilder<Values
         }
         factory.order = InternalOrder.Streams.readOrder(in);
         factory.showTermDocCountError = in.readBoolean();
+        factory.heavyHittersCapacity = in.readVInt();
         return factory;
     }
 
@@ -279,11 +306,13 @@ public class TermsAggregatorBuilder extends ValuesSourceAggregatorBuilder<Values
         }
         InternalOrder.Streams.writeOrder(order, out);
         out.writeBoolean(showTermDocCountError);
+        out.writeVInt(heavyHittersCapacity);
     }
 
     @Override
     protected int innerHashCode() {
-        return Objects.hash(bucketCountThresholds, collectMode, executionHint, includeExclude, order, showTermDocCountError);
+        return Objects.hash(bucketCountThresholds, collectMode, executionHint, includeExclude, order, showTermDocCountError,
+                heavyHittersCapacity);
     }
 
     @Override
@@ -294,7 +323,8 @@ public class TermsAggregatorBuilder extends ValuesSourceAggregatorBuilder<Values
                 && Objects.equals(executionHint, other.executionHint)
                 && Objects.equals(includeExclude, other.includeExclude)
                 && Objects.equals(order, other.order)
-                && Objects.equals(showTermDocCountError, other.showTermDocCountError);
+                && Objects.equals(showTermDocCountError, other.showTermDocCountError)
+                && Objects.equals(heavyHittersCapacity, other.heavyHittersCapacity);
     }
 
 }
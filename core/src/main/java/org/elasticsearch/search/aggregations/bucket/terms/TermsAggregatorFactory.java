@@ -51,12 +51,15 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
     private final SubAggCollectionMode collectMode;
     private final TermsAggregator.BucketCountThresholds bucketCountThresholds;
     private boolean showTermDocCountError;
+    private final int heavyHittersCapacity;
 
     public TermsAggregatorFactory(String name, Type type, ValuesSourceConfig<ValuesSource> config, Terms.Order order,
             IncludeExclude includeExclude, String executionHint, SubAggCollectionMode collectMode,
-            TermsAggregator.BucketCountThresholds bucketCountThresholds, boolean showTermDocCountError, AggregationContext context,
-            AggregatorFactory<?> parent, AggregatorFactories.Builder subFactoriesBuilder, Map<String, Object> metaData) throws IOException {
+            TermsAggregator.BucketCountThresholds bucketCountThresholds, boolean showTermDocCountError, int heavyHittersCapacity,
+            AggregationContext context, AggregatorFactory<?> parent, AggregatorFactories.Builder subFactoriesBuilder,
+            Map<String, Object> metaData) throws IOException {
         super(name, type, config, context, parent, subFactoriesBuilder, metaData);
+        this.heavyHittersCapacity = heavyHittersCapacity;
         this.order = order;
         this.includeExclude = includeExclude;
         this.executionHint = executionHint;
@@ -100,6 +103,9 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                     context.searchContext().numberOfShards()));
         }
         bucketCountThresholds.ensureValidity();
+        if (heavyHittersCapacity > 0) {
+            return createHeavyHittersAggregator(valuesSource, bucketCountThresholds, parent, pipelineAggregators, metaData);
+        }
         if (valuesSource instanceof ValuesSource.Bytes) {
             ExecutionMode execution = null;
             if (executionHint != null) {
@@ -181,6 +187,29 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                 + "]. It can only be applied to numeric or string fields.");
     }
 
+    private Aggregator createHeavyHittersAggregator(ValuesSource valuesSource, BucketCountThresholds bucketCountThresholds,
+            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        if ((valuesSource instanceof ValuesSource.Bytes) == false) {
+            throw new AggregationExecutionException("[" + TermsAggregatorBuilder.HEAVY_HITTERS_CAPACITY_FIELD.getPreferredName()
+                    + "] is only supported on string fields in terms aggregation [" + name + "]");
+        }
+        if (InternalOrder.isCountDesc(order) == false) {
+            throw new AggregationExecutionException("[" + TermsAggregatorBuilder.HEAVY_HITTERS_CAPACITY_FIELD.getPreferredName()
+                    + "] requires terms aggregation [" + name + "] to be sorted by descending doc count");
+        }
+        if (factories.countAggregators() > 0) {
+            throw new AggregationExecutionException("[" + TermsAggregatorBuilder.HEAVY_HITTERS_CAPACITY_FIELD.getPreferredName()
+                    + "] cannot be used with sub-aggregations in terms aggregation [" + name + "]");
+        }
+        if (bucketCountThresholds.getMinDocCount() == 0) {
+            throw new AggregationExecutionException("[" + TermsAggregatorBuilder.HEAVY_HITTERS_CAPACITY_FIELD.getPreferredName()
+                    + "] cannot be used with a [min_doc_count] of 0 in terms aggregation [" + name + "]");
+        }
+        final IncludeExclude.StringFilter filter = includeExclude == null ? null : includeExclude.convertToStringFilter();
+        return new HeavyHittersStringTermsAggregator(name, factories, valuesSource, order, bucketCountThresholds, filter,
+                heavyHittersCapacity, context, parent, showTermDocCountError, pipelineAggregators, metaData);
+    }
+
     public enum ExecutionMode {
 
         MAP(new ParseField("map")) {
@@ -77,6 +77,10 @@ public class TermsParser extends AbstractTermsParser {
         if (showTermDocCountError != null) {
             factory.showTermDocCountError(showTermDocCountError);
         }
+        Integer heavyHittersCapacity = (Integer) otherOptions.get(TermsAggregatorBuilder.HEAVY_HITTERS_CAPACITY_FIELD);
+        if (heavyHittersCapacity != null) {
+            factory.heavyHittersCapacity(heavyHittersCapacity);
+        }
         return factory;
     }
 
@@ -108,6 +112,11 @@ public class TermsParser extends AbstractTermsParser {
                 otherOptions.put(TermsAggregatorBuilder.SHOW_TERM_DOC_COUNT_ERROR, parser.booleanValue());
                 return true;
             }
+        } else if (token == XContentParser.Token.VALUE_NUMBER) {
+            if (parseFieldMatcher.match(currentFieldName, TermsAggregatorBuilder.HEAVY_HITTERS_CAPACITY_FIELD)) {
+                otherOptions.put(TermsAggregatorBuilder.HEAVY_HITTERS_CAPACITY_FIELD, parser.intValue());
+                return true;
+            }
         }
         return false;
     }
@@ -0,0 +1,259 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms.support;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongArray;
+
+/**
+ * Keeps track of the most frequent terms of a stream with a bounded number of counters, using the Space-Saving algorithm
+ * (Metwally et al., "Efficient Computation of Frequent and Top-k Elements in Data Streams").
+ *
+ * When a term that is not monitored comes in and all counters are in use, the counter with the lowest count is given to
+ * the new term, which inherits its count as an error. The count of a monitored term is therefore an upper bound of its
+ * frequency, and its count minus its error a lower bound. Terms that are not monitored occurred at most {@link #minCount()}
+ * times.
+ *
+ * Memory is allocated through {@link BigArrays} so that it is accounted for by the request circuit breaker. Evicted terms
+ * stay in the underlying {@link BytesRefHash} until there are as many of them as there are counters, at which point the
+ * monitored terms are copied to a new hash. This class is not thread-safe.
+ */
+public class SpaceSavingSketch implements Releasable {
+
+    private final int capacity;
+    private final BigArrays bigArrays;
+    // ids of all the terms that have been monitored since the last compaction
+    private BytesRefHash terms;
+    // count, error and position in the heap of each term id, the position is -1 once the term has been evicted
+    private LongArray counts;
+    private LongArray errors;
+    private LongArray heapIndices;
+    // min-heap of the monitored term ids on their count
+    private LongArray heap;
+    private int size;
+    private long totalCount;
+
+    public SpaceSavingSketch(int capacity, BigArrays bigArrays) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("[capacity] must be greater than 0. Found [" + capacity + "]");
+        }
+        this.capacity = capacity;
+        this.bigArrays = bigArrays;
+        boolean success = false;
+        try {
+            terms = new BytesRefHash(1, bigArrays);
+            counts = bigArrays.newLongArray(1, false);
+            errors = bigArrays.newLongArray(1, false);
+            heapIndices = bigArrays.newLongArray(1, false);
+            heap = bigArrays.newLongArray(1, false);
+            success = true;
+        } finally {
+            if (success == false) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Records an occurrence of the given term. The bytes are copied if the term becomes monitored.
+     */
+    public void add(BytesRef term) {
+        totalCount++;
+        final int index = find(term);
+        if (index >= 0) {
+            final long id = heap.get(index);
+            counts.increment(id, 1);
+            siftDown(index);
+            return;
+        }
+        if (terms.size() >= 2L * capacity) {
+            compact();
+        }
+        if (size < capacity) {
+            heap = bigArrays.grow(heap, size + 1);
+            final long id = monitor(term, 1, 0);
+            heap.set(size, id);
+            siftUp(size++);
+        } else {
+            final long evicted = heap.get(0);
+            final long minCount = counts.get(evicted);
+            heapIndices.set(evicted, -1);
+            heap.set(0, monitor(term, minCount + 1, minCount));
+            siftDown(0);
+        }
+    }
+
+    private long monitor(BytesRef term, long count, long error) {
+        long id = terms.add(term);
+        if (id < 0) {
+            // the term has been evicted before
+            id = -1 - id;
+        } else {
+            counts = bigArrays.grow(counts, id + 1);
+            errors = bigArrays.grow(errors, id + 1);
+            heapIndices = bigArrays.grow(heapIndices, id + 1);
+        }
+        counts.set(id, count);
+        errors.set(id, error);
+        return id;
+    }
+
+    private void compact() {
+        BytesRefHash newTerms = null;
+        LongArray newCounts = null;
+        LongArray newErrors = null;
+        LongArray newHeapIndices = null;
+        boolean success = false;
+        try {
+            newTerms = new BytesRefHash(capacity, bigArrays);
+            newCounts = bigArrays.newLongArray(capacity, false);
+            newErrors = bigArrays.newLongArray(capacity, false);
+            newHeapIndices = bigArrays.newLongArray(capacity, false);
+            final BytesRef spare = new BytesRef();
+            for (int i = 0; i < size; i++) {
+                final long id = heap.get(i);
+                final long newId = newTerms.add(terms.get(id, spare));
+                newCounts.set(newId, counts.get(id));
+                newErrors.set(newId, errors.get(id));
+                newHeapIndices.set(newId, i);
+                heap.set(i, newId);
+            }
+            success = true;
+        } finally {
+            if (success) {
+                Releasables.close(terms, counts, errors, heapIndices);
+                terms = newTerms;
+                counts = newCounts;
+                errors = newErrors;
+                heapIndices = newHeapIndices;
+            } else {
+                Releasables.close(newTerms, newCounts, newErrors, newHeapIndices);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the counter of the given term, or <code>-1</code> if the term is not monitored. Indices are in
+     * <code>[0, {@link #size()})</code> and are only valid until the next call to {@link #add(BytesRef)}.
+     */
+    public int find(BytesRef term) {
+        final long id = terms.find(term);
+        return id < 0 ? -1 : (int) heapIndices.get(id);
+    }
+
+    /**
+     * The number of monitored terms.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the term of the counter at the given index. The content of the returned {@link BytesRef} may become invalid as
+     * soon as a term is added or the sketch is closed.
+     */
+    public BytesRef term(int index, BytesRef dest) {
+        return terms.get(heap.get(index), dest);
+    }
+
+    /**
+     * Upper bound of the number of occurrences of the term of the counter at the given index.
+     */
+    public long count(int index) {
+        return counts.get(heap.get(index));
+    }
+
+    /**
+     * Maximum over-estimation of {@link #count(int)}.
+     */
+    public long error(int index) {
+        return errors.get(heap.get(index));
+    }
+
+    /**
+     * The maximum number of terms that can be monitored.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * The total number of occurrences that have been recorded.
+     */
+    public long totalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Upper bound of the number of occurrences of any term that is not monitored.
+     */
+    public long minCount() {
+        return size < capacity ? 0 : counts.get(heap.get(0));
+    }
+
+    private void siftUp(int i) {
+        final long id = heap.get(i);
+        final long count = counts.get(id);
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            final long parentId = heap.get(parent);
+            if (counts.get(parentId) <= count) {
+                break;
+            }
+            set(i, parentId);
+            i = parent;
+        }
+        set(i, id);
+    }
+
+    private void siftDown(int i) {
+        final long id = heap.get(i);
+        final long count = counts.get(id);
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts.get(heap.get(child + 1)) < counts.get(heap.get(child))) {
+                child++;
+            }
+            final long childId = heap.get(child);
+            if (count <= counts.get(childId)) {
+                break;
+            }
+            set(i, childId);
+            i = child;
+        }
+        set(i, id);
+    }
+
+    private void set(int i, long id) {
+        heap.set(i, id);
+        heapIndices.set(id, i);
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(terms, counts, errors, heapIndices, heap);
+    }
+}
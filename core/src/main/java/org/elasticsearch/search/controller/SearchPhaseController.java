@@ -35,9 +35,13 @@ import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
@@ -55,7 +59,9 @@ import org.elasticsearch.search.profile.ProfileShardResult;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.search.suggest.Suggest;
+import org.elasticsearch.threadpool.ThreadPool;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -63,13 +69,14 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 /**
  *
  */
-public class SearchPhaseController extends AbstractComponent {
+public class SearchPhaseController extends AbstractComponent implements Closeable {
 
     public static final Comparator<AtomicArray.Entry<? extends QuerySearchResultProvider>> QUERY_RESULT_ORDERING = new Comparator<AtomicArray.Entry<? extends QuerySearchResultProvider>>() {
         @Override
@@ -84,15 +91,37 @@ public class SearchPhaseController extends AbstractComponent {
 
     public static final ScoreDoc[] EMPTY_DOCS = new ScoreDoc[0];
 
+    /**
+     * The number of threads that may be used to reduce the aggregations of a single search request. A value of 1 reduces
+     * aggregations on the thread that merges the shard responses.
+     */
+    public static final Setting<Integer> AGGS_REDUCE_PARALLELISM_SETTING = new Setting<>("search.aggs.reduce_parallelism",
+            (s) -> Integer.toString(Math.max(1, Math.min(4, EsExecutors.boundedNumberOfProcessors(s) / 2))),
+            (s) -> Setting.parseInt(s, 1, "search.aggs.reduce_parallelism"), Property.NodeScope);
+
     private final BigArrays bigArrays;
 
     private ScriptService scriptService;
 
+    private final ForkJoinPool reducePool;
+
+    private final ThreadContext threadContext;
+
     @Inject
-    public SearchPhaseController(Settings settings, BigArrays bigArrays, ScriptService scriptService) {
+    public SearchPhaseController(Settings settings, BigArrays bigArrays, ScriptService scriptService, ThreadPool threadPool) {
         super(settings);
         this.bigArrays = bigArrays;
         this.scriptService = scriptService;
+        this.threadContext = threadPool.getThreadContext();
+        final int reduceParallelism = AGGS_REDUCE_PARALLELISM_SETTING.get(settings);
+        this.reducePool = reduceParallelism > 1 ? EsExecutors.newForkJoinPool(settings, "aggs_reduce", reduceParallelism) : null;
+    }
+
+    @Override
+    public void close() {
+        if (reducePool != null) {
+            reducePool.shutdownNow();
+        }
     }
 
     public AggregatedDfs aggregateDfs(AtomicArray<DfsSearchResult> results) {
@@ -397,7 +426,8 @@ public class SearchPhaseController extends AbstractComponent {
                 for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults) {
                     aggregationsList.add((InternalAggregations) entry.value.queryResult().aggregations());
                 }
-                aggregations = InternalAggregations.reduce(aggregationsList, new ReduceContext(bigArrays, scriptService));
+                aggregations = InternalAggregations.reduce(aggregationsList, new ReduceContext(bigArrays, scriptService, reducePool,
+                        threadContext));
             }
         }
 
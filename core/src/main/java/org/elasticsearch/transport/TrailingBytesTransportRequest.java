@@ -0,0 +1,46 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * A request that is serialized with a potentially large bytes reference at the very end, like file chunks sent during
+ * recovery. The network layer can append these bytes to the message as they are, instead of copying them into the message
+ * buffer first.
+ */
+public interface TrailingBytesTransportRequest {
+
+    /**
+     * Writes the request without the trailing bytes, but including their length, so that appending {@link #trailingBytes()}
+     * yields exactly what {@link TransportRequest#writeTo(StreamOutput)} writes. Returns <code>false</code> without writing
+     * anything if the request can't be written this way for the version of the stream, in which case it must be written in full.
+     */
+    boolean writeThin(StreamOutput out) throws IOException;
+
+    /**
+     * The bytes that follow the content written by {@link #writeThin(StreamOutput)}. They must not change until the request
+     * was sent.
+     */
+    BytesReference trailingBytes();
+}
@@ -21,10 +21,13 @@ package org.elasticsearch.transport;
 
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.component.LifecycleComponent;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.ByteSizeValue;
 
 import java.io.IOException;
 import java.util.List;
@@ -38,6 +41,19 @@ public interface Transport extends LifecycleComponent<Transport> {
 
     Setting<Boolean> TRANSPORT_TCP_COMPRESS = Setting.boolSetting("transport.tcp.compress", false, Property.NodeScope);
 
+    /**
+     * The compressor used for messages that should be compressed, either <code>deflate</code> or <code>lz4</code>. Receiving
+     * nodes detect the compressor from the message, so nodes may use different compressors.
+     */
+    Setting<Compressor> TRANSPORT_TCP_COMPRESSOR =
+        new Setting<>("transport.tcp.compressor", "deflate", CompressorFactory::compressor, Property.NodeScope);
+
+    /**
+     * Messages with a smaller body are sent uncompressed even if they should be compressed.
+     */
+    Setting<ByteSizeValue> TRANSPORT_TCP_COMPRESS_MIN_SIZE =
+        Setting.byteSizeSetting("transport.tcp.compress.min_size", new ByteSizeValue(0), Property.NodeScope);
+
     void transportServiceAdapter(TransportServiceAdapter service);
 
     /**
@@ -27,6 +27,7 @@ import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.ClusterSettings;
@@ -45,6 +46,7 @@ import org.elasticsearch.tasks.TaskManager;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -53,6 +55,7 @@ import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -238,7 +241,9 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
     }
 
     public TransportStats stats() {
-        return new TransportStats(transport.serverOpen(), adapter.rxMetric.count(), adapter.rxMetric.sum(), adapter.txMetric.count(), adapter.txMetric.sum());
+        return new TransportStats(transport.serverOpen(), adapter.rxMetric.count(), adapter.rxMetric.sum(), adapter.txMetric.count(),
+            adapter.txMetric.sum(), adapter.txCompressedMetric.count(), adapter.txUncompressedSize.count(), adapter.txCompressedMetric.sum(),
+            TimeUnit.NANOSECONDS.toMillis(adapter.compressionTimeInNanos.count()), adapter.queueStats());
     }
 
     public BoundTransportAddress boundAddress() {
@@ -475,6 +480,10 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
         final MeanMetric rxMetric = new MeanMetric();
         final MeanMetric txMetric = new MeanMetric();
+        final MeanMetric txCompressedMetric = new MeanMetric();
+        final CounterMetric txUncompressedSize = new CounterMetric();
+        final CounterMetric compressionTimeInNanos = new CounterMetric();
+        final Map<String, QueueMetric> queueMetrics = ConcurrentCollections.newConcurrentMap();
 
         @Override
         public void received(long size) {
@@ -486,6 +495,39 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
             txMetric.inc(size);
         }
 
+        @Override
+        public void compressed(long uncompressedSize, long compressedSize, long tookInNanos) {
+            txCompressedMetric.inc(compressedSize);
+            txUncompressedSize.inc(uncompressedSize);
+            compressionTimeInNanos.inc(tookInNanos);
+        }
+
+        @Override
+        public void onMessageQueued(String channelType, long size) {
+            QueueMetric metric = queueMetrics.computeIfAbsent(channelType, type -> new QueueMetric());
+            metric.queue.inc();
+            metric.queueSize.inc(size);
+            metric.total.inc();
+        }
+
+        @Override
+        public void onMessageDequeued(String channelType, long size, long waitTimeInNanos) {
+            QueueMetric metric = queueMetrics.computeIfAbsent(channelType, type -> new QueueMetric());
+            metric.queue.dec();
+            metric.queueSize.dec(size);
+            metric.waitTimeInNanos.inc(waitTimeInNanos);
+        }
+
+        List<TransportStats.QueueStats> queueStats() {
+            List<TransportStats.QueueStats> stats = new ArrayList<>(queueMetrics.size());
+            for (Map.Entry<String, QueueMetric> entry : queueMetrics.entrySet()) {
+                QueueMetric metric = entry.getValue();
+                stats.add(new TransportStats.QueueStats(entry.getKey(), metric.queue.count(), metric.queueSize.count(),
+                    metric.total.count(), TimeUnit.NANOSECONDS.toMillis(metric.waitTimeInNanos.count())));
+            }
+            return stats;
+        }
+
         @Override
         public void onRequestSent(DiscoveryNode node, long requestId, String action, TransportRequest request, TransportRequestOptions options) {
             if (traceEnabled() && shouldTraceAction(action)) {
@@ -683,6 +725,13 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
         }
     }
 
+    static class QueueMetric {
+        final CounterMetric queue = new CounterMetric();
+        final CounterMetric queueSize = new CounterMetric();
+        final CounterMetric total = new CounterMetric();
+        final CounterMetric waitTimeInNanos = new CounterMetric();
+    }
+
     static class TimeoutInfoHolder {
 
         private final DiscoveryNode node;
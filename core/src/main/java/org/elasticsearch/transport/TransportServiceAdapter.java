@@ -30,6 +30,24 @@ public interface TransportServiceAdapter {
 
     void sent(long size);
 
+    /**
+     * called by the {@link Transport} implementation once the body of an outgoing message has been compressed
+     *
+     * @param uncompressedSize the size of the message body before compression
+     * @param compressedSize   the size of the message body after compression
+     * @param tookInNanos      the time it took to compress the message body
+     */
+    void compressed(long uncompressedSize, long compressedSize, long tookInNanos);
+
+    /** called by the {@link Transport} implementation when an outgoing message is queued for a channel of the given type */
+    void onMessageQueued(String channelType, long size);
+
+    /**
+     * called by the {@link Transport} implementation when a queued outgoing message leaves the queue of a channel of the given
+     * type, either because it is written or because the channel was closed
+     */
+    void onMessageDequeued(String channelType, long size, long waitTimeInNanos);
+
     /** called by the {@link Transport} implementation once a request has been sent */
     void onRequestSent(DiscoveryNode node, long requestId, String action, TransportRequest request, TransportRequestOptions options);
 
@@ -19,34 +19,156 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class TransportStats implements Streamable, ToXContent {
 
+    /**
+     * Stats of the queues outgoing messages wait in before they are written to channels of a certain type.
+     */
+    public static class QueueStats implements Streamable, ToXContent, Comparable<QueueStats> {
+
+        private String channelType;
+        private long queue;
+        private long queueSize;
+        private long total;
+        private long waitTimeInMillis;
+
+        QueueStats() {
+
+        }
+
+        public QueueStats(String channelType, long queue, long queueSize, long total, long waitTimeInMillis) {
+            this.channelType = channelType;
+            this.queue = queue;
+            this.queueSize = queueSize;
+            this.total = total;
+            this.waitTimeInMillis = waitTimeInMillis;
+        }
+
+        /**
+         * The type of the channels, for instance <code>reg</code> or <code>recovery</code> for channels opened to other
+         * nodes, or <code>server</code> for channels other nodes opened to this node.
+         */
+        public String getChannelType() {
+            return channelType;
+        }
+
+        /**
+         * The number of messages currently waiting to be written.
+         */
+        public long getQueue() {
+            return queue;
+        }
+
+        /**
+         * The size of the messages currently waiting to be written.
+         */
+        public ByteSizeValue getQueueSize() {
+            return new ByteSizeValue(queueSize);
+        }
+
+        /**
+         * The total number of messages that went through the queue.
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * The total time messages spent waiting in the queue.
+         */
+        public TimeValue getWaitTime() {
+            return new TimeValue(waitTimeInMillis);
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            channelType = in.readString();
+            queue = in.readVLong();
+            queueSize = in.readVLong();
+            total = in.readVLong();
+            waitTimeInMillis = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(channelType);
+            out.writeVLong(queue);
+            out.writeVLong(queueSize);
+            out.writeVLong(total);
+            out.writeVLong(waitTimeInMillis);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject(channelType, XContentBuilder.FieldCaseConversion.NONE);
+            builder.field(Fields.QUEUE, queue);
+            builder.byteSizeField(Fields.QUEUE_SIZE_IN_BYTES, Fields.QUEUE_SIZE, queueSize);
+            builder.field(Fields.TOTAL, total);
+            builder.timeValueField(Fields.WAIT_TIME_IN_MILLIS, Fields.WAIT_TIME, waitTimeInMillis);
+            builder.endObject();
+            return builder;
+        }
+
+        @Override
+        public int compareTo(QueueStats other) {
+            return channelType.compareTo(other.channelType);
+        }
+    }
+
     private long serverOpen;
     private long rxCount;
     private long rxSize;
     private long txCount;
     private long txSize;
+    private long txCompressedCount;
+    private long txUncompressedSize;
+    private long txCompressedSize;
+    private long compressionTimeInMillis;
+    private List<QueueStats> queues = Collections.emptyList();
 
     TransportStats() {
 
     }
 
     public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize) {
+        this(serverOpen, rxCount, rxSize, txCount, txSize, 0, 0, 0, 0);
+    }
+
+    public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize,
+                          long txCompressedCount, long txUncompressedSize, long txCompressedSize, long compressionTimeInMillis) {
+        this(serverOpen, rxCount, rxSize, txCount, txSize, txCompressedCount, txUncompressedSize, txCompressedSize,
+            compressionTimeInMillis, Collections.emptyList());
+    }
+
+    public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize,
+                          long txCompressedCount, long txUncompressedSize, long txCompressedSize, long compressionTimeInMillis,
+                          List<QueueStats> queues) {
         this.serverOpen = serverOpen;
         this.rxCount = rxCount;
         this.rxSize = rxSize;
         this.txCount = txCount;
         this.txSize = txSize;
+        this.txCompressedCount = txCompressedCount;
+        this.txUncompressedSize = txUncompressedSize;
+        this.txCompressedSize = txCompressedSize;
+        this.compressionTimeInMillis = compressionTimeInMillis;
+        this.queues = new ArrayList<>(queues);
+        Collections.sort(this.queues);
     }
 
     public long serverOpen() {
@@ -89,6 +211,41 @@ public class TransportStats implements Streamable, ToXContent {
         return txSize();
     }
 
+    /**
+     * The number of sent messages that were compressed.
+     */
+    public long getTxCompressedCount() {
+        return txCompressedCount;
+    }
+
+    /**
+     * The size of the compressed messages before compression.
+     */
+    public ByteSizeValue getTxUncompressedSize() {
+        return new ByteSizeValue(txUncompressedSize);
+    }
+
+    /**
+     * The size of the compressed messages after compression.
+     */
+    public ByteSizeValue getTxCompressedSize() {
+        return new ByteSizeValue(txCompressedSize);
+    }
+
+    /**
+     * The time spent compressing sent messages.
+     */
+    public TimeValue getCompressionTime() {
+        return new TimeValue(compressionTimeInMillis);
+    }
+
+    /**
+     * The stats of the outgoing message queues, per channel type.
+     */
+    public List<QueueStats> getQueues() {
+        return queues;
+    }
+
     public static TransportStats readTransportStats(StreamInput in) throws IOException {
         TransportStats stats = new TransportStats();
         stats.readFrom(in);
@@ -102,6 +259,19 @@ public class TransportStats implements Streamable, ToXContent {
         rxSize = in.readVLong();
         txCount = in.readVLong();
         txSize = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_5_0_0_alpha1)) {
+            txCompressedCount = in.readVLong();
+            txUncompressedSize = in.readVLong();
+            txCompressedSize = in.readVLong();
+            compressionTimeInMillis = in.readVLong();
+            int size = in.readVInt();
+            queues = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                QueueStats queueStats = new QueueStats();
+                queueStats.readFrom(in);
+                queues.add(queueStats);
+            }
+        }
     }
 
     @Override
@@ -111,6 +281,16 @@ public class TransportStats implements Streamable, ToXContent {
         out.writeVLong(rxSize);
         out.writeVLong(txCount);
         out.writeVLong(txSize);
+        if (out.getVersion().onOrAfter(Version.V_5_0_0_alpha1)) {
+            out.writeVLong(txCompressedCount);
+            out.writeVLong(txUncompressedSize);
+            out.writeVLong(txCompressedSize);
+            out.writeVLong(compressionTimeInMillis);
+            out.writeVInt(queues.size());
+            for (QueueStats queueStats : queues) {
+                queueStats.writeTo(out);
+            }
+        }
     }
 
     @Override
@@ -121,6 +301,17 @@ public class TransportStats implements Streamable, ToXContent {
         builder.byteSizeField(Fields.RX_SIZE_IN_BYTES, Fields.RX_SIZE, rxSize);
         builder.field(Fields.TX_COUNT, txCount);
         builder.byteSizeField(Fields.TX_SIZE_IN_BYTES, Fields.TX_SIZE, txSize);
+        builder.startObject(Fields.COMPRESSION);
+        builder.field(Fields.TX_COUNT, txCompressedCount);
+        builder.byteSizeField(Fields.TX_UNCOMPRESSED_SIZE_IN_BYTES, Fields.TX_UNCOMPRESSED_SIZE, txUncompressedSize);
+        builder.byteSizeField(Fields.TX_COMPRESSED_SIZE_IN_BYTES, Fields.TX_COMPRESSED_SIZE, txCompressedSize);
+        builder.timeValueField(Fields.TIME_IN_MILLIS, Fields.TIME, compressionTimeInMillis);
+        builder.endObject();
+        builder.startObject(Fields.QUEUES);
+        for (QueueStats queueStats : queues) {
+            queueStats.toXContent(builder, params);
+        }
+        builder.endObject();
         builder.endObject();
         return builder;
     }
@@ -134,5 +325,19 @@ public class TransportStats implements Streamable, ToXContent {
         static final XContentBuilderString TX_COUNT = new XContentBuilderString("tx_count");
         static final XContentBuilderString TX_SIZE = new XContentBuilderString("tx_size");
         static final XContentBuilderString TX_SIZE_IN_BYTES = new XContentBuilderString("tx_size_in_bytes");
+        static final XContentBuilderString COMPRESSION = new XContentBuilderString("compression");
+        static final XContentBuilderString TX_UNCOMPRESSED_SIZE = new XContentBuilderString("tx_uncompressed_size");
+        static final XContentBuilderString TX_UNCOMPRESSED_SIZE_IN_BYTES = new XContentBuilderString("tx_uncompressed_size_in_bytes");
+        static final XContentBuilderString TX_COMPRESSED_SIZE = new XContentBuilderString("tx_compressed_size");
+        static final XContentBuilderString TX_COMPRESSED_SIZE_IN_BYTES = new XContentBuilderString("tx_compressed_size_in_bytes");
+        static final XContentBuilderString TIME = new XContentBuilderString("time");
+        static final XContentBuilderString TIME_IN_MILLIS = new XContentBuilderString("time_in_millis");
+        static final XContentBuilderString QUEUES = new XContentBuilderString("queues");
+        static final XContentBuilderString QUEUE = new XContentBuilderString("queue");
+        static final XContentBuilderString QUEUE_SIZE = new XContentBuilderString("queue_size");
+        static final XContentBuilderString QUEUE_SIZE_IN_BYTES = new XContentBuilderString("queue_size_in_bytes");
+        static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        static final XContentBuilderString WAIT_TIME = new XContentBuilderString("wait_time");
+        static final XContentBuilderString WAIT_TIME_IN_MILLIS = new XContentBuilderString("wait_time_in_millis");
     }
 }
\ No newline at end of file
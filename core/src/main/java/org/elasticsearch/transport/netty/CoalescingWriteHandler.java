@@ -0,0 +1,199 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.common.netty.NettyUtils;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.DownstreamMessageEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelDownstreamHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accumulates small outgoing messages and writes them to the channel together, so that many tiny messages share a single
+ * write instead of paying for one each. Accumulated messages are written once they add up to <code>maxSize</code> bytes, or
+ * after <code>delay</code>. A delay of <code>0</code> writes them as soon as the scheduler gets to it, which collects the
+ * messages sent in the meantime. Messages of at least <code>maxSize</code> bytes are written right away, after the messages
+ * accumulated so far.
+ */
+public class CoalescingWriteHandler extends SimpleChannelDownstreamHandler {
+
+    private final ThreadPool threadPool;
+    private final TimeValue delay;
+    private final long maxSize;
+
+    // the following are guarded by this
+    private List<MessageEvent> pending = new ArrayList<>();
+    private long pendingBytes = 0;
+    private boolean flushScheduled = false;
+    // whether a thread is writing messages to the channel, only that thread writes so that messages stay in order
+    private boolean flushing = false;
+    // whether the pending messages need to be written once the current flush is done
+    private boolean flushRequested = false;
+
+    public CoalescingWriteHandler(ThreadPool threadPool, TimeValue delay, long maxSize) {
+        this.threadPool = threadPool;
+        this.delay = delay;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public void writeRequested(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        final int size = e.getMessage() instanceof ChannelBuffer ? ((ChannelBuffer) e.getMessage()).readableBytes() : -1;
+        boolean scheduleFlush = false;
+        List<MessageEvent> events = null;
+        synchronized (this) {
+            pending.add(e);
+            if (size < 0 || size >= maxSize) {
+                events = takePending();
+            } else {
+                pendingBytes += size;
+                if (pendingBytes >= maxSize) {
+                    events = takePending();
+                } else if (flushScheduled == false) {
+                    flushScheduled = true;
+                    scheduleFlush = true;
+                }
+            }
+        }
+        if (events != null) {
+            flush(ctx, events);
+        }
+        if (scheduleFlush) {
+            try {
+                // the flush writes to the channel, which must not happen on the scheduler thread
+                threadPool.schedule(delay, ThreadPool.Names.GENERIC, () -> scheduledFlush(ctx));
+            } catch (EsRejectedExecutionException ex) {
+                // shutting down, don't hold on to the messages
+                scheduledFlush(ctx);
+            }
+        }
+    }
+
+    private void scheduledFlush(ChannelHandlerContext ctx) {
+        final List<MessageEvent> events;
+        synchronized (this) {
+            flushScheduled = false;
+            events = takePending();
+        }
+        if (events != null) {
+            flush(ctx, events);
+        }
+    }
+
+    /**
+     * Takes the pending messages if this thread may write them, the caller must then {@link #flush} them. Returns
+     * <code>null</code> if there is nothing to write or if another thread is writing, which then also writes the pending
+     * messages once it is done.
+     */
+    private List<MessageEvent> takePending() {
+        assert Thread.holdsLock(this);
+        if (flushing) {
+            flushRequested = true;
+            return null;
+        }
+        if (pending.isEmpty()) {
+            return null;
+        }
+        flushing = true;
+        final List<MessageEvent> events = pending;
+        pending = new ArrayList<>();
+        pendingBytes = 0;
+        return events;
+    }
+
+    /**
+     * Writes the given messages without holding the lock, followed by the messages that other threads asked to be written in
+     * the meantime.
+     */
+    private void flush(ChannelHandlerContext ctx, List<MessageEvent> events) {
+        boolean success = false;
+        try {
+            while (events != null) {
+                write(ctx, events);
+                synchronized (this) {
+                    flushing = false;
+                    if (flushRequested) {
+                        flushRequested = false;
+                        events = takePending();
+                    } else {
+                        events = null;
+                    }
+                }
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                synchronized (this) {
+                    flushing = false;
+                }
+            }
+        }
+    }
+
+    private void write(ChannelHandlerContext ctx, List<MessageEvent> events) {
+        int from = 0;
+        for (int i = 0; i < events.size(); i++) {
+            final Object message = events.get(i).getMessage();
+            if (message instanceof ChannelBuffer == false || ((ChannelBuffer) message).readableBytes() >= maxSize) {
+                // written on its own, after the messages accumulated before it
+                writeTogether(ctx, events.subList(from, i));
+                ctx.sendDownstream(events.get(i));
+                from = i + 1;
+            }
+        }
+        writeTogether(ctx, events.subList(from, events.size()));
+    }
+
+    private void writeTogether(ChannelHandlerContext ctx, List<MessageEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (events.size() == 1) {
+            ctx.sendDownstream(events.get(0));
+            return;
+        }
+        final ChannelBuffer[] buffers = new ChannelBuffer[events.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = (ChannelBuffer) events.get(i).getMessage();
+        }
+        final ChannelFuture future = Channels.future(ctx.getChannel());
+        future.addListener(f -> {
+            for (MessageEvent event : events) {
+                if (f.isSuccess()) {
+                    event.getFuture().setSuccess();
+                } else {
+                    event.getFuture().setFailure(f.getCause());
+                }
+            }
+        });
+        ctx.sendDownstream(new DownstreamMessageEvent(ctx.getChannel(), future,
+            ChannelBuffers.wrappedBuffer(NettyUtils.DEFAULT_GATHERING, buffers), events.get(0).getRemoteAddress()));
+    }
+}
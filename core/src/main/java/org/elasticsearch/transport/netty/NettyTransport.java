@@ -25,11 +25,15 @@ import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.Booleans;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
-import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -50,6 +54,7 @@ import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
 import org.elasticsearch.common.transport.PortsRange;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
@@ -62,6 +67,7 @@ import org.elasticsearch.transport.BindTransportException;
 import org.elasticsearch.transport.BytesTransportRequest;
 import org.elasticsearch.transport.ConnectTransportException;
 import org.elasticsearch.transport.NodeNotConnectedException;
+import org.elasticsearch.transport.TrailingBytesTransportRequest;
 import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequest;
@@ -106,6 +112,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -207,6 +214,28 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         byteSizeSetting("transport.netty.receive_predictor_max", NETTY_RECEIVE_PREDICTOR_SIZE, Property.NodeScope);
     public static final Setting<Integer> NETTY_BOSS_COUNT =
         intSetting("transport.netty.boss_count", 1, 1, Property.NodeScope);
+    /**
+     * The number of bytes a channel hands to the network before further messages queue up, so that small messages can be written
+     * ahead of large ones. <code>-1</code> writes all messages in order without queueing them.
+     */
+    public static final Setting<ByteSizeValue> NETTY_WRITE_QUEUE_MAX_IN_FLIGHT =
+        byteSizeSetting("transport.netty.write_queue.max_in_flight", new ByteSizeValue(-1), Property.NodeScope);
+    /**
+     * Queued messages smaller than this are written ahead of larger queued messages.
+     */
+    public static final Setting<ByteSizeValue> NETTY_WRITE_QUEUE_SMALL_MESSAGE_SIZE =
+        byteSizeSetting("transport.netty.write_queue.small_message_size", new ByteSizeValue(16, ByteSizeUnit.KB), Property.NodeScope);
+    /**
+     * How long small outgoing messages are held back to be written together with the ones that follow. <code>0</code> holds them
+     * until the scheduler gets to them, <code>-1</code> writes every message on its own.
+     */
+    public static final Setting<TimeValue> NETTY_WRITE_COALESCING_DELAY =
+        timeSetting("transport.netty.write_coalescing.delay", TimeValue.timeValueMillis(-1), Property.NodeScope);
+    /**
+     * Held back messages are written once they add up to this size. Larger messages are never held back.
+     */
+    public static final Setting<ByteSizeValue> NETTY_WRITE_COALESCING_MAX_SIZE =
+        byteSizeSetting("transport.netty.write_coalescing.max_size", new ByteSizeValue(16, ByteSizeUnit.KB), Property.NodeScope);
 
     protected final NetworkService networkService;
     protected final Version version;
@@ -216,10 +245,16 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
     protected final ByteSizeValue maxCumulationBufferCapacity;
     protected final int maxCompositeBufferComponents;
     protected final boolean compress;
+    protected final Compressor compressor;
+    protected final long compressMinSize;
     protected final ReceiveBufferSizePredictorFactory receiveBufferSizePredictorFactory;
     protected final int workerCount;
     protected final ByteSizeValue receivePredictorMin;
     protected final ByteSizeValue receivePredictorMax;
+    protected final long writeQueueMaxInFlight;
+    protected final long writeQueueSmallMessageSize;
+    protected final TimeValue writeCoalescingDelay;
+    protected final long writeCoalescingMaxSize;
 
     protected final int connectionsPerNodeRecovery;
     protected final int connectionsPerNodeBulk;
@@ -266,6 +301,12 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         this.maxCumulationBufferCapacity = NETTY_MAX_CUMULATION_BUFFER_CAPACITY.get(settings);
         this.maxCompositeBufferComponents = NETTY_MAX_COMPOSITE_BUFFER_COMPONENTS.get(settings);
         this.compress = Transport.TRANSPORT_TCP_COMPRESS.get(settings);
+        this.compressor = Transport.TRANSPORT_TCP_COMPRESSOR.get(settings);
+        this.compressMinSize = Transport.TRANSPORT_TCP_COMPRESS_MIN_SIZE.get(settings).bytes();
+        this.writeQueueMaxInFlight = NETTY_WRITE_QUEUE_MAX_IN_FLIGHT.get(settings).bytes();
+        this.writeQueueSmallMessageSize = NETTY_WRITE_QUEUE_SMALL_MESSAGE_SIZE.get(settings).bytes();
+        this.writeCoalescingDelay = NETTY_WRITE_COALESCING_DELAY.get(settings);
+        this.writeCoalescingMaxSize = NETTY_WRITE_COALESCING_MAX_SIZE.get(settings).bytes();
 
         this.connectionsPerNodeRecovery = CONNECTIONS_PER_NODE_RECOVERY.get(settings);
         this.connectionsPerNodeBulk = CONNECTIONS_PER_NODE_BULK.get(settings);
@@ -871,46 +912,63 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         byte status = 0;
         status = TransportStatus.setRequest(status);
 
-        ReleasableBytesStreamOutput bStream = new ReleasableBytesStreamOutput(bigArrays);
+        // we pick the smallest of the 2, to support both backward and forward compatibility
+        // note, this is the only place we need to do this, since from here on, we use the serialized version
+        // as the version to use also when the node receiving this request will send the response with
+        Version version = Version.smallest(this.version, node.getVersion());
+
+        ReleasableBytesStreamOutput bStream = null;
+        ReleasablePagedBytesReference bytes = null;
         boolean addedReleaseListener = false;
         try {
-            bStream.skip(NettyHeader.HEADER_SIZE);
-            StreamOutput stream = bStream;
             // only compress if asked, and, the request is not bytes, since then only
             // the header part is compressed, and the "body" can't be extracted as compressed
-            if (options.compress() && (!(request instanceof BytesTransportRequest))) {
-                status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.defaultCompressor().streamOutput(stream);
+            if (options.compress() && request instanceof BytesTransportRequest == false) {
+                bytes = compressMessage(version, stream -> {
+                    threadPool.getThreadContext().writeTo(stream);
+                    stream.writeString(action);
+                    request.writeTo(stream);
+                });
             }
 
-            // we pick the smallest of the 2, to support both backward and forward compatibility
-            // note, this is the only place we need to do this, since from here on, we use the serialized version
-            // as the version to use also when the node receiving this request will send the response with
-            Version version = Version.smallest(this.version, node.getVersion());
-
-            stream.setVersion(version);
-            threadPool.getThreadContext().writeTo(stream);
-            stream.writeString(action);
-
-            ReleasablePagedBytesReference bytes;
             ChannelBuffer buffer;
-            // it might be nice to somehow generalize this optimization, maybe a smart "paged" bytes output
-            // that create paged channel buffers, but its tricky to know when to do it (where this option is
-            // more explicit).
-            if (request instanceof BytesTransportRequest) {
-                BytesTransportRequest bRequest = (BytesTransportRequest) request;
-                assert node.getVersion().equals(bRequest.version());
-                bRequest.writeThin(stream);
-                stream.close();
-                bytes = bStream.bytes();
-                ChannelBuffer headerBuffer = bytes.toChannelBuffer();
-                ChannelBuffer contentBuffer = bRequest.bytes().toChannelBuffer();
-                buffer = ChannelBuffers.wrappedBuffer(NettyUtils.DEFAULT_GATHERING, headerBuffer, contentBuffer);
-            } else {
-                request.writeTo(stream);
-                stream.close();
-                bytes = bStream.bytes();
+            if (bytes != null) {
+                status = TransportStatus.setCompress(status);
                 buffer = bytes.toChannelBuffer();
+            } else {
+                bStream = new ReleasableBytesStreamOutput(bigArrays);
+                bStream.skip(NettyHeader.HEADER_SIZE);
+                StreamOutput stream = bStream;
+                stream.setVersion(version);
+                threadPool.getThreadContext().writeTo(stream);
+                stream.writeString(action);
+
+                // it might be nice to somehow generalize this optimization, maybe a smart "paged" bytes output
+                // that create paged channel buffers, but its tricky to know when to do it (where this option is
+                // more explicit).
+                if (request instanceof BytesTransportRequest) {
+                    BytesTransportRequest bRequest = (BytesTransportRequest) request;
+                    assert node.getVersion().equals(bRequest.version());
+                    bRequest.writeThin(stream);
+                    stream.close();
+                    bytes = bStream.bytes();
+                    ChannelBuffer headerBuffer = bytes.toChannelBuffer();
+                    ChannelBuffer contentBuffer = bRequest.bytes().toChannelBuffer();
+                    buffer = ChannelBuffers.wrappedBuffer(NettyUtils.DEFAULT_GATHERING, headerBuffer, contentBuffer);
+                } else if (request instanceof TrailingBytesTransportRequest
+                        && ((TrailingBytesTransportRequest) request).writeThin(stream)) {
+                    // the trailing bytes, e.g. a file chunk, are sent as they are rather than copied into the message buffer
+                    stream.close();
+                    bytes = bStream.bytes();
+                    ChannelBuffer headerBuffer = bytes.toChannelBuffer();
+                    ChannelBuffer contentBuffer = ((TrailingBytesTransportRequest) request).trailingBytes().toChannelBuffer();
+                    buffer = ChannelBuffers.wrappedBuffer(NettyUtils.DEFAULT_GATHERING, headerBuffer, contentBuffer);
+                } else {
+                    request.writeTo(stream);
+                    stream.close();
+                    bytes = bStream.bytes();
+                    buffer = bytes.toChannelBuffer();
+                }
             }
             NettyHeader.writeHeader(buffer, requestId, status, version);
             ChannelFuture future = targetChannel.write(buffer);
@@ -920,11 +978,116 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
             transportServiceAdapter.onRequestSent(node, requestId, action, request, options);
         } finally {
             if (!addedReleaseListener) {
+                Releasables.close(bytes != null ? bytes : bStream != null ? bStream.bytes() : null);
+            }
+        }
+    }
+
+    /**
+     * Writes the body of an outgoing message.
+     */
+    @FunctionalInterface
+    interface MessageBodyWriter {
+        void write(StreamOutput out) throws IOException;
+    }
+
+    /**
+     * Serializes a message body into a new message that leaves room for the header, compressing the body while it is written.
+     * Returns <code>null</code> if the message should be sent uncompressed instead, because its body is smaller than
+     * <code>transport.tcp.compress.min_size</code> or compressing it doesn't make it smaller. The caller then serializes the
+     * body again without compression. Bodies are only compressed once they reach the minimum size, so small messages don't
+     * pay for compression and only incompressible large messages are serialized twice.
+     */
+    @Nullable
+    ReleasablePagedBytesReference compressMessage(Version version, MessageBodyWriter writer) throws IOException {
+        final ReleasableBytesStreamOutput bStream = new ReleasableBytesStreamOutput(bigArrays);
+        boolean success = false;
+        try {
+            bStream.skip(NettyHeader.HEADER_SIZE);
+            final long startTime = System.nanoTime();
+            final long bodyLength;
+            try (CompressingBodyOutput stream = new CompressingBodyOutput(bStream)) {
+                stream.setVersion(version);
+                writer.write(stream);
+                if (stream.compressing == false) {
+                    return null;
+                }
+                bodyLength = stream.bodyLength;
+            }
+            final long tookInNanos = System.nanoTime() - startTime;
+            final ReleasablePagedBytesReference compressed = bStream.bytes();
+            final int compressedBodyLength = compressed.length() - NettyHeader.HEADER_SIZE;
+            if (compressedBodyLength >= bodyLength) {
+                return null;
+            }
+            transportServiceAdapter.compressed(bodyLength, compressedBodyLength, tookInNanos);
+            success = true;
+            return compressed;
+        } finally {
+            if (success == false) {
                 Releasables.close(bStream.bytes());
             }
         }
     }
 
+    /**
+     * Writes a message body as it is until it reaches <code>transport.tcp.compress.min_size</code>, then moves what was written
+     * so far into a compressed stream and compresses the rest of the body as it is written.
+     */
+    private final class CompressingBodyOutput extends StreamOutput {
+
+        private final BytesStreamOutput message;
+        private StreamOutput out;
+        private boolean compressing = false;
+        private long bodyLength = 0;
+
+        CompressingBodyOutput(BytesStreamOutput message) {
+            this.message = message;
+            this.out = message;
+        }
+
+        @Override
+        public void writeByte(byte b) throws IOException {
+            maybeStartCompressing(1);
+            out.writeByte(b);
+            bodyLength++;
+        }
+
+        @Override
+        public void writeBytes(byte[] b, int offset, int length) throws IOException {
+            maybeStartCompressing(length);
+            out.writeBytes(b, offset, length);
+            bodyLength += length;
+        }
+
+        private void maybeStartCompressing(int length) throws IOException {
+            if (compressing || bodyLength + length < compressMinSize) {
+                return;
+            }
+            // the body written so far is below the minimum size, so copying it is cheap
+            final BytesReference written = new BytesArray(message.bytes().slice(NettyHeader.HEADER_SIZE, (int) bodyLength).toBytes());
+            message.seek(NettyHeader.HEADER_SIZE);
+            out = compressor.streamOutput(message);
+            written.writeTo(out);
+            compressing = true;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     @Override
     public boolean nodeConnected(DiscoveryNode node) {
         return connectedNodes.containsKey(node);
@@ -1034,6 +1197,7 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
                     throw new ConnectTransportException(node, "connect_timeout[" + connectTimeout + "]", connectRecovery[i].getCause());
                 }
                 nodeChannels.recovery[i] = connectRecovery[i].getChannel();
+                setWriteQueueChannelType(nodeChannels.recovery[i], TransportRequestOptions.Type.RECOVERY);
                 nodeChannels.recovery[i].getCloseFuture().addListener(new ChannelCloseListener(node));
             }
 
@@ -1043,6 +1207,7 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
                     throw new ConnectTransportException(node, "connect_timeout[" + connectTimeout + "]", connectBulk[i].getCause());
                 }
                 nodeChannels.bulk[i] = connectBulk[i].getChannel();
+                setWriteQueueChannelType(nodeChannels.bulk[i], TransportRequestOptions.Type.BULK);
                 nodeChannels.bulk[i].getCloseFuture().addListener(new ChannelCloseListener(node));
             }
 
@@ -1052,6 +1217,7 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
                     throw new ConnectTransportException(node, "connect_timeout[" + connectTimeout + "]", connectReg[i].getCause());
                 }
                 nodeChannels.reg[i] = connectReg[i].getChannel();
+                setWriteQueueChannelType(nodeChannels.reg[i], TransportRequestOptions.Type.REG);
                 nodeChannels.reg[i].getCloseFuture().addListener(new ChannelCloseListener(node));
             }
 
@@ -1061,6 +1227,7 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
                     throw new ConnectTransportException(node, "connect_timeout[" + connectTimeout + "]", connectState[i].getCause());
                 }
                 nodeChannels.state[i] = connectState[i].getChannel();
+                setWriteQueueChannelType(nodeChannels.state[i], TransportRequestOptions.Type.STATE);
                 nodeChannels.state[i].getCloseFuture().addListener(new ChannelCloseListener(node));
             }
 
@@ -1070,6 +1237,7 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
                     throw new ConnectTransportException(node, "connect_timeout[" + connectTimeout + "]", connectPing[i].getCause());
                 }
                 nodeChannels.ping[i] = connectPing[i].getChannel();
+                setWriteQueueChannelType(nodeChannels.ping[i], TransportRequestOptions.Type.PING);
                 nodeChannels.ping[i].getCloseFuture().addListener(new ChannelCloseListener(node));
             }
 
@@ -1176,6 +1344,13 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         return nodeChannels.channel(options.type());
     }
 
+    private static void setWriteQueueChannelType(Channel channel, TransportRequestOptions.Type type) {
+        PrioritizedWriteHandler writeQueue = channel.getPipeline().get(PrioritizedWriteHandler.class);
+        if (writeQueue != null) {
+            writeQueue.channelType(type.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
     public ChannelPipelineFactory configureClientChannelPipelineFactory() {
         return new ClientChannelPipelineFactory(this);
     }
@@ -1202,6 +1377,16 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
                 sizeHeader.setMaxCumulationBufferComponents(nettyTransport.maxCompositeBufferComponents);
             }
             channelPipeline.addLast("size", sizeHeader);
+            if (nettyTransport.writeCoalescingDelay.millis() >= 0) {
+                // closer to the socket than the write queue, so that messages are prioritized before they are coalesced
+                channelPipeline.addLast("coalesce", new CoalescingWriteHandler(nettyTransport.threadPool,
+                    nettyTransport.writeCoalescingDelay, nettyTransport.writeCoalescingMaxSize));
+            }
+            if (nettyTransport.writeQueueMaxInFlight >= 0) {
+                // labelled with the channel type once connected
+                channelPipeline.addLast("writeQueue", new PrioritizedWriteHandler(nettyTransport, nettyTransport.writeQueueMaxInFlight,
+                    nettyTransport.writeQueueSmallMessageSize, "client"));
+            }
             // using a dot as a prefix means, this cannot come from any settings parsed
             channelPipeline.addLast("dispatcher", new MessageChannelHandler(nettyTransport, nettyTransport.logger, ".client"));
             return channelPipeline;
@@ -1240,6 +1425,15 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
                 sizeHeader.setMaxCumulationBufferComponents(nettyTransport.maxCompositeBufferComponents);
             }
             channelPipeline.addLast("size", sizeHeader);
+            if (nettyTransport.writeCoalescingDelay.millis() >= 0) {
+                // closer to the socket than the write queue, so that messages are prioritized before they are coalesced
+                channelPipeline.addLast("coalesce", new CoalescingWriteHandler(nettyTransport.threadPool,
+                    nettyTransport.writeCoalescingDelay, nettyTransport.writeCoalescingMaxSize));
+            }
+            if (nettyTransport.writeQueueMaxInFlight >= 0) {
+                channelPipeline.addLast("writeQueue", new PrioritizedWriteHandler(nettyTransport, nettyTransport.writeQueueMaxInFlight,
+                    nettyTransport.writeQueueSmallMessageSize, "server"));
+            }
             channelPipeline.addLast("dispatcher", new MessageChannelHandler(nettyTransport, nettyTransport.logger, name));
             return channelPipeline;
         }
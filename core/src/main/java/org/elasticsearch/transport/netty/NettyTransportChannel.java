@@ -20,10 +20,7 @@
 package org.elasticsearch.transport.netty;
 
 import org.elasticsearch.Version;
-import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
-import org.elasticsearch.common.compress.CompressorFactory;
-import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lease.Releasables;
@@ -88,20 +85,24 @@ public class NettyTransportChannel implements TransportChannel {
         byte status = 0;
         status = TransportStatus.setResponse(status);
 
-        ReleasableBytesStreamOutput bStream = new ReleasableBytesStreamOutput(transport.bigArrays);
+        ReleasableBytesStreamOutput bStream = null;
+        ReleasablePagedBytesReference bytes = null;
         boolean addedReleaseListener = false;
         try {
-            bStream.skip(NettyHeader.HEADER_SIZE);
-            StreamOutput stream = bStream;
             if (options.compress()) {
+                bytes = transport.compressMessage(version, response::writeTo);
+            }
+            if (bytes != null) {
                 status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.defaultCompressor().streamOutput(stream);
+            } else {
+                bStream = new ReleasableBytesStreamOutput(transport.bigArrays);
+                bStream.skip(NettyHeader.HEADER_SIZE);
+                StreamOutput stream = bStream;
+                stream.setVersion(version);
+                response.writeTo(stream);
+                stream.close();
+                bytes = bStream.bytes();
             }
-            stream.setVersion(version);
-            response.writeTo(stream);
-            stream.close();
-
-            ReleasablePagedBytesReference bytes = bStream.bytes();
             ChannelBuffer buffer = bytes.toChannelBuffer();
             NettyHeader.writeHeader(buffer, requestId, status, version);
             ChannelFuture future = channel.write(buffer);
@@ -111,27 +112,37 @@ public class NettyTransportChannel implements TransportChannel {
             transportServiceAdapter.onResponseSent(requestId, action, response, options);
         } finally {
             if (!addedReleaseListener) {
-                Releasables.close(bStream.bytes());
+                Releasables.close(bytes != null ? bytes : bStream != null ? bStream.bytes() : null);
             }
         }
     }
 
     @Override
     public void sendResponse(Throwable error) throws IOException {
-        BytesStreamOutput stream = new BytesStreamOutput();
-        stream.skip(NettyHeader.HEADER_SIZE);
-        RemoteTransportException tx = new RemoteTransportException(transport.nodeName(), transport.wrapAddress(channel.getLocalAddress()),
-                action, error);
-        stream.writeThrowable(tx);
-        byte status = 0;
-        status = TransportStatus.setResponse(status);
-        status = TransportStatus.setError(status);
-
-        BytesReference bytes = stream.bytes();
-        ChannelBuffer buffer = bytes.toChannelBuffer();
-        NettyHeader.writeHeader(buffer, requestId, status, version);
-        channel.write(buffer);
-        transportServiceAdapter.onResponseSent(requestId, action, error);
+        ReleasableBytesStreamOutput stream = new ReleasableBytesStreamOutput(transport.bigArrays);
+        boolean addedReleaseListener = false;
+        try {
+            stream.skip(NettyHeader.HEADER_SIZE);
+            RemoteTransportException tx = new RemoteTransportException(transport.nodeName(),
+                    transport.wrapAddress(channel.getLocalAddress()), action, error);
+            stream.writeThrowable(tx);
+            byte status = 0;
+            status = TransportStatus.setResponse(status);
+            status = TransportStatus.setError(status);
+
+            ReleasablePagedBytesReference bytes = stream.bytes();
+            ChannelBuffer buffer = bytes.toChannelBuffer();
+            NettyHeader.writeHeader(buffer, requestId, status, version);
+            ChannelFuture future = channel.write(buffer);
+            ReleaseChannelFutureListener listener = new ReleaseChannelFutureListener(bytes);
+            future.addListener(listener);
+            addedReleaseListener = true;
+            transportServiceAdapter.onResponseSent(requestId, action, error);
+        } finally {
+            if (!addedReleaseListener) {
+                Releasables.close(stream.bytes());
+            }
+        }
     }
 
     @Override
@@ -0,0 +1,198 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.transport.TransportServiceAdapter;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Limits the number of bytes a channel hands to the network at once and queues the remaining outgoing messages, so that small
+ * messages can be written ahead of large ones that are still waiting. Large messages are not starved: after
+ * {@value #SMALL_MESSAGES_PER_LARGE_MESSAGE} small messages in a row the oldest waiting large message gets its turn.
+ */
+public class PrioritizedWriteHandler extends SimpleChannelHandler {
+
+    static final int SMALL_MESSAGES_PER_LARGE_MESSAGE = 8;
+
+    private final NettyTransport transport;
+    private final long maxBytesInFlight;
+    private final long smallMessageSize;
+    private volatile String channelType;
+
+    private final Deque<QueuedWrite> smallMessages = new ArrayDeque<>();
+    private final Deque<QueuedWrite> largeMessages = new ArrayDeque<>();
+    // the following are guarded by this
+    private long bytesInFlight = 0;
+    private int smallMessagesInARow = 0;
+    private boolean draining = false;
+    private boolean closed = false;
+
+    public PrioritizedWriteHandler(NettyTransport transport, long maxBytesInFlight, long smallMessageSize, String channelType) {
+        this.transport = transport;
+        this.maxBytesInFlight = maxBytesInFlight;
+        this.smallMessageSize = smallMessageSize;
+        this.channelType = channelType;
+    }
+
+    /**
+     * Sets the type of the messages this channel carries, which the queue stats are reported under.
+     */
+    public void channelType(String channelType) {
+        this.channelType = channelType;
+    }
+
+    public String channelType() {
+        return channelType;
+    }
+
+    @Override
+    public void writeRequested(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        if (e.getMessage() instanceof ChannelBuffer == false) {
+            ctx.sendDownstream(e);
+            return;
+        }
+        final QueuedWrite write = new QueuedWrite(e, ((ChannelBuffer) e.getMessage()).readableBytes(), System.nanoTime(),
+            channelType, transport.transportServiceAdapter);
+        synchronized (this) {
+            if (closed) {
+                // let the channel fail the write
+                ctx.sendDownstream(e);
+                return;
+            }
+            // count the message before it becomes visible to drain, which counts it as dequeued
+            if (write.adapter != null) {
+                write.adapter.onMessageQueued(write.channelType, write.size);
+            }
+            if (write.size < smallMessageSize) {
+                smallMessages.add(write);
+            } else {
+                largeMessages.add(write);
+            }
+        }
+        drain(ctx);
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        final List<QueuedWrite> pending;
+        synchronized (this) {
+            closed = true;
+            pending = new ArrayList<>(smallMessages.size() + largeMessages.size());
+            pending.addAll(smallMessages);
+            pending.addAll(largeMessages);
+            smallMessages.clear();
+            largeMessages.clear();
+        }
+        final ClosedChannelException failure = new ClosedChannelException();
+        for (QueuedWrite write : pending) {
+            onDequeued(write);
+            write.event.getFuture().setFailure(failure);
+        }
+        super.channelClosed(ctx, e);
+    }
+
+    private void onWriteComplete(ChannelHandlerContext ctx, long size) {
+        synchronized (this) {
+            bytesInFlight -= size;
+        }
+        drain(ctx);
+    }
+
+    /**
+     * Writes queued messages as long as they fit in the in flight limit. Writes that complete while draining, possibly on the
+     * same thread, leave the work to the thread that is already draining, which picks it up before it stops.
+     */
+    private void drain(ChannelHandlerContext ctx) {
+        synchronized (this) {
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        while (true) {
+            final QueuedWrite write;
+            synchronized (this) {
+                write = nextWrite();
+                if (write == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            onDequeued(write);
+            write.event.getFuture().addListener(future -> onWriteComplete(ctx, write.size));
+            ctx.sendDownstream(write.event);
+        }
+    }
+
+    /**
+     * Polls the next message to write if it fits in the in flight limit, <code>null</code> otherwise. A message always fits if
+     * nothing is in flight, so messages larger than the limit are written alone.
+     */
+    private QueuedWrite nextWrite() {
+        assert Thread.holdsLock(this);
+        final boolean small = largeMessages.isEmpty()
+            || (smallMessages.isEmpty() == false && smallMessagesInARow < SMALL_MESSAGES_PER_LARGE_MESSAGE);
+        final Deque<QueuedWrite> queue = small ? smallMessages : largeMessages;
+        final QueuedWrite next = queue.peek();
+        if (next == null || (bytesInFlight > 0 && bytesInFlight + next.size > maxBytesInFlight)) {
+            return null;
+        }
+        queue.poll();
+        // only small messages that went ahead of a waiting large message count towards its turn
+        smallMessagesInARow = small && largeMessages.isEmpty() == false ? smallMessagesInARow + 1 : 0;
+        bytesInFlight += next.size;
+        return next;
+    }
+
+    private void onDequeued(QueuedWrite write) {
+        if (write.adapter != null) {
+            write.adapter.onMessageDequeued(write.channelType, write.size, System.nanoTime() - write.queuedAtNanos);
+        }
+    }
+
+    private static final class QueuedWrite {
+        final MessageEvent event;
+        final int size;
+        final long queuedAtNanos;
+        // the stats the message was counted in when it was queued, it has to leave the same ones
+        final String channelType;
+        @Nullable
+        final TransportServiceAdapter adapter;
+
+        QueuedWrite(MessageEvent event, int size, long queuedAtNanos, String channelType, @Nullable TransportServiceAdapter adapter) {
+            this.event = event;
+            this.size = size;
+            this.queuedAtNanos = queuedAtNanos;
+            this.channelType = channelType;
+            this.adapter = adapter;
+        }
+    }
+}
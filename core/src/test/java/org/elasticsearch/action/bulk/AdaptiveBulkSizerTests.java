@@ -0,0 +1,137 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class AdaptiveBulkSizerTests extends ESTestCase {
+
+    private static final long FAST = TimeValue.timeValueMillis(100).nanos();
+    private static final long SLOW = TimeValue.timeValueSeconds(10).nanos();
+
+    private AdaptiveBulkSizing sizing() {
+        return new AdaptiveBulkSizing()
+            .setMinBulkSize(new ByteSizeValue(1, ByteSizeUnit.MB))
+            .setMaxBulkSize(new ByteSizeValue(4, ByteSizeUnit.MB))
+            .setBulkSizeStep(new ByteSizeValue(1, ByteSizeUnit.MB))
+            .setMaxConcurrentRequests(4)
+            .setTargetLatency(TimeValue.timeValueSeconds(1));
+    }
+
+    public void testAdditiveIncrease() {
+        AdaptiveBulkSizer sizer = new AdaptiveBulkSizer(sizing(), new ByteSizeValue(1, ByteSizeUnit.MB), 1);
+        long executionId = 0;
+        for (int mb = 2; mb <= 4; mb++) {
+            sizer.onBulkStarted(++executionId);
+            AdaptiveBulkSizing.Decision decision = sizer.onBulkCompleted(executionId, FAST, false);
+            assertThat(decision.getDirection(), equalTo(AdaptiveBulkSizing.Decision.Direction.INCREASE));
+            assertThat(decision.getBulkSize(), equalTo(new ByteSizeValue(mb, ByteSizeUnit.MB)));
+            assertThat(decision.getConcurrentRequests(), equalTo(1));
+        }
+        // once the bulk size is at its maximum, the number of concurrent requests grows
+        for (int concurrentRequests = 2; concurrentRequests <= 4; concurrentRequests++) {
+            sizer.onBulkStarted(++executionId);
+            AdaptiveBulkSizing.Decision decision = sizer.onBulkCompleted(executionId, FAST, false);
+            assertThat(decision.getDirection(), equalTo(AdaptiveBulkSizing.Decision.Direction.INCREASE));
+            assertThat(sizer.concurrentRequests(), equalTo(concurrentRequests));
+        }
+        sizer.onBulkStarted(++executionId);
+        AdaptiveBulkSizing.Decision decision = sizer.onBulkCompleted(executionId, FAST, false);
+        assertThat(decision.getDirection(), equalTo(AdaptiveBulkSizing.Decision.Direction.UNCHANGED));
+        assertThat(sizer.bulkSize(), equalTo(new ByteSizeValue(4, ByteSizeUnit.MB).bytes()));
+        assertThat(sizer.concurrentRequests(), equalTo(4));
+    }
+
+    public void testMultiplicativeDecrease() {
+        AdaptiveBulkSizer sizer = new AdaptiveBulkSizer(sizing(), new ByteSizeValue(4, ByteSizeUnit.MB), 4);
+        for (long executionId = 1; executionId <= 4; executionId++) {
+            sizer.onBulkStarted(executionId);
+        }
+        boolean rejected = randomBoolean();
+        AdaptiveBulkSizing.Decision decision = sizer.onBulkCompleted(1, rejected ? FAST : SLOW, rejected);
+        assertThat(decision.getDirection(), equalTo(AdaptiveBulkSizing.Decision.Direction.DECREASE));
+        assertThat(decision.isRejected(), equalTo(rejected));
+        assertThat(decision.getBulkSize(), equalTo(new ByteSizeValue(2, ByteSizeUnit.MB)));
+        assertThat(decision.getConcurrentRequests(), equalTo(2));
+
+        // requests that were in flight when we decreased don't decrease again
+        for (long executionId = 2; executionId <= 4; executionId++) {
+            decision = sizer.onBulkCompleted(executionId, SLOW, true);
+            assertThat(decision.getDirection(), equalTo(AdaptiveBulkSizing.Decision.Direction.UNCHANGED));
+        }
+        assertThat(sizer.bulkSize(), equalTo(new ByteSizeValue(2, ByteSizeUnit.MB).bytes()));
+
+        sizer.onBulkStarted(5);
+        decision = sizer.onBulkCompleted(5, SLOW, false);
+        assertThat(decision.getDirection(), equalTo(AdaptiveBulkSizing.Decision.Direction.DECREASE));
+        assertThat(decision.getBulkSize(), equalTo(new ByteSizeValue(1, ByteSizeUnit.MB)));
+        assertThat(decision.getConcurrentRequests(), equalTo(1));
+
+        // never below the minimum
+        sizer.onBulkStarted(6);
+        decision = sizer.onBulkCompleted(6, SLOW, true);
+        assertThat(decision.getBulkSize(), equalTo(new ByteSizeValue(1, ByteSizeUnit.MB)));
+        assertThat(decision.getConcurrentRequests(), equalTo(1));
+    }
+
+    public void testSynchronousBulkProcessorKeepsConcurrentRequests() {
+        AdaptiveBulkSizer sizer = new AdaptiveBulkSizer(sizing(), new ByteSizeValue(4, ByteSizeUnit.MB), 0);
+        sizer.onBulkStarted(1);
+        AdaptiveBulkSizing.Decision decision = sizer.onBulkCompleted(1, FAST, false);
+        assertThat(decision.getDirection(), equalTo(AdaptiveBulkSizing.Decision.Direction.UNCHANGED));
+        assertThat(decision.getConcurrentRequests(), equalTo(0));
+    }
+
+    public void testInitialBulkSizeIsBounded() {
+        assertThat(new AdaptiveBulkSizer(sizing(), new ByteSizeValue(-1), 1).bulkSize(),
+            equalTo(new ByteSizeValue(1, ByteSizeUnit.MB).bytes()));
+        assertThat(new AdaptiveBulkSizer(sizing(), new ByteSizeValue(1, ByteSizeUnit.GB), 1).bulkSize(),
+            equalTo(new ByteSizeValue(4, ByteSizeUnit.MB).bytes()));
+        assertThat(new AdaptiveBulkSizer(sizing(), new ByteSizeValue(1, ByteSizeUnit.MB), 16).concurrentRequests(), equalTo(4));
+    }
+
+    public void testIsRejected() {
+        assertTrue(AdaptiveBulkSizer.isRejected(new EsRejectedExecutionException("rejected")));
+        assertFalse(AdaptiveBulkSizer.isRejected(new IllegalStateException("failed")));
+
+        BulkItemResponse rejected = new BulkItemResponse(0, "index",
+            new BulkItemResponse.Failure("index", "type", "1", new EsRejectedExecutionException("rejected")));
+        BulkItemResponse failed = new BulkItemResponse(1, "index",
+            new BulkItemResponse.Failure("index", "type", "2", new IllegalArgumentException("failed")));
+        assertTrue(AdaptiveBulkSizer.isRejected(new BulkResponse(new BulkItemResponse[] {failed, rejected}, 0)));
+        assertFalse(AdaptiveBulkSizer.isRejected(new BulkResponse(new BulkItemResponse[] {failed}, 0)));
+    }
+
+    public void testValidation() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> new AdaptiveBulkSizer(sizing().setDecreaseFactor(1), new ByteSizeValue(1, ByteSizeUnit.MB), 1));
+        assertThat(e.getMessage(), containsString("decreaseFactor"));
+        e = expectThrows(IllegalArgumentException.class,
+            () -> new AdaptiveBulkSizer(sizing().setMaxBulkSize(new ByteSizeValue(1, ByteSizeUnit.KB)), new ByteSizeValue(1), 1));
+        assertThat(e.getMessage(), containsString("maxBulkSize"));
+    }
+}
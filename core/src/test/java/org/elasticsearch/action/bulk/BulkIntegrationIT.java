@@ -21,11 +21,18 @@
 package org.elasticsearch.action.bulk;
 
 import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.test.ESIntegTestCase;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.elasticsearch.test.StreamsUtils.copyToStringFromClasspath;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 
 public class BulkIntegrationIT extends ESIntegTestCase {
     public void testBulkIndexCreatesMapping() throws Exception {
@@ -42,4 +49,37 @@ public class BulkIntegrationIT extends ESIntegTestCase {
             }
         });
     }
+
+    public void testShardResponseConsumer() throws Exception {
+        createIndex("test", "closed");
+        ensureGreen("test", "closed");
+        assertAcked(client().admin().indices().prepareClose("closed"));
+        int numDocs = randomIntBetween(1, 64);
+        BulkRequest bulkRequest = new BulkRequest();
+        for (int i = 0; i < numDocs; i++) {
+            bulkRequest.add(new IndexRequest("test", "type", Integer.toString(i)).source("field", i));
+        }
+        // the index is closed, so this item fails before being sent to a shard
+        bulkRequest.add(new IndexRequest("closed", "type", "1").source("field", 1));
+        AtomicArray<BulkItemResponse> shardResponses = new AtomicArray<>(numDocs + 1);
+        AtomicInteger notifications = new AtomicInteger();
+        bulkRequest.shardResponseConsumer(items -> {
+            notifications.incrementAndGet();
+            for (BulkItemResponse item : items) {
+                assertNull(shardResponses.get(item.getItemId()));
+                shardResponses.set(item.getItemId(), item);
+            }
+        });
+
+        // the consumer is only called when the bulk request is executed on the node it was created on
+        BulkResponse response = internalCluster().getInstance(Client.class).bulk(bulkRequest).get();
+        assertThat(notifications.get(), greaterThan(1));
+        for (BulkItemResponse item : response) {
+            BulkItemResponse shardResponse = shardResponses.get(item.getItemId());
+            assertNotNull(shardResponse);
+            assertThat(shardResponse.getId(), equalTo(item.getId()));
+            assertThat(shardResponse.isFailed(), equalTo(item.isFailed()));
+        }
+        assertTrue(response.getItems()[numDocs].isFailed());
+    }
 }
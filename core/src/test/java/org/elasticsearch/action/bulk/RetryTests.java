@@ -127,6 +127,28 @@ public class RetryTests extends ESTestCase {
         listener.assertOnFailureNeverCalled();
     }
 
+    public void testRetryKeepsShardResponseConsumer() throws Exception {
+        BackoffPolicy backoff = BackoffPolicy.constantBackoff(DELAY, CALLS_TO_FAIL);
+        AtomicInteger successfulItems = new AtomicInteger();
+
+        BulkRequest bulkRequest = createBulkRequest();
+        bulkRequest.shardResponseConsumer(items -> {
+            for (BulkItemResponse item : items) {
+                if (item.isFailed() == false) {
+                    successfulItems.incrementAndGet();
+                }
+            }
+        });
+        BulkResponse response = Retry
+                .on(EsRejectedExecutionException.class)
+                .policy(backoff)
+                .withSyncBackoff(bulkClient, bulkRequest);
+
+        assertFalse(response.hasFailures());
+        // every item is reported once it succeeded, including the ones that only succeeded on a retry
+        assertThat(successfulItems.get(), equalTo(bulkRequest.numberOfActions()));
+    }
+
     private static class AssertingListener implements ActionListener<BulkResponse> {
         private final CountDownLatch latch;
         private final AtomicInteger countOnResponseCalled = new AtomicInteger();
@@ -208,6 +230,9 @@ public class RetryTests extends ESTestCase {
                     itemResponses[idx] = successfulResponse();
                 }
             }
+            if (request.shardResponseConsumer() != null) {
+                request.shardResponseConsumer().accept(itemResponses);
+            }
             listener.onResponse(new BulkResponse(itemResponses, 1000L));
         }
 
@@ -85,6 +85,32 @@ public class BulkRequestModifierTests extends ESTestCase {
         }
     }
 
+    public void testMarkItemAsFailed() {
+        BulkRequest bulkRequest = new BulkRequest();
+        for (int i = 0; i < 32; i++) {
+            bulkRequest.add(new IndexRequest("index", "type", String.valueOf(i)));
+        }
+
+        IngestActionFilter.BulkRequestModifier modifier = new IngestActionFilter.BulkRequestModifier(bulkRequest);
+        Set<Integer> failedSlots = new HashSet<>();
+        for (int i = 0; i < 32; i++) {
+            if (randomBoolean()) {
+                modifier.markItemAsFailed((IndexRequest) bulkRequest.requests().get(i), new RuntimeException());
+                failedSlots.add(i);
+            }
+        }
+
+        BulkRequest modified = modifier.getBulkRequest();
+        assertThat(modified.requests().size(), equalTo(32 - failedSlots.size()));
+        for (ActionRequest actionRequest : modified.requests()) {
+            assertFalse(failedSlots.contains(Integer.parseInt(((IndexRequest) actionRequest).id())));
+        }
+        for (BulkItemResponse itemResponse : modifier.itemResponses) {
+            assertTrue(failedSlots.contains(itemResponse.getItemId()));
+        }
+        assertThat(modifier.itemResponses.size(), equalTo(failedSlots.size()));
+    }
+
     public void testPipelineFailures() {
         BulkRequest originalBulkRequest = new BulkRequest();
         for (int i = 0; i < 32; i++) {
@@ -129,6 +155,45 @@ public class BulkRequestModifierTests extends ESTestCase {
         }
     }
 
+    public void testShardResponseConsumer() {
+        BulkRequest originalBulkRequest = new BulkRequest();
+        for (int i = 0; i < 32; i++) {
+            originalBulkRequest.add(new IndexRequest("index", "type", String.valueOf(i)));
+        }
+        List<BulkItemResponse> shardResponses = new ArrayList<>();
+        originalBulkRequest.shardResponseConsumer(items -> shardResponses.addAll(Arrays.asList(items)));
+
+        IngestActionFilter.BulkRequestModifier modifier = new IngestActionFilter.BulkRequestModifier(originalBulkRequest);
+        for (int i = 0; modifier.hasNext(); i++) {
+            modifier.next();
+            if (i % 2 == 0) {
+                modifier.markCurrentItemAsFailed(new RuntimeException());
+            }
+        }
+
+        BulkRequest bulkRequest = modifier.getBulkRequest();
+        modifier.notifyShardResponseConsumerOfFailedItems();
+        assertThat(shardResponses.size(), equalTo(16));
+        for (BulkItemResponse shardResponse : shardResponses) {
+            assertTrue(shardResponse.isFailed());
+            assertThat(shardResponse.getItemId() % 2, equalTo(0));
+        }
+
+        shardResponses.clear();
+        BulkItemResponse[] items = new BulkItemResponse[bulkRequest.requests().size()];
+        for (int i = 0; i < items.length; i++) {
+            IndexRequest indexRequest = (IndexRequest) bulkRequest.requests().get(i);
+            IndexResponse indexResponse = new IndexResponse(new ShardId("index", "_na_", 0), indexRequest.type(), indexRequest.id(), 1, true);
+            items[i] = new BulkItemResponse(i, indexRequest.opType().lowercase(), indexResponse);
+        }
+        bulkRequest.shardResponseConsumer().accept(items);
+        assertThat(shardResponses.size(), equalTo(16));
+        for (BulkItemResponse shardResponse : shardResponses) {
+            assertFalse(shardResponse.isFailed());
+            assertThat(shardResponse.getId(), equalTo(String.valueOf(shardResponse.getItemId())));
+        }
+    }
+
     public void testNoFailures() {
         BulkRequest originalBulkRequest = new BulkRequest();
         for (int i = 0; i < 32; i++) {
@@ -0,0 +1,131 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.action.shard;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateTaskExecutor;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.ShardRoutingState;
+import org.elasticsearch.cluster.routing.allocation.AllocationService;
+import org.elasticsearch.test.ESAllocationTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.settings.Settings.settingsBuilder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+public class ShardStateClusterStateTaskExecutorTests extends ESAllocationTestCase {
+
+    private static final String INDEX = "index";
+
+    private AllocationService allocationService;
+    private ShardStateAction.ShardStateClusterStateTaskExecutor executor;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        allocationService = createAllocationService(settingsBuilder()
+            .put("cluster.routing.allocation.node_concurrent_recoveries", 8)
+            .build());
+        executor = new ShardStateAction.ShardStateClusterStateTaskExecutor(allocationService,
+            new ShardStateAction.ShardFailedClusterStateTaskExecutor(allocationService, null, logger));
+    }
+
+    public void testStartedShardsAreRerouted() throws Exception {
+        ClusterState clusterState = createClusterStateWithInitializingPrimaries(1, 1);
+        ShardRouting primary = clusterState.routingTable().index(INDEX).shard(0).primaryShard();
+        assertThat(primary.state(), equalTo(ShardRoutingState.INITIALIZING));
+
+        List<ShardStateAction.ShardStateTask> tasks = new ArrayList<>();
+        tasks.add(new ShardStateAction.ShardStateTask(new ShardStateAction.ShardRoutingEntry(primary, primary, "test", null), true));
+        ClusterStateTaskExecutor.BatchResult<ShardStateAction.ShardStateTask> result = executor.execute(clusterState, tasks);
+        assertAllSuccessful(tasks, result);
+
+        IndexShardRoutingTable shardTable = result.resultingState.routingTable().index(INDEX).shard(0);
+        assertThat(shardTable.primaryShard().state(), equalTo(ShardRoutingState.STARTED));
+        // the replica can only be assigned by the reroute that follows starting the primary
+        assertThat(shardTable.replicaShards().get(0).state(), equalTo(ShardRoutingState.INITIALIZING));
+    }
+
+    public void testStartedAndFailedShardsInOneBatch() throws Exception {
+        ClusterState clusterState = createClusterStateWithInitializingPrimaries(2, 0);
+        ShardRouting toStart = clusterState.routingTable().index(INDEX).shard(0).primaryShard();
+        ShardRouting toFail = clusterState.routingTable().index(INDEX).shard(1).primaryShard();
+
+        List<ShardStateAction.ShardStateTask> tasks = new ArrayList<>();
+        tasks.add(new ShardStateAction.ShardStateTask(new ShardStateAction.ShardRoutingEntry(toFail, toFail, "test", null), false));
+        tasks.add(new ShardStateAction.ShardStateTask(new ShardStateAction.ShardRoutingEntry(toStart, toStart, "test", null), true));
+        ClusterStateTaskExecutor.BatchResult<ShardStateAction.ShardStateTask> result = executor.execute(clusterState, tasks);
+        assertAllSuccessful(tasks, result);
+
+        RoutingTable routingTable = result.resultingState.routingTable();
+        assertThat(routingTable.index(INDEX).shard(0).primaryShard().state(), equalTo(ShardRoutingState.STARTED));
+        ShardRouting failed = routingTable.index(INDEX).shard(1).primaryShard();
+        assertThat(failed.allocationId(), not(equalTo(toFail.allocationId())));
+    }
+
+    public void testShardsOfMissingIndexAreIgnored() throws Exception {
+        ClusterState clusterState = createClusterStateWithInitializingPrimaries(1, 0);
+        ShardRouting primary = clusterState.routingTable().index(INDEX).shard(0).primaryShard();
+        ClusterState withoutIndex = ClusterState.builder(clusterState)
+            .metaData(MetaData.builder())
+            .routingTable(RoutingTable.builder().build())
+            .build();
+
+        List<ShardStateAction.ShardStateTask> tasks = new ArrayList<>();
+        tasks.add(new ShardStateAction.ShardStateTask(new ShardStateAction.ShardRoutingEntry(primary, primary, "test", null), true));
+        tasks.add(new ShardStateAction.ShardStateTask(new ShardStateAction.ShardRoutingEntry(primary, primary, "test", null), false));
+        ClusterStateTaskExecutor.BatchResult<ShardStateAction.ShardStateTask> result = executor.execute(withoutIndex, tasks);
+        assertAllSuccessful(tasks, result);
+        assertSame(withoutIndex, result.resultingState);
+    }
+
+    private ClusterState createClusterStateWithInitializingPrimaries(int numberOfShards, int numberOfReplicas) {
+        MetaData metaData = MetaData.builder()
+            .put(IndexMetaData.builder(INDEX).settings(settings(Version.CURRENT))
+                .numberOfShards(numberOfShards).numberOfReplicas(numberOfReplicas))
+            .build();
+        RoutingTable routingTable = RoutingTable.builder().addAsNew(metaData.index(INDEX)).build();
+        ClusterState clusterState = ClusterState.builder(ClusterName.DEFAULT)
+            .metaData(metaData)
+            .routingTable(routingTable)
+            .nodes(DiscoveryNodes.builder().put(newNode("node1")).put(newNode("node2")))
+            .build();
+        RoutingTable afterReroute = allocationService.reroute(clusterState, "test").routingTable();
+        return ClusterState.builder(clusterState).routingTable(afterReroute).build();
+    }
+
+    private static void assertAllSuccessful(List<ShardStateAction.ShardStateTask> tasks,
+                                            ClusterStateTaskExecutor.BatchResult<ShardStateAction.ShardStateTask> result) {
+        assertEquals(tasks.size(), result.executionResults.size());
+        for (ShardStateAction.ShardStateTask task : tasks) {
+            assertTrue(result.executionResults.get(task).isSuccess());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.metadata;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.Diff;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.lessThan;
+
+public class IndexMetaDataTests extends ESTestCase {
+
+    public void testDiff() throws IOException {
+        IndexMetaData before = IndexMetaData.builder("test")
+            .settings(settings(Version.CURRENT).put("index.refresh_interval", "1s").put("index.priority", 1))
+            .numberOfShards(1).numberOfReplicas(0)
+            .putMapping("type", mapping(50))
+            .build();
+        IndexMetaData after = IndexMetaData.builder(before)
+            .settings(settings(Version.CURRENT).put("index.refresh_interval", "5s").put("index.blocks.read_only", true))
+            .numberOfShards(1).numberOfReplicas(0)
+            .putMapping("type", mapping(51))
+            .version(before.getVersion() + 1)
+            .build();
+
+        for (Version version : new Version[] { Version.CURRENT, Version.V_2_3_0 }) {
+            IndexMetaData applied = serializeDiff(after.diff(before), version).apply(before);
+            assertEquals(after, applied);
+            assertEquals(after.getSettings().getAsMap(), applied.getSettings().getAsMap());
+            assertEquals(after.getMappings().get("type"), applied.getMappings().get("type"));
+        }
+    }
+
+    public void testMappingDiffOnlySendsTheChange() throws IOException {
+        MappingMetaData before = new IndexMetaData.Builder("test").putMapping("type", mapping(500)).build().getMappings().get("type");
+        MappingMetaData after = new IndexMetaData.Builder("test").putMapping("type", mapping(501)).build().getMappings().get("type");
+        BytesStreamOutput diffOut = new BytesStreamOutput();
+        after.diff(before).writeTo(diffOut);
+        BytesStreamOutput fullOut = new BytesStreamOutput();
+        after.writeTo(fullOut);
+        assertThat(diffOut.size() * 4, lessThan(fullOut.size()));
+
+        StreamInput in = StreamInput.wrap(diffOut.bytes());
+        assertEquals(after, MappingMetaData.PROTO.readDiffFrom(in).apply(before));
+    }
+
+    public void testMappingDiffRejectsWrongSource() throws IOException {
+        MappingMetaData before = new IndexMetaData.Builder("test").putMapping("type", mapping(10)).build().getMappings().get("type");
+        MappingMetaData after = new IndexMetaData.Builder("test").putMapping("type", mapping(11)).build().getMappings().get("type");
+        MappingMetaData other = new IndexMetaData.Builder("test").putMapping("type", mapping(20)).build().getMappings().get("type");
+        BytesStreamOutput out = new BytesStreamOutput();
+        after.diff(before).writeTo(out);
+        Diff<MappingMetaData> diff = MappingMetaData.PROTO.readDiffFrom(StreamInput.wrap(out.bytes()));
+        expectThrows(IllegalStateException.class, () -> diff.apply(other));
+    }
+
+    private static Diff<IndexMetaData> serializeDiff(Diff<IndexMetaData> diff, Version version) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(version);
+        diff.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        in.setVersion(version);
+        return IndexMetaData.PROTO.readDiffFrom(in);
+    }
+
+    private static String mapping(int numFields) {
+        StringBuilder mapping = new StringBuilder("{\"type\":{\"properties\":{");
+        for (int i = 0; i < numFields; i++) {
+            if (i > 0) {
+                mapping.append(',');
+            }
+            mapping.append("\"field_").append(i).append("\":{\"type\":\"keyword\"}");
+        }
+        return mapping.append("}}}").toString();
+    }
+}
@@ -258,6 +258,21 @@ public class RoutingTableTests extends ESAllocationTestCase {
         }
     }
 
+    public void testUpdateNodesReusesUnchangedIndices() {
+        initPrimaries();
+        RoutingTable rebuilt = RoutingTable.builder().updateNodes(clusterState.getRoutingNodes()).build();
+        assertThat(rebuilt.version(), is(testRoutingTable.version()));
+        assertSame(testRoutingTable.index(TEST_INDEX_1), rebuilt.index(TEST_INDEX_1));
+        assertSame(testRoutingTable.index(TEST_INDEX_2), rebuilt.index(TEST_INDEX_2));
+
+        IndexRoutingTable started = testRoutingTable.index(TEST_INDEX_1);
+        IndexRoutingTable unchanged = testRoutingTable.index(TEST_INDEX_2);
+        startInitializingShards(TEST_INDEX_1);
+        assertNotSame(started, testRoutingTable.index(TEST_INDEX_1));
+        assertSame(unchanged, testRoutingTable.index(TEST_INDEX_2));
+        assertThat(testRoutingTable.index(TEST_INDEX_1).primaryShardsActive(), is(numberOfShards));
+    }
+
     public void testRoutingTableBuiltMoreThanOnce() {
         RoutingTable.Builder b = RoutingTable.builder();
         b.build(); // Ok the first time
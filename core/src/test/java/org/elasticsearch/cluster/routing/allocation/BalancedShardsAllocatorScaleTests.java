@@ -0,0 +1,170 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.allocation;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.EmptyClusterInfoService;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.RoutingNode;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDecider;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
+import org.elasticsearch.cluster.routing.allocation.decider.ClusterRebalanceAllocationDecider;
+import org.elasticsearch.cluster.routing.allocation.decider.ConcurrentRebalanceAllocationDecider;
+import org.elasticsearch.cluster.routing.allocation.decider.Decision;
+import org.elasticsearch.cluster.routing.allocation.decider.ThrottlingAllocationDecider;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.test.ESAllocationTestCase;
+import org.elasticsearch.test.gateway.NoopGatewayAllocator;
+
+import java.util.List;
+
+import static org.elasticsearch.cluster.routing.ShardRoutingState.INITIALIZING;
+import static org.elasticsearch.cluster.routing.ShardRoutingState.STARTED;
+import static org.elasticsearch.common.settings.Settings.settingsBuilder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Reroutes clusters with many nodes and shards through the {@link BalancedShardsAllocator} and reports how long
+ * rerouting an already balanced cluster takes. The default sizes keep the test fast enough to run with the unit
+ * tests; they can be raised to benchmark the allocator at the scale of large clusters, for instance with
+ * <code>-Dtests.allocation.scale.nodes=200 -Dtests.allocation.scale.indices=6000</code>.
+ */
+public class BalancedShardsAllocatorScaleTests extends ESAllocationTestCase {
+
+    private static final int NUMBER_OF_NODES = Integer.getInteger("tests.allocation.scale.nodes", 20);
+    private static final int NUMBER_OF_INDICES = Integer.getInteger("tests.allocation.scale.indices", 40);
+    private static final int NUMBER_OF_SHARDS = Integer.getInteger("tests.allocation.scale.shards", 5);
+    private static final int NUMBER_OF_REPLICAS = Integer.getInteger("tests.allocation.scale.replicas", 1);
+    private static final int NUMBER_OF_REROUTES = Integer.getInteger("tests.allocation.scale.reroutes", 5);
+
+    public void testRerouteOfBalancedCluster() {
+        CountingAllocationDeciders deciders = new CountingAllocationDeciders(allocationSettings());
+        AllocationService service = newAllocationService(deciders);
+        ClusterState clusterState = createCluster(NUMBER_OF_NODES, NUMBER_OF_INDICES, NUMBER_OF_SHARDS, NUMBER_OF_REPLICAS);
+
+        long startTime = System.nanoTime();
+        clusterState = startAllShards(service, clusterState);
+        logger.info("allocated [{}] shards on [{}] nodes in [{}]", clusterState.getRoutingNodes().shardsWithState(STARTED).size(),
+            NUMBER_OF_NODES, TimeValue.timeValueNanos(System.nanoTime() - startTime));
+
+        deciders.indexDecisions = 0;
+        startTime = System.nanoTime();
+        for (int i = 0; i < NUMBER_OF_REROUTES; i++) {
+            RoutingAllocation.Result result = service.reroute(clusterState, "benchmark");
+            assertFalse("rerouting a balanced cluster must not change it", result.changed());
+        }
+        logger.info("rerouted the balanced cluster [{}] times, took [{}] per reroute, [{}] index level decisions per reroute",
+            NUMBER_OF_REROUTES, TimeValue.timeValueNanos((System.nanoTime() - startTime) / NUMBER_OF_REROUTES),
+            deciders.indexDecisions / NUMBER_OF_REROUTES);
+    }
+
+    public void testBalancedIndicesDoNotConsultDeciders() {
+        CountingAllocationDeciders deciders = new CountingAllocationDeciders(allocationSettings());
+        AllocationService service = newAllocationService(deciders);
+        // every node holds exactly one shard of every index, so all nodes have the same weight
+        ClusterState clusterState = startAllShards(service, createCluster(4, 2, 4, 0));
+
+        deciders.indexDecisions = 0;
+        assertFalse(service.reroute(clusterState, "test").changed());
+        assertThat(deciders.indexDecisions, equalTo(0));
+
+        // a new empty node unbalances both indices, which then have to be balanced again
+        clusterState = ClusterState.builder(clusterState)
+            .nodes(DiscoveryNodes.builder(clusterState.nodes()).put(newNode("node4")))
+            .build();
+        RoutingAllocation.Result result = service.reroute(clusterState, "test");
+        assertTrue(result.changed());
+        assertThat(deciders.indexDecisions, greaterThan(0));
+    }
+
+    private static Settings allocationSettings() {
+        return settingsBuilder()
+            .put(ClusterRebalanceAllocationDecider.CLUSTER_ROUTING_ALLOCATION_ALLOW_REBALANCE_SETTING.getKey(),
+                ClusterRebalanceAllocationDecider.ClusterRebalanceType.ALWAYS.toString())
+            .put(ConcurrentRebalanceAllocationDecider.CLUSTER_ROUTING_ALLOCATION_CLUSTER_CONCURRENT_REBALANCE_SETTING.getKey(), -1)
+            .put(ThrottlingAllocationDecider.CLUSTER_ROUTING_ALLOCATION_NODE_CONCURRENT_RECOVERIES_SETTING.getKey(), 20)
+            .put(ThrottlingAllocationDecider.CLUSTER_ROUTING_ALLOCATION_NODE_INITIAL_PRIMARIES_RECOVERIES_SETTING.getKey(), 20)
+            .build();
+    }
+
+    private static AllocationService newAllocationService(AllocationDeciders deciders) {
+        Settings settings = allocationSettings();
+        return new MockAllocationService(settings, deciders, NoopGatewayAllocator.INSTANCE, new BalancedShardsAllocator(settings),
+            EmptyClusterInfoService.INSTANCE);
+    }
+
+    private static ClusterState createCluster(int numberOfNodes, int numberOfIndices, int numberOfShards, int numberOfReplicas) {
+        MetaData.Builder metaData = MetaData.builder();
+        for (int i = 0; i < numberOfIndices; i++) {
+            metaData.put(IndexMetaData.builder("test" + i).settings(settings(Version.CURRENT))
+                .numberOfShards(numberOfShards).numberOfReplicas(numberOfReplicas));
+        }
+        MetaData builtMetaData = metaData.build();
+        RoutingTable.Builder routingTable = RoutingTable.builder();
+        for (int i = 0; i < numberOfIndices; i++) {
+            routingTable.addAsNew(builtMetaData.index("test" + i));
+        }
+        DiscoveryNodes.Builder nodes = DiscoveryNodes.builder();
+        for (int i = 0; i < numberOfNodes; i++) {
+            nodes.put(newNode("node" + i));
+        }
+        return ClusterState.builder(ClusterName.DEFAULT).nodes(nodes).metaData(builtMetaData).routingTable(routingTable).build();
+    }
+
+    private static ClusterState startAllShards(AllocationService service, ClusterState clusterState) {
+        clusterState = ClusterState.builder(clusterState).routingResult(service.reroute(clusterState, "initial")).build();
+        List<ShardRouting> initializing;
+        while ((initializing = clusterState.getRoutingNodes().shardsWithState(INITIALIZING)).isEmpty() == false) {
+            clusterState = ClusterState.builder(clusterState).routingResult(service.applyStartedShards(clusterState, initializing)).build();
+        }
+        return clusterState;
+    }
+
+    /**
+     * Counts how often the deciders are asked whether shards of an index can be allocated to a node, which the
+     * balancer does for every node and every index it tries to balance.
+     */
+    private static class CountingAllocationDeciders extends AllocationDeciders {
+
+        int indexDecisions;
+
+        CountingAllocationDeciders(Settings settings) {
+            super(settings, new AllocationDecider[] {
+                randomAllocationDeciders(settings, new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS), random())
+            });
+        }
+
+        @Override
+        public Decision canAllocate(IndexMetaData indexMetaData, RoutingNode node, RoutingAllocation allocation) {
+            indexDecisions++;
+            return super.canAllocate(indexMetaData, node, allocation);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.allocation.decider;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterInfo;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.RoutingNode;
+import org.elasticsearch.cluster.routing.RoutingNodes;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESAllocationTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class AllocationDecidersTests extends ESAllocationTestCase {
+
+    public void testCacheableDecisionsAreReused() {
+        CountingAllocationDecider cacheable = new CountingAllocationDecider(true, Decision.YES);
+        CountingAllocationDecider uncacheable = new CountingAllocationDecider(false, Decision.THROTTLE);
+        RoutingAllocation allocation = newRoutingAllocation(cacheable, uncacheable);
+        RoutingNodes routingNodes = allocation.routingNodes();
+        ShardRouting shard = routingNodes.unassigned().iterator().next();
+        RoutingNode node = routingNodes.node("node1");
+
+        for (int i = 0; i < 3; i++) {
+            Decision decision = allocation.deciders().canAllocate(shard, node, allocation);
+            assertThat(decision.type(), equalTo(Decision.Type.THROTTLE));
+            assertThat(decision.getDecisions().size(), equalTo(2));
+        }
+        assertThat(cacheable.canAllocate, equalTo(1));
+        assertThat(uncacheable.canAllocate, equalTo(3));
+        assertThat(allocation.decisionCache().hits(), equalTo(2L));
+        assertThat(allocation.decisionCache().misses(), equalTo(1L));
+
+        // a cached NO decision short circuits the remaining deciders
+        cacheable.decision = Decision.NO;
+        allocation.decisionCache().clear();
+        for (int i = 0; i < 3; i++) {
+            assertThat(allocation.deciders().canAllocate(shard, node, allocation), equalTo(Decision.NO));
+        }
+        assertThat(cacheable.canAllocate, equalTo(2));
+        assertThat(uncacheable.canAllocate, equalTo(3));
+    }
+
+    public void testDecisionsAreInvalidatedWhenShardsOfNodeChange() {
+        CountingAllocationDecider cacheable = new CountingAllocationDecider(true, Decision.YES);
+        RoutingAllocation allocation = newRoutingAllocation(cacheable);
+        RoutingNodes routingNodes = allocation.routingNodes();
+        RoutingNodes.UnassignedShards.UnassignedIterator iterator = routingNodes.unassigned().iterator();
+        ShardRouting first = iterator.next();
+        iterator.next();
+        RoutingNode node1 = routingNodes.node("node1");
+        RoutingNode node2 = routingNodes.node("node2");
+
+        allocation.deciders().canAllocate(first, node1, allocation);
+        allocation.deciders().canAllocate(first, node2, allocation);
+        assertThat(cacheable.canAllocate, equalTo(2));
+
+        iterator.initialize("node1", null, -1);
+        allocation.deciders().canAllocate(first, node1, allocation);
+        allocation.deciders().canAllocate(first, node2, allocation);
+        assertThat("only the decision for the modified node is recomputed", cacheable.canAllocate, equalTo(3));
+
+        ShardRouting initialized = node1.iterator().next();
+        allocation.deciders().canRemain(initialized, node1, allocation);
+        routingNodes.started(initialized);
+        allocation.deciders().canRemain(initialized, node1, allocation);
+        allocation.deciders().canRemain(initialized, node1, allocation);
+        allocation.deciders().canAllocate(first, node1, allocation);
+        assertThat(cacheable.canRemain, equalTo(2));
+        assertThat(cacheable.canAllocate, equalTo(4));
+    }
+
+    public void testCacheIsBypassedWhenDebuggingDecisions() {
+        CountingAllocationDecider cacheable = new CountingAllocationDecider(true, Decision.YES);
+        RoutingAllocation allocation = newRoutingAllocation(cacheable);
+        allocation.debugDecision(true);
+        RoutingNodes routingNodes = allocation.routingNodes();
+        ShardRouting shard = routingNodes.unassigned().iterator().next();
+        RoutingNode node = routingNodes.node("node1");
+
+        allocation.deciders().canAllocate(shard, node, allocation);
+        allocation.deciders().canAllocate(shard, node, allocation);
+        assertThat(cacheable.canAllocate, equalTo(2));
+        assertThat(allocation.decisionCache().hits(), equalTo(0L));
+    }
+
+    public void testCompositeIsCacheableIfAllDecidersAre() {
+        Settings settings = Settings.EMPTY;
+        assertTrue(new AllocationDeciders(settings, new AllocationDecider[] {
+            new CountingAllocationDecider(true, Decision.YES), new CountingAllocationDecider(true, Decision.YES)
+        }).canCacheDecisions());
+        assertFalse(new AllocationDeciders(settings, new AllocationDecider[] {
+            new CountingAllocationDecider(true, Decision.YES), new CountingAllocationDecider(false, Decision.YES)
+        }).canCacheDecisions());
+    }
+
+    private static RoutingAllocation newRoutingAllocation(AllocationDecider... deciders) {
+        MetaData metaData = MetaData.builder()
+            .put(IndexMetaData.builder("test").settings(settings(Version.CURRENT)).numberOfShards(2).numberOfReplicas(0))
+            .build();
+        RoutingTable routingTable = RoutingTable.builder().addAsNew(metaData.index("test")).build();
+        ClusterState clusterState = ClusterState.builder(ClusterName.DEFAULT)
+            .nodes(DiscoveryNodes.builder().put(newNode("node1")).put(newNode("node2")))
+            .metaData(metaData)
+            .routingTable(routingTable)
+            .build();
+        return new RoutingAllocation(new AllocationDeciders(Settings.EMPTY, deciders), new RoutingNodes(clusterState, false),
+            clusterState.nodes(), ClusterInfo.EMPTY, System.nanoTime());
+    }
+
+    private static class CountingAllocationDecider extends AllocationDecider {
+
+        private final boolean cacheable;
+        Decision decision;
+        int canAllocate;
+        int canRemain;
+
+        CountingAllocationDecider(boolean cacheable, Decision decision) {
+            super(Settings.EMPTY);
+            this.cacheable = cacheable;
+            this.decision = decision;
+        }
+
+        @Override
+        public boolean canCacheDecisions() {
+            return cacheable;
+        }
+
+        @Override
+        public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
+            canAllocate++;
+            return decision;
+        }
+
+        @Override
+        public Decision canRemain(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
+            canRemain++;
+            return decision;
+        }
+    }
+}
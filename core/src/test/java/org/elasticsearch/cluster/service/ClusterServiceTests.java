@@ -49,6 +49,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +69,7 @@ import static org.elasticsearch.cluster.service.ClusterServiceUtils.setState;
 import static org.elasticsearch.common.settings.Settings.settingsBuilder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
 
 public class ClusterServiceTests extends ESTestCase {
@@ -502,6 +504,41 @@ public class ClusterServiceTests extends ESTestCase {
         }
     }
 
+    public void testSubmittedTasksAreExecutedInOneBatch() throws InterruptedException {
+        final int numberOfTasks = randomIntBetween(2, 32);
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final ClusterStateTaskExecutor<Integer> executor = (currentState, tasks) -> {
+            batchSizes.add(tasks.size());
+            return ClusterStateTaskExecutor.BatchResult.<Integer>builder().successes(tasks).build(currentState);
+        };
+        final CountDownLatch processed = new CountDownLatch(numberOfTasks);
+        final Map<Integer, ClusterStateTaskListener> tasks = new HashMap<>();
+        for (int i = 0; i < numberOfTasks; i++) {
+            tasks.put(i, new ClusterStateTaskListener() {
+                @Override
+                public void onFailure(String source, Throwable t) {
+                    throw new AssertionError(t);
+                }
+
+                @Override
+                public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+                    processed.countDown();
+                }
+            });
+        }
+
+        final ClusterStateBatchStats statsBefore = clusterService.batchStats();
+        clusterService.submitStateUpdateTasks("test", tasks, ClusterStateTaskConfig.build(Priority.NORMAL), executor);
+        processed.await();
+
+        assertThat(batchSizes, equalTo(Collections.singletonList(numberOfTasks)));
+        final ClusterStateBatchStats statsAfter = clusterService.batchStats();
+        assertThat(statsAfter.getBatches() - statsBefore.getBatches(), equalTo(1L));
+        assertThat(statsAfter.getTasks() - statsBefore.getTasks(), equalTo((long) numberOfTasks));
+        assertThat(statsAfter.getLastBatchSize(), equalTo((long) numberOfTasks));
+        assertThat(statsAfter.getMaxBatchSize(), greaterThanOrEqualTo((long) numberOfTasks));
+    }
+
     /**
      * Note, this test can only work as long as we have a single thread executor executing the state update tasks!
      */
@@ -19,16 +19,19 @@
 
 package org.elasticsearch.common.rounding;
 
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.test.ESTestCase;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.format.ISODateTimeFormat;
 
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 /**
@@ -284,6 +287,55 @@ public class TimeZoneRoundingTests extends ESTestCase {
         }
     }
 
+    /**
+     * randomized test checking that prepared roundings return the same keys as the rounding they were prepared from,
+     * both inside and outside of the range they were prepared for
+     */
+    public void testPreparedRoundingRandom() {
+        DateTimeZone[] timeZones = new DateTimeZone[] { DateTimeZone.UTC, JERUSALEM_TIMEZONE, DateTimeZone.forID("America/Sao_Paulo"),
+                DateTimeZone.forID("Europe/Berlin"), DateTimeZone.forOffsetHours(randomIntBetween(-23, 23)) };
+        for (int i = 0; i < 100; ++i) {
+            DateTimeZone timeZone = randomFrom(timeZones);
+            Rounding rounding;
+            if (randomBoolean()) {
+                rounding = TimeZoneRounding.builder(randomTimeUnit()).timeZone(timeZone).build();
+            } else {
+                rounding = TimeZoneRounding.builder(TimeValue.timeValueMinutes(randomIntBetween(1, 60 * 24 * 7))).timeZone(timeZone).build();
+            }
+            long min = Math.abs(randomLong() % ((long) 10e11));
+            long max = min + Math.abs(randomLong() % TimeUnit.DAYS.toMillis(365 * 3));
+            Rounding prepared = rounding.prepare(min, max);
+            for (int j = 0; j < 1000; ++j) {
+                long value = randomBoolean() ? randomLongBetween(min, max) : randomLongBetween(min - TimeUnit.DAYS.toMillis(400),
+                        max + TimeUnit.DAYS.toMillis(400));
+                assertThat("Prepared rounding differs for " + toUTCDateString(value) + " in " + timeZone, prepared.roundKey(value),
+                        equalTo(rounding.roundKey(value)));
+            }
+        }
+    }
+
+    /**
+     * the precomputed rounded values must include the second occurrence of an hour when daylight saving time ends
+     */
+    public void testPreparedRoundingAmbiguousHours() {
+        Rounding tzRounding = TimeZoneRounding.builder(DateTimeUnit.HOUR_OF_DAY).timeZone(JERUSALEM_TIMEZONE).build();
+        Rounding prepared = tzRounding.prepare(time("2014-10-25T00:00:00", DateTimeZone.UTC), time("2014-10-27T00:00:00", DateTimeZone.UTC));
+        assertThat(prepared.round(time("2014-10-25T22:30:00", DateTimeZone.UTC)), equalTo(time("2014-10-25T22:00:00", DateTimeZone.UTC)));
+        assertThat(prepared.round(time("2014-10-25T23:30:00", DateTimeZone.UTC)), equalTo(time("2014-10-25T23:00:00", DateTimeZone.UTC)));
+    }
+
+    public void testPreparedRoundingIsNotSerialized() throws IOException {
+        Rounding tzRounding = TimeZoneRounding.builder(DateTimeUnit.DAY_OF_MONTH).timeZone(JERUSALEM_TIMEZONE).build();
+        Rounding prepared = tzRounding.prepare(time("2014-10-01T00:00:00", DateTimeZone.UTC), time("2014-11-01T00:00:00", DateTimeZone.UTC));
+        assertThat(prepared, instanceOf(TimeZoneRounding.PreparedRounding.class));
+        try {
+            Rounding.Streams.write(prepared, new BytesStreamOutput());
+            fail("prepared roundings must not be serialized");
+        } catch (UnsupportedOperationException e) {
+            assertThat(e.getMessage(), equalTo("prepared roundings are never serialized"));
+        }
+    }
+
     private DateTimeUnit randomTimeUnit() {
         byte id = (byte) randomIntBetween(1, 8);
         return DateTimeUnit.resolve(id);
@@ -236,6 +236,30 @@ public class IndexSettingsTests extends ESTestCase {
         return refreshInterval;
     }
 
+    public void testSearchIdleAfter() {
+        IndexMetaData metaData = newIndexMeta("index", Settings.settingsBuilder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .build());
+        IndexSettings settings = new IndexSettings(metaData, Settings.EMPTY);
+        assertEquals(-1, settings.getSearchIdleAfter().millis());
+        settings.updateIndexMetaData(newIndexMeta("index", Settings.builder().put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(),
+            "30s").build()));
+        assertEquals(TimeValue.timeValueSeconds(30), settings.getSearchIdleAfter());
+        settings.updateIndexMetaData(newIndexMeta("index", Settings.builder().put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(),
+            "1s").build()));
+        assertEquals(TimeValue.timeValueSeconds(1), settings.getSearchIdleAfter());
+
+        String tooShort = randomFrom("0", "0ms", "999ms", "-2ms");
+        try {
+            IndexSettings.INDEX_SEARCH_IDLE_AFTER.get(Settings.builder()
+                .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(), tooShort).build());
+            fail("search idle after [" + tooShort + "] should be rejected");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Failed to parse value [" + tooShort + "] for setting [index.search.idle.after] must be -1 or >= 1s",
+                ex.getMessage());
+        }
+    }
+
     public void testMaxResultWindow() {
         IndexMetaData metaData = newIndexMeta("index", Settings.settingsBuilder()
             .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
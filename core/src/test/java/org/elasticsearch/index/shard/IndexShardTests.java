@@ -680,6 +680,47 @@ public class IndexShardTests extends ESSingleNodeTestCase {
         return new ParsedDocument(uidField, versionField, id, type, routing, timestamp, ttl, Arrays.asList(document), source, mappingUpdate);
     }
 
+    public void testSearchIdleShardSkipsScheduledRefresh() throws Exception {
+        createIndex("test", Settings.builder()
+            .put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.getKey(), -1)
+            .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(), "1s").build());
+        ensureGreen();
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexShard shard = indicesService.indexService(resolveIndex("test")).getShardOrNull(0);
+        assertBusy(() -> assertTrue(shard.isSearchIdle()));
+
+        client().prepareIndex("test", "test", "1").setSource("{}").get();
+        assertFalse(shard.scheduledRefresh());
+        assertTrue(shard.isRefreshNeeded());
+        // the search refreshes the shard before it executes
+        assertHitCount(client().prepareSearch("test").get(), 1);
+        assertFalse(shard.isRefreshNeeded());
+
+        // without a skipped scheduled refresh a search does not refresh
+        client().prepareIndex("test", "test", "2").setSource("{}").get();
+        assertHitCount(client().prepareSearch("test").get(), 1);
+        assertTrue(shard.isRefreshNeeded());
+
+        // explain and validate query refresh like searches do
+        assertFalse(shard.isSearchIdle());
+        assertBusy(() -> assertTrue(shard.isSearchIdle()));
+        assertFalse(shard.scheduledRefresh());
+        assertTrue(client().prepareExplain("test", "test", "2").setQuery(matchAllQuery()).get().isExists());
+        assertFalse(shard.isRefreshNeeded());
+        client().prepareIndex("test", "test", "3").setSource("{}").get();
+        assertBusy(() -> assertTrue(shard.isSearchIdle()));
+        assertFalse(shard.scheduledRefresh());
+        assertTrue(client().admin().indices().prepareValidateQuery("test").get().isValid());
+        assertFalse(shard.isRefreshNeeded());
+
+        client().admin().indices().prepareUpdateSettings("test")
+            .setSettings(Settings.builder().put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(), -1)).get();
+        assertFalse(shard.isSearchIdle());
+        assertTrue(shard.scheduledRefresh());
+        assertFalse(shard.isRefreshNeeded());
+        assertFalse(shard.scheduledRefresh());
+    }
+
     public void testIndexingOperationsListeners() throws IOException {
         createIndex("test_iol");
         ensureGreen();
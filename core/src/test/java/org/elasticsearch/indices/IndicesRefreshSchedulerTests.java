@@ -0,0 +1,143 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class IndicesRefreshSchedulerTests extends ESSingleNodeTestCase {
+
+    @Override
+    protected Settings nodeSettings() {
+        // disable the per index refresh tasks, the node level scheduler checks too rarely to interfere with the tests
+        return Settings.builder()
+            .put(IndicesRefreshScheduler.INDICES_REFRESH_COALESCE_SETTING.getKey(), true)
+            .put(IndicesRefreshScheduler.INDICES_REFRESH_COALESCE_INTERVAL_SETTING.getKey(), "1h")
+            .build();
+    }
+
+    static class MockRefreshScheduler extends IndicesRefreshScheduler {
+
+        final List<IndexShard> refreshed = new ArrayList<>();
+
+        MockRefreshScheduler(Settings settings, ThreadPool threadPool, Iterable<IndexShard> indexShards) {
+            super(settings, threadPool, indexShards);
+        }
+
+        @Override
+        protected void refreshAsync(IndexShard shard) {
+            // never completes, the shard stays in flight
+            refreshed.add(shard);
+        }
+    }
+
+    private IndexShard createShardWithRefreshInterval(String index, String refreshInterval) {
+        IndexService indexService = createIndex(index, Settings.builder().put("index.refresh_interval", refreshInterval).build());
+        return indexService.getShard(0);
+    }
+
+    public void testSkipsShardsWithoutChanges() throws Exception {
+        IndexShard shard = createShardWithRefreshInterval("index", "1ms");
+        MockRefreshScheduler scheduler = new MockRefreshScheduler(Settings.EMPTY, getInstanceFromNode(ThreadPool.class),
+            Arrays.asList(shard));
+        scheduler.refreshDueShards();
+        assertThat(scheduler.refreshed, empty());
+        assertThat(shard.refreshStats().getMaxLagInMillis(), equalTo(0L));
+
+        client().prepareIndex("index", "type", "1").setSource("{}").get();
+        assertTrue(shard.isRefreshNeeded());
+        assertBusy(() -> assertThat(shard.getRefreshLagInNanos(), greaterThan(0L)));
+        scheduler.refreshDueShards();
+        assertThat(scheduler.refreshed, contains(shard));
+        // the refresh is still in flight, so the shard is not scheduled again
+        scheduler.refreshDueShards();
+        assertThat(scheduler.refreshed, contains(shard));
+        assertThat(scheduler.refreshingShards(), equalTo(1));
+        scheduler.close();
+    }
+
+    public void testSkipsShardsWithinTheirRefreshInterval() {
+        IndexShard shard = createShardWithRefreshInterval("index", "1h");
+        MockRefreshScheduler scheduler = new MockRefreshScheduler(Settings.EMPTY, getInstanceFromNode(ThreadPool.class),
+            Arrays.asList(shard));
+        client().prepareIndex("index", "type", "1").setSource("{}").get();
+        assertTrue(shard.isRefreshNeeded());
+        scheduler.refreshDueShards();
+        assertThat(scheduler.refreshed, empty());
+        scheduler.close();
+    }
+
+    public void testRefreshesMostOverdueShardsFirst() throws Exception {
+        IndexShard first = createShardWithRefreshInterval("first", "1ms");
+        IndexShard second = createShardWithRefreshInterval("second", "1ms");
+        Settings settings = Settings.builder()
+            .put(IndicesRefreshScheduler.INDICES_REFRESH_COALESCE_MAX_CONCURRENT_SETTING.getKey(), 1)
+            .build();
+        MockRefreshScheduler scheduler = new MockRefreshScheduler(settings, getInstanceFromNode(ThreadPool.class),
+            Arrays.asList(second, first));
+        client().prepareIndex("first", "type", "1").setSource("{}").get();
+        assertBusy(() -> assertThat(first.getRefreshLagInNanos(), greaterThan(0L)));
+        client().prepareIndex("second", "type", "1").setSource("{}").get();
+        assertBusy(() -> assertThat(second.getRefreshLagInNanos(), greaterThan(0L)));
+        scheduler.refreshDueShards();
+        // only one refresh may be in flight, the other shard waits for a later check
+        assertThat(scheduler.refreshed, contains(first));
+        scheduler.close();
+    }
+
+    public void testEngineRefreshesResetUnrefreshedChanges() throws Exception {
+        IndexShard shard = createShardWithRefreshInterval("index", "1h");
+        client().prepareIndex("index", "type", "1").setSource("{}").get();
+        assertBusy(() -> assertThat(shard.getRefreshLagInNanos(), greaterThan(0L)));
+        final long unrefreshedSince = shard.getUnrefreshedChangesSinceNanos();
+        // the engine refreshes on flush without going through IndexShard#refresh
+        client().admin().indices().prepareFlush("index").setForce(true).get();
+        assertFalse(shard.isRefreshNeeded());
+        assertThat(shard.getRefreshLagInNanos(), equalTo(0L));
+        assertThat(shard.getUnrefreshedChangesSinceNanos(), greaterThan(unrefreshedSince));
+    }
+
+    public void testRefresh() throws Exception {
+        IndexShard shard = createShardWithRefreshInterval("index", "1ms");
+        IndicesRefreshScheduler scheduler = new IndicesRefreshScheduler(Settings.EMPTY, getInstanceFromNode(ThreadPool.class),
+            Arrays.asList(shard));
+        client().prepareIndex("index", "type", "1").setSource("{}").get();
+        assertTrue(shard.isRefreshNeeded());
+        assertBusy(() -> {
+            scheduler.refreshDueShards();
+            assertFalse(shard.isRefreshNeeded());
+        });
+        assertBusy(() -> assertThat(scheduler.refreshingShards(), equalTo(0)));
+        assertThat(shard.getRefreshLagInNanos(), equalTo(0L));
+        assertThat(client().prepareSearch("index").get().getHits().totalHits(), equalTo(1L));
+        scheduler.close();
+    }
+}
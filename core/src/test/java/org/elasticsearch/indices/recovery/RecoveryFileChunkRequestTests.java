@@ -0,0 +1,91 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+
+import java.io.IOException;
+
+public class RecoveryFileChunkRequestTests extends ESTestCase {
+
+    public void testSerialization() throws IOException {
+        RecoveryFileChunkRequest request = randomRequest();
+        Version version = VersionUtils.randomVersion(random());
+        RecoveryFileChunkRequest copy = copy(request, version, write(request, version));
+        assertEquals(request.recoveryId(), copy.recoveryId());
+        assertEquals(request.shardId(), copy.shardId());
+        assertEquals(request.name(), copy.name());
+        assertEquals(request.position(), copy.position());
+        assertEquals(request.length(), copy.length());
+        assertEquals(request.lastChunk(), copy.lastChunk());
+        assertEquals(request.totalTranslogOps(), copy.totalTranslogOps());
+        assertEquals(request.sourceThrottleTimeInNanos(), copy.sourceThrottleTimeInNanos());
+        assertArrayEquals(request.content().toBytes(), copy.content().toBytes());
+    }
+
+    public void testThinWriteMatchesFullWrite() throws IOException {
+        RecoveryFileChunkRequest request = randomRequest();
+        BytesStreamOutput out = new BytesStreamOutput();
+        assertTrue(request.writeThin(out));
+        request.trailingBytes().writeTo(out);
+        assertArrayEquals(write(request, Version.CURRENT).toBytes(), out.bytes().toBytes());
+    }
+
+    public void testNoThinWriteForOlderVersions() throws IOException {
+        RecoveryFileChunkRequest request = randomRequest();
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(Version.V_2_3_0);
+        assertFalse(request.writeThin(out));
+        assertEquals(0, out.size());
+    }
+
+    private static RecoveryFileChunkRequest randomRequest() {
+        byte[] content = new byte[randomIntBetween(0, 1024)];
+        random().nextBytes(content);
+        StoreFileMetaData metaData = new StoreFileMetaData(randomAsciiOfLength(10), randomIntBetween(content.length, 4096),
+            randomAsciiOfLength(5), org.apache.lucene.util.Version.LATEST);
+        return new RecoveryFileChunkRequest(randomLong(), new ShardId("index", "_na_", randomIntBetween(0, 10)), metaData,
+            randomIntBetween(0, 1024), new BytesArray(content), randomBoolean(), randomIntBetween(0, 100), randomIntBetween(0, 1000));
+    }
+
+    private static BytesReference write(RecoveryFileChunkRequest request, Version version) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(version);
+        request.writeTo(out);
+        return out.bytes();
+    }
+
+    private static RecoveryFileChunkRequest copy(RecoveryFileChunkRequest request, Version version, BytesReference bytes)
+            throws IOException {
+        StreamInput in = StreamInput.wrap(bytes);
+        in.setVersion(version);
+        RecoveryFileChunkRequest copy = new RecoveryFileChunkRequest();
+        copy.readFrom(in);
+        return copy;
+    }
+}
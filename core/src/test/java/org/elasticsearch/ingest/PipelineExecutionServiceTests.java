@@ -38,14 +38,25 @@ import org.junit.Before;
 import org.mockito.ArgumentMatcher;
 import org.mockito.invocation.InvocationOnMock;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.any;
@@ -343,6 +354,67 @@ public class PipelineExecutionServiceTests extends ESTestCase {
         verify(completionHandler, times(1)).accept(null);
     }
 
+    public void testBulkRequestExecutionInChunks() throws Exception {
+        BulkRequest bulkRequest = new BulkRequest();
+        String pipelineId = "_id";
+
+        int numRequest = scaledRandomIntBetween(PipelineExecutionService.MIN_REQUESTS_PER_CHUNK, 512);
+        Set<Integer> failingRequests = new HashSet<>();
+        for (int i = 0; i < numRequest; i++) {
+            IndexRequest indexRequest = new IndexRequest("_index", "_type", String.valueOf(i)).setPipeline(pipelineId);
+            indexRequest.source("field1", "value1", "fail", rarely());
+            if (indexRequest.sourceAsMap().get("fail").equals(Boolean.TRUE)) {
+                failingRequests.add(i);
+            }
+            bulkRequest.add(indexRequest);
+        }
+
+        Processor processor = new TestProcessor(ingestDocument -> {
+            if (ingestDocument.getFieldValue("fail", Boolean.class)) {
+                throw new IllegalStateException("failed [" + ingestDocument.getFieldValue("_id", String.class) + "]");
+            }
+            ingestDocument.setFieldValue("field2", "value2");
+        });
+        when(store.get(pipelineId)).thenReturn(new Pipeline(pipelineId, null, new CompoundProcessor(processor)));
+
+        int parallelism = randomIntBetween(1, 8);
+        ExecutorService ingestExecutor = Executors.newFixedThreadPool(parallelism);
+        try {
+            ThreadPool threadPool = mock(ThreadPool.class);
+            when(threadPool.executor(ThreadPool.Names.BULK)).thenReturn(Runnable::run);
+            when(threadPool.executor(ThreadPool.Names.INGEST)).thenReturn(ingestExecutor);
+            when(threadPool.info(ThreadPool.Names.INGEST)).thenReturn(
+                new ThreadPool.Info(ThreadPool.Names.INGEST, ThreadPool.ThreadPoolType.FIXED, parallelism));
+            PipelineExecutionService executionService = new PipelineExecutionService(store, threadPool);
+
+            List<String> failureMessages = new CopyOnWriteArrayList<>();
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicReference<Throwable> completionFailure = new AtomicReference<>();
+            executionService.executeBulkRequest(bulkRequest.requests(),
+                (indexRequest, throwable) -> failureMessages.add(throwable.getMessage()), throwable -> {
+                completionFailure.set(throwable);
+                latch.countDown();
+            });
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            assertThat(completionFailure.get(), nullValue());
+
+            // failures are reported in the order of the bulk items
+            List<String> expectedFailureMessages = new ArrayList<>();
+            for (int i = 0; i < numRequest; i++) {
+                IndexRequest indexRequest = (IndexRequest) bulkRequest.requests().get(i);
+                if (failingRequests.contains(i)) {
+                    expectedFailureMessages.add("failed [" + i + "]");
+                } else {
+                    assertThat(indexRequest.getPipeline(), nullValue());
+                    assertThat(indexRequest.sourceAsMap().get("field2"), equalTo("value2"));
+                }
+            }
+            assertThat(failureMessages, equalTo(expectedFailureMessages));
+        } finally {
+            terminate(ingestExecutor);
+        }
+    }
+
     public void testStats() throws Exception {
         IngestStats ingestStats = executionService.stats();
         assertThat(ingestStats.getStatsPerPipeline().size(), equalTo(0));
@@ -68,6 +68,24 @@ public class ConfigurationUtilsTests extends ESTestCase {
         }
     }
 
+    public void testReadFieldPathProperty() {
+        IngestDocument.FieldPath fieldPath = ConfigurationUtils.readFieldPathProperty(null, null, config, "foo");
+        assertThat(fieldPath.getPath(), equalTo("bar"));
+        fieldPath = ConfigurationUtils.readFieldPathProperty(null, null, config, "missing", "fizz.buzz");
+        assertThat(fieldPath.getPath(), equalTo("fizz.buzz"));
+    }
+
+    public void testReadFieldPathPropertyInvalidPath() {
+        config.put("dots", "..");
+        try {
+            ConfigurationUtils.readFieldPathProperty("type", "tag", config, "dots");
+            fail("invalid field path should have been rejected");
+        } catch (ElasticsearchParseException e) {
+            assertThat(e.getMessage(), equalTo("[dots] path [..] is not valid"));
+            assertThat(e.getHeader("property_name").get(0), equalTo("dots"));
+        }
+    }
+
     // TODO(talevy): Issue with generics. This test should fail, "int" is of type List<Integer>
     public void testOptional_InvalidType() {
         List<String> val = ConfigurationUtils.readList(null, null, config, "int");
@@ -77,6 +77,39 @@ public class IngestDocumentTests extends ESTestCase {
         ingestDocument = new IngestDocument("index", "type", "id", null, null, null, null, document);
     }
 
+    public void testCompiledFieldPath() {
+        IngestDocument.FieldPath listPath = new IngestDocument.FieldPath("list.0.field");
+        IngestDocument.FieldPath fizzPath = new IngestDocument.FieldPath("_source.fizz.buzz");
+        IngestDocument.FieldPath ingestPath = new IngestDocument.FieldPath("_ingest.timestamp");
+        for (IngestDocument document : Arrays.asList(ingestDocument, new IngestDocument(ingestDocument))) {
+            assertThat(document.getFieldValue(listPath, String.class), equalTo("value"));
+            assertThat(document.getFieldValue(fizzPath, String.class), equalTo("hello world"));
+            assertThat(document.getFieldValue(ingestPath, String.class), equalTo("bogus_timestamp"));
+            assertTrue(document.hasField(listPath));
+
+            document.setFieldValue(listPath, "new_value");
+            assertThat(document.getFieldValue("list.0.field", String.class), equalTo("new_value"));
+            document.appendFieldValue(listPath, "other_value");
+            assertThat(document.getFieldValue("list.0.field", List.class), equalTo(Arrays.asList("new_value", "other_value")));
+            document.removeField(listPath);
+            assertFalse(document.hasField(listPath));
+        }
+        assertThat(listPath.getPath(), equalTo("list.0.field"));
+    }
+
+    public void testCompiledFieldPathListIndices() {
+        assertFalse(ingestDocument.hasField(new IngestDocument.FieldPath("list.-1")));
+        assertFalse(ingestDocument.hasField(new IngestDocument.FieldPath("list.+")));
+        assertFalse(ingestDocument.hasField(new IngestDocument.FieldPath("list.99999999999")));
+        assertTrue(ingestDocument.hasField(new IngestDocument.FieldPath("list.+1")));
+        try {
+            ingestDocument.getFieldValue(new IngestDocument.FieldPath("list.-1"), Object.class);
+            fail("get field value should have failed");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), equalTo("[-1] is out of bounds for array with length [2] as part of path [list.-1]"));
+        }
+    }
+
     public void testSimpleGetFieldValue() {
         assertThat(ingestDocument.getFieldValue("foo", String.class), equalTo("bar"));
         assertThat(ingestDocument.getFieldValue("int", Integer.class), equalTo(123));
@@ -0,0 +1,135 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ReduceContextTests extends ESTestCase {
+
+    public void testReduceAllPreservesOrder() throws Exception {
+        ForkJoinPool pool = randomBoolean() ? EsExecutors.newForkJoinPool(Settings.EMPTY, "test", randomIntBetween(1, 4)) : null;
+        try {
+            ReduceContext context = new ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, pool, new ThreadContext(Settings.EMPTY));
+            List<Integer> inputs = new ArrayList<>();
+            int numInputs = randomIntBetween(0, 2000);
+            for (int i = 0; i < numInputs; i++) {
+                inputs.add(i);
+            }
+            List<Integer> results = context.reduceAll(inputs, randomIntBetween(1, 100), i -> i * 2);
+            assertThat(results.size(), equalTo(numInputs));
+            for (int i = 0; i < numInputs; i++) {
+                assertThat(results.get(i), equalTo(i * 2));
+            }
+        } finally {
+            terminate(pool);
+        }
+    }
+
+    public void testNestedReduceAll() throws Exception {
+        ForkJoinPool pool = EsExecutors.newForkJoinPool(Settings.EMPTY, "test", randomIntBetween(2, 4));
+        try {
+            ReduceContext context = new ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, pool, new ThreadContext(Settings.EMPTY));
+            List<Integer> inputs = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                inputs.add(i);
+            }
+            // like the buckets of sibling aggregations that are reduced in parallel
+            List<Integer> sums = context.reduceAll(inputs, 1, i -> {
+                int sum = 0;
+                for (int value : context.reduceAll(inputs, 10, j -> i * j)) {
+                    sum += value;
+                }
+                return sum;
+            });
+            for (int i = 0; i < inputs.size(); i++) {
+                assertThat(sums.get(i), equalTo(i * 99 * 100 / 2));
+            }
+        } finally {
+            terminate(pool);
+        }
+    }
+
+    public void testReduceAllPropagatesFailures() throws Exception {
+        ForkJoinPool pool = EsExecutors.newForkJoinPool(Settings.EMPTY, "test", randomIntBetween(2, 4));
+        try {
+            ReduceContext context = new ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, pool, new ThreadContext(Settings.EMPTY));
+            List<Integer> inputs = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                inputs.add(i);
+            }
+            final int failing = randomInt(99);
+            IllegalStateException e = expectThrows(IllegalStateException.class, () -> context.reduceAll(inputs, 1, i -> {
+                if (i == failing) {
+                    throw new IllegalStateException("boom");
+                }
+                return i;
+            }));
+            // the exception may be re-created on the calling thread with the original one as a cause
+            assertThat(e.getMessage(), containsString("boom"));
+        } finally {
+            terminate(pool);
+        }
+    }
+
+    public void testReduceAllPreservesThreadContext() throws Exception {
+        ForkJoinPool pool = EsExecutors.newForkJoinPool(Settings.EMPTY, "test", randomIntBetween(2, 4));
+        ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        try (ThreadContext.StoredContext ignored = threadContext.stashContext()) {
+            threadContext.putHeader("header", "value");
+            threadContext.putTransient("transient", "transient_value");
+            ReduceContext context = new ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, pool, threadContext);
+            List<Integer> inputs = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                inputs.add(i);
+            }
+            List<String> results = context.reduceAll(inputs, 1, i -> {
+                // nested reduces must see the context as well
+                for (String nested : context.reduceAll(inputs, 10, j -> threadContext.getHeader("header"))) {
+                    assertThat(nested, equalTo("value"));
+                }
+                return threadContext.getHeader("header") + "/" + threadContext.getTransient("transient");
+            });
+            for (String result : results) {
+                assertThat(result, equalTo("value/transient_value"));
+            }
+        } finally {
+            terminate(pool);
+        }
+    }
+
+    private static void terminate(ForkJoinPool pool) throws InterruptedException {
+        if (pool != null) {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.HistogramValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.composite;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.sum;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+@ESIntegTestCase.SuiteScopeTestCase
+public class CompositeIT extends ESIntegTestCase {
+
+    private static final int INTERVAL = 10;
+
+    // expected doc counts and sums, keyed by "host|bucket"
+    private static final Map<String, long[]> expected = new TreeMap<>();
+
+    @Override
+    public void setupSuiteScopeCluster() throws Exception {
+        assertAcked(prepareCreate("idx").addMapping("type", "host", "type=keyword", "value", "type=long"));
+        createIndex("idx_unmapped");
+        List<IndexRequestBuilder> builders = new ArrayList<>();
+        int numDocs = randomIntBetween(20, 200);
+        for (int i = 0; i < numDocs; i++) {
+            String host = "host_" + randomIntBetween(0, 9);
+            long value = randomIntBetween(0, 99);
+            builders.add(client().prepareIndex("idx", "type", Integer.toString(i)).setSource(jsonBuilder()
+                    .startObject()
+                    .field("host", host)
+                    .field("value", value)
+                    .endObject()));
+            long[] counts = expected.get(key(host, Math.floorDiv(value, INTERVAL) * INTERVAL));
+            if (counts == null) {
+                counts = new long[2];
+                expected.put(key(host, Math.floorDiv(value, INTERVAL) * INTERVAL), counts);
+            }
+            counts[0]++;
+            counts[1] += value;
+        }
+        indexRandom(true, builders);
+        ensureSearchable();
+    }
+
+    private static String key(Object host, Object bucket) {
+        // buckets are below 100 so zero-padding makes the string order match the numeric order
+        return host + "|" + String.format(Locale.ROOT, "%03d", ((Number) bucket).longValue());
+    }
+
+    private static CompositeAggregationBuilder hostAndValue() {
+        List<CompositeValuesSourceBuilder<?>> sources = Arrays.asList(new TermsValuesSourceBuilder("host").field("host"),
+                new HistogramValuesSourceBuilder("value").field("value").interval(INTERVAL));
+        return composite("composite", sources);
+    }
+
+    public void testPaginateAllBuckets() throws Exception {
+        int size = randomIntBetween(1, 10);
+        List<String> keys = new ArrayList<>();
+        Map<String, Object> after = null;
+        while (true) {
+            CompositeAggregationBuilder builder = hostAndValue().size(size);
+            builder.subAggregation(sum("sum").field("value"));
+            if (after != null) {
+                builder.aggregateAfter(after);
+            }
+            SearchResponse response = client().prepareSearch("idx").setSize(0).addAggregation(builder).get();
+            assertSearchResponse(response);
+
+            CompositeAggregation composite = response.getAggregations().get("composite");
+            assertThat(composite, notNullValue());
+            assertThat(composite.getBuckets().size(), lessThanOrEqualTo(size));
+            if (composite.getBuckets().isEmpty()) {
+                assertThat(composite.afterKey(), nullValue());
+                break;
+            }
+            for (CompositeAggregation.Bucket bucket : composite.getBuckets()) {
+                String key = key(bucket.getKey().get("host"), bucket.getKey().get("value"));
+                keys.add(key);
+                long[] counts = expected.get(key);
+                assertThat(counts, notNullValue());
+                assertThat(bucket.getDocCount(), equalTo(counts[0]));
+                Sum sum = bucket.getAggregations().get("sum");
+                assertThat(sum.getValue(), equalTo((double) counts[1]));
+            }
+            after = composite.afterKey();
+        }
+        assertThat(keys, equalTo(new ArrayList<>(expected.keySet())));
+    }
+
+    public void testUnmapped() throws Exception {
+        SearchResponse response = client().prepareSearch("idx_unmapped").setSize(0).addAggregation(hostAndValue()).get();
+        assertSearchResponse(response);
+
+        CompositeAggregation composite = response.getAggregations().get("composite");
+        assertThat(composite, notNullValue());
+        assertThat(composite.getBuckets().size(), equalTo(0));
+        assertThat(composite.afterKey(), nullValue());
+    }
+
+    public void testNonTopLevel() throws Exception {
+        try {
+            client().prepareSearch("idx").addAggregation(terms("terms").field("host").subAggregation(hostAndValue())).get();
+            fail("expected the composite aggregation to be rejected under a parent aggregation");
+        } catch (ElasticsearchException e) {
+            assertThat(e.getMessage(), equalTo("all shards failed"));
+        }
+    }
+}
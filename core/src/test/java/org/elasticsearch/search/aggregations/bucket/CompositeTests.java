@@ -0,0 +1,63 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.search.aggregations.BaseAggregationTestCase;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.HistogramValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CompositeTests extends BaseAggregationTestCase<CompositeAggregationBuilder> {
+
+    @Override
+    protected CompositeAggregationBuilder createTestAggregatorBuilder() {
+        String name = randomAsciiOfLengthBetween(3, 20);
+        int numSources = randomIntBetween(1, 5);
+        List<CompositeValuesSourceBuilder<?>> sources = new ArrayList<>(numSources);
+        for (int i = 0; i < numSources; i++) {
+            String sourceName = "source_" + i;
+            if (randomBoolean()) {
+                sources.add(new TermsValuesSourceBuilder(sourceName).field(randomAsciiOfLengthBetween(3, 20)));
+            } else {
+                sources.add(new HistogramValuesSourceBuilder(sourceName).field(randomAsciiOfLengthBetween(3, 20))
+                        .interval(randomIntBetween(1, 100000)));
+            }
+        }
+        CompositeAggregationBuilder factory = new CompositeAggregationBuilder(name, sources);
+        if (randomBoolean()) {
+            factory.size(randomIntBetween(1, 1000));
+        }
+        if (randomBoolean()) {
+            Map<String, Object> after = new HashMap<>();
+            for (CompositeValuesSourceBuilder<?> source : sources) {
+                after.put(source.name(), randomAsciiOfLengthBetween(1, 10));
+            }
+            factory.aggregateAfter(after);
+        }
+        return factory;
+    }
+
+}
@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 
 import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.existsQuery;
 import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.dateRange;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.histogram;
@@ -155,6 +156,31 @@ public class DateRangeIT extends ESIntegTestCase {
         assertThat(bucket.getDocCount(), equalTo(0L));
     }
 
+    public void testFilterByFilterMatchesCollectedCounts() throws Exception {
+        String field = randomFrom("date", "dates");
+        DateTime from = date(2, randomIntBetween(1, 28));
+        DateTime to = date(3, randomIntBetween(1, 28));
+        // without a query the doc counts are computed with one range query per bucket, while the exists query
+        // forces documents to be collected
+        SearchResponse filterByFilter = client().prepareSearch("idx")
+                .addAggregation(dateRange("range").field(field).addUnboundedTo(from).addRange(from, to).addUnboundedFrom(to))
+                .execute().actionGet();
+        SearchResponse collected = client().prepareSearch("idx").setQuery(existsQuery("value"))
+                .addAggregation(dateRange("range").field(field).addUnboundedTo(from).addRange(from, to).addUnboundedFrom(to))
+                .execute().actionGet();
+
+        assertSearchResponse(filterByFilter);
+        assertSearchResponse(collected);
+
+        Range expected = collected.getAggregations().get("range");
+        Range actual = filterByFilter.getAggregations().get("range");
+        assertThat(actual.getBuckets().size(), equalTo(3));
+        for (int i = 0; i < 3; i++) {
+            assertThat(actual.getBuckets().get(i).getKey(), equalTo(expected.getBuckets().get(i).getKey()));
+            assertThat(actual.getBuckets().get(i).getDocCount(), equalTo(expected.getBuckets().get(i).getDocCount()));
+        }
+    }
+
     public void testSingleValueField() throws Exception {
         SearchResponse response = client().prepareSearch("idx")
                 .addAggregation(dateRange("range")
@@ -38,6 +38,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.existsQuery;
 import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.avg;
@@ -312,6 +313,29 @@ public class FiltersIT extends ESIntegTestCase {
         assertThat(bucket.getDocCount(), equalTo((long) numOtherDocs));
     }
 
+    public void testFilterByFilterMatchesCollectedCounts() throws Exception {
+        // without a query the doc counts are computed filter by filter, while the exists query forces documents to be collected
+        SearchResponse filterByFilter = client().prepareSearch("idx").addAggregation(
+                filters("tags", new KeyedFilter("tag1", termQuery("tag", "tag1")), new KeyedFilter("tag2", termQuery("tag", "tag2")))
+                        .otherBucket(true))
+                .execute().actionGet();
+        SearchResponse collected = client().prepareSearch("idx").setQuery(existsQuery("value")).addAggregation(
+                filters("tags", new KeyedFilter("tag1", termQuery("tag", "tag1")), new KeyedFilter("tag2", termQuery("tag", "tag2")))
+                        .otherBucket(true))
+                .execute().actionGet();
+
+        assertSearchResponse(filterByFilter);
+        assertSearchResponse(collected);
+
+        Filters expected = collected.getAggregations().get("tags");
+        Filters actual = filterByFilter.getAggregations().get("tags");
+        assertThat(actual.getBuckets().size(), equalTo(3));
+        for (String key : new String[] { "tag1", "tag2", "_other_" }) {
+            assertThat(actual.getBucketByKey(key).getDocCount(), equalTo(expected.getBucketByKey(key).getDocCount()));
+        }
+        assertThat(actual.getBucketByKey("_other_").getDocCount(), equalTo((long) numOtherDocs));
+    }
+
     public void testOtherNamedBucket() throws Exception {
         SearchResponse response = client().prepareSearch("idx")
                 .addAggregation(filters("tags", new KeyedFilter("tag1", termQuery("tag", "tag1")),
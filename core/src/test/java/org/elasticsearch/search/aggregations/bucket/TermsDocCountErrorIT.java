@@ -254,6 +254,102 @@ public class TermsDocCountErrorIT extends ESIntegTestCase {
         assertNoDocCountError(size, accurateResponse, testResponse);
     }
 
+    public void testStringValueFieldHeavyHitters() throws Exception {
+        int size = randomIntBetween(1, 20);
+        int shardSize = randomIntBetween(size, size * 2);
+        SearchResponse accurateResponse = client().prepareSearch("idx").setTypes("type")
+                .addAggregation(terms("terms")
+                        .executionHint(randomExecutionHint())
+                        .field(STRING_FIELD_NAME)
+                        .showTermDocCountError(true)
+                        .size(0)
+                        .shardSize(0)
+                        .collectMode(randomFrom(SubAggCollectionMode.values())))
+                .execute().actionGet();
+
+        assertSearchResponse(accurateResponse);
+
+        SearchResponse testResponse = client().prepareSearch("idx").setTypes("type")
+                .addAggregation(terms("terms")
+                        .field(STRING_FIELD_NAME)
+                        .size(size)
+                        .showTermDocCountError(true)
+                        .shardSize(shardSize)
+                        .heavyHittersCapacity(randomIntBetween(1, shardSize * 2)))
+                .execute().actionGet();
+
+        assertSearchResponse(testResponse);
+
+        assertDocCountErrorWithinBounds(size, accurateResponse, testResponse);
+    }
+
+    public void testStringValueFieldHeavyHittersSingleShard() throws Exception {
+        int size = randomIntBetween(1, 20);
+        int shardSize = randomIntBetween(size, size * 2);
+        SearchResponse accurateResponse = client().prepareSearch("idx_single_shard").setTypes("type")
+                .addAggregation(terms("terms")
+                        .executionHint(randomExecutionHint())
+                        .field(STRING_FIELD_NAME)
+                        .showTermDocCountError(true)
+                        .size(0)
+                        .shardSize(0)
+                        .collectMode(randomFrom(SubAggCollectionMode.values())))
+                .execute().actionGet();
+
+        assertSearchResponse(accurateResponse);
+
+        SearchResponse testResponse = client().prepareSearch("idx_single_shard").setTypes("type")
+                .addAggregation(terms("terms")
+                        .field(STRING_FIELD_NAME)
+                        .size(size)
+                        .showTermDocCountError(true)
+                        .shardSize(shardSize)
+                        .heavyHittersCapacity(randomIntBetween(1, shardSize * 2)))
+                .execute().actionGet();
+
+        assertSearchResponse(testResponse);
+
+        assertDocCountErrorWithinBounds(size, accurateResponse, testResponse);
+    }
+
+    public void testHeavyHittersTermDocCountErrorIsOnlyShownOnRequest() throws Exception {
+        int size = randomIntBetween(1, 20);
+        int shardSize = randomIntBetween(size, size * 2);
+        int capacity = randomIntBetween(1, shardSize * 2);
+        SearchResponse shownResponse = client().prepareSearch("idx").setTypes("type").setPreference("_primary")
+                .addAggregation(terms("terms")
+                        .field(STRING_FIELD_NAME)
+                        .size(size)
+                        .showTermDocCountError(true)
+                        .shardSize(shardSize)
+                        .heavyHittersCapacity(capacity))
+                .execute().actionGet();
+        SearchResponse hiddenResponse = client().prepareSearch("idx").setTypes("type").setPreference("_primary")
+                .addAggregation(terms("terms")
+                        .field(STRING_FIELD_NAME)
+                        .size(size)
+                        .shardSize(shardSize)
+                        .heavyHittersCapacity(capacity))
+                .execute().actionGet();
+
+        assertSearchResponse(shownResponse);
+        assertSearchResponse(hiddenResponse);
+
+        // both requests run on the same primaries, so the errors of the terms must have been used the same way to reduce the
+        // shard results even though they are only shown by one of them
+        Terms shownTerms = shownResponse.getAggregations().get("terms");
+        Terms hiddenTerms = hiddenResponse.getAggregations().get("terms");
+        assertThat(hiddenTerms.getDocCountError(), equalTo(shownTerms.getDocCountError()));
+        assertThat(hiddenTerms.getBuckets().size(), equalTo(shownTerms.getBuckets().size()));
+        for (int i = 0; i < hiddenTerms.getBuckets().size(); i++) {
+            Terms.Bucket hiddenBucket = hiddenTerms.getBuckets().get(i);
+            Terms.Bucket shownBucket = shownTerms.getBuckets().get(i);
+            assertThat(hiddenBucket.getKeyAsString(), equalTo(shownBucket.getKeyAsString()));
+            assertThat(hiddenBucket.getDocCount(), equalTo(shownBucket.getDocCount()));
+            expectThrows(IllegalStateException.class, hiddenBucket::getDocCountError);
+        }
+    }
+
     public void testStringValueFieldWithRouting() throws Exception {
         int size = randomIntBetween(1, 20);
         int shardSize = randomIntBetween(size, size * 2);
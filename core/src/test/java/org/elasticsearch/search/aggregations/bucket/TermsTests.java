@@ -139,6 +139,9 @@ public class TermsTests extends BaseAggregationTestCase<TermsAggregatorBuilder>
         if (randomBoolean()) {
             factory.executionHint(randomFrom(executionHints));
         }
+        if (randomBoolean()) {
+            factory.heavyHittersCapacity(randomIntBetween(1, 100000));
+        }
         if (randomBoolean()) {
             factory.format("###.##");
         }
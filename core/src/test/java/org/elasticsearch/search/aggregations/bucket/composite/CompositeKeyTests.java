@@ -0,0 +1,66 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.TreeMap;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+public class CompositeKeyTests extends ESTestCase {
+
+    public void testMixedNumbersAreConsistent() {
+        assertConsistent(new CompositeKey(3L), new CompositeKey(3d));
+        assertConsistent(new CompositeKey(new BytesRef("a"), 0L), new CompositeKey(new BytesRef("a"), -0d));
+        assertConsistent(new CompositeKey(0d), new CompositeKey(-0d));
+        assertConsistent(new CompositeKey(Double.NaN), new CompositeKey(Double.NaN));
+
+        // large longs must not be rounded to the closest double
+        long large = (1L << 53) + 1;
+        assertThat(new CompositeKey(large).compareTo(new CompositeKey((double) (1L << 53))), greaterThan(0));
+        assertNotEquals(new CompositeKey(large), new CompositeKey((double) (1L << 53)));
+        assertThat(new CompositeKey(Long.MAX_VALUE).compareTo(new CompositeKey(0x1p63)), lessThan(0));
+        assertThat(new CompositeKey(Long.MIN_VALUE).compareTo(new CompositeKey(Double.NEGATIVE_INFINITY)), greaterThan(0));
+        assertThat(new CompositeKey(3L).compareTo(new CompositeKey(3.5d)), lessThan(0));
+        assertThat(new CompositeKey(3.5d).compareTo(new CompositeKey(3L)), greaterThan(0));
+        assertThat(new CompositeKey(-3L).compareTo(new CompositeKey(-3.5d)), greaterThan(0));
+        assertThat(new CompositeKey(Long.MAX_VALUE).compareTo(new CompositeKey(Double.NaN)), lessThan(0));
+    }
+
+    public void testSortedMapMergesMixedNumbers() {
+        TreeMap<CompositeKey, String> keys = new TreeMap<>();
+        keys.put(new CompositeKey(1L), "long");
+        keys.put(new CompositeKey(1d), "double");
+        keys.put(new CompositeKey(2d), "double");
+        assertThat(keys.size(), equalTo(2));
+        assertThat(keys.get(new CompositeKey(2L)), equalTo("double"));
+    }
+
+    private static void assertConsistent(CompositeKey a, CompositeKey b) {
+        assertThat(a.compareTo(b), equalTo(0));
+        assertThat(b.compareTo(a), equalTo(0));
+        assertEquals(a, b);
+        assertThat(a.hashCode(), equalTo(b.hashCode()));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.range;
+
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.search.LegacyNumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.ip.IpFieldMapper;
+import org.elasticsearch.search.aggregations.bucket.range.RangeAggregator.Range;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+
+public class RangeAggregatorTests extends ESTestCase {
+
+    private static MappedFieldType ipFieldType(IndexOptions indexOptions) {
+        MappedFieldType fieldType = IpFieldMapper.Defaults.FIELD_TYPE.clone();
+        fieldType.setName("ip");
+        fieldType.setIndexOptions(indexOptions);
+        return fieldType;
+    }
+
+    public void testIpRangeFilter() {
+        MappedFieldType fieldType = ipFieldType(IndexOptions.DOCS);
+        long from = IpFieldMapper.ipToLong("10.0.0.0");
+        long to = IpFieldMapper.ipToLong("10.0.1.0");
+        Query filter = RangeAggregator.rangeFilter(fieldType, new Range(null, (double) from, (double) to));
+        assertThat(filter, instanceOf(LegacyNumericRangeQuery.class));
+        LegacyNumericRangeQuery<?> rangeQuery = (LegacyNumericRangeQuery<?>) filter;
+        assertThat(rangeQuery.getField(), equalTo("ip"));
+        assertThat(rangeQuery.getMin(), equalTo(from));
+        assertThat(rangeQuery.getMax(), equalTo(to));
+        assertThat(rangeQuery.includesMin(), equalTo(true));
+        assertThat(rangeQuery.includesMax(), equalTo(false));
+    }
+
+    public void testIpRangeFilterOutsideOfAddressSpace() {
+        MappedFieldType fieldType = ipFieldType(IndexOptions.DOCS);
+        Query filter = RangeAggregator.rangeFilter(fieldType, new Range(null, -1d, (double) IpFieldMapper.MAX_IP + 1));
+        assertThat(filter, instanceOf(LegacyNumericRangeQuery.class));
+        LegacyNumericRangeQuery<?> rangeQuery = (LegacyNumericRangeQuery<?>) filter;
+        assertThat(rangeQuery.getMin(), nullValue());
+        assertThat(rangeQuery.getMax(), nullValue());
+    }
+
+    public void testIpRangeFilterOnUnindexedField() {
+        MappedFieldType fieldType = ipFieldType(IndexOptions.NONE);
+        Query filter = RangeAggregator.rangeFilter(fieldType, new Range(null, 0d, (double) IpFieldMapper.MAX_IP));
+        assertThat(filter, nullValue());
+    }
+}
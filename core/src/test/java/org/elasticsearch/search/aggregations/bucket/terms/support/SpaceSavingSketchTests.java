@@ -0,0 +1,128 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms.support;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class SpaceSavingSketchTests extends ESTestCase {
+
+    public void testExactBelowCapacity() {
+        final int numTerms = randomIntBetween(1, 50);
+        Map<BytesRef, Long> expected = new HashMap<>();
+        final int numValues = randomIntBetween(1, 1000);
+        try (SpaceSavingSketch sketch = new SpaceSavingSketch(numTerms + randomInt(10), BigArrays.NON_RECYCLING_INSTANCE)) {
+            for (int i = 0; i < numValues; i++) {
+                BytesRef term = new BytesRef("term" + randomInt(numTerms - 1));
+                sketch.add(term);
+                expected.merge(term, 1L, Long::sum);
+            }
+            assertThat(sketch.totalCount(), equalTo((long) numValues));
+            assertThat(sketch.minCount(), equalTo(0L));
+            assertThat(sketch.size(), equalTo(expected.size()));
+            for (int i = 0; i < sketch.size(); i++) {
+                assertThat(sketch.count(i), equalTo(expected.get(sketch.term(i, new BytesRef()))));
+                assertThat(sketch.error(i), equalTo(0L));
+            }
+        }
+    }
+
+    public void testErrorBounds() {
+        final int capacity = randomIntBetween(1, 20);
+        final int numTerms = randomIntBetween(capacity + 1, 200);
+        Map<BytesRef, Long> expected = new HashMap<>();
+        final int numValues = randomIntBetween(1, 5000);
+        try (SpaceSavingSketch sketch = new SpaceSavingSketch(capacity, BigArrays.NON_RECYCLING_INSTANCE)) {
+            for (int i = 0; i < numValues; i++) {
+                // skew the distribution so that some terms are much more frequent than others
+                BytesRef term = new BytesRef("term" + Math.min(randomInt(numTerms - 1), randomInt(numTerms - 1)));
+                sketch.add(term);
+                expected.merge(term, 1L, Long::sum);
+            }
+            assertThat(sketch.size(), lessThanOrEqualTo(capacity));
+            long sum = 0;
+            for (int i = 0; i < sketch.size(); i++) {
+                final BytesRef term = sketch.term(i, new BytesRef());
+                final long actual = expected.get(term);
+                assertThat(sketch.find(term), equalTo(i));
+                assertThat(sketch.count(i), greaterThanOrEqualTo(actual));
+                assertThat(sketch.count(i) - sketch.error(i), lessThanOrEqualTo(actual));
+                assertThat(sketch.error(i), lessThanOrEqualTo(sketch.minCount()));
+                assertThat(sketch.count(i), greaterThanOrEqualTo(sketch.minCount()));
+                sum += sketch.count(i);
+            }
+            // the counts always sum up to the number of values that have been recorded
+            assertThat(sum, equalTo(sketch.totalCount()));
+            for (Map.Entry<BytesRef, Long> entry : expected.entrySet()) {
+                if (sketch.find(entry.getKey()) == -1) {
+                    assertThat(entry.getValue(), lessThanOrEqualTo(sketch.minCount()));
+                }
+            }
+            // the min count can't be more than the average count
+            assertThat(sketch.minCount(), lessThanOrEqualTo(sketch.totalCount() / capacity));
+        }
+    }
+
+    public void testTermsAreCopied() {
+        try (SpaceSavingSketch sketch = new SpaceSavingSketch(2, BigArrays.NON_RECYCLING_INSTANCE)) {
+            BytesRef term = new BytesRef("foo");
+            sketch.add(term);
+            term.bytes[0] = 'b';
+            assertThat(sketch.count(sketch.find(new BytesRef("foo"))), equalTo(1L));
+            assertThat(sketch.find(new BytesRef("boo")), equalTo(-1));
+        }
+    }
+
+    public void testMemoryIsAccounted() {
+        HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(Settings.EMPTY,
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        final int capacity = randomIntBetween(1, 100);
+        final int numTerms = randomIntBetween(capacity, 10 * capacity);
+        try (SpaceSavingSketch sketch = new SpaceSavingSketch(capacity, new BigArrays(null, breakerService))) {
+            // many more distinct terms than counters so that evicted terms are compacted
+            final int numValues = randomIntBetween(numTerms, 10 * numTerms);
+            for (int i = 0; i < numValues; i++) {
+                sketch.add(new BytesRef("term" + (i < numTerms ? i : randomInt(numTerms - 1))));
+            }
+            assertThat(sketch.size(), equalTo(capacity));
+            assertThat(breaker.getUsed(), greaterThan(0L));
+        }
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
+    public void testInvalidCapacity() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+                () -> new SpaceSavingSketch(0, BigArrays.NON_RECYCLING_INSTANCE));
+        assertThat(e.getMessage(), equalTo("[capacity] must be greater than 0. Found [0]"));
+    }
+}
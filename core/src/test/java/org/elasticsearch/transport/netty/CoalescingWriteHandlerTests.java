@@ -0,0 +1,152 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelEvent;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.DefaultChannelFuture;
+import org.jboss.netty.channel.DownstreamMessageEvent;
+import org.jboss.netty.channel.MessageEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CoalescingWriteHandlerTests extends ESTestCase {
+
+    private final Channel channel = mock(Channel.class);
+    private final List<MessageEvent> written = new ArrayList<>();
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final List<String> executors = new ArrayList<>();
+    private Runnable onWrite = () -> {};
+    private final ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+    private final ThreadPool threadPool = mock(ThreadPool.class);
+    private final CoalescingWriteHandler handler = new CoalescingWriteHandler(threadPool, TimeValue.timeValueMillis(0), 100);
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        when(ctx.getChannel()).thenReturn(channel);
+        doAnswer(invocation -> {
+            ChannelEvent event = (ChannelEvent) invocation.getArguments()[0];
+            // writing to the channel must not block other threads from sending messages
+            assertFalse(Thread.holdsLock(handler));
+            if (event instanceof MessageEvent) {
+                written.add((MessageEvent) event);
+            }
+            onWrite.run();
+            return null;
+        }).when(ctx).sendDownstream(any(ChannelEvent.class));
+        doAnswer(invocation -> {
+            executors.add((String) invocation.getArguments()[1]);
+            scheduled.add((Runnable) invocation.getArguments()[2]);
+            return null;
+        }).when(threadPool).schedule(any(TimeValue.class), anyString(), any(Runnable.class));
+    }
+
+    public void testSmallMessagesAreWrittenTogether() throws Exception {
+        MessageEvent first = write(10);
+        MessageEvent second = write(20);
+        MessageEvent third = write(30);
+        assertThat(written, empty());
+        assertThat(scheduled, hasSize(1));
+        // the flush writes to the channel so it must not run on the scheduler thread
+        assertThat(executors, contains(ThreadPool.Names.GENERIC));
+
+        scheduled.remove(0).run();
+        assertThat(written, hasSize(1));
+        ChannelBuffer combined = (ChannelBuffer) written.get(0).getMessage();
+        assertEquals(60, combined.readableBytes());
+        assertEquals(ChannelBuffers.wrappedBuffer((ChannelBuffer) first.getMessage(), (ChannelBuffer) second.getMessage(),
+            (ChannelBuffer) third.getMessage()), combined);
+
+        written.get(0).getFuture().setSuccess();
+        assertTrue(first.getFuture().isSuccess());
+        assertTrue(second.getFuture().isSuccess());
+        assertTrue(third.getFuture().isSuccess());
+    }
+
+    public void testFlushesOnceMaxSizeIsReached() throws Exception {
+        write(60);
+        write(50);
+        assertThat(written, hasSize(1));
+        assertEquals(110, ((ChannelBuffer) written.get(0).getMessage()).readableBytes());
+
+        // the scheduled flush has nothing left to write
+        scheduled.remove(0).run();
+        assertThat(written, hasSize(1));
+    }
+
+    public void testLargeMessagesAreWrittenAfterPendingMessages() throws Exception {
+        MessageEvent small = write(10);
+        MessageEvent large = write(100);
+        assertThat(written, contains(sameInstance(small), sameInstance(large)));
+    }
+
+    public void testMessagesSentWhileWritingAreWrittenAfterwards() throws Exception {
+        List<MessageEvent> sentWhileWriting = new ArrayList<>();
+        onWrite = () -> {
+            onWrite = () -> {};
+            try {
+                sentWhileWriting.add(write(100));
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+        MessageEvent large = write(100);
+        assertThat(sentWhileWriting, hasSize(1));
+        assertThat(written, contains(sameInstance(large), sameInstance(sentWhileWriting.get(0))));
+    }
+
+    public void testFailuresArePropagated() throws Exception {
+        MessageEvent first = write(10);
+        MessageEvent second = write(10);
+        scheduled.remove(0).run();
+        IOException failure = new IOException("boom");
+        written.get(0).getFuture().setFailure(failure);
+        assertSame(failure, first.getFuture().getCause());
+        assertSame(failure, second.getFuture().getCause());
+    }
+
+    private MessageEvent write(int size) throws Exception {
+        byte[] bytes = new byte[size];
+        random().nextBytes(bytes);
+        MessageEvent event = new DownstreamMessageEvent(channel, new DefaultChannelFuture(channel, false),
+            ChannelBuffers.wrappedBuffer(bytes), null);
+        handler.writeRequested(ctx, event);
+        return event;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.Version;
+import org.elasticsearch.cache.recycler.MockPageCacheRecycler;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.Transport;
+import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportResponseOptions;
+import org.elasticsearch.transport.TransportServiceAdapter;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.DefaultChannelFuture;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that the pages {@link NettyTransportChannel} serializes responses into are only released once they are written.
+ */
+public class NettyTransportChannelTests extends ESTestCase {
+
+    private ThreadPool threadPool;
+    private HierarchyCircuitBreakerService breakerService;
+    private NettyTransport transport;
+    private Channel channel;
+    private final List<DefaultChannelFuture> writes = new ArrayList<>();
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        threadPool = new ThreadPool(getClass().getName());
+        Settings settings = Settings.builder().put(Transport.TRANSPORT_TCP_COMPRESS.getKey(), randomBoolean()).build();
+        breakerService = new HierarchyCircuitBreakerService(Settings.EMPTY,
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        MockBigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(settings, threadPool), breakerService);
+        transport = new NettyTransport(settings, threadPool, new NetworkService(settings), bigArrays, Version.CURRENT,
+            new NamedWriteableRegistry());
+        channel = mock(Channel.class);
+        when(channel.getLocalAddress()).thenReturn(new InetSocketAddress(InetAddress.getLoopbackAddress(), 9300));
+        when(channel.write(any())).thenAnswer(invocation -> {
+            DefaultChannelFuture future = new DefaultChannelFuture(channel, false);
+            writes.add(future);
+            return future;
+        });
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        terminate(threadPool);
+        super.tearDown();
+    }
+
+    private NettyTransportChannel newTransportChannel() {
+        return new NettyTransportChannel(transport, mock(TransportServiceAdapter.class), "internal:test", channel, randomLong(),
+            Version.CURRENT, "default");
+    }
+
+    private long usedBytes() {
+        return breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed();
+    }
+
+    private void completeWrite() {
+        assertThat(writes.size(), equalTo(1));
+        if (randomBoolean()) {
+            writes.get(0).setSuccess();
+        } else {
+            writes.get(0).setFailure(new IOException("channel closed"));
+        }
+    }
+
+    public void testResponsePagesAreReleasedOnceWritten() throws IOException {
+        byte[] body = new byte[scaledRandomIntBetween(1, 1 << 16)];
+        random().nextBytes(body);
+        TransportResponseOptions options = TransportResponseOptions.builder().withCompress(randomBoolean()).build();
+        newTransportChannel().sendResponse(new BytesResponse(body), options);
+        assertThat(usedBytes(), greaterThan(0L));
+        completeWrite();
+        assertThat(usedBytes(), equalTo(0L));
+    }
+
+    public void testErrorPagesAreReleasedOnceWritten() throws IOException {
+        newTransportChannel().sendResponse(new ElasticsearchException("boom"));
+        assertThat(usedBytes(), greaterThan(0L));
+        completeWrite();
+        assertThat(usedBytes(), equalTo(0L));
+    }
+
+    private static final class BytesResponse extends TransportResponse {
+
+        private final byte[] bytes;
+
+        BytesResponse(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeByteArray(bytes);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.transport.MockTransportService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.FutureTransportResponseHandler;
+import org.elasticsearch.transport.Transport;
+import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportResponseOptions;
+import org.elasticsearch.transport.TransportSettings;
+import org.elasticsearch.transport.TransportStats;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests how messages are compressed by {@link NettyTransport} and how that is reflected in the {@link TransportStats}.
+ */
+public class NettyTransportCompressionTests extends ESTestCase {
+
+    private static final String ACTION = "internal:test/echo";
+
+    private ThreadPool threadPool;
+    private MockTransportService serviceA;
+    private MockTransportService serviceB;
+    private NettyTransport nettyB;
+    private DiscoveryNode nodeA;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        threadPool = new ThreadPool(getClass().getName());
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        Releasables.close(serviceA, serviceB);
+        terminate(threadPool);
+        super.tearDown();
+    }
+
+    private void startServices(Settings senderSettings) {
+        Settings settings = Settings.builder().put(TransportSettings.PORT.getKey(), 0).build();
+        NettyTransport nettyA = new NettyTransport(settings, threadPool, new NetworkService(settings), BigArrays.NON_RECYCLING_INSTANCE,
+            Version.CURRENT, new NamedWriteableRegistry());
+        serviceA = new MockTransportService(settings, nettyA, threadPool);
+        serviceA.registerRequestHandler(ACTION, EchoRequest::new, ThreadPool.Names.SAME,
+            (request, channel) -> channel.sendResponse(new EchoResponse(request.message), TransportResponseOptions.EMPTY));
+        serviceA.start();
+        serviceA.acceptIncomingRequests();
+
+        senderSettings = Settings.builder().put(settings).put(senderSettings).build();
+        nettyB = new NettyTransport(senderSettings, threadPool, new NetworkService(senderSettings), BigArrays.NON_RECYCLING_INSTANCE,
+            Version.CURRENT, new NamedWriteableRegistry());
+        serviceB = new MockTransportService(senderSettings, nettyB, threadPool);
+        serviceB.start();
+        serviceB.acceptIncomingRequests();
+
+        nodeA = new DiscoveryNode("TS_A", "TS_A", serviceA.boundAddress().publishAddress(), emptyMap(), emptySet(), Version.CURRENT);
+        serviceB.connectToNode(nodeA);
+    }
+
+    private byte[] echo(byte[] message) {
+        EchoResponse response = serviceB.submitRequest(nodeA, ACTION, new EchoRequest(message),
+            TransportRequestOptions.builder().withCompress(true).build(), new FutureTransportResponseHandler<EchoResponse>() {
+                @Override
+                public EchoResponse newInstance() {
+                    return new EchoResponse();
+                }
+            }).txGet();
+        return response.message;
+    }
+
+    private static byte[] compressibleMessage(int length) {
+        byte[] message = new byte[length];
+        for (int i = 0; i < length; i++) {
+            message[i] = (byte) ('a' + i % 8);
+        }
+        return message;
+    }
+
+    public void testCompressedMessagesAreCounted() {
+        startServices(Settings.builder()
+            .put(Transport.TRANSPORT_TCP_COMPRESSOR.getKey(), randomFrom("deflate", "lz4")).build());
+        byte[] message = compressibleMessage(randomIntBetween(1024, 64 * 1024));
+        assertThat(echo(message), equalTo(message));
+
+        TransportStats stats = serviceB.stats();
+        assertThat(stats.getTxCompressedCount(), equalTo(1L));
+        assertThat(stats.getTxUncompressedSize().bytes(), greaterThan((long) message.length()));
+        assertThat(stats.getTxCompressedSize().bytes(), greaterThan(0L));
+        assertThat(stats.getTxCompressedSize().bytes(), lessThan(stats.getTxUncompressedSize().bytes()));
+        // the receiver didn't ask for its response to be compressed
+        assertThat(serviceA.stats().getTxCompressedCount(), equalTo(0L));
+    }
+
+    public void testMessagesBelowMinSizeAreNotCompressed() {
+        startServices(Settings.builder().put(Transport.TRANSPORT_TCP_COMPRESS_MIN_SIZE.getKey(), "4kb").build());
+        byte[] small = compressibleMessage(1024);
+        assertThat(echo(small), equalTo(small));
+        assertThat(serviceB.stats().getTxCompressedCount(), equalTo(0L));
+
+        byte[] large = compressibleMessage(8 * 1024);
+        assertThat(echo(large), equalTo(large));
+        assertThat(serviceB.stats().getTxCompressedCount(), equalTo(1L));
+    }
+
+    public void testMessagesThatDoNotShrinkAreSentUncompressed() throws IOException {
+        startServices(Settings.builder()
+            .put(Transport.TRANSPORT_TCP_COMPRESSOR.getKey(), randomFrom("deflate", "lz4")).build());
+        // random bytes don't compress, so the compressor header makes the body larger
+        byte[] body = randomByteArrayOfLength(randomIntBetween(16, 4096));
+        assertThat(nettyB.compressMessage(Version.CURRENT, out -> out.writeBytes(body)), nullValue());
+        assertThat(serviceB.stats().getTxCompressedCount(), equalTo(0L));
+
+        // such messages are still delivered, just uncompressed
+        assertThat(echo(body), equalTo(body));
+        assertThat(serviceB.stats().getTxCompressedCount(), equalTo(0L));
+    }
+
+    public void testConfiguredCompressorIsUsed() throws IOException {
+        String compressorName = randomFrom("deflate", "lz4");
+        startServices(Settings.builder().put(Transport.TRANSPORT_TCP_COMPRESSOR.getKey(), compressorName).build());
+        byte[] body = compressibleMessage(4096);
+        try (ReleasablePagedBytesReference compressed = nettyB.compressMessage(Version.CURRENT, out -> out.writeBytes(body))) {
+            assertThat(compressed, notNullValue());
+            assertThat(CompressorFactory.compressor(body(compressed)), sameInstance(CompressorFactory.compressor(compressorName)));
+        }
+        assertThat(serviceB.stats().getTxCompressedCount(), equalTo(1L));
+    }
+
+    public void testBodyIsCompressedWhileItIsWritten() throws IOException {
+        int minSize = randomIntBetween(0, 2048);
+        String compressorName = randomFrom("deflate", "lz4");
+        startServices(Settings.builder()
+            .put(Transport.TRANSPORT_TCP_COMPRESSOR.getKey(), compressorName)
+            .put(Transport.TRANSPORT_TCP_COMPRESS_MIN_SIZE.getKey(), minSize + "b").build());
+        byte[] body = compressibleMessage(randomIntBetween(minSize + 1, 4 * minSize + 64));
+        // the body is written in pieces, so that the minimum size is crossed in the middle of a write
+        final int[] pieces = new int[randomIntBetween(1, 16)];
+        for (int i = 0; i < pieces.length; i++) {
+            pieces[i] = randomIntBetween(0, body.length);
+        }
+        Arrays.sort(pieces);
+        try (ReleasablePagedBytesReference compressed = nettyB.compressMessage(Version.CURRENT, out -> {
+            int offset = 0;
+            for (int end : pieces) {
+                if (end - offset == 1) {
+                    out.writeByte(body[offset]);
+                } else {
+                    out.writeBytes(body, offset, end - offset);
+                }
+                offset = end;
+            }
+            out.writeBytes(body, offset, body.length - offset);
+        })) {
+            assertThat(compressed, notNullValue());
+            Compressor compressor = CompressorFactory.compressor(body(compressed));
+            assertThat(compressor, sameInstance(CompressorFactory.compressor(compressorName)));
+            byte[] uncompressed = new byte[body.length];
+            try (StreamInput in = compressor.streamInput(body(compressed).streamInput())) {
+                in.readFully(uncompressed);
+            }
+            assertThat(uncompressed, equalTo(body));
+        }
+        TransportStats stats = serviceB.stats();
+        assertThat(stats.getTxCompressedCount(), equalTo(1L));
+        assertThat(stats.getTxUncompressedSize().bytes(), equalTo((long) body.length));
+    }
+
+    public void testCompressionStatsSerialization() throws IOException {
+        TransportStats stats = new TransportStats(1, 2, 3, 4, 5, 6, 700, 80, 9);
+        BytesStreamOutput out = new BytesStreamOutput();
+        stats.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        TransportStats read = TransportStats.readTransportStats(in);
+        assertThat(read.getTxCompressedCount(), equalTo(6L));
+        assertThat(read.getTxUncompressedSize().bytes(), equalTo(700L));
+        assertThat(read.getTxCompressedSize().bytes(), equalTo(80L));
+        assertThat(read.getCompressionTime().millis(), equalTo(9L));
+
+        // older nodes neither send nor read the compression stats
+        out = new BytesStreamOutput();
+        out.setVersion(Version.V_2_0_0);
+        stats.writeTo(out);
+        in = StreamInput.wrap(out.bytes());
+        in.setVersion(Version.V_2_0_0);
+        read = TransportStats.readTransportStats(in);
+        assertThat(read.txCount(), equalTo(4L));
+        assertThat(read.getTxCompressedCount(), equalTo(0L));
+        assertThat(in.available(), equalTo(0));
+
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+        stats.toXContent(builder, XContentBuilder.EMPTY_PARAMS);
+        builder.endObject();
+        Map<String, Object> map = XContentFactory.xContent(builder.bytes()).createParser(builder.bytes()).map();
+        assertThat(XContentMapValues.extractValue("transport.compression.tx_count", map), equalTo(6));
+        assertThat(XContentMapValues.extractValue("transport.compression.tx_uncompressed_size_in_bytes", map), equalTo(700));
+        assertThat(XContentMapValues.extractValue("transport.compression.tx_compressed_size_in_bytes", map), equalTo(80));
+        assertThat(XContentMapValues.extractValue("transport.compression.time_in_millis", map), equalTo(9));
+    }
+
+    private static BytesReference body(BytesReference message) {
+        return message.slice(NettyHeader.HEADER_SIZE, message.length() - NettyHeader.HEADER_SIZE);
+    }
+
+    private static class EchoRequest extends TransportRequest {
+
+        private byte[] message;
+
+        EchoRequest() {
+        }
+
+        EchoRequest(byte[] message) {
+            this.message = message;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            message = in.readByteArray();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeByteArray(message);
+        }
+    }
+
+    private static class EchoResponse extends TransportResponse {
+
+        private byte[] message;
+
+        EchoResponse() {
+        }
+
+        EchoResponse(byte[] message) {
+            this.message = message;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            message = in.readByteArray();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeByteArray(message);
+        }
+    }
+}
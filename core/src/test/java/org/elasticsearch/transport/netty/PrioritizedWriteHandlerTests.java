@@ -0,0 +1,210 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.transport.TransportServiceAdapter;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelEvent;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelState;
+import org.jboss.netty.channel.DefaultChannelFuture;
+import org.jboss.netty.channel.DownstreamMessageEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.UpstreamChannelStateEvent;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class PrioritizedWriteHandlerTests extends ESTestCase {
+
+    private final Channel channel = mock(Channel.class);
+    private final List<MessageEvent> written = new ArrayList<>();
+    private final ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+    private final PrioritizedWriteHandler handler = new PrioritizedWriteHandler(mock(NettyTransport.class), 100, 10, "reg");
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        doAnswer(invocation -> {
+            ChannelEvent event = (ChannelEvent) invocation.getArguments()[0];
+            if (event instanceof MessageEvent) {
+                written.add((MessageEvent) event);
+            }
+            return null;
+        }).when(ctx).sendDownstream(any(ChannelEvent.class));
+    }
+
+    public void testSmallMessagesGoAheadOfWaitingLargeMessages() throws Exception {
+        MessageEvent large1 = write(50);
+        MessageEvent large2 = write(60);
+        MessageEvent small1 = write(5);
+        MessageEvent small2 = write(5);
+        assertThat(written, contains(large1, small1, small2));
+
+        large1.getFuture().setSuccess();
+        assertThat(written, contains(large1, small1, small2, large2));
+    }
+
+    public void testLargeMessagesAreNotStarved() throws Exception {
+        MessageEvent large1 = write(100);
+        MessageEvent large2 = write(50);
+        List<MessageEvent> smallMessages = new ArrayList<>();
+        for (int i = 0; i < PrioritizedWriteHandler.SMALL_MESSAGES_PER_LARGE_MESSAGE + 1; i++) {
+            smallMessages.add(write(5));
+        }
+        assertThat(written, contains(large1));
+
+        large1.getFuture().setSuccess();
+        List<MessageEvent> expected = new ArrayList<>();
+        expected.add(large1);
+        expected.addAll(smallMessages.subList(0, PrioritizedWriteHandler.SMALL_MESSAGES_PER_LARGE_MESSAGE));
+        expected.add(large2);
+        expected.add(smallMessages.get(PrioritizedWriteHandler.SMALL_MESSAGES_PER_LARGE_MESSAGE));
+        assertEquals(expected, written);
+    }
+
+    public void testMessagesLargerThanTheLimitAreWrittenAlone() throws Exception {
+        MessageEvent huge = write(500);
+        MessageEvent small = write(5);
+        assertThat(written, contains(huge));
+        huge.getFuture().setSuccess();
+        assertThat(written, contains(huge, small));
+    }
+
+    public void testClosingFailsQueuedMessages() throws Exception {
+        MessageEvent large1 = write(100);
+        MessageEvent large2 = write(50);
+        handler.channelClosed(ctx, new UpstreamChannelStateEvent(channel, ChannelState.OPEN, Boolean.FALSE));
+        assertThat(written, contains(large1));
+        assertTrue(large2.getFuture().isDone());
+        assertThat(large2.getFuture().getCause(), instanceOf(ClosedChannelException.class));
+
+        large1.getFuture().setFailure(new ClosedChannelException());
+        assertThat(written, contains(large1));
+        written.clear();
+        // writes after closing go straight to the channel which fails them
+        MessageEvent late = write(5);
+        assertThat(written, contains(late));
+    }
+
+    public void testNothingQueuedAfterCompletion() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            MessageEvent write = write(randomIntBetween(1, 200));
+            assertThat(written, contains(write));
+            write.getFuture().setSuccess();
+            written.clear();
+        }
+        assertThat(written, empty());
+    }
+
+    public void testQueueStatsNeverGoNegative() throws Exception {
+        final Map<String, AtomicLong> queued = new ConcurrentHashMap<>();
+        final AtomicBoolean wentNegative = new AtomicBoolean();
+        final TransportServiceAdapter adapter = mock(TransportServiceAdapter.class);
+        doAnswer(invocation -> {
+            queued.computeIfAbsent((String) invocation.getArguments()[0], type -> new AtomicLong()).incrementAndGet();
+            return null;
+        }).when(adapter).onMessageQueued(anyString(), anyLong());
+        doAnswer(invocation -> {
+            AtomicLong count = queued.computeIfAbsent((String) invocation.getArguments()[0], type -> new AtomicLong());
+            if (count.decrementAndGet() < 0) {
+                wentNegative.set(true);
+            }
+            return null;
+        }).when(adapter).onMessageDequeued(anyString(), anyLong(), anyLong());
+        final NettyTransport transport = mock(NettyTransport.class);
+        transport.transportServiceAdapter = adapter;
+        final PrioritizedWriteHandler handler = new PrioritizedWriteHandler(transport, 100, 10, "reg");
+
+        // writes complete on another thread, which drains the queue concurrently to the threads that fill it
+        final BlockingQueue<MessageEvent> inFlight = new LinkedBlockingQueue<>();
+        final ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        doAnswer(invocation -> {
+            inFlight.add((MessageEvent) invocation.getArguments()[0]);
+            return null;
+        }).when(ctx).sendDownstream(any(ChannelEvent.class));
+
+        final int numberOfThreads = randomIntBetween(2, 8);
+        final int writesPerThread = scaledRandomIntBetween(100, 1000);
+        final CyclicBarrier barrier = new CyclicBarrier(numberOfThreads + 1);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    barrier.await();
+                    for (int i = 0; i < writesPerThread; i++) {
+                        if (i == writesPerThread / 2) {
+                            // the type may change while messages are queued, they leave the stats they were counted in
+                            handler.channelType("bulk");
+                        }
+                        handler.writeRequested(ctx, new DownstreamMessageEvent(channel, new DefaultChannelFuture(channel, false),
+                            ChannelBuffers.wrappedBuffer(new byte[1 + i % 50]), null));
+                    }
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        barrier.await();
+        for (int completed = 0; completed < numberOfThreads * writesPerThread; completed++) {
+            MessageEvent write = inFlight.poll(10, TimeUnit.SECONDS);
+            assertNotNull("write was never handed to the channel", write);
+            write.getFuture().setSuccess();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertFalse(wentNegative.get());
+        for (AtomicLong count : queued.values()) {
+            assertEquals(0L, count.get());
+        }
+    }
+
+    private MessageEvent write(int size) throws Exception {
+        MessageEvent event = new DownstreamMessageEvent(channel, new DefaultChannelFuture(channel, false),
+            ChannelBuffers.wrappedBuffer(new byte[size]), null);
+        handler.writeRequested(ctx, event);
+        return event;
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.ingest.grok;
 
+import org.elasticsearch.common.Strings;
 import org.jcodings.specific.UTF8Encoding;
 import org.joni.Matcher;
 import org.joni.NameEntry;
@@ -29,10 +30,14 @@ import org.joni.Syntax;
 import org.joni.exception.ValueException;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 final class Grok {
 
@@ -53,10 +58,17 @@ final class Grok {
             ")" +
             ")?" + "\\}";
     private static final Regex GROK_PATTERN_REGEX = new Regex(GROK_PATTERN.getBytes(StandardCharsets.UTF_8), 0, GROK_PATTERN.getBytes(StandardCharsets.UTF_8).length, Option.NONE, UTF8Encoding.INSTANCE, Syntax.DEFAULT);
+    // escapes that stand for a single character class, anchor or control character and take no arguments
+    private static final String PLAIN_ESCAPES = "dDwWsShHbBAzZGntrfae";
     private final Map<String, String> patternBank;
     private final boolean namedCaptures;
     private final Regex compiledExpression;
     private final String expression;
+    // literals that any matching text must contain in this order, used to reject texts before running the regex
+    private final String[] requiredLiterals;
+    // the named groups of the expression and the back reference numbers they capture
+    private final GrokMatchGroup[] matchGroups;
+    private final int[] matchGroupBackRefs;
 
 
     public Grok(Map<String, String> patternBank, String grokPattern) {
@@ -71,6 +83,181 @@ final class Grok {
         this.expression = toRegex(grokPattern);
         byte[] expressionBytes = expression.getBytes(StandardCharsets.UTF_8);
         this.compiledExpression = new Regex(expressionBytes, 0, expressionBytes.length, Option.DEFAULT, UTF8Encoding.INSTANCE);
+        this.requiredLiterals = requiredLiterals(grokPattern);
+
+        this.matchGroups = new GrokMatchGroup[compiledExpression.numberOfNames()];
+        this.matchGroupBackRefs = new int[matchGroups.length];
+        int i = 0;
+        for (Iterator<NameEntry> entry = compiledExpression.namedBackrefIterator(); entry.hasNext(); i++) {
+            NameEntry e = entry.next();
+            matchGroups[i] = new GrokMatchGroup(new String(e.name, e.nameP, e.nameEnd - e.nameP, StandardCharsets.UTF_8));
+            matchGroupBackRefs[i] = e.getBackRefs()[0];
+        }
+    }
+
+    /**
+     * Extracts the literal strings that any text matching the given grok pattern must contain, in order. Only literals
+     * that are outside of groups and not subject to a quantifier are required, and no literals are required at all if
+     * the pattern has a top level alternation, options that could change how literals match or escapes other than
+     * plain character classes, anchors and control characters.
+     */
+    static String[] requiredLiterals(String grokPattern) {
+        List<String> literals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int depth = 0;
+        int i = 0;
+        while (i < grokPattern.length()) {
+            char c = grokPattern.charAt(i);
+            if (c == '%' && i + 1 < grokPattern.length() && grokPattern.charAt(i + 1) == '{') {
+                // a pattern reference expands to a group
+                int end = grokPattern.indexOf('}', i);
+                if (end == -1) {
+                    return Strings.EMPTY_ARRAY;
+                }
+                addLiteral(literals, literal);
+                i = end + 1;
+                continue;
+            }
+            switch (c) {
+                case '\\':
+                    if (i + 1 == grokPattern.length()) {
+                        return Strings.EMPTY_ARRAY;
+                    }
+                    char escaped = grokPattern.charAt(i + 1);
+                    if (PLAIN_ESCAPES.indexOf(escaped) != -1) {
+                        // a character class, anchor or control character
+                        addLiteral(literals, literal);
+                    } else if (Character.isLetterOrDigit(escaped)) {
+                        // back references, quoting and escapes that take arguments such as \x41, \u00e9, \k<name>,
+                        // \p{Alpha} or \cX are not worth parsing here
+                        return Strings.EMPTY_ARRAY;
+                    } else if (depth == 0) {
+                        literal.append(escaped);
+                    }
+                    i += 2;
+                    continue;
+                case '[':
+                    addLiteral(literals, literal);
+                    i = endOfCharClass(grokPattern, i);
+                    if (i == -1) {
+                        return Strings.EMPTY_ARRAY;
+                    }
+                    continue;
+                case '(':
+                    if (grokPattern.startsWith("(?", i) && i + 2 < grokPattern.length()
+                        && ":<=!>".indexOf(grokPattern.charAt(i + 2)) == -1) {
+                        // inline options, e.g. case insensitive matching
+                        return Strings.EMPTY_ARRAY;
+                    }
+                    addLiteral(literals, literal);
+                    depth++;
+                    break;
+                case ')':
+                    addLiteral(literals, literal);
+                    depth--;
+                    break;
+                case '|':
+                    if (depth == 0) {
+                        return Strings.EMPTY_ARRAY;
+                    }
+                    break;
+                case '?':
+                case '*':
+                case '+':
+                case '{':
+                    // a quantifier applies to the last character of the current literal
+                    if (literal.length() > 0) {
+                        literal.setLength(literal.length() - 1);
+                    }
+                    addLiteral(literals, literal);
+                    if (c == '{') {
+                        int end = grokPattern.indexOf('}', i);
+                        if (end == -1) {
+                            return Strings.EMPTY_ARRAY;
+                        }
+                        i = end;
+                    }
+                    break;
+                case '.':
+                case '^':
+                case '$':
+                    addLiteral(literals, literal);
+                    break;
+                default:
+                    if (depth == 0) {
+                        literal.append(c);
+                    }
+                    break;
+            }
+            i++;
+        }
+        if (depth != 0) {
+            return Strings.EMPTY_ARRAY;
+        }
+        addLiteral(literals, literal);
+        return literals.toArray(new String[literals.size()]);
+    }
+
+    private static void addLiteral(List<String> literals, StringBuilder literal) {
+        if (literal.length() > 0) {
+            literals.add(literal.toString());
+            literal.setLength(0);
+        }
+    }
+
+    /**
+     * Returns the position after the character class that starts at the given position, or -1 if it isn't closed.
+     */
+    private static int endOfCharClass(String pattern, int start) {
+        int i = start + 1;
+        if (i < pattern.length() && pattern.charAt(i) == '^') {
+            i++;
+        }
+        if (i < pattern.length() && pattern.charAt(i) == ']') {
+            // a leading closing bracket is part of the class
+            i++;
+        }
+        int depth = 1;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+            } else if (c == ']' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether the text contains all literals required by the pattern, in order.
+     */
+    private boolean containsRequiredLiterals(String text) {
+        int from = 0;
+        for (String literal : requiredLiterals) {
+            int index = text.indexOf(literal, from);
+            if (index == -1) {
+                return false;
+            }
+            from = index + literal.length();
+        }
+        return true;
+    }
+
+    /**
+     * @return the names of the fields that the captures of this grok expression are stored in
+     */
+    Set<String> captureNames() {
+        Set<String> names = new HashSet<>(matchGroups.length);
+        for (GrokMatchGroup matchGroup : matchGroups) {
+            names.add(matchGroup.getName());
+        }
+        return names;
     }
 
 
@@ -124,35 +311,38 @@ final class Grok {
     }
 
     public boolean match(String text) {
-        Matcher matcher = compiledExpression.matcher(text.getBytes(StandardCharsets.UTF_8));
-        int result = matcher.search(0, text.length(), Option.DEFAULT);
+        if (containsRequiredLiterals(text) == false) {
+            return false;
+        }
+        byte[] textAsBytes = text.getBytes(StandardCharsets.UTF_8);
+        Matcher matcher = compiledExpression.matcher(textAsBytes);
+        int result = matcher.search(0, textAsBytes.length, Option.DEFAULT);
         return (result != -1);
     }
 
     public Map<String, Object> captures(String text) {
+        if (containsRequiredLiterals(text) == false) {
+            return null;
+        }
         byte[] textAsBytes = text.getBytes(StandardCharsets.UTF_8);
-        Map<String, Object> fields = new HashMap<>();
         Matcher matcher = compiledExpression.matcher(textAsBytes);
         int result = matcher.search(0, textAsBytes.length, Option.DEFAULT);
-        if (result != -1 && compiledExpression.numberOfNames() > 0) {
+        if (result == -1) {
+            return null;
+        }
+        Map<String, Object> fields = new HashMap<>();
+        if (matchGroups.length > 0) {
             Region region = matcher.getEagerRegion();
-            for (Iterator<NameEntry> entry = compiledExpression.namedBackrefIterator(); entry.hasNext();) {
-                NameEntry e = entry.next();
-                int number = e.getBackRefs()[0];
-
-                String groupName = new String(e.name, e.nameP, e.nameEnd - e.nameP, StandardCharsets.UTF_8);
+            for (int i = 0; i < matchGroups.length; i++) {
+                int number = matchGroupBackRefs[i];
                 String matchValue = null;
                 if (region.beg[number] >= 0) {
                     matchValue = new String(textAsBytes, region.beg[number], region.end[number] - region.beg[number], StandardCharsets.UTF_8);
                 }
-                GrokMatchGroup match = new GrokMatchGroup(groupName, matchValue);
-                fields.put(match.getName(), match.getValue());
+                fields.put(matchGroups[i].getName(), matchGroups[i].getValue(matchValue));
             }
-            return fields;
-        } else if (result != -1) {
-            return fields;
         }
-        return null;
+        return fields;
     }
 }
 
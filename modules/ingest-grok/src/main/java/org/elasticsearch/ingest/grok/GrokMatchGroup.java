@@ -24,9 +24,8 @@ final class GrokMatchGroup {
     private final String patternName;
     private final String fieldName;
     private final String type;
-    private final String groupValue;
 
-    public GrokMatchGroup(String groupName, String groupValue) {
+    public GrokMatchGroup(String groupName) {
         String[] parts = groupName.split(":");
         patternName = parts[0];
         if (parts.length >= 2) {
@@ -40,14 +39,13 @@ final class GrokMatchGroup {
         } else {
             type = DEFAULT_TYPE;
         }
-        this.groupValue = groupValue;
     }
 
     public String getName() {
         return (fieldName == null) ? patternName : fieldName;
     }
 
-    public Object getValue() {
+    public Object getValue(String groupValue) {
         if (groupValue == null) { return null; }
 
         switch(type) {
@@ -19,13 +19,19 @@
 
 package org.elasticsearch.ingest.grok;
 
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.ingest.core.AbstractProcessor;
 import org.elasticsearch.ingest.core.AbstractProcessorFactory;
 import org.elasticsearch.ingest.core.ConfigurationUtils;
 import org.elasticsearch.ingest.core.IngestDocument;
+import org.elasticsearch.ingest.core.IngestDocument.FieldPath;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import static org.elasticsearch.ingest.core.ConfigurationUtils.newConfigurationException;
 
@@ -34,20 +40,29 @@ public final class GrokProcessor extends AbstractProcessor {
     public static final String TYPE = "grok";
 
     private final String matchField;
+    private final FieldPath matchFieldPath;
     private final Grok grok;
+    // compiled paths of the fields that captures are stored in
+    private final Map<String, FieldPath> captureFieldPaths;
 
     public GrokProcessor(String tag, Grok grok, String matchField) {
         super(tag);
         this.matchField = matchField;
+        this.matchFieldPath = new FieldPath(matchField);
         this.grok = grok;
+        Map<String, FieldPath> captureFieldPaths = new HashMap<>();
+        for (String captureName : grok.captureNames()) {
+            captureFieldPaths.put(captureName, new FieldPath(captureName));
+        }
+        this.captureFieldPaths = captureFieldPaths;
     }
 
     @Override
     public void execute(IngestDocument ingestDocument) throws Exception {
-        String fieldValue = ingestDocument.getFieldValue(matchField, String.class);
+        String fieldValue = ingestDocument.getFieldValue(matchFieldPath, String.class);
         Map<String, Object> matches = grok.captures(fieldValue);
         if (matches != null) {
-            matches.forEach((k, v) -> ingestDocument.setFieldValue(k, v));
+            matches.forEach((k, v) -> ingestDocument.setFieldValue(captureFieldPaths.get(k), v));
         } else {
             throw new IllegalArgumentException("Grok expression does not match field value: [" + fieldValue + "]");
         }
@@ -68,7 +83,15 @@ public final class GrokProcessor extends AbstractProcessor {
 
     public final static class Factory extends AbstractProcessorFactory<GrokProcessor> {
 
+        /**
+         * The maximum number of compiled grok expressions that are kept around for reuse by other processors.
+         */
+        static final int GROK_CACHE_SIZE = 1000;
+
         private final Map<String, String> builtinPatterns;
+        // compiled grok expressions by pattern and custom pattern definitions, so that pipelines sharing them share the regex
+        private final Cache<Tuple<String, Map<String, String>>, Grok> grokCache =
+            CacheBuilder.<Tuple<String, Map<String, String>>, Grok>builder().setMaximumWeight(GROK_CACHE_SIZE).build();
 
         public Factory(Map<String, String> builtinPatterns) {
             this.builtinPatterns = builtinPatterns;
@@ -79,16 +102,20 @@ public final class GrokProcessor extends AbstractProcessor {
             String matchField = ConfigurationUtils.readStringProperty(TYPE, processorTag, config, "field");
             String matchPattern = ConfigurationUtils.readStringProperty(TYPE, processorTag, config, "pattern");
             Map<String, String> customPatternBank = ConfigurationUtils.readOptionalMap(TYPE, processorTag, config, "pattern_definitions");
-            Map<String, String> patternBank = new HashMap<>(builtinPatterns);
-            if (customPatternBank != null) {
-                patternBank.putAll(customPatternBank);
+            if (customPatternBank == null) {
+                customPatternBank = Collections.emptyMap();
             }
 
             Grok grok;
             try {
-                grok = new Grok(patternBank, matchPattern);
+                grok = grokCache.computeIfAbsent(new Tuple<>(matchPattern, customPatternBank), key -> {
+                    Map<String, String> patternBank = new HashMap<>(builtinPatterns);
+                    patternBank.putAll(key.v2());
+                    return new Grok(patternBank, key.v1());
+                });
             } catch (Exception e) {
-                throw newConfigurationException(TYPE, processorTag, "pattern", "Invalid regex pattern. " + e.getMessage());
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                throw newConfigurationException(TYPE, processorTag, "pattern", "Invalid regex pattern. " + cause.getMessage());
             }
             return new GrokProcessor(processorTag, grok, matchField);
         }
@@ -28,7 +28,9 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class GrokProcessorFactoryTests extends ESTestCase {
 
@@ -113,4 +115,23 @@ public class GrokProcessorFactoryTests extends ESTestCase {
         }
 
     }
+
+    public void testCompiledGrokIsShared() throws Exception {
+        GrokProcessor.Factory factory = new GrokProcessor.Factory(Collections.emptyMap());
+        GrokProcessor first = factory.create(grokConfig("%{MY_PATTERN:name}!", "foo"));
+        GrokProcessor second = factory.create(grokConfig("%{MY_PATTERN:name}!", "foo"));
+        GrokProcessor otherDefinitions = factory.create(grokConfig("%{MY_PATTERN:name}!", "bar"));
+        assertThat(second.getGrok(), sameInstance(first.getGrok()));
+        assertThat(otherDefinitions.getGrok(), not(sameInstance(first.getGrok())));
+        assertThat(otherDefinitions.getGrok().match("bar!"), equalTo(true));
+        assertThat(otherDefinitions.getGrok().match("foo!"), equalTo(false));
+    }
+
+    private static Map<String, Object> grokConfig(String pattern, String definition) {
+        Map<String, Object> config = new HashMap<>();
+        config.put("field", "_field");
+        config.put("pattern", pattern);
+        config.put("pattern_definitions", Collections.singletonMap("MY_PATTERN", definition));
+        return config;
+    }
 }
@@ -282,4 +282,55 @@ public class GrokTests extends ESTestCase {
         Grok grok = new Grok(bank, "%{MONTHDAY:greatday}");
         assertThat(grok.captures("nomatch"), nullValue());
     }
+
+    public void testRequiredLiterals() {
+        assertThat(Grok.requiredLiterals("%{IPORHOST:clientip} %{USER:ident} \\[%{HTTPDATE:timestamp}\\] \"%{WORD:verb}\""),
+            equalTo(new String[] {" ", " [", "] \"", "\""}));
+        assertThat(Grok.requiredLiterals("test (N/A|%{BASE10NUM:duration}ms)"), equalTo(new String[] {"test "}));
+        assertThat(Grok.requiredLiterals("abc?d %{WORD} x*y{2}z"), equalTo(new String[] {"ab", "d ", " ", "z"}));
+        assertThat(Grok.requiredLiterals("ab[c)|]d\\d.e^f$g"), equalTo(new String[] {"ab", "d", "e", "f", "g"}));
+        assertThat(Grok.requiredLiterals("(?:foo %{WORD})? bar"), equalTo(new String[] {" bar"}));
+        assertThat(Grok.requiredLiterals("^%{TIMESTAMP_ISO8601}$").length, equalTo(0));
+        // top level alternations and inline options disable the required literals
+        assertThat(Grok.requiredLiterals("foo|%{WORD}").length, equalTo(0));
+        assertThat(Grok.requiredLiterals("(?i)foo %{WORD}").length, equalTo(0));
+        // so do escapes that take arguments, back references and quoting
+        assertThat(Grok.requiredLiterals("\\x41BC %{WORD:w}").length, equalTo(0));
+        assertThat(Grok.requiredLiterals("ab\\x{263a}c").length, equalTo(0));
+        assertThat(Grok.requiredLiterals("%{WORD:a} \\u00e9t\\u00e9").length, equalTo(0));
+        assertThat(Grok.requiredLiterals("a\\012b").length, equalTo(0));
+        assertThat(Grok.requiredLiterals("(?<x>a)b\\k<x>").length, equalTo(0));
+        assertThat(Grok.requiredLiterals("(a)b\\1c").length, equalTo(0));
+        assertThat(Grok.requiredLiterals("(?<x>a)b\\g<x>").length, equalTo(0));
+        assertThat(Grok.requiredLiterals("a\\p{Alpha}b\\P{Digit}c").length, equalTo(0));
+        assertThat(Grok.requiredLiterals("a\\cAb").length, equalTo(0));
+        assertThat(Grok.requiredLiterals("a\\Q.b\\E").length, equalTo(0));
+        // plain character classes, anchors and control characters only split literals
+        assertThat(Grok.requiredLiterals("\\Aab\\sc\\td\\z"), equalTo(new String[] {"ab", "c", "d"}));
+    }
+
+    public void testRequiredLiteralsWithEscapesMatch() {
+        Grok grok = new Grok(basePatterns, "\\x41BC %{WORD:w}");
+        assertThat(grok.match("ABC foo"), is(true));
+        grok = new Grok(basePatterns, "a\\012b");
+        assertThat(grok.match("a\nb"), is(true));
+        grok = new Grok(basePatterns, "(?<x>a)-\\k<x>");
+        assertThat(grok.match("a-a"), is(true));
+    }
+
+    public void testRequiredLiteralsRejectText() {
+        Grok grok = new Grok(basePatterns, "%{WORD:verb} /%{NOTSPACE:path} HTTP/%{NUMBER:version}");
+        assertThat(grok.match("GET /index.html HTTP/1.1"), is(true));
+        assertThat(grok.captures("GET /index.html HTTP/1.1").get("path"), equalTo("index.html"));
+        assertThat(grok.match("GET /index.html FTP/1.1"), is(false));
+        assertThat(grok.captures("GET /index.html FTP/1.1"), nullValue());
+        // literals must appear in order
+        assertThat(grok.match("HTTP/1.1 GET /index.html"), is(false));
+    }
+
+    public void testMatchMultiByteText() {
+        Grok grok = new Grok(basePatterns, "%{GREEDYDATA:text}!$");
+        assertThat(grok.match("\u00e9\u00e9\u00e9!"), is(true));
+        assertThat(grok.captures("\u00e9\u00e9\u00e9!").get("text"), equalTo("\u00e9\u00e9\u00e9"));
+    }
 }
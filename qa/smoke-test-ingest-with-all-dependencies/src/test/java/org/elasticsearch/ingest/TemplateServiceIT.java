@@ -21,11 +21,14 @@ package org.elasticsearch.ingest;
 
 import org.elasticsearch.ingest.core.TemplateService;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
 
 public class TemplateServiceIT extends AbstractMustacheTestCase {
 
@@ -38,6 +41,31 @@ public class TemplateServiceIT extends AbstractMustacheTestCase {
         assertThat(template.execute(model), equalTo("value1/{fieldc=value3}/value3"));
     }
 
+    public void testFieldReferenceTemplates() {
+        Map<String, Object> model = new HashMap<>();
+        model.put("fielda", "value \"1\"");
+        model.put("fieldb", Collections.singletonMap("fieldc", 3));
+        model.put("fieldd", Arrays.asList("value4", "value5"));
+        model.put("fielde", true);
+
+        TemplateService.Template template = templateService.compile("{{fielda}}/{{ fieldb.fieldc }}/{{fielde}}/{{missing}}");
+        assertThat(template, instanceOf(InternalTemplateService.FieldReferenceTemplate.class));
+        assertThat(template.execute(model), equalTo("value \\\"1\\\"/3/true/"));
+
+        template = templateService.compile("{{fieldb.missing.fieldc}}-{{fielda.length}}");
+        assertThat(template, instanceOf(InternalTemplateService.FieldReferenceTemplate.class));
+        assertThat(template.execute(model), equalTo("-" + "value \"1\"".length()));
+
+        template = templateService.compile("{{fieldd}}");
+        assertThat(template, instanceOf(InternalTemplateService.FieldReferenceTemplate.class));
+        assertThat(template.execute(model), equalTo(templateService.compile("{{#fieldd}}{{/fieldd}}{{fieldd}}").execute(model)));
+
+        for (String mustache : new String[] {"{{#fieldd}}{{.}}{{/fieldd}}", "{{{fielda}}}", "{{&fielda}}", "{{! comment}}"}) {
+            template = templateService.compile(mustache);
+            assertThat(template, not(instanceOf(InternalTemplateService.FieldReferenceTemplate.class)));
+        }
+    }
+
     public void testWrongTemplateUsage() {
         Map<String, Object> model = Collections.emptyMap();
         TemplateService.Template template = templateService.compile("value");
@@ -54,5 +54,10 @@ public class TestTemplateService implements TemplateService {
         public String getKey() {
             return expected;
         }
+
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
     }
 }